@@ -0,0 +1,25 @@
+-- ============================================================================
+-- 001 - Ids por secuencia (pooled) para turno y bloqueo_turno
+-- ============================================================================
+-- Turno y BloqueoTurno pasan de GenerationType.IDENTITY a SEQUENCE con
+-- allocationSize=50 para que Hibernate pueda agrupar los INSERT en batches.
+--
+-- El INCREMENT BY debe coincidir con allocationSize. El optimizador "pooled"
+-- usa el valor de la secuencia como tope del bloque, por eso se arranca en
+-- MAX(id) + 50: el primer bloque asignado empieza en MAX(id) + 1.
+--
+-- Aplicar ANTES de desplegar el JAR (ddl-auto=validate):
+--   psql -d cromados_prod -f db/migrations/001_secuencias_turno_bloqueo.sql
+-- ============================================================================
+
+BEGIN;
+
+CREATE SEQUENCE IF NOT EXISTS turno_seq INCREMENT BY 50 MINVALUE 1;
+SELECT setval('turno_seq', COALESCE((SELECT MAX(id) FROM turno), 0) + 50, false);
+ALTER TABLE turno ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS bloqueo_turno_seq INCREMENT BY 50 MINVALUE 1;
+SELECT setval('bloqueo_turno_seq', COALESCE((SELECT MAX(id) FROM bloqueo_turno), 0) + 50, false);
+ALTER TABLE bloqueo_turno ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+COMMIT;
@@ -0,0 +1,55 @@
+-- ============================================================================
+-- 002 - bloqueo_turno pasa de una fila por slot a una fila por intervalo
+-- ============================================================================
+-- Antes: una fila (barbero_id, fecha, hora) por cada slot de 30 minutos.
+-- Ahora: una fila (barbero_id, fecha, inicio, fecha_hasta, fin, motivo) por
+-- intervalo continuo, ambos extremos inclusive. Una semana de vacaciones es
+-- una sola fila (lunes 00:00 -> domingo 23:59).
+--
+-- Migración de datos: los slots consecutivos del mismo barbero y día se
+-- agrupan (hora - n*30min es constante dentro de cada racha). Se conserva la
+-- fila de menor id de cada grupo y se borran las demás. El fin cubre el
+-- último slot completo (hora + 29 min).
+--
+-- Aplicar ANTES de desplegar el JAR (ddl-auto=validate):
+--   psql -d cromados_prod -f db/migrations/002_bloqueos_por_intervalo.sql
+-- ============================================================================
+
+BEGIN;
+
+ALTER TABLE bloqueo_turno ADD COLUMN inicio      TIME;
+ALTER TABLE bloqueo_turno ADD COLUMN fecha_hasta DATE;
+ALTER TABLE bloqueo_turno ADD COLUMN fin         TIME;
+ALTER TABLE bloqueo_turno ADD COLUMN motivo      VARCHAR(120);
+
+WITH rachas AS (
+    SELECT id, barbero_id, fecha, hora,
+           EXTRACT(EPOCH FROM hora) / 60
+             - 30 * ROW_NUMBER() OVER (PARTITION BY barbero_id, fecha ORDER BY hora) AS grupo
+    FROM bloqueo_turno
+), intervalos AS (
+    SELECT MIN(id) AS id,
+           MIN(hora) AS inicio,
+           MAX(hora) + INTERVAL '29 minutes' AS fin   -- TIME + INTERVAL da la vuelta a medianoche
+    FROM rachas
+    GROUP BY barbero_id, fecha, grupo
+)
+UPDATE bloqueo_turno b
+SET inicio = i.inicio,
+    fin = CASE WHEN i.fin < i.inicio THEN TIME '23:59' ELSE i.fin END,
+    fecha_hasta = b.fecha,
+    motivo = 'Descanso'
+FROM intervalos i
+WHERE b.id = i.id;
+
+DELETE FROM bloqueo_turno WHERE inicio IS NULL;
+
+ALTER TABLE bloqueo_turno ALTER COLUMN inicio      SET NOT NULL;
+ALTER TABLE bloqueo_turno ALTER COLUMN fecha_hasta SET NOT NULL;
+ALTER TABLE bloqueo_turno ALTER COLUMN fin         SET NOT NULL;
+ALTER TABLE bloqueo_turno DROP COLUMN hora;
+
+CREATE INDEX IF NOT EXISTS idx_bloqueo_turno_barbero_rango
+    ON bloqueo_turno (barbero_id, fecha, fecha_hasta);
+
+COMMIT;
@@ -0,0 +1,19 @@
+-- ============================================================================
+-- 003 - Teléfono normalizado e indexado en barbero
+-- ============================================================================
+-- Los webhooks de WhatsApp resuelven el barbero remitente por teléfono E.164
+-- (+549...) en lugar de recorrer toda la tabla. La columna la completa la app
+-- al arrancar (BarberoTelefonoIndex) y en cada alta/edición de barbero.
+--
+-- Aplicar ANTES de desplegar el JAR (ddl-auto=validate):
+--   psql -d cromados_prod -f db/migrations/003_barbero_telefono_normalizado.sql
+-- ============================================================================
+
+BEGIN;
+
+ALTER TABLE barbero ADD COLUMN IF NOT EXISTS telefono_normalizado VARCHAR(20);
+
+CREATE INDEX IF NOT EXISTS idx_barbero_telefono_normalizado
+    ON barbero (telefono_normalizado);
+
+COMMIT;
@@ -0,0 +1,20 @@
+-- ============================================================================
+-- 004 - Tracking de mensajes WhatsApp (Twilio) por turno
+-- ============================================================================
+-- Cada turno guarda el SID de su último mensaje (confirmación / recordatorio)
+-- y el estado que informa Twilio en POST /twilio/status, para ver entregas y
+-- fallos sin revisar logs.
+--
+-- Aplicar ANTES de desplegar el JAR (ddl-auto=validate):
+--   psql -d cromados_prod -f db/migrations/004_turno_whatsapp_tracking.sql
+-- ============================================================================
+
+BEGIN;
+
+ALTER TABLE turno ADD COLUMN IF NOT EXISTS whatsapp_sid    VARCHAR(64);
+ALTER TABLE turno ADD COLUMN IF NOT EXISTS whatsapp_estado VARCHAR(20);
+ALTER TABLE turno ADD COLUMN IF NOT EXISTS whatsapp_error  VARCHAR(120);
+
+CREATE INDEX IF NOT EXISTS idx_turno_whatsapp_sid ON turno (whatsapp_sid);
+
+COMMIT;
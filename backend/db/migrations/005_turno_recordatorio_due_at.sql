@@ -0,0 +1,41 @@
+-- ============================================================================
+-- 005 - Cola de recordatorios: turno.recordatorio_due_at
+-- ============================================================================
+-- recordatorio_due_at = fecha + hora - 6h (hora Argentina). La app lo mantiene
+-- en cada alta y cada vez que se mueve un turno. El scheduler selecciona sólo
+-- los recordatorios pendientes y vencidos con el índice parcial de abajo, en
+-- lugar de cargar dos días completos de turnos.
+--
+-- El backfill sólo cubre turnos futuros confirmados: el histórico nunca va a
+-- recibir recordatorio, así que se marca como enviado y queda fuera del índice.
+-- Si un turno sin vencimiento se confirma o se mueve, la app lo calcula y
+-- vuelve a dejar el recordatorio pendiente.
+--
+-- Aplicar ANTES de desplegar el JAR (ddl-auto=validate):
+--   psql -d cromados_prod -f db/migrations/005_turno_recordatorio_due_at.sql
+-- ============================================================================
+
+BEGIN;
+
+ALTER TABLE turno ADD COLUMN IF NOT EXISTS recordatorio_due_at TIMESTAMP;
+
+UPDATE turno
+SET recordatorio_due_at = (fecha + hora) - INTERVAL '6 hours'
+WHERE recordatorio_due_at IS NULL
+  AND fecha >= CURRENT_DATE
+  AND (pago_confirmado OR estado IN ('CONFIRMADO', 'BLOQUEADO'));
+
+UPDATE turno
+SET recordatorio_enviado = true
+WHERE fecha < CURRENT_DATE
+  AND recordatorio_enviado IS NOT TRUE;
+
+-- Parcial: sólo los recordatorios todavía pendientes (una fracción chica de la tabla).
+-- El predicado repite el de TurnoRepository (IS NULL OR = false) para que el planner
+-- pueda usarlo: "IS NOT TRUE" no lo deduce de ese OR.
+CREATE INDEX IF NOT EXISTS idx_turno_recordatorio_due_at
+    ON turno (recordatorio_due_at)
+    WHERE recordatorio_due_at IS NOT NULL
+      AND (recordatorio_enviado IS NULL OR recordatorio_enviado = false);
+
+COMMIT;
@@ -0,0 +1,28 @@
+-- ============================================================================
+-- 006 - Temporizadores durables: turno.expira_at
+-- ============================================================================
+-- expira_at = momento en que una reserva PENDIENTE_PAGO libera el horario si no
+-- se pagó (alta + 15 min). La app lo fija al crear la reserva y lo limpia cuando
+-- sale de PENDIENTE_PAGO. Junto con recordatorio_due_at es la fuente durable de
+-- los temporizadores: al arrancar, TemporizadorService reconstruye el timing
+-- wheel en memoria desde estas dos columnas.
+--
+-- Aplicar ANTES de desplegar el JAR (ddl-auto=validate):
+--   psql -d cromados_prod -f db/migrations/006_turno_expira_at.sql
+-- ============================================================================
+
+BEGIN;
+
+ALTER TABLE turno ADD COLUMN IF NOT EXISTS expira_at TIMESTAMP(6) WITH TIME ZONE;
+
+-- Reservas pendientes existentes: vencen 15 min después de su alta (created_at en hora Argentina)
+UPDATE turno
+SET expira_at = (created_at AT TIME ZONE 'America/Argentina/Buenos_Aires') + INTERVAL '15 minutes'
+WHERE estado = 'PENDIENTE_PAGO' AND expira_at IS NULL;
+
+-- Parcial: sólo las reservas que todavía pueden expirar
+CREATE INDEX IF NOT EXISTS idx_turno_expira_at
+    ON turno (expira_at)
+    WHERE expira_at IS NOT NULL;
+
+COMMIT;
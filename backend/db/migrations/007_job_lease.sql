@@ -0,0 +1,23 @@
+-- ============================================================================
+-- 007 - Leases de jobs programados: tabla job_lease
+-- ============================================================================
+-- Una fila por job (recordatorios, reaper). La instancia que la encuentra
+-- vencida la toma, la renueva con heartbeats mientras corre y la libera al
+-- terminar; si muere, el lease vence solo. Así cada job corre en un único nodo
+-- aunque haya varias instancias del backend.
+--
+-- Aplicar ANTES de desplegar el JAR (ddl-auto=validate):
+--   psql -d cromados_prod -f db/migrations/007_job_lease.sql
+-- ============================================================================
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS job_lease (
+    nombre       VARCHAR(64)  PRIMARY KEY,
+    owner        VARCHAR(128) NOT NULL,
+    adquirido_en TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    heartbeat_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    expira_at    TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+COMMIT;
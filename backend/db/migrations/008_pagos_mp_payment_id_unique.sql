@@ -0,0 +1,24 @@
+-- ============================================================================
+-- 008 - Idempotencia del webhook de MercadoPago: pagos.mp_payment_id único
+-- ============================================================================
+-- El webhook registra un Pago por cada pago de MP procesado. Con el índice
+-- único, una notificación repetida se descarta con un lookup por índice y una
+-- concurrente (otra instancia) falla al insertar y revierte su transacción en
+-- lugar de duplicar turnos.
+--
+-- Aplicar ANTES de desplegar el JAR (ddl-auto=validate):
+--   psql -d cromados_prod -f db/migrations/008_pagos_mp_payment_id_unique.sql
+-- ============================================================================
+
+BEGIN;
+
+-- Si hubiera duplicados previos, conservar el registro más antiguo de cada pago
+DELETE FROM pagos p
+USING pagos q
+WHERE p.mp_payment_id IS NOT NULL
+  AND p.mp_payment_id = q.mp_payment_id
+  AND p.id > q.id;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_pagos_mp_payment_id ON pagos (mp_payment_id);
+
+COMMIT;
@@ -0,0 +1,50 @@
+-- ============================================================================
+-- 009 - Checkouts guardados del lado del servidor: checkout_sesion + ítems
+-- ============================================================================
+-- El carrito (sesiones, servicios, adicionales y montos ya resueltos) queda en
+-- la DB al crear la preferencia de MercadoPago; a MP sólo viaja el UUID como
+-- external_reference. El webhook lo carga por ese índice y crea los turnos.
+-- Los ítems se borran en cascada cuando se purga un checkout viejo.
+--
+-- Aplicar ANTES de desplegar el JAR (ddl-auto=validate):
+--   psql -d cromados_prod -f db/migrations/009_checkout_sesion.sql
+-- ============================================================================
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS checkout_sesion (
+    id                 BIGSERIAL PRIMARY KEY,
+    external_reference VARCHAR(36)  NOT NULL,
+    preference_id      VARCHAR(64),
+    sucursal_id        BIGINT       NOT NULL,
+    barbero_id         BIGINT       NOT NULL,
+    tipo_corte_id      BIGINT       NOT NULL,
+    cliente_nombre     VARCHAR(255),
+    cliente_telefono   VARCHAR(255),
+    cliente_edad       INTEGER,
+    senia              BOOLEAN,
+    monto_total        NUMERIC(38,2),
+    unit_price         NUMERIC(38,2),
+    creado_en          TIMESTAMP(6) WITH TIME ZONE,
+    procesado_en       TIMESTAMP(6) WITH TIME ZONE,
+    mp_payment_id      VARCHAR(255)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_checkout_sesion_external_reference
+    ON checkout_sesion (external_reference);
+CREATE INDEX IF NOT EXISTS idx_checkout_sesion_preference_id
+    ON checkout_sesion (preference_id);
+CREATE INDEX IF NOT EXISTS idx_checkout_sesion_creado_en
+    ON checkout_sesion (creado_en);
+
+CREATE TABLE IF NOT EXISTS checkout_sesion_item (
+    checkout_sesion_id BIGINT  NOT NULL REFERENCES checkout_sesion (id) ON DELETE CASCADE,
+    orden              INTEGER NOT NULL,
+    fecha              DATE    NOT NULL,
+    hora               TIME(6) NOT NULL,
+    tipo_corte_id      BIGINT  NOT NULL,
+    adicionales        TEXT,
+    PRIMARY KEY (checkout_sesion_id, orden)
+);
+
+COMMIT;
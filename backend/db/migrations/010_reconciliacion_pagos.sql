@@ -0,0 +1,24 @@
+-- ============================================================================
+-- 010 - Reconciliación de pagos: marca de agua de jobs + índice de checkouts
+-- ============================================================================
+-- job_watermark guarda hasta dónde llegó la última corrida completa de un job
+-- incremental (la reconciliación con la búsqueda de pagos de MercadoPago).
+-- El índice de checkout_sesion.mp_payment_id permite cruzar en lote los pagos
+-- aprobados contra los checkouts ya procesados.
+--
+-- Aplicar ANTES de desplegar el JAR (ddl-auto=validate):
+--   psql -d cromados_prod -f db/migrations/010_reconciliacion_pagos.sql
+-- ============================================================================
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS job_watermark (
+    nombre         VARCHAR(64) PRIMARY KEY,
+    valor          TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    actualizado_en TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_checkout_sesion_mp_payment_id
+    ON checkout_sesion (mp_payment_id);
+
+COMMIT;
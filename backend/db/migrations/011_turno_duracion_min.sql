@@ -0,0 +1,26 @@
+-- ============================================================================
+-- 011 - Duración de cada turno: turno.duracion_min, checkout_sesion_item.duracion_min
+-- ============================================================================
+-- duracion_min = minutos que ocupa el turno (servicio + adicionales), fijado al
+-- reservar. La disponibilidad trata cada turno como el intervalo
+-- [hora, hora + duracion_min) en vez de un único slot de 30 minutos.
+-- En checkout_sesion_item se guarda ya resuelta al crear la preferencia.
+--
+-- Los turnos existentes de hoy en adelante toman la duración de su servicio (sin adicionales: sólo
+-- se guardaron los nombres). Si queda NULL la app usa la del servicio igual.
+--
+-- Aplicar ANTES de desplegar el JAR (ddl-auto=validate):
+--   psql -d cromados_prod -f db/migrations/011_turno_duracion_min.sql
+-- ============================================================================
+
+BEGIN;
+
+ALTER TABLE turno ADD COLUMN IF NOT EXISTS duracion_min INTEGER;
+ALTER TABLE checkout_sesion_item ADD COLUMN IF NOT EXISTS duracion_min INTEGER;
+
+UPDATE turno t
+SET duracion_min = tc.duracion_min
+FROM tipos_corte tc
+WHERE t.tipo_corte_id = tc.id AND t.duracion_min IS NULL AND t.fecha >= CURRENT_DATE;
+
+COMMIT;
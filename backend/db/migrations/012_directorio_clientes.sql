@@ -0,0 +1,40 @@
+-- ============================================================================
+-- 012 - Directorio de clientes: tabla cliente + índice trigram por nombre
+-- ============================================================================
+-- Una fila por teléfono normalizado (mismo criterio E.164 que los barberos) con
+-- el último nombre y edad usados, la fecha del último turno y la cantidad de
+-- turnos. La app la mantiene en cada alta de turno y la usa para autocompletar
+-- clientes en /agendar y /fijos en lugar del LIKE '%nombre%' con GROUP BY sobre
+-- toda la tabla turno.
+--
+-- El índice GIN con gin_trgm_ops sirve LIKE '%x%' sobre lower(nombre) sin
+-- recorrer la tabla. pg_trgm es una extensión "trusted" desde PostgreSQL 13.
+--
+-- La carga inicial desde turno la hace la app al arrancar si la tabla está vacía
+-- (la normalización del teléfono está en Java).
+--
+-- Aplicar ANTES de desplegar el JAR (ddl-auto=validate):
+--   psql -d cromados_prod -f db/migrations/012_directorio_clientes.sql
+-- ============================================================================
+
+BEGIN;
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE TABLE IF NOT EXISTS cliente (
+    id                   BIGSERIAL PRIMARY KEY,
+    telefono_normalizado VARCHAR(64)  NOT NULL,
+    telefono             VARCHAR(255) NOT NULL,
+    nombre               VARCHAR(255) NOT NULL,
+    edad                 INTEGER,
+    ultima_visita        DATE,
+    visitas              INTEGER      NOT NULL DEFAULT 0,
+    actualizado_en       TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT now()
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_cliente_telefono_normalizado
+    ON cliente (telefono_normalizado);
+CREATE INDEX IF NOT EXISTS idx_cliente_nombre_trgm
+    ON cliente USING gin (lower(nombre) gin_trgm_ops);
+
+COMMIT;
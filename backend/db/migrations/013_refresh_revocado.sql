@@ -0,0 +1,24 @@
+-- ============================================================================
+-- 013 - Refresh tokens revocados (rotación con jti)
+-- ============================================================================
+-- Cada refresh token se puede usar una sola vez: al rotarlo su jti queda acá
+-- hasta que vence. Un logout o un reuso sospechoso revoca además toda la
+-- familia (clave "fam:<id>"). Cada instancia tiene el conjunto en memoria y
+-- trae las filas nuevas por revocado_en; las vencidas se borran cada hora.
+--
+-- Aplicar ANTES de desplegar el JAR (ddl-auto=validate):
+--   psql -d cromados_prod -f db/migrations/013_refresh_revocado.sql
+-- ============================================================================
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS refresh_revocado (
+    clave       VARCHAR(64) PRIMARY KEY,
+    expira_at   TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    revocado_en TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_refresh_revocado_revocado_en ON refresh_revocado (revocado_en);
+CREATE INDEX IF NOT EXISTS idx_refresh_revocado_expira_at ON refresh_revocado (expira_at);
+
+COMMIT;
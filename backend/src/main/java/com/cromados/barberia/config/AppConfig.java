@@ -1,8 +1,16 @@
 package com.cromados.barberia.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Configuración general de la aplicación.
@@ -11,11 +19,48 @@ import org.springframework.web.client.RestTemplate;
 public class AppConfig {
 
     /**
-     * RestTemplate para realizar llamadas HTTP.
-     * Usado por WhatsAppMetaService para comunicarse con Meta Cloud API.
+     * Cliente HTTP para Meta Cloud API (WhatsAppMetaService).
+     *
+     * Reutiliza conexiones (keep-alive / HTTP/2 multiplexado contra graph.facebook.com)
+     * y tiene timeout de conexión explícito; el timeout por request y el límite de
+     * envíos concurrentes los aplica el servicio. El I/O es asíncrono, así que los
+     * pocos hilos del executor sólo procesan respuestas.
      */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public HttpClient metaHttpClient(
+            @Value("${whatsapp.meta.http.connectTimeoutMs:3000}") long connectTimeoutMs,
+            @Value("${whatsapp.meta.http.threads:4}") int threads
+    ) {
+        AtomicInteger n = new AtomicInteger();
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(Executors.newFixedThreadPool(threads, r -> {
+                    Thread t = new Thread(r, "meta-http-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }))
+                .build();
+    }
+
+    /**
+     * Open-in-view como el de Spring Boot (spring.jpa.open-in-view=false lo apaga), salvo en el
+     * webhook de MercadoPago: con el EntityManager abierto toda la request, la conexión que tomó
+     * el chequeo de idempotencia quedaría retenida durante la consulta a MP, y una ráfaga de
+     * notificaciones agotaría el pool. Ahí cada consulta toma y devuelve su conexión.
+     */
+    @Bean
+    public OpenEntityManagerInViewInterceptor openEntityManagerInViewInterceptor() {
+        return new OpenEntityManagerInViewInterceptor();
+    }
+
+    @Bean
+    public WebMvcConfigurer openEntityManagerInViewConfigurer(OpenEntityManagerInViewInterceptor interceptor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addWebRequestInterceptor(interceptor).excludePathPatterns("/pagos/webhook");
+            }
+        };
     }
 }
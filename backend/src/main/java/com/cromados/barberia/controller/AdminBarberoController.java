@@ -2,6 +2,7 @@ package com.cromados.barberia.controller;
 
 import com.cromados.barberia.dto.BarberoDTO;
 import com.cromados.barberia.service.BarberoService;
+import com.cromados.barberia.service.CatalogoService;
 import com.cromados.barberia.service.FileStorageService;
 import com.cromados.barberia.repository.BarberoRepository;
 import com.cromados.barberia.service.TelegramBotService;
@@ -27,6 +28,7 @@ public class AdminBarberoController {
     private final FileStorageService fileStorageService;
     private final BarberoRepository barberoRepository;
     private final TelegramBotService telegramBot;
+    private final CatalogoService catalogo; // además del listener, por cambios que no disparan @PostUpdate
 
     @GetMapping
     public Page<BarberoDTO> listar(@RequestParam(required=false) Long sucursalId,
@@ -41,11 +43,15 @@ public class AdminBarberoController {
     @GetMapping("/{id}") public BarberoDTO obtener(@PathVariable Long id){ return service.obtener(id); }
 
     @PostMapping public ResponseEntity<BarberoDTO> crear(@Valid @RequestBody BarberoDTO dto){
-        return ResponseEntity.status(HttpStatus.CREATED).body(service.crear(dto));
+        BarberoDTO creado = service.crear(dto);
+        catalogo.invalidar();
+        return ResponseEntity.status(HttpStatus.CREATED).body(creado);
     }
 
     @PutMapping("/{id}") public BarberoDTO actualizar(@PathVariable Long id, @Valid @RequestBody BarberoDTO dto){
-        return service.actualizar(id, dto);
+        BarberoDTO actualizado = service.actualizar(id, dto);
+        catalogo.invalidar();
+        return actualizado;
     }
 
     @PatchMapping("/{id}/telegram")
@@ -95,6 +101,7 @@ public class AdminBarberoController {
             var entity = opt.get();
             entity.setFotoUrl(url);
             barberoRepository.save(entity);
+            catalogo.invalidar();
             // devolver DTO con fotoUrl actualizada
             return ResponseEntity.ok(service.obtener(id));
         } catch (Exception e) {
@@ -103,5 +110,8 @@ public class AdminBarberoController {
     }
 
     @DeleteMapping("/{id}") @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void eliminar(@PathVariable Long id){ service.eliminar(id); }
+    public void eliminar(@PathVariable Long id){
+        service.eliminar(id);
+        catalogo.invalidar();
+    }
 }
@@ -0,0 +1,124 @@
+package com.cromados.barberia.controller;
+
+import com.cromados.barberia.model.Barbero;
+import com.cromados.barberia.model.BloqueoTurno;
+import com.cromados.barberia.repository.BarberoRepository;
+import com.cromados.barberia.repository.BloqueoTurnoRepository;
+import com.cromados.barberia.service.BloqueoService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controlador para gestionar bloqueos de agenda (vacaciones, francos, descansos) por rango.
+ *
+ * Endpoints:
+ * - GET    /admin/horarios-barbero/{barberoId}/bloqueos?desde=&hasta= - Listar bloqueos que tocan el rango
+ * - POST   /admin/horarios-barbero/{barberoId}/bloqueos               - Crear bloqueo (una fila por rango)
+ * - DELETE /admin/horarios-barbero/{barberoId}/bloqueos/{id}          - Eliminar bloqueo completo
+ * - DELETE /admin/horarios-barbero/{barberoId}/bloqueos?desde=&hasta= - Liberar días (recorta/parte bloqueos)
+ */
+@Slf4j
+@RestController
+@RequestMapping("/admin/horarios-barbero")
+@RequiredArgsConstructor
+public class AdminBloqueoController {
+
+    private final BloqueoService bloqueoService;
+    private final BloqueoTurnoRepository bloqueoRepo;
+    private final BarberoRepository barberoRepo;
+
+    /**
+     * Lista los bloqueos de un barbero que tocan al menos un día de [desde, hasta].
+     * Sin parámetros: desde hoy hasta dentro de un año.
+     *
+     * GET /admin/horarios-barbero/{barberoId}/bloqueos
+     */
+    @GetMapping("/{barberoId}/bloqueos")
+    public List<BloqueoTurno> listar(@PathVariable Long barberoId,
+                                     @RequestParam(required = false) String desde,
+                                     @RequestParam(required = false) String hasta) {
+        LocalDate d = desde != null ? LocalDate.parse(desde) : LocalDate.now();
+        LocalDate h = hasta != null ? LocalDate.parse(hasta) : d.plusYears(1);
+        log.debug("[AdminBloqueo] Listando bloqueos del barbero {} entre {} y {}", barberoId, d, h);
+        return bloqueoService.bloqueosEntre(barberoId, d, h);
+    }
+
+    /**
+     * Crea un bloqueo para un barbero. Una semana de vacaciones es una sola fila.
+     *
+     * POST /admin/horarios-barbero/{barberoId}/bloqueos
+     *
+     * Body:
+     * {
+     *   "fecha": "2025-01-06",
+     *   "fechaHasta": "2025-01-12",   // opcional, por defecto = fecha
+     *   "inicio": "00:00",            // opcional, por defecto 00:00
+     *   "fin": "23:59",               // opcional, por defecto 23:59 (inclusive)
+     *   "motivo": "Vacaciones"
+     * }
+     */
+    @PostMapping("/{barberoId}/bloqueos")
+    @ResponseStatus(HttpStatus.CREATED)
+    public BloqueoTurno crear(@PathVariable Long barberoId,
+                              @RequestBody Map<String, String> body) {
+        Barbero barbero = barberoRepo.findById(barberoId)
+                .orElseThrow(() -> new IllegalArgumentException("Barbero no encontrado: " + barberoId));
+
+        String fechaStr = body.get("fecha");
+        if (fechaStr == null) {
+            throw new IllegalArgumentException("Falta campo requerido: fecha");
+        }
+
+        LocalDate fecha = LocalDate.parse(fechaStr);
+        LocalDate fechaHasta = body.get("fechaHasta") != null ? LocalDate.parse(body.get("fechaHasta")) : fecha;
+        LocalTime inicio = body.get("inicio") != null ? LocalTime.parse(body.get("inicio")) : LocalTime.MIDNIGHT;
+        LocalTime fin = body.get("fin") != null ? LocalTime.parse(body.get("fin")) : BloqueoService.FIN_DEL_DIA;
+
+        if (fechaHasta.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("No se puede bloquear un rango en el pasado: " + fechaHasta);
+        }
+
+        return bloqueoService.bloquear(barbero, fecha, inicio, fechaHasta, fin, body.get("motivo"));
+    }
+
+    /**
+     * Elimina un bloqueo completo por su ID.
+     *
+     * DELETE /admin/horarios-barbero/{barberoId}/bloqueos/{id}
+     */
+    @DeleteMapping("/{barberoId}/bloqueos/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void eliminar(@PathVariable Long barberoId, @PathVariable Long id) {
+        BloqueoTurno bloqueo = bloqueoRepo.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Bloqueo no encontrado: " + id));
+
+        // Validar que el bloqueo pertenece al barbero correcto (seguridad)
+        if (!bloqueo.getBarbero().getId().equals(barberoId)) {
+            throw new IllegalArgumentException("El bloqueo no pertenece al barbero especificado");
+        }
+
+        bloqueoRepo.deleteById(id);
+        log.info("[AdminBloqueo] Bloqueo eliminado: ID {}, Barbero {}, {} → {}",
+                 id, barberoId, bloqueo.getFecha(), bloqueo.getFechaHasta());
+    }
+
+    /**
+     * Libera los días [desde, hasta] completos: elimina, recorta o parte los bloqueos que los tocan.
+     *
+     * DELETE /admin/horarios-barbero/{barberoId}/bloqueos?desde=2025-01-08&hasta=2025-01-09
+     */
+    @DeleteMapping(value = "/{barberoId}/bloqueos", params = {"desde", "hasta"})
+    public Map<String, Object> liberar(@PathVariable Long barberoId,
+                                       @RequestParam String desde,
+                                       @RequestParam String hasta) {
+        int afectados = bloqueoService.desbloquearDias(barberoId, LocalDate.parse(desde), LocalDate.parse(hasta));
+        return Map.of("afectados", afectados);
+    }
+}
@@ -0,0 +1,93 @@
+package com.cromados.barberia.controller;
+
+import com.cromados.barberia.model.JobLease;
+import com.cromados.barberia.repository.JobLeaseRepository;
+import com.cromados.barberia.security.JwtVerificadosCache;
+import com.cromados.barberia.service.AdminAuthService;
+import com.cromados.barberia.service.BusEventosAgenda;
+import com.cromados.barberia.service.DisponibilidadStreamService;
+import com.cromados.barberia.service.CatalogoService;
+import com.cromados.barberia.service.DirectorioClientesService;
+import com.cromados.barberia.service.DisponibilidadVersionService;
+import com.cromados.barberia.service.HorarioCompiladoService;
+import com.cromados.barberia.service.JobLeaseService;
+import com.cromados.barberia.service.LoginThrottleService;
+import com.cromados.barberia.service.ReconciliacionPagosService;
+import com.cromados.barberia.service.RefreshTokenService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Estado de los jobs programados.
+ *
+ * GET /admin/jobs - Métricas locales por job (leases tomados/omitidos, duración de
+ *                   adquisición y de ejecución), quién tiene cada lease en la DB y el
+ *                   estado del bus de eventos de agenda, de los streams SSE, de los
+ *                   ETag de disponibilidad, de los horarios compilados, del catálogo,
+ *                   del directorio de clientes, de la cache de JWT verificados, del
+ *                   login (throttle y pool de bcrypt) y de los refresh revocados.
+ * POST /admin/jobs/reconciliacion - Corre ya la reconciliación de pagos con MercadoPago
+ *                   (409 si otra instancia la está corriendo).
+ */
+@RestController
+@RequestMapping("/admin/jobs")
+@RequiredArgsConstructor
+public class AdminJobsController {
+
+    private final JobLeaseService jobLeaseService;
+    private final JobLeaseRepository jobLeaseRepo;
+    private final ReconciliacionPagosService reconciliacion;
+    private final BusEventosAgenda busEventos;
+    private final DisponibilidadStreamService disponibilidadStream;
+    private final DisponibilidadVersionService disponibilidadVersion;
+    private final HorarioCompiladoService horarioCompilado;
+    private final CatalogoService catalogo;
+    private final DirectorioClientesService directorioClientes;
+    private final JwtVerificadosCache jwtVerificados;
+    private final LoginThrottleService loginThrottle;
+    private final AdminAuthService adminAuth;
+    private final RefreshTokenService refreshTokens;
+
+    @GetMapping
+    public Map<String, Object> estado() {
+        Instant ahora = Instant.now();
+        Map<String, Object> leases = new LinkedHashMap<>();
+        for (JobLease l : jobLeaseRepo.findAll()) {
+            leases.put(l.getNombre(), Map.of(
+                    "owner", l.getOwner(),
+                    "adquiridoEn", l.getAdquiridoEn(),
+                    "heartbeatAt", l.getHeartbeatAt(),
+                    "expiraAt", l.getExpiraAt(),
+                    "vigente", l.getExpiraAt().isAfter(ahora)
+            ));
+        }
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("instancia", jobLeaseService.getOwner());
+        res.put("jobs", jobLeaseService.estadisticas());
+        res.put("leases", leases);
+        res.put("ultimaReconciliacion", reconciliacion.getUltimo()); // null hasta la primera corrida local
+        res.put("pagosDescartados", reconciliacion.getDescartados());
+        res.put("eventos", busEventos.estadisticas());
+        res.put("sseDisponibilidad", disponibilidadStream.estadisticas());
+        res.put("etagDisponibilidad", disponibilidadVersion.estadisticas());
+        res.put("horariosCompilados", horarioCompilado.estadisticas());
+        res.put("catalogo", catalogo.estadisticas());
+        res.put("directorioClientes", directorioClientes.estadisticas());
+        res.put("jwtVerificados", jwtVerificados.estadisticas());
+        res.put("login", Map.of("throttle", loginThrottle.estadisticas(), "bcrypt", adminAuth.estadisticas()));
+        res.put("refreshTokens", refreshTokens.estadisticas());
+        return res;
+    }
+
+    @PostMapping("/reconciliacion")
+    public ReconciliacionPagosService.Resultado reconciliar() {
+        return reconciliacion.reconciliarAhora();
+    }
+}
@@ -1,6 +1,7 @@
 package com.cromados.barberia.controller;
 
 import com.cromados.barberia.dto.TipoCorteDTO;
+import com.cromados.barberia.service.CatalogoService;
 import com.cromados.barberia.service.TipoCorteService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -14,6 +15,7 @@ import org.springframework.web.bind.annotation.*;
 public class AdminTipoCorteController {
 
     private final TipoCorteService service;
+    private final CatalogoService catalogo; // barberosHabilitados no dispara @PostUpdate: se invalida acá
 
     @GetMapping
     public Page<TipoCorteDTO> listar(@RequestParam(defaultValue="0") int page,
@@ -31,18 +33,23 @@ public class AdminTipoCorteController {
 
     @PostMapping
     public ResponseEntity<TipoCorteDTO> crear(@Valid @RequestBody TipoCorteDTO dto) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(service.crear(dto));
+        TipoCorteDTO creado = service.crear(dto);
+        catalogo.invalidar();
+        return ResponseEntity.status(HttpStatus.CREATED).body(creado);
     }
 
     @PutMapping("/{id}")
     public TipoCorteDTO actualizar(@PathVariable Long id, @Valid @RequestBody TipoCorteDTO dto) {
-        return service.actualizar(id, dto);
+        TipoCorteDTO actualizado = service.actualizar(id, dto);
+        catalogo.invalidar();
+        return actualizado;
     }
 
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void eliminar(@PathVariable Long id) {
         service.eliminar(id);
+        catalogo.invalidar();
     }
 
     /**
@@ -50,7 +57,9 @@ public class AdminTipoCorteController {
      */
     @PatchMapping("/{id}/toggle-activo")
     public TipoCorteDTO toggleActivo(@PathVariable Long id) {
-        return service.toggleActivo(id);
+        TipoCorteDTO actualizado = service.toggleActivo(id);
+        catalogo.invalidar();
+        return actualizado;
     }
 
     /**
@@ -62,6 +71,8 @@ public class AdminTipoCorteController {
     public TipoCorteDTO actualizarBarberosHabilitados(
             @PathVariable Long id,
             @RequestBody java.util.List<Long> barberoIds) {
-        return service.actualizarBarberosHabilitados(id, barberoIds);
+        TipoCorteDTO actualizado = service.actualizarBarberosHabilitados(id, barberoIds);
+        catalogo.invalidar();
+        return actualizado;
     }
 }
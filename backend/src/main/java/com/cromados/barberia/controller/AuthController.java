@@ -4,6 +4,9 @@ package com.cromados.barberia.controller;
 import com.cromados.barberia.security.CookieUtils;
 import com.cromados.barberia.security.JwtService;
 import com.cromados.barberia.service.AdminAuthService;
+import com.cromados.barberia.service.LoginThrottleService;
+import com.cromados.barberia.service.RefreshTokenService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.Cookie;  // ✅ AGREGAR ESTE IMPORT
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -18,6 +21,7 @@ import org.springframework.web.bind.annotation.*;
 import java.security.SecureRandom;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseCookie;
@@ -31,19 +35,39 @@ public class AuthController {
 
     private final AdminAuthService admin;
     private final JwtService jwt;
+    private final LoginThrottleService throttle;
+    private final RefreshTokenService refreshTokens;
     private final boolean secureCookies;
 
-    public AuthController(AdminAuthService admin, JwtService jwt,
+    public AuthController(AdminAuthService admin, JwtService jwt, LoginThrottleService throttle,
+                          RefreshTokenService refreshTokens,
                           @Value("${server.ssl.enabled:false}") boolean sslEnabled,
                           @Value("${app.forceSecureCookies:false}") boolean forceSecureCookies) {
         this.admin = admin;
         this.jwt = jwt;
+        this.throttle = throttle;
+        this.refreshTokens = refreshTokens;
         this.secureCookies = sslEnabled || forceSecureCookies;
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginReq req, HttpServletResponse res) {
-        if (!admin.authenticate(req.getUsername(), req.getPassword())) {
+    public ResponseEntity<?> login(@RequestBody LoginReq req, HttpServletRequest httpReq, HttpServletResponse res) {
+        // ⛔ Throttle por IP y usuario antes de tocar bcrypt
+        if (!throttle.permitir(ipCliente(httpReq), req.getUsername())) {
+            return ResponseEntity.status(429)
+                    .header(HttpHeaders.RETRY_AFTER, "60")
+                    .body(Map.of("ok", false, "error", "too_many_attempts"));
+        }
+
+        boolean valido;
+        try {
+            valido = admin.authenticate(req.getUsername(), req.getPassword());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(503)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(Map.of("ok", false, "error", "busy"));
+        }
+        if (!valido) {
             return ResponseEntity.status(401).body(Map.of("ok", false, "error", "invalid_credentials"));
         }
 
@@ -68,6 +92,25 @@ public class AuthController {
         ));
     }
 
+    /**
+     * IP del cliente. Detrás del túnel de Cloudflare (o de un proxy local) el peer es la
+     * propia máquina: sólo en ese caso se confía en CF-Connecting-IP / X-Forwarded-For.
+     */
+    private static String ipCliente(HttpServletRequest req) {
+        String peer = req.getRemoteAddr();
+        boolean proxyLocal = peer != null && (peer.startsWith("127.") || "0:0:0:0:0:0:0:1".equals(peer) || "::1".equals(peer));
+        if (proxyLocal) {
+            String cf = req.getHeader("CF-Connecting-IP");
+            if (cf != null && !cf.isBlank()) return cf.trim();
+            String xff = req.getHeader("X-Forwarded-For");
+            if (xff != null && !xff.isBlank()) {
+                String[] partes = xff.split(",");
+                return partes[partes.length - 1].trim(); // la que agregó el proxy, no la que mandó el cliente
+            }
+        }
+        return peer;
+    }
+
     private static String randomCsrf() {
         byte[] b = new byte[16];
         new SecureRandom().nextBytes(b);
@@ -94,21 +137,37 @@ public class AuthController {
             return ResponseEntity.status(401).body(Map.of("ok", false, "error", "no_refresh"));
         }
 
+        Claims claims;
         try {
             var jws = jwt.parse(refresh);
             if (!jwt.isRefresh(jws)) {
                 return ResponseEntity.status(401).body(Map.of("ok", false, "error", "not_refresh"));
             }
-            String sub = jws.getBody().getSubject();
-            String newAccess = jwt.createAccess(sub, List.of("ADMIN"));
-            String newRefresh = jwt.createRefresh(sub);
-
-            CookieUtils.add(res, CookieUtils.ACCESS, newAccess, 60 * 60, true, secureCookies);
-            CookieUtils.add(res, CookieUtils.REFRESH, newRefresh, 60 * 60 * 24 * 15, true, secureCookies);
-            return ResponseEntity.ok(Map.of("ok", true));
+            claims = jws.getPayload();
         } catch (Exception e) {
             return ResponseEntity.status(401).body(Map.of("ok", false, "error", "refresh_invalid"));
         }
+
+        // 🔄 Rotación: cada refresh sirve una sola vez
+        String familia = claims.get("fam", String.class);
+        switch (refreshTokens.consumir(claims.getId(), familia, claims.getExpiration().toInstant())) {
+            case ROTADO:
+                // Otra pestaña lo rotó recién: sus cookies ya son las nuevas
+                return ResponseEntity.ok(Map.of("ok", true));
+            case REVOCADO:
+                clearCookieAllVariants(res, CookieUtils.REFRESH);
+                return ResponseEntity.status(401).body(Map.of("ok", false, "error", "refresh_revoked"));
+            default:
+                break;
+        }
+
+        String sub = claims.getSubject();
+        String newAccess = jwt.createAccess(sub, List.of("ADMIN"));
+        String newRefresh = jwt.createRefresh(sub, familia);
+
+        CookieUtils.add(res, CookieUtils.ACCESS, newAccess, 60 * 60, true, secureCookies);
+        CookieUtils.add(res, CookieUtils.REFRESH, newRefresh, 60 * 60 * 24 * 15, true, secureCookies);
+        return ResponseEntity.ok(Map.of("ok", true));
     }
     @PostMapping("/logout")
     public ResponseEntity<?> logout(
@@ -116,15 +175,13 @@ public class AuthController {
             HttpServletResponse res,
             @RequestHeader(value = "X-CSRF-Token", required = false) String csrfHeader
     ) {
-        // ✅ Leer CSRF de cookie
-        String csrfCookie = null;
+        // ✅ Leer CSRF y refresh de cookie
+        String csrfCookie = null, refresh = null;
         Cookie[] cookies = req.getCookies();
         if (cookies != null) {
             for (Cookie c : cookies) {
-                if (CookieUtils.CSRF.equals(c.getName())) {
-                    csrfCookie = c.getValue();
-                    break;
-                }
+                if (CookieUtils.CSRF.equals(c.getName())) csrfCookie = c.getValue();
+                if (CookieUtils.REFRESH.equals(c.getName())) refresh = c.getValue();
             }
         }
 
@@ -139,6 +196,19 @@ public class AuthController {
             // NO retornar 403, seguir adelante
         }
 
+        // 🔒 Revocar la sesión: el refresh (aunque lo hayan copiado) deja de servir
+        if (refresh != null && !refresh.isBlank()) {
+            try {
+                var jws = jwt.parse(refresh);
+                if (jwt.isRefresh(jws)) {
+                    Claims c = jws.getPayload();
+                    refreshTokens.revocarSesion(c.getId(), c.get("fam", String.class), c.getExpiration().toInstant());
+                }
+            } catch (Exception e) {
+                log.debug("[logout] Refresh inválido o vencido; nada que revocar: {}", e.getMessage());
+            }
+        }
+
         // ✅ Limpiar contexto
         SecurityContextHolder.clearContext();
         SecurityContextHolder.getContext().setAuthentication(null);
@@ -0,0 +1,64 @@
+package com.cromados.barberia.controller;
+
+import com.cromados.barberia.service.PagoService;
+import com.cromados.barberia.service.StubPaymentGateway;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Checkout simulado de MercadoPago (sólo con mp.gateway=stub y el perfil dev o local, igual
+ * que StubPaymentGateway: en otro perfil estos endpoints no existen).
+ *
+ * Endpoints:
+ * - GET  /dev/mercadopago/checkout/{preferenceId}?status=approved - "Paga" la preferencia, dispara el
+ *                                                                   webhook y redirige a la back_url
+ * - POST /dev/mercadopago/webhook/{paymentId}                     - Re-envía la notificación de un pago
+ *                                                                   (simula reintentos/duplicados de MP)
+ */
+@RestController
+@RequestMapping("/dev/mercadopago")
+@RequiredArgsConstructor
+@Profile({"dev", "local"})
+@ConditionalOnProperty(name = "mp.gateway", havingValue = "stub")
+public class MercadoPagoStubController {
+
+    private final StubPaymentGateway gateway;
+    private final PagoService pagoService;
+
+    @GetMapping("/checkout/{preferenceId}")
+    public ResponseEntity<?> checkout(@PathVariable String preferenceId,
+                                      @RequestParam(defaultValue = "approved") String status) throws Exception {
+        var pref = gateway.preferencia(preferenceId)
+                .orElseThrow(() -> new IllegalArgumentException("Preferencia simulada inexistente: " + preferenceId));
+
+        long paymentId = gateway.pagar(preferenceId, status);
+        pagoService.procesarWebhook(Map.of("type", "payment", "data.id", String.valueOf(paymentId)));
+
+        String destino = switch (status) {
+            case "approved" -> pref.successUrl();
+            case "pending", "in_process" -> pref.pendingUrl();
+            default -> pref.failureUrl();
+        };
+        if (destino == null) {
+            return ResponseEntity.ok(Map.of("paymentId", paymentId, "status", status));
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setLocation(URI.create(destino + "?payment_id=" + paymentId + "&status=" + status
+                + "&preference_id=" + preferenceId));
+        return new ResponseEntity<>(headers, HttpStatus.FOUND);
+    }
+
+    @PostMapping("/webhook/{paymentId}")
+    public Map<String, Object> webhook(@PathVariable long paymentId) throws Exception {
+        pagoService.procesarWebhook(Map.of("type", "payment", "data.id", String.valueOf(paymentId)));
+        return Map.of("paymentId", paymentId, "reenviado", true);
+    }
+}
@@ -3,9 +3,9 @@ package com.cromados.barberia.controller;
 
 import com.cromados.barberia.dto.CheckoutRequest;
 import com.cromados.barberia.service.PagoService;
+import com.cromados.barberia.service.PaymentGateway;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.mercadopago.client.payment.PaymentClient;
 import com.mercadopago.resources.payment.Payment;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
@@ -21,10 +21,12 @@ import java.util.Map;
 public class PagoController {
 
     private final PagoService pagoService;
+    private final PaymentGateway paymentGateway;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public PagoController(PagoService pagoService) {
+    public PagoController(PagoService pagoService, PaymentGateway paymentGateway) {
         this.pagoService = pagoService;
+        this.paymentGateway = paymentGateway;
     }
 
     /** Inicia el checkout: NO crea turno. Devuelve init_point para redirigir a MP. */
@@ -120,8 +122,7 @@ public class PagoController {
 
             // 4) Consultamos el pago en MP para poder leer metadata si hace falta
             Long paymentId = Long.valueOf(idParam);
-            PaymentClient pclient = new PaymentClient();
-            Payment payment = pclient.get(paymentId);
+            Payment payment = paymentGateway.obtenerPago(paymentId);
 
             // 5) Resolución de turnoId: query param o metadata.turnoId
             Long turnoId = null;
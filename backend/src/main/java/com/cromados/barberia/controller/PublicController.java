@@ -2,16 +2,20 @@ package com.cromados.barberia.controller;
 
 import com.cromados.barberia.dto.*;
 import com.cromados.barberia.repository.HorarioBarberoRepository;
-import com.cromados.barberia.service.BarberoService;
-import com.cromados.barberia.service.SucursalService;
-import com.cromados.barberia.service.TipoCorteService;
+import com.cromados.barberia.service.BootstrapReservaService;
+import com.cromados.barberia.service.CatalogoService;
+import com.cromados.barberia.service.DisponibilidadRangoService;
+import com.cromados.barberia.service.DisponibilidadStreamService;
+import com.cromados.barberia.service.DisponibilidadVersionService;
+import com.cromados.barberia.service.ProximoTurnoService;
 import com.cromados.barberia.service.TurnoAdminService;
 import com.cromados.barberia.service.TurnoService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -24,75 +28,116 @@ import java.util.stream.Collectors;
 @RequestMapping("/api")
 public class PublicController {
 
-    private final SucursalService sucursalService;
-    private final BarberoService barberoService;
-    private final TipoCorteService tipoCorteService;
+    private final CatalogoService catalogoService;
     private final TurnoService turnoService;
     private final TurnoAdminService turnoAdminService;
     private final HorarioBarberoRepository horarioRepo;
+    private final DisponibilidadStreamService disponibilidadStream;
+    private final DisponibilidadVersionService disponibilidadVersion;
+    private final ProximoTurnoService proximoTurnoService;
+    private final DisponibilidadRangoService disponibilidadRango;
+    private final BootstrapReservaService bootstrapReserva;
 
     private static final DateTimeFormatter TF = DateTimeFormatter.ofPattern("HH:mm");
 
     public PublicController(
-            SucursalService sucursalService,
-            BarberoService barberoService,
-            TipoCorteService tipoCorteService,
+            CatalogoService catalogoService,
             TurnoService turnoService,
-            TurnoAdminService turnoAdminService, HorarioBarberoRepository horarioRepo
+            TurnoAdminService turnoAdminService, HorarioBarberoRepository horarioRepo,
+            DisponibilidadStreamService disponibilidadStream,
+            DisponibilidadVersionService disponibilidadVersion,
+            ProximoTurnoService proximoTurnoService,
+            DisponibilidadRangoService disponibilidadRango,
+            BootstrapReservaService bootstrapReserva
     ) {
-        this.sucursalService = sucursalService;
-        this.barberoService = barberoService;
-        this.tipoCorteService = tipoCorteService;
+        this.catalogoService = catalogoService;
         this.turnoService = turnoService;
         this.turnoAdminService = turnoAdminService;
         this.horarioRepo = horarioRepo;
+        this.disponibilidadStream = disponibilidadStream;
+        this.disponibilidadVersion = disponibilidadVersion;
+        this.proximoTurnoService = proximoTurnoService;
+        this.disponibilidadRango = disponibilidadRango;
+        this.bootstrapReserva = bootstrapReserva;
     }
 
-    // 1) Sucursales públicas (tomamos una página "grande")
+    // 0) Todo lo que la página de reservas necesita al abrir, en un solo request
+    @GetMapping("/booking/bootstrap")
+    public BootstrapReservaDTO bootstrap(@RequestParam Long sucursalId) {
+        return bootstrapReserva.armar(sucursalId);
+    }
+
+    // 1) Sucursales públicas (catálogo en memoria, ver CatalogoService)
     @GetMapping("/sucursales")
     public List<SucursalDTO> sucursales() {
-        return sucursalService
-                .listar(PageRequest.of(0, 500, Sort.by("nombre").ascending()))
-                .getContent();
+        return catalogoService.obtener().sucursales();
+    }
+
+    // 1b) Grilla del día: todos los barberos de la sucursal × horarios (true libre, false ocupado, null no trabaja)
+    @GetMapping("/sucursales/{id}/disponibilidad")
+    public GrillaDisponibilidadDTO disponibilidadSucursal(@PathVariable Long id, @RequestParam String fecha) {
+        return disponibilidadRango.grillaSucursal(id, LocalDate.parse(fecha));
     }
 
     // 2) Barberos por sucursal
     @GetMapping("/barberos")
     public List<BarberoDTO> barberos(@RequestParam(required = false) Long sucursalId) {
-        return barberoService
-                .listar(sucursalId, PageRequest.of(0, 500, Sort.by("nombre").ascending()))
-                .getContent();
+        return catalogoService.obtener().barberosDe(sucursalId);
     }
 
     // 3) Tipos de corte (alias /servicios por compatibilidad con el front)
     @GetMapping({"/tipos-corte", "/servicios"})
     public List<TipoCorteDTO> tiposCorte(@RequestParam(required = false) Long barberoId) {
-        List<TipoCorteDTO> servicios = tipoCorteService
-                .listarActivos(PageRequest.of(0, 500, Sort.by("id").ascending()))
-                .getContent();
-
-        // Si se especifica un barbero, filtrar servicios que él puede ofrecer
-        if (barberoId != null) {
-            servicios = servicios.stream()
-                    .filter(s -> {
-                        // Si no tiene barberos habilitados, todos pueden ofrecer el servicio
-                        if (s.getBarberosHabilitadosIds() == null || s.getBarberosHabilitadosIds().isEmpty()) {
-                            return true;
-                        }
-                        // Si tiene barberos habilitados, verificar que el barbero esté en la lista
-                        return s.getBarberosHabilitadosIds().contains(barberoId);
-                    })
-                    .toList();
-        }
-
-        return servicios;
+        CatalogoService.Catalogo catalogo = catalogoService.obtener();
+        // Si se especifica un barbero, sólo los servicios que él puede ofrecer
+        return barberoId != null ? catalogo.serviciosDe(barberoId) : catalogo.servicios();
     }
 
-    // 4) Horarios disponibles para un barbero en una fecha (HH:mm)
+    // 4) Horarios disponibles para un barbero en una fecha (HH:mm).
+    //    Con tipoCorteId (y adicionales) sólo los horarios donde entra el servicio completo.
+    //    Con ETag por (barbero, día, duración): si el cliente manda If-None-Match vigente, 304 sin recalcular.
     @GetMapping("/disponibilidad")
-    public List<String> disponibilidad(@RequestParam Long barberoId, @RequestParam String fecha) {
-        return turnoService.horariosDisponibles(barberoId, LocalDate.parse(fecha))
+    public ResponseEntity<List<String>> disponibilidad(@RequestParam Long barberoId, @RequestParam String fecha,
+                                                       @RequestParam(required = false) Long tipoCorteId,
+                                                       @RequestParam(required = false) List<Long> adicionales,
+                                                       WebRequest request) {
+        LocalDate dia = LocalDate.parse(fecha);
+        int duracion = turnoService.duracion(tipoCorteId, adicionales); // sin servicio: un slot
+        String etag = disponibilidadVersion.etag(barberoId, dia, duracion); // antes de leer: un cambio en el medio lo invalida
+        if (request.checkNotModified(etag)) {
+            disponibilidadVersion.registrarRespuesta(true);
+            return null; // 304 con el ETag ya seteado por checkNotModified
+        }
+        disponibilidadVersion.registrarRespuesta(false);
+        List<String> horarios = turnoService.horariosDisponibles(barberoId, dia, duracion)
                 .stream().map(TF::format).toList();
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache()) // siempre revalidar: el 304 es lo barato
+                .body(horarios);
+    }
+
+    // 4b) Cambios de disponibilidad en vivo (SSE): eventos "ocupado" / "liberado" con {barberoId, fecha, desde, hasta}
+    @GetMapping(value = "/disponibilidad/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter disponibilidadStream(@RequestParam Long barberoId,
+                                           @RequestParam String desde,
+                                           @RequestParam(required = false) String hasta,
+                                           HttpServletResponse response) {
+        LocalDate d = LocalDate.parse(desde);
+        LocalDate h = hasta != null ? LocalDate.parse(hasta) : d;
+        response.setHeader("X-Accel-Buffering", "no"); // nginx: no bufferear el stream
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        return disponibilidadStream.abrir(barberoId, d, h);
+    }
+
+    // 4c) Primeros turnos libres de la sucursal para un servicio, entre todos los barberos que lo ofrecen
+    @GetMapping("/disponibilidad/proximo")
+    public List<ProximoTurnoDTO> proximoTurno(@RequestParam Long sucursalId,
+                                              @RequestParam Long tipoCorteId,
+                                              @RequestParam(required = false) String desde,
+                                              @RequestParam(defaultValue = "5") int cantidad) {
+        LocalDate d = desde != null ? LocalDate.parse(desde) : null;
+        return proximoTurnoService.buscar(sucursalId, tipoCorteId, d, cantidad);
     }
 
     // 5) Crear reserva (queda PENDIENTE_PAGO). Devolvemos el DTO admin por simplicidad.
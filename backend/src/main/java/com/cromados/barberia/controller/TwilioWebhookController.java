@@ -1,20 +1,45 @@
 // src/main/java/com/cromados/barberia/controller/TwilioWebhookController.java
 package com.cromados.barberia.controller;
 
-import com.cromados.barberia.repository.BloqueoTurnoRepository;
-import com.cromados.barberia.model.BloqueoTurno;
-import lombok.RequiredArgsConstructor;
+import com.cromados.barberia.repository.BarberoRepository;
+import com.cromados.barberia.repository.TurnoRepository;
+import com.cromados.barberia.service.BloqueoService;
+import com.twilio.security.RequestValidator;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
 
+@Slf4j
 @RestController
 @RequestMapping("/twilio")
-@RequiredArgsConstructor
 public class TwilioWebhookController {
 
-    private final BloqueoTurnoRepository bloqueoRepo;
+    private final BarberoRepository barberoRepo;
+    private final BloqueoService bloqueoService;
+    private final TurnoRepository turnoRepo;
+    private final RequestValidator validador;   // null si no hay authToken: se rechaza todo
+    private final String statusCallbackUrl;
+
+    public TwilioWebhookController(
+            BarberoRepository barberoRepo,
+            BloqueoService bloqueoService,
+            TurnoRepository turnoRepo,
+            @Value("${twilio.authToken:}") String authToken,
+            @Value("${twilio.statusCallbackUrl:}") String statusCallbackUrl
+    ) {
+        this.barberoRepo = barberoRepo;
+        this.bloqueoService = bloqueoService;
+        this.turnoRepo = turnoRepo;
+        this.validador = authToken == null || authToken.isBlank() ? null : new RequestValidator(authToken.trim());
+        this.statusCallbackUrl = statusCallbackUrl == null ? "" : statusCallbackUrl.trim();
+    }
 
     /**
      * Webhook principal para mensajes entrantes de Twilio WhatsApp Sandbox
@@ -31,6 +56,45 @@ public class TwilioWebhookController {
         return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><Response><Message>Mensaje recibido. Gracias por contactarnos!</Message></Response>";
     }
 
+    /**
+     * Status callback de Twilio (twilio.statusCallbackUrl): registra en el turno el estado
+     * de su último mensaje (sent, delivered, read, failed, undelivered).
+     * URL: https://api.cromados.uno/twilio/status
+     *
+     * Sólo se acepta con X-Twilio-Signature válida (403 si no): la firma se calcula sobre la
+     * URL configurada, que es la que llama Twilio (detrás del túnel la del request es local).
+     */
+    @PostMapping("/status")
+    public ResponseEntity<Void> status(HttpServletRequest req,
+                                       @RequestHeader(value = "X-Twilio-Signature", required = false) String firma,
+                                       @RequestParam("MessageSid") String messageSid,
+                                       @RequestParam("MessageStatus") String messageStatus,
+                                       @RequestParam(value = "ErrorCode", required = false) String errorCode) {
+        if (!firmaValida(req, firma)) {
+            log.warn("[Twilio Status] ⛔ Firma inválida o ausente para {} (desde {})", messageSid, req.getRemoteAddr());
+            return ResponseEntity.status(403).build();
+        }
+
+        String estado = messageStatus.trim().toLowerCase();
+        String error = errorCode == null || errorCode.isBlank() ? null : "Twilio " + errorCode.trim();
+
+        int actualizados = turnoRepo.actualizarEstadoWhatsapp(messageSid, estado, error);
+        if ("failed".equals(estado) || "undelivered".equals(estado)) {
+            log.warn("[Twilio Status] Mensaje {} {} ({}) - turnos afectados: {}", messageSid, estado, error, actualizados);
+        } else {
+            log.debug("[Twilio Status] Mensaje {} → {} - turnos afectados: {}", messageSid, estado, actualizados);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private boolean firmaValida(HttpServletRequest req, String firma) {
+        if (validador == null || firma == null || firma.isBlank()) return false;
+        String url = !statusCallbackUrl.isEmpty() ? statusCallbackUrl : req.getRequestURL().toString();
+        Map<String, String> params = new HashMap<>();
+        req.getParameterMap().forEach((k, v) -> params.put(k, v.length > 0 ? v[0] : ""));
+        return validador.validate(url, params, firma);
+    }
+
     /**
      * Legacy endpoint (mantener para compatibilidad)
      */
@@ -44,14 +108,12 @@ public class TwilioWebhookController {
             LocalDate fecha = LocalDate.parse(p[2]);
             LocalTime hora = LocalTime.parse(p[3]);
 
-            var existente = bloqueoRepo.findByBarbero_IdAndFechaAndHora(barberoId, fecha, hora);
-            if (existente.isEmpty()) {
-                BloqueoTurno b = new BloqueoTurno();
-                b.setFecha(fecha);
-                b.setHora(hora);
-                // si tu entidad relaciona Barbero, setear b.setBarbero(...)
-                // o b.setBarberoId si tenés el campo
-                bloqueoRepo.save(b);
+            var barbero = barberoRepo.findById(barberoId).orElse(null);
+            if (barbero == null) {
+                return "Barbero " + barberoId + " no encontrado";
+            }
+            if (!bloqueoService.estaBloqueado(barberoId, fecha, hora)) {
+                bloqueoService.bloquearSlot(barbero, fecha, hora, "Bloqueo manual");
             }
             return "Turno bloqueado " + fecha + " " + hora;
         }
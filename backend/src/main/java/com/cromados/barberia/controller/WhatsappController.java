@@ -2,7 +2,7 @@
 package com.cromados.barberia.controller;
 
 import com.cromados.barberia.model.Barbero;
-import com.cromados.barberia.repository.BarberoRepository;
+import com.cromados.barberia.service.BarberoTelefonoIndex;
 import com.cromados.barberia.service.TwilioService;
 import com.cromados.barberia.service.WhatsAppFlowService;
 import jakarta.servlet.http.HttpServletRequest;
@@ -19,17 +19,16 @@ import java.util.Map;
 public class WhatsappController {
 
     private final TwilioService twilio;
-    private final BarberoRepository barberoRepo;
+    private final BarberoTelefonoIndex telefonoIndex;
     private final WhatsAppFlowService flowService;
 
-    public WhatsappController(TwilioService twilio, BarberoRepository barberoRepo, WhatsAppFlowService flowService) {
+    public WhatsappController(TwilioService twilio, BarberoTelefonoIndex telefonoIndex, WhatsAppFlowService flowService) {
         this.twilio = twilio;
-        this.barberoRepo = barberoRepo;
+        this.telefonoIndex = telefonoIndex;
         this.flowService = flowService;
     }
 
     private static String orEmpty(String s) { return s == null ? "" : s; }
-    private static String digits(String s)  { return orEmpty(s).replaceAll("\\D+",""); }
     private static String stripWhats(String s) { return orEmpty(s).replaceFirst("^whatsapp:", ""); }
     private static String ensurePlusE164(String e164) {
         if (e164 == null || e164.isBlank()) return "";
@@ -45,25 +44,22 @@ public class WhatsappController {
         log.info("[WA inbound] from={} body={}", from, body);
 
         try {
-            String fromDigits = digits(from);
-
-            // ¿Es un barbero?
-            Barbero barbero = barberoRepo.findAll().stream()
-                    .filter(b -> b.getTelefono() != null && digits(b.getTelefono()).contains(fromDigits))
-                    .findFirst()
-                    .orElse(null);
+            // ¿Es un barbero? (lookup O(1) por teléfono normalizado)
+            Barbero barbero = telefonoIndex.buscar(from).orElse(null);
 
             if (barbero != null) {
                 // Si escribe "hola" → enviar template con botones
                 if (body.toLowerCase().matches("hola|menu|inicio")) {
                     var vars = Map.of("barbero", orEmpty(barbero.getNombre()));
-                    twilio.sendTplAutoReply(ensurePlusE164(from), vars);
-                    log.info("[WA inbound] template menu enviado a {}", from);
+                    twilio.sendTplAutoReplyAsync(ensurePlusE164(from), vars)
+                            .exceptionally(e -> { log.error("[WA inbound] error enviando menú: {}", e.getMessage()); return null; });
+                    log.info("[WA inbound] template menu encolado para {}", from);
                 } else {
                     // Procesar según el flujo conversacional
                     String respuesta = flowService.procesarMensaje(ensurePlusE164(from), body, barbero);
-                    twilio.sendWhatsApp(ensurePlusE164(from), respuesta);
-                    log.info("[WA inbound] respuesta enviada a {}", from);
+                    twilio.sendWhatsAppAsync(ensurePlusE164(from), respuesta)
+                            .exceptionally(e -> { log.error("[WA inbound] error enviando respuesta: {}", e.getMessage()); return null; });
+                    log.info("[WA inbound] respuesta encolada para {}", from);
                 }
             } else {
                 log.info("[WA inbound] cliente detectado; sin auto-reply.");
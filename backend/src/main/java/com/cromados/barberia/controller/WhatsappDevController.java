@@ -1,8 +1,7 @@
 package com.cromados.barberia.controller;
 
-import com.cromados.barberia.model.BloqueoTurno;
-import com.cromados.barberia.repository.BarberoRepository;
-import com.cromados.barberia.repository.BloqueoTurnoRepository;
+import com.cromados.barberia.service.BarberoTelefonoIndex;
+import com.cromados.barberia.service.BloqueoService;
 import lombok.*;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
@@ -14,16 +13,13 @@ import java.util.*;
 @RequiredArgsConstructor
 public class WhatsappDevController {
 
-    private final BarberoRepository barberoRepo;
-    private final BloqueoTurnoRepository bloqueoRepo;
+    private final BarberoTelefonoIndex telefonoIndex;
+    private final BloqueoService bloqueoService;
 
     @PostMapping("/commands")
     public ResponseEntity<?> command(@RequestParam String from, @RequestParam String text) {
         // match barbero por teléfono
-        var barbero = barberoRepo.findAll().stream()
-                .filter(b -> b.getTelefono()!=null && b.getTelefono().replaceAll("\\D+","")
-                        .equals(from.replaceAll("\\D+","")))
-                .findFirst().orElse(null);
+        var barbero = telefonoIndex.buscar(from).orElse(null);
         if (barbero==null) return ResponseEntity.status(403).body(Map.of("error","Teléfono no asociado a barbero"));
 
         String t = text.trim().toLowerCase();
@@ -37,13 +33,13 @@ public class WhatsappDevController {
         var fecha = java.time.LocalDate.parse(m.group(2));
         var hora  = java.time.LocalTime.parse(m.group(3));
 
-        var existente = bloqueoRepo.findByBarbero_IdAndFechaAndHora(barbero.getId(), fecha, hora);
+        boolean yaBloqueado = bloqueoService.estaBloqueado(barbero.getId(), fecha, hora);
         if (bloquear) {
-            if (existente.isPresent()) return ResponseEntity.ok(Map.of("status","ya_bloqueado"));
-            bloqueoRepo.save(BloqueoTurno.builder().barbero(barbero).fecha(fecha).hora(hora).build());
+            if (yaBloqueado) return ResponseEntity.ok(Map.of("status","ya_bloqueado"));
+            bloqueoService.bloquearSlot(barbero, fecha, hora, "Bloqueo manual");
             return ResponseEntity.ok(Map.of("status","bloqueado"));
         } else {
-            existente.ifPresent(bloqueoRepo::delete);
+            if (yaBloqueado) bloqueoService.desbloquearSlot(barbero.getId(), fecha, hora);
             return ResponseEntity.ok(Map.of("status","desbloqueado"));
         }
     }
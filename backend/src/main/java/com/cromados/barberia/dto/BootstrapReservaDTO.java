@@ -0,0 +1,34 @@
+package com.cromados.barberia.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Todo lo que la página de reservas necesita al abrir, en una sola respuesta
+ * (GET /api/booking/bootstrap): catálogo, barberos de la sucursal con sus servicios y
+ * horario semanal, y un resumen de disponibilidad de los próximos días.
+ *
+ * El resumen va alineado con {@code dias}: en cada barbero, {@code libres[i]} es la
+ * cantidad de horarios libres el día {@code dias[i]} (null = no trabaja) y
+ * {@code primerLibre[i]} el primero de ellos ("HH:mm", null si no hay).
+ */
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class BootstrapReservaDTO {
+    private Long sucursalId;
+    private List<SucursalDTO> sucursales;
+    private List<TipoCorteDTO> servicios;   // activos; los adicionales vienen marcados
+    private List<String> dias;              // "yyyy-MM-dd", desde hoy
+    private List<BarberoReserva> barberos;
+
+    @Getter @Setter
+    @NoArgsConstructor @AllArgsConstructor
+    public static class BarberoReserva {
+        private BarberoDTO barbero;
+        private List<Long> serviciosIds;
+        private List<HorarioSemanaDTO> horariosSemana;
+        private List<Integer> libres;
+        private List<String> primerLibre;
+    }
+}
@@ -0,0 +1,26 @@
+package com.cromados.barberia.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Disponibilidad de todos los barberos de una sucursal en un día, como matriz.
+ * {@code horarios} son las columnas; cada fila trae un estado por columna:
+ * true = libre, false = ocupado (turno, bloqueo o ya pasó), null = no trabaja a esa hora.
+ */
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class GrillaDisponibilidadDTO {
+    private String fecha;            // "yyyy-MM-dd"
+    private List<String> horarios;   // "HH:mm"
+    private List<FilaBarbero> barberos;
+
+    @Getter @Setter
+    @NoArgsConstructor @AllArgsConstructor
+    public static class FilaBarbero {
+        private Long barberoId;
+        private String nombre;
+        private List<Boolean> estados;
+    }
+}
@@ -0,0 +1,12 @@
+package com.cromados.barberia.dto;
+
+import lombok.*;
+
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class ProximoTurnoDTO {
+    private Long barberoId;
+    private String barberoNombre;
+    private String fecha;   // "yyyy-MM-dd"
+    private String hora;    // "HH:mm"
+}
@@ -6,6 +6,8 @@ import jakarta.validation.constraints.NotBlank;
 import lombok.*;
 
 @Entity @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+@Table(indexes = @Index(name = "idx_barbero_telefono_normalizado", columnList = "telefonoNormalizado"))
+@EntityListeners(CatalogoEventosListener.class)
 public class Barbero {
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -24,6 +26,11 @@ public class Barbero {
 
     private String telefono; // E.164 o local
 
+    // E.164 canónico (+549...) derivado de telefono; clave del lookup de webhooks WhatsApp
+    @JsonIgnore
+    @Column(length = 20)
+    private String telefonoNormalizado;
+
     @Column(unique = true)
     private Long telegramChatId;
 
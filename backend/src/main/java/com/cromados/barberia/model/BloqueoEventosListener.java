@@ -0,0 +1,74 @@
+package com.cromados.barberia.model;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * Entity listener de BloqueoTurno: publica SlotBloqueado / SlotLiberado, que BusEventosAgenda
+ * toma después del commit.
+ *
+ * Recortar un bloqueo (BloqueoService.desbloquear) es un update: se libera el intervalo
+ * anterior y se bloquea el nuevo, tomando el anterior de la foto guardada al cargar.
+ */
+@Component
+public class BloqueoEventosListener {
+
+    /** Intervalo (inclusive) de un bloqueo en un momento dado. */
+    public record Foto(Long barberoId, LocalDateTime inicio, LocalDateTime fin) {}
+
+    private final ApplicationEventPublisher eventos;
+
+    public BloqueoEventosListener(ApplicationEventPublisher eventos) {
+        this.eventos = eventos;
+    }
+
+    @PostLoad
+    void cargado(BloqueoTurno bloqueo) {
+        bloqueo.setFotoAgenda(foto(bloqueo));
+    }
+
+    @PostPersist
+    void creado(BloqueoTurno bloqueo) {
+        Foto f = foto(bloqueo);
+        bloqueo.setFotoAgenda(f);
+        publicar(new EventoAgenda.SlotBloqueado(f.barberoId(), f.inicio(), f.fin(), bloqueo.getMotivo(), Instant.now()));
+    }
+
+    @PostUpdate
+    void actualizado(BloqueoTurno bloqueo) {
+        Foto antes = bloqueo.getFotoAgenda();
+        Foto ahora = foto(bloqueo);
+        bloqueo.setFotoAgenda(ahora);
+        if (ahora.equals(antes)) return; // sólo cambió el motivo
+
+        Instant instante = Instant.now();
+        if (antes != null) {
+            publicar(new EventoAgenda.SlotLiberado(antes.barberoId(), antes.inicio(), antes.fin(), instante));
+        }
+        publicar(new EventoAgenda.SlotBloqueado(ahora.barberoId(), ahora.inicio(), ahora.fin(),
+                bloqueo.getMotivo(), instante));
+    }
+
+    @PostRemove
+    void borrado(BloqueoTurno bloqueo) {
+        Foto f = bloqueo.getFotoAgenda() != null ? bloqueo.getFotoAgenda() : foto(bloqueo);
+        publicar(new EventoAgenda.SlotLiberado(f.barberoId(), f.inicio(), f.fin(), Instant.now()));
+    }
+
+    private void publicar(EventoAgenda evento) {
+        eventos.publishEvent(evento);
+    }
+
+    private static Foto foto(BloqueoTurno b) {
+        return new Foto(b.getBarbero().getId(),
+                LocalDateTime.of(b.getFecha(), b.getInicio()),
+                LocalDateTime.of(b.getFechaHasta(), b.getFin()));
+    }
+}
@@ -1,16 +1,37 @@
 package com.cromados.barberia.model;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
 import java.time.*;
 
-
+/**
+ * Bloqueo de agenda de un barbero expresado como intervalo continuo
+ * (descansos, vacaciones, francos, bloqueos manuales).
+ *
+ * El intervalo va desde fecha+inicio hasta fechaHasta+fin, ambos extremos INCLUSIVE
+ * (igual que el "fin" de las franjas horarias). Un descanso de un día tiene
+ * fechaHasta == fecha; una semana de vacaciones es una sola fila
+ * (lunes 00:00 → domingo 23:59).
+ */
 @Entity
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+@Table(indexes = @Index(name = "idx_bloqueo_turno_barbero_rango", columnList = "barbero_id,fecha,fechaHasta"))
+@EntityListeners(BloqueoEventosListener.class)
 public class BloqueoTurno {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY) private Long id;
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bloqueo_turno_seq")
+    @SequenceGenerator(name = "bloqueo_turno_seq", sequenceName = "bloqueo_turno_seq", allocationSize = 50)
+    private Long id;
     @ManyToOne(optional=false) private Barbero barbero;
-    @NotNull
-    private LocalDate fecha;
-    @NotNull private LocalTime hora;
+
+    @NotNull @Column(nullable = false) private LocalDate fecha;       // primer día
+    @NotNull @Column(nullable = false) private LocalTime inicio;      // hora de inicio en el primer día
+    @NotNull @Column(nullable = false) private LocalDate fechaHasta;  // último día (== fecha si es de un día)
+    @NotNull @Column(nullable = false) private LocalTime fin;         // hora de fin en el último día (inclusive)
+
+    @Column(length = 120) private String motivo; // "Descanso", "Vacaciones", etc.
+
+    /** Intervalo tal como se cargó o guardó por última vez (BloqueoEventosListener). */
+    @Transient @JsonIgnore private BloqueoEventosListener.Foto fotoAgenda;
 }
@@ -0,0 +1,32 @@
+package com.cromados.barberia.model;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Entity listener de Sucursal, Barbero y TipoCorte: publica un {@link Cambio} y
+ * CatalogoService descarta el catálogo en memoria después del commit (antes, otra lectura
+ * podría volver a cachear los datos viejos).
+ */
+@Component
+public class CatalogoEventosListener {
+
+    /** Alta, edición o baja de una entidad del catálogo. */
+    public record Cambio(Class<?> entidad) {}
+
+    private final ApplicationEventPublisher eventos;
+
+    public CatalogoEventosListener(ApplicationEventPublisher eventos) {
+        this.eventos = eventos;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void cambiado(Object entidad) {
+        eventos.publishEvent(new Cambio(entidad.getClass()));
+    }
+}
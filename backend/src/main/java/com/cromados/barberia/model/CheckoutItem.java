@@ -0,0 +1,30 @@
+package com.cromados.barberia.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Una sesión (futuro turno) de un checkout: horario, servicio y adicionales ya resueltos.
+ */
+@Embeddable
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class CheckoutItem {
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(nullable = false)
+    private LocalTime hora;
+
+    @Column(nullable = false)
+    private Long tipoCorteId;
+
+    @Column(columnDefinition = "TEXT")
+    private String adicionales;     // Nombres ya resueltos, tal cual se guardan en turno.adicionales
+
+    @Column(name = "duracion_min")
+    private Integer duracionMin;    // Servicio + adicionales; null en checkouts anteriores a la columna
+}
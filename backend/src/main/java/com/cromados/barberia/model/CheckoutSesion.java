@@ -0,0 +1,66 @@
+package com.cromados.barberia.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Carrito de un checkout de MercadoPago guardado del lado del servidor.
+ *
+ * Se crea junto con la preferencia y viaja a MP sólo como external_reference; el webhook
+ * lo carga con una única consulta indexada (sesiones incluidas) y crea los turnos con
+ * los ids y montos ya resueltos, sin volver a parsear metadata ni buscar adicionales.
+ */
+@Entity
+@Table(name = "checkout_sesion", indexes = {
+        @Index(name = "uk_checkout_sesion_external_reference", columnList = "externalReference", unique = true),
+        @Index(name = "idx_checkout_sesion_preference_id", columnList = "preferenceId"),
+        @Index(name = "idx_checkout_sesion_creado_en", columnList = "creadoEn"),
+        @Index(name = "idx_checkout_sesion_mp_payment_id", columnList = "mpPaymentId")
+})
+@Getter @Setter
+@NoArgsConstructor
+public class CheckoutSesion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 36, nullable = false)
+    private String externalReference;   // UUID que se manda como external_reference de la preferencia
+
+    @Column(length = 64)
+    private String preferenceId;
+
+    @Column(nullable = false)
+    private Long sucursalId;
+
+    @Column(nullable = false)
+    private Long barberoId;
+
+    @Column(nullable = false)
+    private Long tipoCorteId;           // Servicio principal (el del ítem de MP)
+
+    private String clienteNombre;
+    private String clienteTelefono;
+    private Integer clienteEdad;
+
+    private Boolean senia;
+    private BigDecimal montoTotal;      // Total del carrito
+    private BigDecimal unitPrice;       // Lo que se cobra en MP (total o seña)
+
+    @ElementCollection
+    @CollectionTable(name = "checkout_sesion_item", joinColumns = @JoinColumn(name = "checkout_sesion_id"))
+    @OrderColumn(name = "orden")
+    private List<CheckoutItem> items = new ArrayList<>();
+
+    private Instant creadoEn = Instant.now();
+    private Instant procesadoEn;
+    private String mpPaymentId;
+}
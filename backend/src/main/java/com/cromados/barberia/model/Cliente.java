@@ -0,0 +1,43 @@
+package com.cromados.barberia.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Directorio de clientes: una fila por teléfono normalizado (ver BarberoTelefonoIndex.normalizar).
+ *
+ * Guarda el último nombre y edad con que reservó, la fecha de su último turno y cuántos
+ * turnos lleva. La mantiene DirectorioClientesService en cada alta de turno; se escribe
+ * sólo con el UPSERT nativo de ClienteRepository. En la DB hay un índice trigram
+ * sobre lower(nombre) para el autocompletado (migración 012).
+ */
+@Entity
+@Table(name = "cliente")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class Cliente {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "telefono_normalizado", length = 64, nullable = false, unique = true)
+    private String telefonoNormalizado;
+
+    @Column(nullable = false)
+    private String telefono;        // tal cual se cargó en el último turno
+
+    @Column(nullable = false)
+    private String nombre;
+
+    private Integer edad;
+
+    private LocalDate ultimaVisita;
+
+    @Column(nullable = false)
+    private Integer visitas;
+
+    @Column(nullable = false)
+    private Instant actualizadoEn;
+}
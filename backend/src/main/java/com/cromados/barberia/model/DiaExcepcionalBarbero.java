@@ -30,6 +30,7 @@ import java.time.LocalDate;
         @Index(name = "idx_dia_excepcional_fecha", columnList = "fecha")
     }
 )
+@EntityListeners(HorarioEventosListener.class)
 public class DiaExcepcionalBarbero {
 
     @Id
@@ -0,0 +1,34 @@
+package com.cromados.barberia.model;
+
+import jakarta.persistence.PostPersist;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Entity listener de Turno: publica cada turno nuevo como {@link Visita};
+ * DirectorioClientesService la suma al directorio de clientes después del commit, así un
+ * rollback no deja visitas que no existieron.
+ */
+@Component
+public class DirectorioClientesListener {
+
+    /** Datos del turno que necesita el directorio, tomados al persistirlo. */
+    public record Visita(String telefono, String nombre, Integer edad, LocalDate fecha) {
+        static Visita de(Turno t) {
+            return new Visita(t.getClienteTelefono(), t.getClienteNombre(), t.getClienteEdad(), t.getFecha());
+        }
+    }
+
+    private final ApplicationEventPublisher eventos;
+
+    public DirectorioClientesListener(ApplicationEventPublisher eventos) {
+        this.eventos = eventos;
+    }
+
+    @PostPersist
+    void creado(Turno turno) {
+        eventos.publishEvent(Visita.de(turno));
+    }
+}
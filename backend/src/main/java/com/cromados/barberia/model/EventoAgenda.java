@@ -0,0 +1,79 @@
+package com.cromados.barberia.model;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Eventos de dominio de la agenda, publicados por los entity listeners y repartidos por
+ * BusEventosAgenda después del commit.
+ *
+ * Todos exponen el barbero y el rango de días que tocan, así un suscriptor (cache de
+ * disponibilidad, notificaciones, métricas) puede invalidar sólo lo afectado sin mirar
+ * el tipo concreto. Los horarios de bloqueo son inclusive, igual que en BloqueoTurno; un
+ * turno ocupa [hora, hora + duracionMin), con la duración efectiva (Turno.duracionEfectiva).
+ */
+public sealed interface EventoAgenda {
+
+    Long barberoId();
+
+    /** Primer día afectado. */
+    LocalDate desde();
+
+    /** Último día afectado (inclusive). */
+    LocalDate hasta();
+
+    Instant ocurrido();
+
+    /**
+     * Alta de un turno (reserva, pago confirmado, turno manual), o confirmación de una reserva
+     * que todavía no ocupaba el horario. {@code ocupaHorario} sigue el criterio de la
+     * disponibilidad: confirmado, pagado o bloqueado (una reserva PENDIENTE_PAGO no ocupa).
+     */
+    record TurnoCreado(Long turnoId, Long barberoId, Long sucursalId, LocalDate fecha, LocalTime hora,
+                       int duracionMin, String estado, boolean ocupaHorario,
+                       Instant ocurrido) implements EventoAgenda {
+        public LocalDate desde() { return fecha; }
+        public LocalDate hasta() { return fecha; }
+    }
+
+    /** Cambio de fecha, hora, duración o barbero de un turno. El horario anterior queda libre. */
+    record TurnoMovido(Long turnoId, Long barberoId, LocalDate fecha, LocalTime hora, int duracionMin,
+                       Long barberoAnteriorId, LocalDate fechaAnterior, LocalTime horaAnterior,
+                       int duracionAnteriorMin, Instant ocurrido) implements EventoAgenda {
+        public LocalDate desde() { return fecha.isBefore(fechaAnterior) ? fecha : fechaAnterior; }
+        public LocalDate hasta() { return fecha.isAfter(fechaAnterior) ? fecha : fechaAnterior; }
+    }
+
+    /** El turno pasó a CANCELADO: su horario queda libre. */
+    record TurnoCancelado(Long turnoId, Long barberoId, LocalDate fecha, LocalTime hora, int duracionMin,
+                          String estadoAnterior, Instant ocurrido) implements EventoAgenda {
+        public LocalDate desde() { return fecha; }
+        public LocalDate hasta() { return fecha; }
+    }
+
+    /** Horarios bloqueados (BloqueoTurno o turno BLOQUEADO, por toda su duración). */
+    record SlotBloqueado(Long barberoId, LocalDateTime inicio, LocalDateTime fin, String motivo,
+                         Instant ocurrido) implements EventoAgenda {
+        public LocalDate desde() { return inicio.toLocalDate(); }
+        public LocalDate hasta() { return fin.toLocalDate(); }
+    }
+
+    /** Horarios que dejaron de estar bloqueados u ocupados (bloqueo o turno borrado). */
+    record SlotLiberado(Long barberoId, LocalDateTime inicio, LocalDateTime fin,
+                        Instant ocurrido) implements EventoAgenda {
+        public LocalDate desde() { return inicio.toLocalDate(); }
+        public LocalDate hasta() { return fin.toLocalDate(); }
+    }
+
+    /**
+     * Cambio de horario de trabajo: día excepcional de {@code fecha}, o el horario semanal
+     * completo si {@code fecha} es null. En ese caso desde/hasta devuelven MIN/MAX
+     * ("todos los días"): no sirven para iterar, hay que mirar el barbero.
+     */
+    record HorarioCambiado(Long barberoId, LocalDate fecha, Instant ocurrido) implements EventoAgenda {
+        public LocalDate desde() { return fecha != null ? fecha : LocalDate.MIN; }
+        public LocalDate hasta() { return fecha != null ? fecha : LocalDate.MAX; }
+    }
+}
@@ -6,6 +6,7 @@ import lombok.*;
 @Entity
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 @Table(indexes = @Index(name="idx_horario_barbero_dia", columnList="barbero_id,diaSemana"))
+@EntityListeners(HorarioEventosListener.class)
 public class HorarioBarbero {
     @Id @GeneratedValue(strategy=GenerationType.IDENTITY) private Long id;
     @ManyToOne(optional=false) private Barbero barbero;
@@ -0,0 +1,39 @@
+package com.cromados.barberia.model;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Entity listener de HorarioBarbero y DiaExcepcionalBarbero: publica HorarioCambiado, que
+ * BusEventosAgenda toma después del commit. Un cambio del horario semanal afecta a todos los días del barbero;
+ * uno de día excepcional, sólo a esa fecha.
+ */
+@Component
+public class HorarioEventosListener {
+
+    private final ApplicationEventPublisher eventos;
+
+    public HorarioEventosListener(ApplicationEventPublisher eventos) {
+        this.eventos = eventos;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void cambiado(Object entidad) {
+        if (entidad instanceof HorarioBarbero h && h.getBarbero() != null) {
+            publicar(new EventoAgenda.HorarioCambiado(h.getBarbero().getId(), null, Instant.now()));
+        } else if (entidad instanceof DiaExcepcionalBarbero d && d.getBarbero() != null) {
+            publicar(new EventoAgenda.HorarioCambiado(d.getBarbero().getId(), d.getFecha(), Instant.now()));
+        }
+    }
+
+    private void publicar(EventoAgenda evento) {
+        eventos.publishEvent(evento);
+    }
+}
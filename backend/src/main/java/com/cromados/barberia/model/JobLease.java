@@ -0,0 +1,34 @@
+package com.cromados.barberia.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Lease de un job programado: garantiza que cada job corra en una sola instancia.
+ *
+ * Una fila por job. La toma quien la encuentre vencida (expiraAt &lt; now() de la DB) y
+ * la renueva con heartbeats mientras corre; si la instancia muere, el lease vence solo.
+ * Todas las escrituras son UPDATE/UPSERT nativos condicionados (ver JobLeaseRepository).
+ */
+@Entity
+@Table(name = "job_lease")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class JobLease {
+    @Id
+    @Column(length = 64)
+    private String nombre;          // "recordatorios", "reaper", ...
+
+    @Column(length = 128, nullable = false)
+    private String owner;           // host:pid:uuid de la instancia que lo tiene
+
+    @Column(nullable = false)
+    private Instant adquiridoEn;
+
+    @Column(nullable = false)
+    private Instant heartbeatAt;
+
+    @Column(nullable = false)
+    private Instant expiraAt;
+}
@@ -0,0 +1,27 @@
+package com.cromados.barberia.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Marca de agua de un job incremental: hasta dónde procesó la última corrida completa.
+ *
+ * La próxima corrida arranca desde {@code valor} (menos un margen de solapamiento), así
+ * cada ejecución sólo recorre lo nuevo. Si una corrida falla, la marca no avanza.
+ */
+@Entity
+@Table(name = "job_watermark")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class JobWatermark {
+    @Id
+    @Column(length = 64)
+    private String nombre;          // "reconciliacion-pagos", ...
+
+    @Column(nullable = false)
+    private Instant valor;
+
+    @Column(nullable = false)
+    private Instant actualizadoEn;
+}
@@ -9,7 +9,9 @@ import java.math.BigDecimal;
 import java.time.Instant;
 
 @Entity
-@Table(name = "pagos")
+@Table(name = "pagos", indexes = {
+        @Index(name = "uk_pagos_mp_payment_id", columnList = "mpPaymentId", unique = true) // un Pago por pago de MP
+})
 @Getter @Setter
 @NoArgsConstructor
 public class Pago {
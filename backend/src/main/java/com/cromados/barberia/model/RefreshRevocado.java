@@ -0,0 +1,31 @@
+package com.cromados.barberia.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Refresh token (jti) o familia de refresh tokens ("fam:" + id) revocados.
+ *
+ * La fila vive hasta que vence el último token que podría presentarse con esa clave.
+ * RefreshTokenService la replica en memoria en cada instancia; se escribe sólo con el
+ * INSERT ... ON CONFLICT DO NOTHING de RefreshRevocadoRepository.
+ */
+@Entity
+@Table(name = "refresh_revocado", indexes = {
+        @Index(name = "idx_refresh_revocado_revocado_en", columnList = "revocadoEn"),
+        @Index(name = "idx_refresh_revocado_expira_at", columnList = "expiraAt")
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class RefreshRevocado {
+    @Id
+    @Column(length = 64)
+    private String clave;
+
+    @Column(nullable = false)
+    private Instant expiraAt;
+
+    @Column(nullable = false)
+    private Instant revocadoEn;
+}
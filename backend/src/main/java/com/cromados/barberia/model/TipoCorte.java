@@ -9,6 +9,7 @@ import java.util.Set;
 @Entity
 @Table(name = "tipos_corte")
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+@EntityListeners(CatalogoEventosListener.class)
 public class TipoCorte {
 
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -1,12 +1,14 @@
 // src/main/java/com/cromados/barberia/model/Turno.java
 package com.cromados.barberia.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -14,8 +16,26 @@ import java.time.LocalTime;
 @Entity
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor @Builder
+@Table(indexes = {
+        @Index(name = "idx_turno_whatsapp_sid", columnList = "whatsappSid"),
+        @Index(name = "idx_turno_recordatorio_due_at", columnList = "recordatorioDueAt"), // parcial en DB: sólo pendientes
+        @Index(name = "idx_turno_expira_at", columnList = "expiraAt")                     // parcial en DB: sólo no nulos
+})
+@EntityListeners({TurnoTemporizadorListener.class, TurnoEventosListener.class, DirectorioClientesListener.class})
 public class Turno {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    /** Anticipación del recordatorio de WhatsApp respecto del turno. */
+    public static final int HORAS_ANTES_RECORDATORIO = 6;
+
+    /** Minutos que una reserva PENDIENTE_PAGO retiene el horario antes de expirar. */
+    public static final int MINUTOS_EXPIRACION_PENDIENTE = 15;
+
+    /** Duración de un turno cuyo servicio no la tiene cargada (un slot de la grilla). */
+    public static final int MINUTOS_TURNO_DEFAULT = 30;
+
+    // Secuencia con pool de 50 ids: IDENTITY desactiva el batching de INSERTs en Hibernate
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "turno_seq")
+    @SequenceGenerator(name = "turno_seq", sequenceName = "turno_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -39,6 +59,9 @@ public class Turno {
     @NotNull private LocalDate fecha;
     @NotNull private LocalTime hora;
 
+    @Column(name = "duracion_min")
+    private Integer duracionMin; // minutos que ocupa (servicio + adicionales); null en turnos viejos → los del servicio
+
     @NotBlank
     private String estado; // PENDIENTE_PAGO, RESERVADO, CANCELADO, BLOQUEADO, etc.
 
@@ -59,6 +82,22 @@ public class Turno {
     @Column
     private Boolean recordatorioEnviado; // true si ya se envió el recordatorio por WhatsApp
 
+    @Column
+    private LocalDateTime recordatorioDueAt; // fecha+hora - 6h (hora Argentina); cola de recordatorios
+
+    @Column
+    private Instant expiraAt; // sólo PENDIENTE_PAGO: cuándo se libera el horario si no se pagó
+
+    // Último mensaje WhatsApp (Twilio) enviado por este turno: SID y estado informado por el status callback
+    @Column(length = 64)
+    private String whatsappSid;
+
+    @Column(length = 20)
+    private String whatsappEstado; // queued, sent, delivered, read, failed, undelivered
+
+    @Column(length = 120)
+    private String whatsappError; // ErrorCode de Twilio si falló
+
     @Column
     private String grupoId; // UUID para agrupar turnos de servicios multi-sesión (null si es sesión única)
 
@@ -68,4 +107,42 @@ public class Turno {
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt; // Timestamp de cuándo se creó el turno
-}
\ No newline at end of file
+
+    /** Barbero/fecha/hora/estado tal como se cargaron o guardaron por última vez (TurnoEventosListener). */
+    @Transient
+    @JsonIgnore
+    private TurnoEventosListener.Foto fotoAgenda;
+
+    /** Minutos que el turno ocupa en la agenda: los guardados al reservar o, si no hay, los del servicio. */
+    public int duracionEfectiva() {
+        if (duracionMin != null && duracionMin > 0) return duracionMin;
+        Integer delServicio = tipoCorte != null ? tipoCorte.getDuracionMin() : null;
+        return delServicio != null && delServicio > 0 ? delServicio : MINUTOS_TURNO_DEFAULT;
+    }
+
+    /**
+     * Mantiene recordatorioDueAt en cada alta y en cada cambio de fecha/hora (mover turno).
+     * Si el turno se movió (o no tenía vencimiento: histórico de la migración 005), el
+     * recordatorio vuelve a quedar pendiente para la nueva fecha.
+     */
+    @PrePersist
+    @PreUpdate
+    void calcularRecordatorioDueAt() {
+        LocalDateTime due = (fecha != null && hora != null)
+                ? LocalDateTime.of(fecha, hora).minusHours(HORAS_ANTES_RECORDATORIO)
+                : null;
+        if (due != null && !due.equals(recordatorioDueAt)) {
+            recordatorioEnviado = false;
+        }
+        recordatorioDueAt = due;
+
+        // Expiración de reservas sin pagar: sólo mientras sigan PENDIENTE_PAGO
+        if ("PENDIENTE_PAGO".equals(estado)) {
+            if (expiraAt == null) {
+                expiraAt = Instant.now().plusSeconds(MINUTOS_EXPIRACION_PENDIENTE * 60L);
+            }
+        } else {
+            expiraAt = null;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.cromados.barberia.model;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Objects;
+
+/**
+ * Entity listener de Turno: traduce cada alta/edición/baja en eventos de agenda.
+ *
+ * Al cargar (y tras cada flush) se guarda en el turno una foto de barbero/fecha/hora/estado;
+ * en el update se compara contra ella para distinguir un movimiento de una cancelación.
+ * Los eventos se publican como eventos de Spring y BusEventosAgenda los toma recién después
+ * del commit (TransactionalEventListener). Como con los temporizadores, los UPDATE masivos
+ * no pasan por acá (hoy ninguno toca el horario ni el estado).
+ */
+@Component
+public class TurnoEventosListener {
+
+    /** Estado de agenda de un turno en un momento dado. */
+    public record Foto(Long barberoId, LocalDate fecha, LocalTime hora, Integer duracionMin, String estado,
+                       boolean ocupa) {
+
+        /** duracionMin es la columna tal cual (no se toca tipoCorte en @PostLoad); null → la del servicio. */
+        int duracion(Turno turno) {
+            return duracionMin != null && duracionMin > 0 ? duracionMin : turno.duracionEfectiva();
+        }
+    }
+
+    private final ApplicationEventPublisher eventos;
+
+    public TurnoEventosListener(ApplicationEventPublisher eventos) {
+        this.eventos = eventos;
+    }
+
+    @PostLoad
+    void cargado(Turno turno) {
+        turno.setFotoAgenda(foto(turno));
+    }
+
+    @PostPersist
+    void creado(Turno turno) {
+        Foto f = foto(turno);
+        turno.setFotoAgenda(f);
+        if (f.barberoId() == null || f.fecha() == null || f.hora() == null) return;
+
+        Instant ahora = Instant.now();
+        if ("BLOQUEADO".equals(f.estado())) {
+            LocalDateTime inicio = LocalDateTime.of(f.fecha(), f.hora());
+            publicar(new EventoAgenda.SlotBloqueado(f.barberoId(), inicio, ultimoMinuto(inicio, f.duracion(turno)),
+                    "Turno bloqueado", ahora));
+        } else {
+            Long sucursalId = turno.getSucursal() != null ? turno.getSucursal().getId() : null;
+            publicar(new EventoAgenda.TurnoCreado(turno.getId(), f.barberoId(), sucursalId,
+                    f.fecha(), f.hora(), f.duracion(turno), f.estado(), f.ocupa(), ahora));
+        }
+    }
+
+    @PostUpdate
+    void actualizado(Turno turno) {
+        Foto antes = turno.getFotoAgenda();
+        Foto ahora = foto(turno);
+        turno.setFotoAgenda(ahora);
+        if (antes == null || antes.barberoId() == null || antes.fecha() == null || antes.hora() == null) return;
+
+        if (!"CANCELADO".equals(antes.estado()) && "CANCELADO".equals(ahora.estado())) {
+            publicar(new EventoAgenda.TurnoCancelado(turno.getId(), antes.barberoId(), antes.fecha(), antes.hora(),
+                    antes.duracion(turno), antes.estado(), Instant.now()));
+            return;
+        }
+
+        boolean movido = !Objects.equals(antes.barberoId(), ahora.barberoId())
+                || !Objects.equals(antes.fecha(), ahora.fecha())
+                || !Objects.equals(antes.hora(), ahora.hora())
+                || antes.duracion(turno) != ahora.duracion(turno);
+        if (movido && ahora.barberoId() != null && ahora.fecha() != null && ahora.hora() != null) {
+            publicar(new EventoAgenda.TurnoMovido(turno.getId(), ahora.barberoId(), ahora.fecha(), ahora.hora(),
+                    ahora.duracion(turno), antes.barberoId(), antes.fecha(), antes.hora(), antes.duracion(turno),
+                    Instant.now()));
+        } else if (!antes.ocupa() && ahora.ocupa()) {
+            // Reserva PENDIENTE_PAGO que se confirmó: recién ahora ocupa el horario
+            Long sucursalId = turno.getSucursal() != null ? turno.getSucursal().getId() : null;
+            publicar(new EventoAgenda.TurnoCreado(turno.getId(), ahora.barberoId(), sucursalId,
+                    ahora.fecha(), ahora.hora(), ahora.duracion(turno), ahora.estado(), true, Instant.now()));
+        }
+    }
+
+    @PostRemove
+    void borrado(Turno turno) {
+        Foto f = turno.getFotoAgenda() != null ? turno.getFotoAgenda() : foto(turno);
+        if (f.barberoId() == null || f.fecha() == null || f.hora() == null) return;
+        LocalDateTime inicio = LocalDateTime.of(f.fecha(), f.hora());
+        publicar(new EventoAgenda.SlotLiberado(f.barberoId(), inicio, ultimoMinuto(inicio, f.duracion(turno)),
+                Instant.now()));
+    }
+
+    /** Los Slot* son inclusive: un turno de [inicio, inicio + duracion) termina un minuto antes. */
+    private static LocalDateTime ultimoMinuto(LocalDateTime inicio, int duracionMin) {
+        return inicio.plusMinutes(Math.max(1, duracionMin) - 1L);
+    }
+
+    private void publicar(EventoAgenda evento) {
+        eventos.publishEvent(evento);
+    }
+
+    private static Foto foto(Turno turno) {
+        Long barberoId = turno.getBarbero() != null ? turno.getBarbero().getId() : null;
+        // Mismo criterio que HorarioService para considerar ocupado un horario
+        boolean ocupa = Boolean.TRUE.equals(turno.getPagoConfirmado())
+                || "CONFIRMADO".equalsIgnoreCase(String.valueOf(turno.getEstado()))
+                || "BLOQUEADO".equalsIgnoreCase(String.valueOf(turno.getEstado()));
+        return new Foto(barberoId, turno.getFecha(), turno.getHora(), turno.getDuracionMin(), turno.getEstado(),
+                ocupa);
+    }
+}
@@ -0,0 +1,55 @@
+package com.cromados.barberia.model;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * Entity listener de Turno: avisa qué temporizadores corresponden a cada turno.
+ *
+ * Se toma una foto de los campos relevantes en el momento del flush y se publica como
+ * {@link Cambio}; TemporizadorService la aplica al timing wheel recién después del commit
+ * (TransactionalEventListener), así un rollback no deja temporizadores fantasma. Los
+ * UPDATE masivos (JPQL / nativos) no pasan por acá; los handlers vuelven a leer la DB
+ * antes de actuar, y los schedulers de respaldo cubren el resto.
+ */
+@Component
+public class TurnoTemporizadorListener {
+
+    /**
+     * Estado de los temporizadores de un turno tras el flush.
+     *
+     * @param recordatorioDueAt null si el recordatorio no corresponde (o ya se envió)
+     * @param borrado           el turno se eliminó: cancelar todo
+     */
+    public record Cambio(Long turnoId, String estado, Instant expiraAt,
+                         LocalDateTime recordatorioDueAt, boolean borrado) {}
+
+    private final ApplicationEventPublisher eventos;
+
+    public TurnoTemporizadorListener(ApplicationEventPublisher eventos) {
+        this.eventos = eventos;
+    }
+
+    @PostPersist
+    @PostUpdate
+    void programar(Turno turno) {
+        boolean recordatorioPendiente = !Boolean.TRUE.equals(turno.getRecordatorioEnviado())
+                && (Boolean.TRUE.equals(turno.getPagoConfirmado())
+                    || "CONFIRMADO".equals(turno.getEstado())
+                    || "BLOQUEADO".equals(turno.getEstado()));
+
+        eventos.publishEvent(new Cambio(turno.getId(), turno.getEstado(), turno.getExpiraAt(),
+                recordatorioPendiente ? turno.getRecordatorioDueAt() : null, false));
+    }
+
+    @PostRemove
+    void cancelar(Turno turno) {
+        eventos.publishEvent(new Cambio(turno.getId(), turno.getEstado(), null, null, true));
+    }
+}
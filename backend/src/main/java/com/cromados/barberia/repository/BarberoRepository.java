@@ -11,4 +11,5 @@ public interface BarberoRepository extends JpaRepository<Barbero, Long> {
     List<Barbero> findBySucursal_Id(Long sucursalId);
     boolean existsBySucursalId(Long sucursalId);
     Optional<Barbero> findByTelegramChatId(Long chatId);
+    Optional<Barbero> findFirstByTelefonoNormalizado(String telefonoNormalizado);
 }
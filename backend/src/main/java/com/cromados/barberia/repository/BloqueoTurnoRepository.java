@@ -2,13 +2,26 @@ package com.cromados.barberia.repository;
 
 import com.cromados.barberia.model.BloqueoTurno;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.time.*;
 import java.util.*;
 
 public interface BloqueoTurnoRepository extends JpaRepository<BloqueoTurno, Long> {
-    List<BloqueoTurno> findByBarbero_IdAndFecha(Long barberoId, LocalDate fecha);
-    List<BloqueoTurno> findByBarbero_IdAndFechaBetween(Long barberoId, LocalDate desde, LocalDate hasta);
-    Optional<BloqueoTurno> findByBarbero_IdAndFechaAndHora(Long barberoId, LocalDate f, LocalTime h);
+
+    // Bloqueos del barbero que tocan al menos un día de [desde, hasta]
+    @Query("SELECT b FROM BloqueoTurno b WHERE b.barbero.id = :barberoId " +
+           "AND b.fecha <= :hasta AND b.fechaHasta >= :desde ORDER BY b.fecha, b.inicio")
+    List<BloqueoTurno> findSolapados(@Param("barberoId") Long barberoId,
+                                     @Param("desde") LocalDate desde,
+                                     @Param("hasta") LocalDate hasta);
+
+    // Ídem para varios barberos a la vez (búsqueda del próximo turno libre)
+    @Query("SELECT b FROM BloqueoTurno b WHERE b.barbero.id IN :barberoIds " +
+           "AND b.fecha <= :hasta AND b.fechaHasta >= :desde ORDER BY b.fecha, b.inicio")
+    List<BloqueoTurno> findSolapadosDeBarberos(@Param("barberoIds") Collection<Long> barberoIds,
+                                               @Param("desde") LocalDate desde,
+                                               @Param("hasta") LocalDate hasta);
+
     long countByBarberoId(Long barberoId);
 }
-
@@ -0,0 +1,35 @@
+package com.cromados.barberia.repository;
+
+import com.cromados.barberia.model.CheckoutSesion;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface CheckoutSesionRepository extends JpaRepository<CheckoutSesion, Long> {
+
+    /** Carga el checkout con sus sesiones en una sola consulta (índice único de external_reference). */
+    @EntityGraph(attributePaths = "items")
+    Optional<CheckoutSesion> findByExternalReference(String externalReference);
+
+    /** De las external_reference dadas, las que corresponden a un checkout nuestro (reconciliación por lotes). */
+    @Query("SELECT c.externalReference FROM CheckoutSesion c WHERE c.externalReference IN :refs")
+    List<String> findExternalReferencesIn(@Param("refs") Collection<String> refs);
+
+    /** De los ids de pago dados, los que ya procesó algún checkout (aunque no haya creado turnos). */
+    @Query("SELECT c.mpPaymentId FROM CheckoutSesion c WHERE c.mpPaymentId IN :ids")
+    List<String> findMpPaymentIdsIn(@Param("ids") Collection<String> ids);
+
+    /** Borra los checkouts viejos; los ítems caen por ON DELETE CASCADE (ver migración 009). */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM checkout_sesion WHERE creado_en < :limite", nativeQuery = true)
+    int deleteCreadosAntesDe(@Param("limite") Instant limite);
+}
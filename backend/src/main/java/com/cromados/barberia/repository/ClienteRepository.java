@@ -0,0 +1,45 @@
+package com.cromados.barberia.repository;
+
+import com.cromados.barberia.model.Cliente;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ClienteRepository extends JpaRepository<Cliente, Long> {
+
+    /**
+     * Clientes cuyo nombre contiene {@code patron} (ya en minúsculas y con % y _ escapados
+     * con '\'), los de visita más reciente primero. Lo sirve el índice trigram idx_cliente_nombre_trgm.
+     * Devuelve {telefono, edad, ultimaVisita}.
+     */
+    @Query("SELECT c.telefono, c.edad, c.ultimaVisita FROM Cliente c " +
+           "WHERE LOWER(c.nombre) LIKE :patron ESCAPE '\\' " +
+           "ORDER BY c.ultimaVisita DESC NULLS LAST, c.id DESC")
+    List<Object[]> buscarPorNombre(@Param("patron") String patron, Pageable pageable);
+
+    /**
+     * Suma {@code visitas} turnos al cliente (lo crea si no existe): nombre, teléfono y edad
+     * quedan los últimos cargados y la última visita, la más reciente.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO cliente (telefono_normalizado, telefono, nombre, edad, ultima_visita, visitas, actualizado_en) " +
+                   "VALUES (:clave, :telefono, :nombre, CAST(:edad AS integer), CAST(:fecha AS date), :visitas, now()) " +
+                   "ON CONFLICT (telefono_normalizado) DO UPDATE SET telefono = EXCLUDED.telefono, " +
+                   "nombre = EXCLUDED.nombre, edad = COALESCE(EXCLUDED.edad, cliente.edad), " +
+                   "ultima_visita = GREATEST(cliente.ultima_visita, EXCLUDED.ultima_visita), " +
+                   "visitas = cliente.visitas + EXCLUDED.visitas, actualizado_en = now()",
+           nativeQuery = true)
+    int registrar(@Param("clave") String clave,
+                  @Param("telefono") String telefono,
+                  @Param("nombre") String nombre,
+                  @Param("edad") Integer edad,
+                  @Param("fecha") LocalDate fecha,
+                  @Param("visitas") int visitas);
+}
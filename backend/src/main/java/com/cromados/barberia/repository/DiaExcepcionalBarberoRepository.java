@@ -2,9 +2,12 @@ package com.cromados.barberia.repository;
 
 import com.cromados.barberia.model.DiaExcepcionalBarbero;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -41,6 +44,16 @@ public interface DiaExcepcionalBarberoRepository extends JpaRepository<DiaExcepc
      */
     List<DiaExcepcionalBarbero> findByBarbero_IdAndFechaGreaterThanEqualOrderByFechaAsc(Long barberoId, LocalDate fechaDesde);
 
+    /**
+     * Franjas excepcionales de varios barberos como (barberoId, fecha, inicio, fin).
+     * Usado por HorarioCompiladoService para compilar los horarios con una sola consulta.
+     *
+     * @param barberoIds IDs de los barberos
+     * @return Filas [barberoId, fecha, inicio, fin]
+     */
+    @Query("SELECT d.barbero.id, d.fecha, d.inicio, d.fin FROM DiaExcepcionalBarbero d WHERE d.barbero.id IN :barberoIds")
+    List<Object[]> findFranjasDeBarberos(@Param("barberoIds") Collection<Long> barberoIds);
+
     /**
      * Cuenta cuántos días excepcionales tiene configurados un barbero.
      *
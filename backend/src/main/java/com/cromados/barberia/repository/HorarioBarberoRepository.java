@@ -2,6 +2,8 @@ package com.cromados.barberia.repository;
 
 import com.cromados.barberia.model.HorarioBarbero;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.*;
 
@@ -9,4 +11,8 @@ public interface HorarioBarberoRepository extends JpaRepository<HorarioBarbero,
     List<HorarioBarbero> findByBarbero_IdAndDiaSemana(Long barberoId, int diaSemana);
     List<HorarioBarbero> findByBarbero_Id(Long barberoId);
     long countByBarberoId(Long barberoId);
+
+    // (barberoId, diaSemana, inicio, fin) de varios barberos, para HorarioCompiladoService
+    @Query("SELECT h.barbero.id, h.diaSemana, h.inicio, h.fin FROM HorarioBarbero h WHERE h.barbero.id IN :barberoIds")
+    List<Object[]> findFranjasDeBarberos(@Param("barberoIds") Collection<Long> barberoIds);
 }
@@ -0,0 +1,52 @@
+package com.cromados.barberia.repository;
+
+import com.cromados.barberia.model.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Operaciones atómicas sobre job_lease. Usan el reloj de la DB (now()) para que el
+ * desfasaje entre instancias no afecte, y corren en su propia transacción para que el
+ * lease sea visible enseguida aunque el job llamador sea @Transactional.
+ */
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+    /**
+     * Toma el lease si no existe, si está vencido o si ya era nuestro (el lock local de
+     * JobLeaseService serializa dentro de la instancia). @return 1 si se adquirió, 0 si lo tiene otra instancia.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(value = "INSERT INTO job_lease (nombre, owner, adquirido_en, heartbeat_at, expira_at) " +
+                   "VALUES (:nombre, :owner, now(), now(), now() + make_interval(secs => CAST(:ttlSegundos AS double precision))) " +
+                   "ON CONFLICT (nombre) DO UPDATE SET owner = EXCLUDED.owner, adquirido_en = EXCLUDED.adquirido_en, " +
+                   "heartbeat_at = EXCLUDED.heartbeat_at, expira_at = EXCLUDED.expira_at " +
+                   "WHERE job_lease.expira_at < now() OR job_lease.owner = EXCLUDED.owner",
+           nativeQuery = true)
+    int adquirir(@Param("nombre") String nombre, @Param("owner") String owner, @Param("ttlSegundos") long ttlSegundos);
+
+    /** Heartbeat: extiende el lease si sigue siendo nuestro. @return 0 si se perdió. */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(value = "UPDATE job_lease SET heartbeat_at = now(), " +
+                   "expira_at = now() + make_interval(secs => CAST(:ttlSegundos AS double precision)) " +
+                   "WHERE nombre = :nombre AND owner = :owner",
+           nativeQuery = true)
+    int renovar(@Param("nombre") String nombre, @Param("owner") String owner, @Param("ttlSegundos") long ttlSegundos);
+
+    /**
+     * Libera el lease al terminar, reteniéndolo como mínimo {@code minimoSegundos} desde que se
+     * adquirió: cubre el desfasaje de relojes entre instancias que disparan el mismo cron.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(value = "UPDATE job_lease SET expira_at = GREATEST(now(), " +
+                   "adquirido_en + make_interval(secs => CAST(:minimoSegundos AS double precision))) " +
+                   "WHERE nombre = :nombre AND owner = :owner",
+           nativeQuery = true)
+    int liberar(@Param("nombre") String nombre, @Param("owner") String owner, @Param("minimoSegundos") long minimoSegundos);
+}
@@ -0,0 +1,7 @@
+package com.cromados.barberia.repository;
+
+import com.cromados.barberia.model.JobWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface JobWatermarkRepository extends JpaRepository<JobWatermark, String> {
+}
@@ -2,10 +2,29 @@ package com.cromados.barberia.repository;
 
 import com.cromados.barberia.model.Pago;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface PagoRepository extends JpaRepository<Pago, Long> {
     Optional<Pago> findByMpPreferenceId(String mpPreferenceId);
     Optional<Pago> findByTurnoId(Long turnoId);
+
+    // Idempotencia del webhook de MP: lookup por índice único (uk_pagos_mp_payment_id)
+    boolean existsByMpPaymentId(String mpPaymentId);
+
+    /**
+     * Lock de Postgres por pago, tomado dentro de la transacción del webhook y liberado
+     * recién en su commit/rollback: la segunda notificación del mismo pago espera y después
+     * ve el Pago ya commiteado. Vale entre instancias.
+     */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(:mpPaymentId)", nativeQuery = true)
+    Integer bloquearPorMpPaymentId(@Param("mpPaymentId") long mpPaymentId);
+
+    /** De los ids dados, los que ya tienen Pago (reconciliación por lotes). */
+    @Query("SELECT p.mpPaymentId FROM Pago p WHERE p.mpPaymentId IN :ids")
+    List<String> findMpPaymentIdsIn(@Param("ids") Collection<String> ids);
 }
@@ -0,0 +1,31 @@
+package com.cromados.barberia.repository;
+
+import com.cromados.barberia.model.RefreshRevocado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface RefreshRevocadoRepository extends JpaRepository<RefreshRevocado, String> {
+
+    /** @return 1 si se revocó ahora, 0 si ya estaba revocada (por esta u otra instancia). */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO refresh_revocado (clave, expira_at, revocado_en) VALUES (:clave, :expiraAt, now()) " +
+                   "ON CONFLICT (clave) DO NOTHING",
+           nativeQuery = true)
+    int revocar(@Param("clave") String clave, @Param("expiraAt") Instant expiraAt);
+
+    /** Revocadas desde {@code desde} que siguen vigentes (sincronización entre instancias). */
+    @Query("SELECT r FROM RefreshRevocado r WHERE r.revocadoEn > :desde AND r.expiraAt > :ahora")
+    List<RefreshRevocado> findRevocadasDesde(@Param("desde") Instant desde, @Param("ahora") Instant ahora);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM refresh_revocado WHERE expira_at < now()", nativeQuery = true)
+    int deleteVencidas();
+}
@@ -5,11 +5,14 @@ import com.cromados.barberia.model.Turno;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import jakarta.persistence.LockModeType;
 import jakarta.persistence.QueryHint;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.*;
 import java.util.*;
@@ -29,6 +32,16 @@ public interface TurnoRepository extends JpaRepository<Turno, Long> {
     List<Turno> findByBarbero_IdAndFechaBetweenOrderByFechaAscHoraAsc(
             Long barberoId, LocalDate desde, LocalDate hasta);
 
+    // Horarios ocupados (barberoId, fecha, hora, duración en minutos) de varios barberos en un rango;
+    // mismo criterio que HorarioService (duración guardada o, en turnos viejos, la del servicio)
+    @Query("SELECT t.barbero.id, t.fecha, t.hora, COALESCE(t.duracionMin, t.tipoCorte.duracionMin) " +
+           "FROM Turno t WHERE t.barbero.id IN :barberoIds " +
+           "AND t.fecha BETWEEN :desde AND :hasta " +
+           "AND (t.pagoConfirmado = true OR UPPER(t.estado) IN ('CONFIRMADO', 'BLOQUEADO'))")
+    List<Object[]> findHorariosOcupados(@Param("barberoIds") Collection<Long> barberoIds,
+                                        @Param("desde") LocalDate desde,
+                                        @Param("hasta") LocalDate hasta);
+
     // 🆕 Para desbloquear: buscar turno bloqueado específico
     List<Turno> findByBarbero_IdAndFechaAndHoraAndEstado(
             Long barberoId, LocalDate fecha, LocalTime hora, String estado);
@@ -36,7 +49,7 @@ public interface TurnoRepository extends JpaRepository<Turno, Long> {
     // ✅ NUEVO: Buscar todos los turnos en un rango (incluye bloqueados)
     Page<Turno> findByFechaBetween(LocalDate desde, LocalDate hasta, Pageable pageable);
 
-    // Para scheduler de recordatorios: buscar turnos en rango sin paginación
+    // Buscar turnos en rango sin paginación (calculadora de pagos)
     List<Turno> findByFechaBetween(LocalDate desde, LocalDate hasta);
 
     // ✅ NUEVO: Contar turnos vigentes (fecha >= hoy, CONFIRMADO o BLOQUEADO)
@@ -48,27 +61,83 @@ public interface TurnoRepository extends JpaRepository<Turno, Long> {
     Page<Turno> findTurnosValidos(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta, Pageable pageable);
 
     // 🔒 CRITICAL: Query with pessimistic write lock for race condition prevention
+    // Todos los turnos ocupados del día: con duraciones, un turno a otra hora también puede pisar el nuevo
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @QueryHints({@QueryHint(name = "jakarta.persistence.lock.timeout", value = "3000")})
-    @Query("SELECT t FROM Turno t WHERE t.barbero.id = :barberoId AND t.fecha = :fecha AND t.hora = :hora " +
+    @Query("SELECT t FROM Turno t WHERE t.barbero.id = :barberoId AND t.fecha = :fecha " +
            "AND (t.pagoConfirmado = true OR t.estado = 'CONFIRMADO' OR t.estado = 'BLOQUEADO')")
-    Optional<Turno> findConflictingTurnoWithLock(
+    List<Turno> findOcupadosDelDiaWithLock(
         @Param("barberoId") Long barberoId,
-        @Param("fecha") LocalDate fecha,
-        @Param("hora") LocalTime hora
+        @Param("fecha") LocalDate fecha
     );
 
+    /**
+     * Lock de Postgres por (barbero, día), tomado dentro de la transacción y liberado en su
+     * commit/rollback. Serializa a quienes chequean y crean turnos en la misma agenda aunque
+     * el día todavía no tenga filas que bloquear con FOR UPDATE. Es la variante de dos claves
+     * int, que en Postgres no se pisa con la de una clave bigint (PagoRepository.bloquearPorMpPaymentId).
+     */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(CAST(:barberoId AS int), CAST(:dia AS int))",
+           nativeQuery = true)
+    Integer bloquearAgendaDelDia(@Param("barberoId") long barberoId, @Param("dia") long dia);
+
     // 🧹 REAPER: Find bookings by estado and future dates
     List<Turno> findByEstadoAndFechaGreaterThanEqual(String estado, LocalDate fecha);
 
     // Count turnos for a barbero
     long countByBarberoId(Long barberoId);
 
-    // 🆕 Para Telegram: buscar números de teléfono y edades asociadas a un nombre de cliente
-    // Usa GROUP BY para obtener números únicos, ordenados por el turno más reciente
-    @Query("SELECT t.clienteTelefono, t.clienteEdad, MAX(t.createdAt) as lastUsed FROM Turno t " +
-           "WHERE LOWER(t.clienteNombre) LIKE LOWER(CONCAT('%', :nombre, '%')) " +
-           "GROUP BY t.clienteTelefono, t.clienteEdad " +
-           "ORDER BY lastUsed DESC")
-    List<Object[]> findClientesByNombre(@Param("nombre") String nombre);
-}
\ No newline at end of file
+    // 📇 Carga inicial del directorio de clientes: una fila por (teléfono, nombre, edad)
+    // con {telefono, nombre, edad, última fecha, cantidad, último createdAt}
+    @Query("SELECT t.clienteTelefono, t.clienteNombre, t.clienteEdad, MAX(t.fecha), COUNT(t), MAX(t.createdAt) " +
+           "FROM Turno t WHERE t.clienteTelefono IS NOT NULL AND t.clienteNombre IS NOT NULL " +
+           "GROUP BY t.clienteTelefono, t.clienteNombre, t.clienteEdad")
+    List<Object[]> findResumenClientes();
+
+    // 📨 Tracking de WhatsApp (Twilio): SID por turno y estado del status callback.
+    // Transacción propia: se llama desde afterCommit, donde la del webhook ya commiteó
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("UPDATE Turno t SET t.whatsappSid = :sid, t.whatsappEstado = 'queued', t.whatsappError = NULL WHERE t.id = :id")
+    int registrarWhatsappSid(@Param("id") Long id, @Param("sid") String sid);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Turno t SET t.whatsappEstado = :estado, t.whatsappError = :error WHERE t.whatsappSid = :sid")
+    int actualizarEstadoWhatsapp(@Param("sid") String sid, @Param("estado") String estado, @Param("error") String error);
+
+    // ⏰ Cola de recordatorios: sólo turnos confirmados con recordatorio pendiente y vencido en la ventana
+    // (usa el índice parcial idx_turno_recordatorio_due_at)
+    @Query("SELECT t FROM Turno t JOIN FETCH t.barbero JOIN FETCH t.sucursal " +
+           "WHERE t.recordatorioDueAt > :desde AND t.recordatorioDueAt <= :hasta " +
+           "AND (t.recordatorioEnviado IS NULL OR t.recordatorioEnviado = false) " +
+           "AND (t.pagoConfirmado = true OR t.estado IN ('CONFIRMADO', 'BLOQUEADO')) " +
+           "ORDER BY t.recordatorioDueAt")
+    List<Turno> findRecordatoriosPendientes(@Param("desde") LocalDateTime desde,
+                                            @Param("hasta") LocalDateTime hasta);
+
+    // ⏱️ Temporizadores: (id, vencimiento) para reconstruir el timing wheel al arrancar
+    @Query("SELECT t.id, t.recordatorioDueAt FROM Turno t " +
+           "WHERE t.recordatorioDueAt > :desde " +
+           "AND (t.recordatorioEnviado IS NULL OR t.recordatorioEnviado = false) " +
+           "AND (t.pagoConfirmado = true OR t.estado IN ('CONFIRMADO', 'BLOQUEADO'))")
+    List<Object[]> findRecordatoriosProgramables(@Param("desde") LocalDateTime desde);
+
+    @Query("SELECT t.id, t.expiraAt FROM Turno t WHERE t.estado = 'PENDIENTE_PAGO' AND t.expiraAt IS NOT NULL")
+    List<Object[]> findExpiracionesProgramables();
+
+    // 🧹 REAPER (red de seguridad): reservas pendientes ya vencidas
+    List<Turno> findByEstadoAndExpiraAtBefore(String estado, Instant ahora);
+
+    // Marca enviados en un solo UPDATE y guarda el SID de Twilio de cada uno (null si salió por Meta)
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE turno t SET recordatorio_enviado = true, " +
+                   "whatsapp_sid = COALESCE(v.sid, t.whatsapp_sid), " +
+                   "whatsapp_estado = CASE WHEN v.sid IS NULL THEN t.whatsapp_estado ELSE 'queued' END, " +
+                   "whatsapp_error = CASE WHEN v.sid IS NULL THEN t.whatsapp_error ELSE NULL END " +
+                   "FROM unnest(CAST(:ids AS bigint[]), CAST(:sids AS text[])) AS v(id, sid) " +
+                   "WHERE t.id = v.id",
+           nativeQuery = true)
+    int marcarRecordatoriosEnviados(@Param("ids") Long[] ids, @Param("sids") String[] sids);
+}
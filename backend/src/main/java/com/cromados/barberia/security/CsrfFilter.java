@@ -40,6 +40,7 @@ public class CsrfFilter extends OncePerRequestFilter {
                 path.startsWith("/auth/login") ||
                 path.startsWith("/pagos/checkout") ||
                 path.startsWith("/pagos/webhook") ||
+                path.equals("/twilio/status") ||      // lo llama Twilio; se valida su firma
                 path.startsWith("/uploads/") ||
                 path.startsWith("/barberos/")) {
             chain.doFilter(req, res);
@@ -1,27 +1,23 @@
 package com.cromados.barberia.security;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpHeaders;
-import org.springframework.security.authentication.AbstractAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.*;
 
 public class JwtAuthFilter extends OncePerRequestFilter {
 
-    private final JwtService jwt;
+    private final JwtVerificadosCache verificados;
 
-    public JwtAuthFilter(JwtService jwt) {
-        this.jwt = jwt;
+    public JwtAuthFilter(JwtVerificadosCache verificados) {
+        this.verificados = verificados;
     }
 
     @Override
@@ -49,22 +45,10 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             }
 
             if (token != null && !token.isBlank()) {
-                final String tokenValue = token;   // << asegurar “efectivamente final”
-                Jws<Claims> jws = jwt.parse(tokenValue);
-                String sub = jws.getBody().getSubject();
-                @SuppressWarnings("unchecked")
-                List<String> roles = (List<String>) jws.getBody().get("roles");
-                List<SimpleGrantedAuthority> auths = new ArrayList<>();
-                if (roles != null) {
-                    for (String r : roles) auths.add(new SimpleGrantedAuthority("ROLE_" + r));
+                Authentication at = verificados.autenticar(token);
+                if (at != null) {
+                    SecurityContextHolder.getContext().setAuthentication(at);
                 }
-
-                AbstractAuthenticationToken at = new AbstractAuthenticationToken(auths) {
-                    @Override public Object getCredentials() { return tokenValue; }
-                    @Override public Object getPrincipal() { return sub; }
-                };
-                at.setAuthenticated(true);
-                SecurityContextHolder.getContext().setAuthentication(at);
             }
         } catch (Exception ex) {
             // ignoramos token inválido => queda anónimo
@@ -0,0 +1,145 @@
+package com.cromados.barberia.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache de tokens ya verificados para JwtAuthFilter: SHA-256 del token → usuario y roles.
+ *
+ * El panel de admin manda muchos requests seguidos con la misma cookie y cada uno repetía
+ * la verificación RSA de la firma y el parseo de claims. Ahora sólo el primero; los
+ * siguientes son un hash y un get() hasta el exp del token. Se guarda el digest, no el
+ * token. Las authorities se arman una vez por combinación de roles.
+ *
+ * Tamaño acotado por security.jwt.cache.maxEntradas: al llenarse se purgan las vencidas
+ * y, si sigue lleno, el token se verifica igual pero no se guarda.
+ */
+@Component
+public class JwtVerificadosCache {
+
+    private record Verificado(Authentication auth, long expMs) {}
+
+    private final JwtService jwt;
+    private final int maxEntradas;
+
+    private final Map<String, Verificado> porDigest = new ConcurrentHashMap<>();
+    private final Map<List<String>, List<GrantedAuthority>> authoritiesPorRoles = new ConcurrentHashMap<>();
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong invalidos = new AtomicLong();
+    private final AtomicLong sinLugar = new AtomicLong();
+
+    public JwtVerificadosCache(
+            JwtService jwt,
+            @Value("${security.jwt.cache.maxEntradas:10000}") int maxEntradas
+    ) {
+        this.jwt = jwt;
+        this.maxEntradas = maxEntradas;
+    }
+
+    /**
+     * @return la autenticación del token, o null si es inválido o venció
+     */
+    public Authentication autenticar(String token) {
+        String digest = digest(token);
+        long ahora = System.currentTimeMillis();
+
+        Verificado v = porDigest.get(digest);
+        if (v != null) {
+            if (ahora < v.expMs()) {
+                aciertos.incrementAndGet();
+                return v.auth();
+            }
+            porDigest.remove(digest, v);
+        }
+        fallos.incrementAndGet();
+
+        Claims claims;
+        try {
+            claims = jwt.parse(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            invalidos.incrementAndGet();
+            return null;
+        }
+
+        Authentication auth = new JwtAuthentication(claims.getSubject(), authorities(claims.get("roles")));
+        if (claims.getExpiration() != null) {
+            guardar(digest, new Verificado(auth, claims.getExpiration().getTime()), ahora);
+        }
+        return auth;
+    }
+
+    public Map<String, Object> estadisticas() {
+        return Map.of(
+                "entradas", porDigest.size(),
+                "aciertos", aciertos.get(),
+                "fallos", fallos.get(),
+                "invalidos", invalidos.get(),
+                "sinLugar", sinLugar.get()
+        );
+    }
+
+    /* ===================== Internos ===================== */
+
+    private void guardar(String digest, Verificado v, long ahora) {
+        if (porDigest.size() >= maxEntradas) {
+            porDigest.values().removeIf(e -> e.expMs() <= ahora);
+            if (porDigest.size() >= maxEntradas) {
+                sinLugar.incrementAndGet();
+                return;
+            }
+        }
+        porDigest.put(digest, v);
+    }
+
+    /** ROLE_x por cada rol del claim "roles"; la misma lista inmutable para la misma combinación. */
+    private List<GrantedAuthority> authorities(Object claimRoles) {
+        if (!(claimRoles instanceof List<?> lista) || lista.isEmpty()) return List.of();
+        List<String> roles = lista.stream().map(String::valueOf).toList();
+        return authoritiesPorRoles.computeIfAbsent(roles, rs -> {
+            List<GrantedAuthority> auths = new ArrayList<>(rs.size());
+            for (String r : rs) auths.add(new SimpleGrantedAuthority("ROLE_" + r));
+            return List.copyOf(auths);
+        });
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-256 está en toda JVM
+        }
+    }
+
+    /**
+     * Autenticación de un token verificado. La misma instancia se comparte entre los
+     * requests del mismo token, así que no guarda el token (credentials null) ni se modifica.
+     */
+    private static final class JwtAuthentication extends AbstractAuthenticationToken {
+        private final String sujeto;
+
+        JwtAuthentication(String sujeto, List<GrantedAuthority> authorities) {
+            super(authorities);
+            this.sujeto = sujeto;
+            super.setAuthenticated(true);
+        }
+
+        @Override public Object getCredentials() { return null; }
+        @Override public Object getPrincipal() { return sujeto; }
+    }
+}
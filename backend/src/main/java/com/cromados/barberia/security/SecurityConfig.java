@@ -15,10 +15,10 @@ import org.springframework.security.web.authentication.www.BasicAuthenticationFi
 @Configuration
 public class SecurityConfig {
 
-    private final JwtService jwt;
+    private final JwtVerificadosCache jwtVerificados;
 
-    public SecurityConfig(JwtService jwt) {
-        this.jwt = jwt;
+    public SecurityConfig(JwtVerificadosCache jwtVerificados) {
+        this.jwtVerificados = jwtVerificados;
     }
 
     @Bean
@@ -40,7 +40,7 @@ public class SecurityConfig {
                         .anyRequest().permitAll()
                 )
                 .addFilterBefore(new CsrfFilter(), BasicAuthenticationFilter.class)
-                .addFilterBefore(new JwtAuthFilter(jwt), CsrfFilter.class)
+                .addFilterBefore(new JwtAuthFilter(jwtVerificados), CsrfFilter.class)
                 .httpBasic(Customizer.withDefaults());
 
         return http.build();
@@ -1,26 +1,75 @@
 package com.cromados.barberia.service;
 
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Credenciales del admin.
+ *
+ * bcrypt es caro a propósito, así que corre en un pool chico y propio (auth.bcrypt.threads)
+ * con cola acotada: una ráfaga de logins ocupa a lo sumo esos hilos y no los de Tomcat que
+ * atienden las reservas. Con la cola llena se rechaza enseguida.
+ */
+@Slf4j
 @Service
 public class AdminAuthService {
 
     private final String username;
     private final String passwordHash;
     private final PasswordEncoder enc;
+    private final long timeoutMs;
+
+    private final ThreadPoolExecutor bcryptExecutor;
+
+    private final AtomicLong verificaciones = new AtomicLong();
+    private final AtomicLong rechazadas = new AtomicLong();
+    private final AtomicLong nanosVerificando = new AtomicLong();
 
     public AdminAuthService(
             @Value("${admin.username}") String username,
             @Value("${admin.passwordHash}") String passwordHash,
-            PasswordEncoder enc
+            PasswordEncoder enc,
+            @Value("${auth.bcrypt.threads:2}") int threads,
+            @Value("${auth.bcrypt.queueCapacity:16}") int queueCapacity,
+            @Value("${auth.bcrypt.timeoutMs:5000}") long timeoutMs
     ) {
         this.username = username;
         this.passwordHash = passwordHash;
         this.enc = enc;
+        this.timeoutMs = timeoutMs;
+
+        AtomicInteger n = new AtomicInteger();
+        this.bcryptExecutor = new ThreadPoolExecutor(
+                threads, threads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "bcrypt-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.bcryptExecutor.allowCoreThreadTimeOut(true);
     }
 
+    @PreDestroy
+    public void shutdown() {
+        bcryptExecutor.shutdownNow();
+    }
+
+    /**
+     * @throws RejectedExecutionException si el pool de bcrypt está saturado (o no respondió a
+     *         tiempo): el llamador debe contestar "ocupado", no "credenciales inválidas"
+     */
     public boolean authenticate(String user, String pass) {
         if (user == null || pass == null) return false;
         if (!username.equals(user)) return false;
@@ -29,6 +78,49 @@ public class AdminAuthService {
         if (passwordHash.startsWith("{noop}")) {
             return passwordHash.substring("{noop}".length()).equals(pass);
         }
-        return enc.matches(pass, passwordHash);
+        return verificar(pass);
+    }
+
+    public Map<String, Object> estadisticas() {
+        long v = verificaciones.get();
+        return Map.of(
+                "verificaciones", v,
+                "rechazadas", rechazadas.get(),
+                "promedioMs", v == 0 ? 0 : nanosVerificando.get() / v / 1_000_000,
+                "activas", bcryptExecutor.getActiveCount(),
+                "enCola", bcryptExecutor.getQueue().size()
+        );
+    }
+
+    private boolean verificar(String pass) {
+        Future<Boolean> f;
+        try {
+            f = bcryptExecutor.submit(() -> {
+                long t0 = System.nanoTime();
+                try {
+                    return enc.matches(pass, passwordHash);
+                } finally {
+                    verificaciones.incrementAndGet();
+                    nanosVerificando.addAndGet(System.nanoTime() - t0);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rechazadas.incrementAndGet();
+            log.warn("[AdminAuth] ⚠️ Pool de bcrypt saturado; login rechazado");
+            throw e;
+        }
+
+        try {
+            return f.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            f.cancel(true);
+            rechazadas.incrementAndGet();
+            throw new RejectedExecutionException("Verificación de contraseña sin respuesta en " + timeoutMs + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Verificación de contraseña interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error verificando la contraseña", e.getCause());
+        }
     }
 }
@@ -19,12 +19,14 @@ public class BarberoService {
     private final TurnoRepository turnoRepo;
     private final HorarioBarberoRepository horarioRepo;
     private final BloqueoTurnoRepository bloqueoRepo;
+    private final BarberoTelefonoIndex telefonoIndex;
 
     public BarberoService(BarberoRepository repo, SucursalRepository sucRepo,
                          TurnoRepository turnoRepo, HorarioBarberoRepository horarioRepo,
-                         BloqueoTurnoRepository bloqueoRepo){
+                         BloqueoTurnoRepository bloqueoRepo, BarberoTelefonoIndex telefonoIndex){
         this.repo=repo; this.sucRepo=sucRepo; this.turnoRepo=turnoRepo;
         this.horarioRepo=horarioRepo; this.bloqueoRepo=bloqueoRepo;
+        this.telefonoIndex=telefonoIndex;
     }
 
     public Page<BarberoDTO> listar(Long sucursalId, Pageable pageable){
@@ -47,8 +49,11 @@ public class BarberoService {
         b.setInstagram(dto.getInstagram());
         b.setFacebook(dto.getFacebook());
         b.setTelefono(dto.getTelefono());
+        b.setTelefonoNormalizado(BarberoTelefonoIndex.normalizar(dto.getTelefono()));
         b.setTelegramChatId(dto.getTelegramChatId());
-        return toDTO(repo.save(b));
+        Barbero guardado = repo.save(b);
+        telefonoIndex.actualizar(guardado);
+        return toDTO(guardado);
     }
 
     public BarberoDTO actualizar(Long id, BarberoDTO dto){
@@ -61,8 +66,11 @@ public class BarberoService {
         b.setInstagram(dto.getInstagram());
         b.setFacebook(dto.getFacebook());
         b.setTelefono(dto.getTelefono());
+        b.setTelefonoNormalizado(BarberoTelefonoIndex.normalizar(dto.getTelefono()));
         b.setTelegramChatId(dto.getTelegramChatId());
-        return toDTO(repo.save(b));
+        Barbero guardado = repo.save(b);
+        telefonoIndex.actualizar(guardado);
+        return toDTO(guardado);
     }
 
     public void eliminar(Long id){
@@ -96,6 +104,7 @@ public class BarberoService {
         }
 
         repo.deleteById(id);
+        telefonoIndex.quitar(id);
     }
 
     private BarberoDTO toDTO(Barbero b){
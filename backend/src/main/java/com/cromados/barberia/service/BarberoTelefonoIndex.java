@@ -0,0 +1,119 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.model.Barbero;
+import com.cromados.barberia.repository.BarberoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice teléfono E.164 → barbero para los webhooks de WhatsApp.
+ *
+ * Cada mensaje entrante se resuelve con un get() sobre un mapa en memoria en lugar de
+ * recorrer toda la tabla de barberos. El mapa se carga al arrancar y BarberoService lo
+ * actualiza en cada alta/edición/baja; la columna indexada telefono_normalizado cubre
+ * los misses (ej. otra instancia editó el barbero).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BarberoTelefonoIndex {
+
+    private final BarberoRepository barberoRepo;
+
+    private final Map<String, Long> barberoIdPorTelefono = new ConcurrentHashMap<>();
+
+    /**
+     * Normaliza un teléfono a E.164 argentino (+549 + área + número).
+     *
+     * Acepta "whatsapp:+549...", "+54 9 3547 50-9878", "03547 509878", "3547509878", etc.
+     * WhatsApp siempre informa móviles argentinos con el 9, así que "+54XXXXXXXXXX" se
+     * completa a "+549XXXXXXXXXX" para que ambas formas caigan en la misma clave.
+     *
+     * @return número normalizado o null si no hay dígitos suficientes
+     */
+    public static String normalizar(String telefono) {
+        if (telefono == null) return null;
+        String t = telefono.trim();
+        if (t.startsWith("whatsapp:")) t = t.substring("whatsapp:".length());
+        boolean internacional = t.startsWith("+") || t.startsWith("00");
+
+        String digits = t.replaceAll("\\D+", "");
+        if (digits.startsWith("00")) digits = digits.substring(2);
+        if (digits.length() < 8) return null;
+
+        if (!internacional && !digits.startsWith("54")) {
+            // Número local: quitar 0 de larga distancia y anteponer +549
+            if (digits.startsWith("0")) digits = digits.substring(1);
+            return "+549" + digits;
+        }
+        if (digits.startsWith("54") && !digits.startsWith("549") && digits.length() == 12) {
+            digits = "549" + digits.substring(2);
+        }
+        return "+" + digits;
+    }
+
+    /** Carga inicial y backfill de telefono_normalizado para filas previas a la columna. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        int backfill = 0;
+        barberoIdPorTelefono.clear();
+        for (Barbero b : barberoRepo.findAll()) {
+            String normalizado = normalizar(b.getTelefono());
+            if (!Objects.equals(normalizado, b.getTelefonoNormalizado())) {
+                b.setTelefonoNormalizado(normalizado);
+                barberoRepo.save(b);
+                backfill++;
+            }
+            if (normalizado != null) {
+                barberoIdPorTelefono.put(normalizado, b.getId());
+            }
+        }
+        log.info("[BarberoTelefonoIndex] {} teléfonos indexados ({} normalizados al arrancar)",
+                barberoIdPorTelefono.size(), backfill);
+    }
+
+    /**
+     * Resuelve el barbero dueño de un teléfono (cualquier formato aceptado por {@link #normalizar}).
+     */
+    public Optional<Barbero> buscar(String telefono) {
+        String normalizado = normalizar(telefono);
+        if (normalizado == null) return Optional.empty();
+
+        Long id = barberoIdPorTelefono.get(normalizado);
+        if (id != null) {
+            Optional<Barbero> barbero = barberoRepo.findById(id);
+            if (barbero.isPresent() && normalizado.equals(barbero.get().getTelefonoNormalizado())) {
+                return barbero;
+            }
+            barberoIdPorTelefono.remove(normalizado, id); // entrada vieja
+        }
+
+        // Miss: consulta por columna indexada y se recuerda el resultado
+        Optional<Barbero> barbero = barberoRepo.findFirstByTelefonoNormalizado(normalizado);
+        barbero.ifPresent(b -> barberoIdPorTelefono.put(normalizado, b.getId()));
+        return barbero;
+    }
+
+    /**
+     * Sincroniza el índice tras crear/editar un barbero. Llamar con el barbero ya persistido
+     * y con telefonoNormalizado actualizado.
+     */
+    public void actualizar(Barbero barbero) {
+        barberoIdPorTelefono.values().removeIf(id -> id.equals(barbero.getId()));
+        if (barbero.getTelefonoNormalizado() != null) {
+            barberoIdPorTelefono.put(barbero.getTelefonoNormalizado(), barbero.getId());
+        }
+    }
+
+    public void quitar(Long barberoId) {
+        barberoIdPorTelefono.values().removeIf(id -> id.equals(barberoId));
+    }
+}
@@ -0,0 +1,195 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.model.Barbero;
+import com.cromados.barberia.model.BloqueoTurno;
+import com.cromados.barberia.repository.BloqueoTurnoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Gestión de bloqueos de agenda como intervalos (ver {@link BloqueoTurno}).
+ *
+ * Un bloqueo de una semana es UNA fila; HorarioService lo resta de las franjas
+ * del día con aritmética de intervalos en lugar de comparar slot por slot.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BloqueoService {
+
+    /** Último minuto del día: los intervalos son inclusive en ambos extremos. */
+    public static final LocalTime FIN_DEL_DIA = LocalTime.of(23, 59);
+    private static final int SLOT_MINUTES = 30;
+
+    private final BloqueoTurnoRepository bloqueoRepo;
+
+    /* ===================== Consultas ===================== */
+
+    public List<BloqueoTurno> bloqueosEntre(Long barberoId, LocalDate desde, LocalDate hasta) {
+        return bloqueoRepo.findSolapados(barberoId, desde, hasta);
+    }
+
+    /**
+     * Rangos bloqueados de un día en minutos desde medianoche, [inicio, fin] inclusive,
+     * ordenados por inicio. Un bloqueo de varios días aporta el día completo en los días intermedios.
+     */
+    public List<int[]> rangosBloqueados(Long barberoId, LocalDate fecha) {
+        List<int[]> rangos = new ArrayList<>();
+        for (BloqueoTurno b : bloqueoRepo.findSolapados(barberoId, fecha, fecha)) {
+            rangos.add(rangoEnFecha(b, fecha));
+        }
+        rangos.sort(Comparator.comparingInt(r -> r[0]));
+        return rangos;
+    }
+
+    public boolean estaBloqueado(Long barberoId, LocalDate fecha, LocalTime hora) {
+        int m = hora.getHour() * 60 + hora.getMinute();
+        return rangosBloqueados(barberoId, fecha).stream().anyMatch(r -> m >= r[0] && m <= r[1]);
+    }
+
+    /** Porción del bloqueo que cae en {@code fecha}, en minutos [inicio, fin]. */
+    public static int[] rangoEnFecha(BloqueoTurno b, LocalDate fecha) {
+        LocalTime ini = fecha.equals(b.getFecha()) ? b.getInicio() : LocalTime.MIDNIGHT;
+        LocalTime fin = fecha.equals(b.getFechaHasta()) ? b.getFin() : FIN_DEL_DIA;
+        return new int[]{ini.getHour() * 60 + ini.getMinute(), fin.getHour() * 60 + fin.getMinute()};
+    }
+
+    /* ===================== Alta / baja ===================== */
+
+    /**
+     * Crea un bloqueo desde (fecha, inicio) hasta (fechaHasta, fin), ambos inclusive.
+     */
+    @Transactional
+    public BloqueoTurno bloquear(Barbero barbero, LocalDate fecha, LocalTime inicio,
+                                 LocalDate fechaHasta, LocalTime fin, String motivo) {
+        if (barbero == null) throw new IllegalArgumentException("Barbero requerido");
+        if (fecha == null || inicio == null || fechaHasta == null || fin == null) {
+            throw new IllegalArgumentException("Faltan campos requeridos: fecha, inicio, fechaHasta, fin");
+        }
+        if (LocalDateTime.of(fechaHasta, fin).isBefore(LocalDateTime.of(fecha, inicio))) {
+            throw new IllegalArgumentException("El fin del bloqueo es anterior al inicio");
+        }
+
+        BloqueoTurno guardado = bloqueoRepo.save(BloqueoTurno.builder()
+                .barbero(barbero)
+                .fecha(fecha)
+                .inicio(inicio)
+                .fechaHasta(fechaHasta)
+                .fin(fin)
+                .motivo(motivo)
+                .build());
+
+        log.info("[Bloqueo] Barbero {} bloqueado {} {} → {} {} ({})",
+                barbero.getId(), fecha, inicio, fechaHasta, fin, motivo);
+        return guardado;
+    }
+
+    /** Bloquea días completos, de {@code desde} a {@code hasta} inclusive (vacaciones, francos). */
+    @Transactional
+    public BloqueoTurno bloquearDias(Barbero barbero, LocalDate desde, LocalDate hasta, String motivo) {
+        return bloquear(barbero, desde, LocalTime.MIDNIGHT, hasta, FIN_DEL_DIA, motivo);
+    }
+
+    /** Bloquea un único slot de 30 minutos (bloqueo manual desde WhatsApp). */
+    @Transactional
+    public BloqueoTurno bloquearSlot(Barbero barbero, LocalDate fecha, LocalTime hora, String motivo) {
+        return bloquearSlots(barbero, fecha, hora, hora, motivo);
+    }
+
+    /**
+     * Bloquea los slots que arrancan entre {@code desde} y {@code hasta} (ambos inclusive):
+     * el intervalo se extiende hasta el final del último slot.
+     */
+    @Transactional
+    public BloqueoTurno bloquearSlots(Barbero barbero, LocalDate fecha, LocalTime desde, LocalTime hasta, String motivo) {
+        return bloquear(barbero, fecha, desde, fecha, finDeSlot(hasta), motivo);
+    }
+
+    /** Libera un único slot de 30 minutos; si forma parte de un bloqueo mayor, lo parte. */
+    @Transactional
+    public int desbloquearSlot(Long barberoId, LocalDate fecha, LocalTime hora) {
+        return desbloquear(barberoId, LocalDateTime.of(fecha, hora), LocalDateTime.of(fecha, finDeSlot(hora)));
+    }
+
+    private static LocalTime finDeSlot(LocalTime hora) {
+        LocalTime fin = hora.plusMinutes(SLOT_MINUTES - 1);
+        return fin.isBefore(hora) ? FIN_DEL_DIA : fin; // no cruzar medianoche
+    }
+
+    /**
+     * Libera el rango [desde, hasta] (inclusive, resolución de minutos) para un barbero.
+     * Los bloqueos que caen completos dentro del rango se eliminan; los que lo exceden
+     * se recortan o se parten en dos.
+     *
+     * @return cantidad de bloqueos afectados
+     */
+    @Transactional
+    public int desbloquear(Long barberoId, LocalDateTime desde, LocalDateTime hasta) {
+        if (hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("El fin del rango es anterior al inicio");
+        }
+
+        int afectados = 0;
+        List<BloqueoTurno> nuevos = new ArrayList<>();
+
+        for (BloqueoTurno b : bloqueoRepo.findSolapados(barberoId, desde.toLocalDate(), hasta.toLocalDate())) {
+            LocalDateTime bIni = LocalDateTime.of(b.getFecha(), b.getInicio());
+            LocalDateTime bFin = LocalDateTime.of(b.getFechaHasta(), b.getFin());
+            if (bFin.isBefore(desde) || bIni.isAfter(hasta)) {
+                continue; // mismo día pero sin solapamiento horario
+            }
+
+            afectados++;
+            boolean quedaIzquierda = bIni.isBefore(desde);
+            boolean quedaDerecha = bFin.isAfter(hasta);
+
+            if (quedaIzquierda && quedaDerecha) {
+                // Partir en dos: el original queda como tramo izquierdo
+                LocalDateTime derIni = hasta.plusMinutes(1);
+                nuevos.add(BloqueoTurno.builder()
+                        .barbero(b.getBarbero())
+                        .fecha(derIni.toLocalDate())
+                        .inicio(derIni.toLocalTime())
+                        .fechaHasta(b.getFechaHasta())
+                        .fin(b.getFin())
+                        .motivo(b.getMotivo())
+                        .build());
+            }
+
+            if (quedaIzquierda) {
+                LocalDateTime izqFin = desde.minusMinutes(1);
+                b.setFechaHasta(izqFin.toLocalDate());
+                b.setFin(izqFin.toLocalTime());
+            } else if (quedaDerecha) {
+                LocalDateTime derIni = hasta.plusMinutes(1);
+                b.setFecha(derIni.toLocalDate());
+                b.setInicio(derIni.toLocalTime());
+            } else {
+                bloqueoRepo.delete(b);
+            }
+        }
+
+        if (!nuevos.isEmpty()) {
+            bloqueoRepo.saveAll(nuevos);
+        }
+
+        log.info("[Bloqueo] Barbero {} desbloqueado {} → {}: {} bloqueos afectados",
+                barberoId, desde, hasta, afectados);
+        return afectados;
+    }
+
+    /** Libera días completos, de {@code desde} a {@code hasta} inclusive. */
+    @Transactional
+    public int desbloquearDias(Long barberoId, LocalDate desde, LocalDate hasta) {
+        return desbloquear(barberoId, desde.atStartOfDay(), LocalDateTime.of(hasta, FIN_DEL_DIA));
+    }
+}
@@ -0,0 +1,114 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.dto.BarberoDTO;
+import com.cromados.barberia.dto.BootstrapReservaDTO;
+import com.cromados.barberia.dto.HorarioSemanaDTO;
+import com.cromados.barberia.dto.TipoCorteDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Arma la respuesta de GET /api/booking/bootstrap: lo que antes eran 6–10 requests de la
+ * página de reservas al abrir (sucursales, barberos, servicios, horario semanal de cada
+ * barbero y la disponibilidad de varios días).
+ *
+ * Catálogo y horarios salen de memoria ({@link CatalogoService}, {@link HorarioCompiladoService});
+ * la disponibilidad de todos los barberos y días es una sola carga de
+ * {@link DisponibilidadRangoService}. Sin servicio elegido, el resumen es por slot.
+ */
+@Slf4j
+@Service
+public class BootstrapReservaService {
+
+    private static final ZoneId ZONA_ARGENTINA = ZoneId.of("America/Argentina/Buenos_Aires");
+    private static final DateTimeFormatter HHMM = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final CatalogoService catalogoService;
+    private final HorarioCompiladoService horarioCompiladoService;
+    private final DisponibilidadRangoService disponibilidadRango;
+    private final int dias;
+
+    public BootstrapReservaService(
+            CatalogoService catalogoService,
+            HorarioCompiladoService horarioCompiladoService,
+            DisponibilidadRangoService disponibilidadRango,
+            @Value("${booking.bootstrap.dias:7}") int dias
+    ) {
+        this.catalogoService = catalogoService;
+        this.horarioCompiladoService = horarioCompiladoService;
+        this.disponibilidadRango = disponibilidadRango;
+        this.dias = dias;
+    }
+
+    /**
+     * @throws NoSuchElementException si la sucursal no existe
+     */
+    @Transactional(readOnly = true)
+    public BootstrapReservaDTO armar(Long sucursalId) {
+        CatalogoService.Catalogo catalogo = catalogoService.obtener();
+        if (catalogo.sucursales().stream().noneMatch(s -> s.getId().equals(sucursalId))) {
+            throw new NoSuchElementException("Sucursal no encontrada");
+        }
+
+        LocalDate desde = LocalDate.now(ZONA_ARGENTINA);
+        LocalDate hasta = desde.plusDays(dias - 1L);
+        List<LocalDate> fechas = desde.datesUntil(hasta.plusDays(1)).toList();
+
+        List<BarberoDTO> barberos = catalogo.barberosDe(sucursalId);
+        List<Long> ids = barberos.stream().map(BarberoDTO::getId).toList();
+        Map<Long, HorarioCompilado> horarios = horarioCompiladoService.obtener(ids);
+        DisponibilidadRangoService.Agenda agenda = ids.isEmpty() ? null : disponibilidadRango.cargar(ids, desde, hasta);
+
+        List<BootstrapReservaDTO.BarberoReserva> filas = new ArrayList<>(barberos.size());
+        for (BarberoDTO b : barberos) {
+            HorarioCompilado horario = horarios.get(b.getId());
+            List<Integer> libres = new ArrayList<>(fechas.size());
+            List<String> primerLibre = new ArrayList<>(fechas.size());
+            for (LocalDate dia : fechas) {
+                if (horario == null || !horario.trabaja(dia)) {
+                    libres.add(null);
+                    primerLibre.add(null);
+                    continue;
+                }
+                List<LocalTime> l = agenda.libres(b.getId(), dia);
+                libres.add(l.size());
+                primerLibre.add(l.isEmpty() ? null : HHMM.format(l.get(0)));
+            }
+            filas.add(new BootstrapReservaDTO.BarberoReserva(
+                    b,
+                    catalogo.serviciosDe(b.getId()).stream().map(TipoCorteDTO::getId).toList(),
+                    semana(horario),
+                    libres,
+                    primerLibre));
+        }
+
+        log.debug("[BootstrapReserva] Sucursal {}: {} barberos, {} días", sucursalId, filas.size(), fechas.size());
+        return new BootstrapReservaDTO(
+                sucursalId,
+                catalogo.sucursales(),
+                catalogo.servicios(),
+                fechas.stream().map(LocalDate::toString).toList(),
+                filas);
+    }
+
+    /** Horario semanal como en GET /api/barberos/{id}/horarios-semana, desde el compilado. */
+    private static List<HorarioSemanaDTO> semana(HorarioCompilado horario) {
+        if (horario == null) return List.of();
+        List<HorarioSemanaDTO> res = new ArrayList<>();
+        for (int d = 1; d <= 7; d++) {
+            int[] f = horario.franjasSemanales(d);
+            for (int i = 0; i < f.length; i += 2) {
+                res.add(new HorarioSemanaDTO(d, HorarioCompilado.hhmm(f[i]), HorarioCompilado.hhmm(f[i + 1])));
+            }
+        }
+        return res;
+    }
+}
@@ -0,0 +1,199 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.model.EventoAgenda;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Bus de eventos de agenda en memoria: ring buffer de capacidad fija (estilo Disruptor).
+ *
+ * Los productores reservan una secuencia con un CAS, escriben el evento en su celda y la
+ * marcan como publicada; no se crean nodos ni colas por evento. Cada suscriptor tiene su
+ * propio hilo daemon y su propia secuencia, así uno lento no frena a los demás ni a quien
+ * publica. Si el suscriptor más atrasado está una vuelta entera detrás, el evento se
+ * descarta y se cuenta: publicar nunca bloquea un request ni un webhook, y los
+ * suscriptores deben poder re-consultar la DB si se pierden algo.
+ *
+ * Los eventos de entidades llegan como eventos de Spring y entran al bus recién después
+ * del commit ({@link #alEventoDeEntidad}); ver TurnoEventosListener, BloqueoEventosListener
+ * y HorarioEventosListener.
+ */
+@Slf4j
+@Service
+public class BusEventosAgenda {
+
+    private final EventoAgenda[] buffer;
+    private final AtomicLongArray publicadas; // secuencia publicada en cada celda
+    private final int mascara;
+    private final int capacidad;
+
+    private final AtomicLong cursor = new AtomicLong(-1); // última secuencia reservada
+    private final AtomicLong descartados = new AtomicLong();
+    private final List<Suscriptor> suscriptores = new CopyOnWriteArrayList<>();
+    private final List<Consumer<EventoAgenda>> observadores = new CopyOnWriteArrayList<>();
+
+    public BusEventosAgenda(@Value("${eventos.bus.capacity:4096}") int capacidadPedida) {
+        int c = Integer.highestOneBit(Math.max(16, capacidadPedida));
+        this.capacidad = c < capacidadPedida ? c << 1 : c; // potencia de 2 para indexar con máscara
+        this.mascara = capacidad - 1;
+        this.buffer = new EventoAgenda[capacidad];
+        this.publicadas = new AtomicLongArray(capacidad);
+        for (int i = 0; i < capacidad; i++) publicadas.set(i, -1);
+    }
+
+    /**
+     * Registra un suscriptor asíncrono. Recibe los eventos publicados desde ahora, en orden,
+     * en su propio hilo ("eventos-{nombre}"). Una excepción del handler se loguea y se sigue.
+     */
+    public void suscribir(String nombre, Consumer<EventoAgenda> handler) {
+        Suscriptor s = new Suscriptor(nombre, handler, cursor.get());
+        suscriptores.add(s);
+        s.hilo.start();
+        log.info("[Eventos] Suscriptor '{}' registrado", nombre);
+    }
+
+    /**
+     * Registra un observador sincrónico: corre en el hilo que publica, antes de encolar el
+     * evento (y aunque el buffer esté lleno). Sólo para trabajo trivial en memoria que tiene
+     * que quedar al día antes del próximo request, como las versiones de disponibilidad.
+     */
+    public void observar(Consumer<EventoAgenda> observador) {
+        observadores.add(observador);
+    }
+
+    /** Publica enseguida. @return false si el buffer estaba lleno y el evento se descartó */
+    public boolean publicar(EventoAgenda evento) {
+        for (Consumer<EventoAgenda> o : observadores) {
+            try {
+                o.accept(evento);
+            } catch (Exception e) {
+                log.error("[Eventos] Observador falló con {}: {}", evento.getClass().getSimpleName(), e.getMessage(), e);
+            }
+        }
+
+        long secuencia;
+        do {
+            long actual = cursor.get();
+            secuencia = actual + 1;
+            if (secuencia - minimoProcesado(actual) > capacidad) {
+                long n = descartados.incrementAndGet();
+                if (Long.bitCount(n) == 1) { // 1, 2, 4, 8... para no inundar el log
+                    log.warn("[Eventos] Buffer lleno: {} eventos descartados (último {})", n,
+                            evento.getClass().getSimpleName());
+                }
+                return false;
+            }
+        } while (!cursor.compareAndSet(secuencia - 1, secuencia));
+
+        int celda = (int) (secuencia & mascara);
+        buffer[celda] = evento;
+        publicadas.set(celda, secuencia); // escritura volátil: publica también buffer[celda]
+
+        for (Suscriptor s : suscriptores) {
+            if (s.esperando) LockSupport.unpark(s.hilo);
+        }
+        return true;
+    }
+
+    /** Publica cuando commitea la transacción que generó el evento; sin transacción, enseguida. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alEventoDeEntidad(EventoAgenda evento) {
+        publicar(evento);
+    }
+
+    /** Foto de las métricas del bus (para /admin/jobs). */
+    public Map<String, Object> estadisticas() {
+        long publicado = cursor.get();
+        Map<String, Object> res = new TreeMap<>();
+        res.put("capacidad", capacidad);
+        res.put("publicados", publicado + 1);
+        res.put("descartados", descartados.get());
+        Map<String, Object> porSuscriptor = new TreeMap<>();
+        for (Suscriptor s : suscriptores) {
+            porSuscriptor.put(s.nombre, Map.of(
+                    "procesados", s.procesados.get(),
+                    "errores", s.errores.get(),
+                    "atraso", publicado - s.procesado.get()
+            ));
+        }
+        res.put("suscriptores", porSuscriptor);
+        return res;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Suscriptor s : suscriptores) {
+            s.activo = false;
+            s.hilo.interrupt();
+        }
+    }
+
+    /* ===================== Internos ===================== */
+
+    private long minimoProcesado(long porDefecto) {
+        long minimo = porDefecto;
+        for (Suscriptor s : suscriptores) {
+            minimo = Math.min(minimo, s.procesado.get());
+        }
+        return minimo;
+    }
+
+    private final class Suscriptor implements Runnable {
+        final String nombre;
+        final Consumer<EventoAgenda> handler;
+        final AtomicLong procesado;        // última secuencia entregada
+        final AtomicLong procesados = new AtomicLong();
+        final AtomicLong errores = new AtomicLong();
+        final Thread hilo;
+        volatile boolean esperando;
+        volatile boolean activo = true;
+
+        Suscriptor(String nombre, Consumer<EventoAgenda> handler, long desde) {
+            this.nombre = nombre;
+            this.handler = handler;
+            this.procesado = new AtomicLong(desde);
+            this.hilo = new Thread(this, "eventos-" + nombre);
+            this.hilo.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long siguiente = procesado.get() + 1;
+            while (activo) {
+                int celda = (int) (siguiente & mascara);
+                if (publicadas.get(celda) != siguiente) {
+                    esperando = true;
+                    // Re-chequeo tras marcar la espera: el productor pudo publicar en el medio
+                    if (publicadas.get(celda) != siguiente) {
+                        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(50));
+                    }
+                    esperando = false;
+                    continue;
+                }
+                EventoAgenda evento = buffer[celda];
+                try {
+                    handler.accept(evento);
+                } catch (Exception e) {
+                    errores.incrementAndGet();
+                    log.error("[Eventos] Suscriptor '{}' falló con {}: {}", nombre,
+                            evento.getClass().getSimpleName(), e.getMessage(), e);
+                }
+                procesados.incrementAndGet();
+                procesado.set(siguiente++); // libera la celda para los productores
+            }
+        }
+    }
+}
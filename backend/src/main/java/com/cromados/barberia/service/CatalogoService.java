@@ -0,0 +1,119 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.dto.BarberoDTO;
+import com.cromados.barberia.dto.SucursalDTO;
+import com.cromados.barberia.dto.TipoCorteDTO;
+import com.cromados.barberia.model.CatalogoEventosListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Catálogo público en memoria: sucursales, barberos y servicios activos, tal cual los
+ * devuelven los endpoints públicos.
+ *
+ * Cambia muy de vez en cuando (desde el panel de admin) y se lee en cada carga de la
+ * página de reservas, así que se arma una vez y se comparte. Se descarta después del
+ * commit de cualquier alta/edición/baja de Sucursal, Barbero o TipoCorte (ver
+ * CatalogoEventosListener); el mismo contador de generación que HorarioCompiladoService evita guardar
+ * una lectura que se cruzó con un cambio. Vence igual a los catalogo.cache.ttlSeconds:
+ * cota de desfase si el cambio se hizo en otra instancia.
+ */
+@Slf4j
+@Service
+public class CatalogoService {
+
+    /** Foto inmutable del catálogo; las listas no se deben modificar. */
+    public record Catalogo(List<SucursalDTO> sucursales, List<BarberoDTO> barberos, List<TipoCorteDTO> servicios) {
+
+        public List<BarberoDTO> barberosDe(Long sucursalId) {
+            return sucursalId == null ? barberos
+                    : barberos.stream().filter(b -> sucursalId.equals(b.getSucursalId())).toList();
+        }
+
+        /** Servicios que ofrece el barbero: los sin barberos habilitados los ofrecen todos. */
+        public List<TipoCorteDTO> serviciosDe(Long barberoId) {
+            return servicios.stream()
+                    .filter(s -> s.getBarberosHabilitadosIds() == null || s.getBarberosHabilitadosIds().isEmpty()
+                            || s.getBarberosHabilitadosIds().contains(barberoId))
+                    .toList();
+        }
+    }
+
+    private record Entrada(Catalogo catalogo, long venceMs) {}
+
+    private static final int MAX_FILAS = 500; // mismo tope que usaban los endpoints públicos
+
+    private final SucursalService sucursalService;
+    private final BarberoService barberoService;
+    private final TipoCorteService tipoCorteService;
+    private final long ttlMs;
+
+    private volatile Entrada actual;
+    private final AtomicLong generacion = new AtomicLong();
+    private final AtomicLong cargas = new AtomicLong();
+
+    public CatalogoService(
+            SucursalService sucursalService,
+            BarberoService barberoService,
+            TipoCorteService tipoCorteService,
+            @Value("${catalogo.cache.ttlSeconds:300}") long ttlSegundos
+    ) {
+        this.sucursalService = sucursalService;
+        this.barberoService = barberoService;
+        this.tipoCorteService = tipoCorteService;
+        this.ttlMs = ttlSegundos * 1000;
+    }
+
+    public Catalogo obtener() {
+        long ahora = System.currentTimeMillis();
+        Entrada e = actual;
+        if (e != null && ahora < e.venceMs()) {
+            return e.catalogo();
+        }
+
+        long gen = generacion.get();
+        Catalogo c = new Catalogo(
+                List.copyOf(sucursalService.listar(PageRequest.of(0, MAX_FILAS, Sort.by("nombre").ascending())).getContent()),
+                List.copyOf(barberoService.listar(null, PageRequest.of(0, MAX_FILAS, Sort.by("nombre").ascending())).getContent()),
+                List.copyOf(tipoCorteService.listarActivos(PageRequest.of(0, MAX_FILAS, Sort.by("id").ascending())).getContent())
+        );
+        cargas.incrementAndGet();
+        if (generacion.get() == gen) { // si cambió algo mientras leíamos, no se cachea
+            actual = new Entrada(c, ahora + ttlMs);
+        }
+        log.debug("[Catalogo] Cargado: {} sucursales, {} barberos, {} servicios",
+                c.sucursales().size(), c.barberos().size(), c.servicios().size());
+        return c;
+    }
+
+    /**
+     * Descarta el catálogo en memoria. Como un cambio sólo de colecciones
+     * (TipoCorte.barberosHabilitados) no dispara @PostUpdate, lo llaman también los ABM de
+     * admin de servicios y barberos después de guardar.
+     */
+    public void invalidar() {
+        generacion.incrementAndGet();
+        actual = null;
+    }
+
+    /** Cambio publicado por CatalogoEventosListener: se invalida tras el commit (sin transacción, enseguida). */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarCatalogo(CatalogoEventosListener.Cambio cambio) {
+        invalidar();
+    }
+
+    public Map<String, Object> estadisticas() {
+        return Map.of(
+                "cargado", actual != null,
+                "cargas", cargas.get()
+        );
+    }
+}
@@ -0,0 +1,186 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.model.DirectorioClientesListener;
+import com.cromados.barberia.repository.ClienteRepository;
+import com.cromados.barberia.repository.TurnoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Directorio de clientes deduplicado por teléfono para el autocompletado de /agendar y /fijos.
+ *
+ * Antes cada búsqueda era un LIKE '%nombre%' con GROUP BY sobre toda la tabla turno, que
+ * crece con el historial. Ahora se busca en la tabla cliente (una fila por teléfono
+ * normalizado) con un índice trigram sobre lower(nombre): el costo depende de cuántos
+ * clientes coinciden, no de cuántos turnos hay.
+ *
+ * Cada turno nuevo llega de DirectorioClientesListener y se registra después de su commit.
+ * Al arrancar, si la tabla está vacía, se carga desde los turnos existentes en una sola
+ * transacción (bajo lease: con varias instancias la hace una sola).
+ */
+@Slf4j
+@Service
+public class DirectorioClientesService {
+
+    private final ClienteRepository clienteRepo;
+    private final TurnoRepository turnoRepo;
+    private final JobLeaseService jobLeaseService;
+    private final int maxResultados;
+    private final TransactionTemplate transaccionPropia;
+
+    private final AtomicLong busquedas = new AtomicLong();
+    private final AtomicLong registros = new AtomicLong();
+    private final AtomicLong errores = new AtomicLong();
+
+    public DirectorioClientesService(
+            ClienteRepository clienteRepo,
+            TurnoRepository turnoRepo,
+            JobLeaseService jobLeaseService,
+            PlatformTransactionManager transactionManager,
+            @Value("${clientes.directorio.maxResultados:10}") int maxResultados
+    ) {
+        this.clienteRepo = clienteRepo;
+        this.turnoRepo = turnoRepo;
+        this.jobLeaseService = jobLeaseService;
+        this.maxResultados = maxResultados;
+        this.transaccionPropia = new TransactionTemplate(transactionManager);
+        this.transaccionPropia.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Clientes cuyo nombre contiene {@code texto} (sin distinguir mayúsculas), los de
+     * visita más reciente primero. Cada fila es {telefono, edad, ultimaVisita}, un
+     * teléfono por cliente.
+     */
+    @Transactional(readOnly = true)
+    public List<Object[]> buscarPorNombre(String texto) {
+        if (texto == null || texto.isBlank()) return List.of();
+        busquedas.incrementAndGet();
+        String patron = "%" + escaparLike(texto.trim().toLowerCase(Locale.ROOT)) + "%";
+        return clienteRepo.buscarPorNombre(patron, PageRequest.of(0, maxResultados));
+    }
+
+    /**
+     * Suma el turno al directorio, en su propia transacción: un error acá no afecta la reserva.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void registrar(String telefono, String nombre, Integer edad, LocalDate fecha) {
+        String clave = clave(telefono);
+        if (clave == null || nombre == null || nombre.isBlank()) return;
+        clienteRepo.registrar(clave, telefono.trim(), nombre.trim(), edad, fecha, 1);
+        registros.incrementAndGet();
+    }
+
+    /**
+     * Registra el turno publicado por DirectorioClientesListener una vez commiteado; sin
+     * transacción (fallbackExecution) se registra en el momento. La llamada es interna (no
+     * pasa por el proxy), así que la transacción propia la abre el TransactionTemplate.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCrearTurno(DirectorioClientesListener.Visita v) {
+        try {
+            transaccionPropia.executeWithoutResult(s -> registrar(v.telefono(), v.nombre(), v.edad(), v.fecha()));
+        } catch (Exception e) {
+            errores.incrementAndGet();
+            log.warn("[DirectorioClientes] ⚠️ No se pudo registrar el cliente {}: {}", v.telefono(), e.getMessage());
+        }
+    }
+
+    /**
+     * Carga inicial desde los turnos si el directorio está vacío. Todo en una transacción:
+     * si falla a mitad de camino la tabla queda vacía y se reintenta en el próximo arranque.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void cargarInicial() {
+        if (clienteRepo.count() > 0) return;
+        jobLeaseService.ejecutar(JobLeaseService.JOB_DIRECTORIO_CLIENTES, this::cargarDesdeTurnos);
+    }
+
+    public Map<String, Object> estadisticas() {
+        return Map.of(
+                "busquedas", busquedas.get(),
+                "registros", registros.get(),
+                "errores", errores.get()
+        );
+    }
+
+    /* ===================== Internos ===================== */
+
+    /** Resumen acumulado de un teléfono; nombre y edad son los del turno más reciente. */
+    private static final class Resumen {
+        String telefono;
+        String nombre;
+        Integer edad;
+        LocalDate ultimaVisita;
+        LocalDateTime ultimoAlta;
+        long visitas;
+    }
+
+    private void cargarDesdeTurnos() {
+        if (clienteRepo.count() > 0) return; // otra instancia la hizo mientras esperábamos el lease
+        long t0 = System.currentTimeMillis();
+
+        Map<String, Resumen> porClave = new HashMap<>();
+        for (Object[] fila : turnoRepo.findResumenClientes()) {
+            String telefono = (String) fila[0];
+            String clave = clave(telefono);
+            if (clave == null) continue;
+            LocalDate fecha = (LocalDate) fila[3];
+            LocalDateTime alta = (LocalDateTime) fila[5];
+
+            Resumen r = porClave.computeIfAbsent(clave, k -> new Resumen());
+            r.visitas += (Long) fila[4];
+            if (r.ultimaVisita == null || (fecha != null && fecha.isAfter(r.ultimaVisita))) {
+                r.ultimaVisita = fecha;
+            }
+            if (r.nombre == null || masReciente(alta, r.ultimoAlta)) {
+                r.telefono = telefono.trim();
+                r.nombre = ((String) fila[1]).trim();
+                r.edad = (Integer) fila[2];
+                r.ultimoAlta = alta;
+            }
+        }
+
+        for (Map.Entry<String, Resumen> e : porClave.entrySet()) {
+            Resumen r = e.getValue();
+            clienteRepo.registrar(e.getKey(), r.telefono, r.nombre, r.edad, r.ultimaVisita, (int) r.visitas);
+        }
+        log.info("[DirectorioClientes] ✅ Carga inicial: {} clientes en {}ms", porClave.size(), System.currentTimeMillis() - t0);
+    }
+
+    private static boolean masReciente(LocalDateTime a, LocalDateTime b) {
+        return a != null && (b == null || a.isAfter(b));
+    }
+
+    /**
+     * Clave de deduplicación: el teléfono normalizado como el de los barberos; si no se
+     * puede normalizar (pocos dígitos), el texto tal cual para no perder al cliente.
+     */
+    static String clave(String telefono) {
+        if (telefono == null || telefono.isBlank()) return null;
+        String normalizado = BarberoTelefonoIndex.normalizar(telefono);
+        String clave = normalizado != null ? normalizado : telefono.trim();
+        return clave.length() <= 64 ? clave : null;
+    }
+
+    /** Escapa los comodines de LIKE con '\' (el ESCAPE de ClienteRepository.buscarPorNombre). */
+    private static String escaparLike(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,169 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.dto.GrillaDisponibilidadDTO;
+import com.cromados.barberia.model.Barbero;
+import com.cromados.barberia.model.BloqueoTurno;
+import com.cromados.barberia.repository.BarberoRepository;
+import com.cromados.barberia.repository.BloqueoTurnoRepository;
+import com.cromados.barberia.repository.SucursalRepository;
+import com.cromados.barberia.repository.TurnoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Disponibilidad de muchos barberos y días con un número fijo de consultas.
+ *
+ * {@link #cargar} toma los horarios compilados de {@link HorarioCompiladoService} (en cache;
+ * los que faltan se compilan juntos) y trae turnos ocupados y bloqueos de todos los
+ * barberos del rango, una consulta agrupada por tabla, y devuelve una
+ * {@link Agenda} que calcula cada (barbero, día) en memoria con las mismas reglas de
+ * {@link HorarioService#horariosDisponibles}. La usan la grilla de sucursal
+ * (GET /api/sucursales/{id}/disponibilidad) y ProximoTurnoService.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DisponibilidadRangoService {
+
+    private static final DateTimeFormatter HHMM = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final SucursalRepository sucursalRepo;
+    private final BarberoRepository barberoRepo;
+    private final HorarioCompiladoService horarioCompiladoService;
+    private final TurnoRepository turnoRepo;
+    private final BloqueoTurnoRepository bloqueoRepo;
+    private final HorarioService horarioService;
+
+    /**
+     * Grilla barbero × horario de un día para todos los barberos de la sucursal.
+     * Las columnas son la unión de los horarios de trabajo de todos; ver GrillaDisponibilidadDTO.
+     *
+     * @throws NoSuchElementException si la sucursal no existe
+     */
+    @Transactional(readOnly = true)
+    public GrillaDisponibilidadDTO grillaSucursal(Long sucursalId, LocalDate fecha) {
+        if (!sucursalRepo.existsById(sucursalId)) {
+            throw new NoSuchElementException("Sucursal no encontrada");
+        }
+        List<Barbero> barberos = new ArrayList<>(barberoRepo.findBySucursal_Id(sucursalId));
+        barberos.sort(Comparator.comparing(Barbero::getNombre, String.CASE_INSENSITIVE_ORDER));
+        if (barberos.isEmpty()) {
+            return new GrillaDisponibilidadDTO(fecha.toString(), List.of(), List.of());
+        }
+
+        Agenda agenda = cargar(barberos.stream().map(Barbero::getId).toList(), fecha, fecha);
+
+        List<List<LocalTime>> trabajo = new ArrayList<>(barberos.size());
+        List<Set<LocalTime>> libres = new ArrayList<>(barberos.size());
+        SortedSet<LocalTime> columnas = new TreeSet<>();
+        for (Barbero b : barberos) {
+            List<LocalTime> t = agenda.deTrabajo(b.getId(), fecha);
+            trabajo.add(t);
+            libres.add(new HashSet<>(agenda.libres(b.getId(), fecha)));
+            columnas.addAll(t);
+        }
+
+        List<LocalTime> horas = new ArrayList<>(columnas);
+        List<GrillaDisponibilidadDTO.FilaBarbero> filas = new ArrayList<>(barberos.size());
+        for (int i = 0; i < barberos.size(); i++) {
+            Set<LocalTime> trabaja = new HashSet<>(trabajo.get(i));
+            List<Boolean> estados = new ArrayList<>(horas.size());
+            for (LocalTime h : horas) {
+                estados.add(!trabaja.contains(h) ? null : libres.get(i).contains(h));
+            }
+            Barbero b = barberos.get(i);
+            filas.add(new GrillaDisponibilidadDTO.FilaBarbero(b.getId(), b.getNombre(), estados));
+        }
+
+        return new GrillaDisponibilidadDTO(fecha.toString(), horas.stream().map(HHMM::format).toList(), filas);
+    }
+
+    /**
+     * Carga la agenda de {@code barberoIds} entre {@code desde} y {@code hasta} (inclusive).
+     * Dos consultas (más dos si hay horarios sin compilar) sin importar cuántos barberos ni
+     * días; llamar dentro de una transacción para que los barberos de cada fila salgan del
+     * contexto de persistencia.
+     */
+    public Agenda cargar(Collection<Long> barberoIds, LocalDate desde, LocalDate hasta) {
+        Map<Long, HorarioCompilado> horarios = horarioCompiladoService.obtener(barberoIds);
+
+        // Cada turno como [inicio, fin) en minutos, con su duración efectiva
+        Map<Long, Map<LocalDate, List<int[]>>> ocupados = new HashMap<>();
+        for (Object[] fila : turnoRepo.findHorariosOcupados(barberoIds, desde, hasta)) {
+            LocalTime hora = (LocalTime) fila[2];
+            int inicio = hora.getHour() * 60 + hora.getMinute();
+            Integer duracion = (Integer) fila[3];
+            int fin = inicio + (duracion != null && duracion > 0 ? duracion : HorarioService.SLOT_MINUTES);
+            ocupados.computeIfAbsent((Long) fila[0], k -> new HashMap<>())
+                    .computeIfAbsent((LocalDate) fila[1], k -> new ArrayList<>())
+                    .add(new int[]{inicio, fin});
+        }
+
+        Map<Long, List<BloqueoTurno>> bloqueos = new HashMap<>();
+        for (BloqueoTurno b : bloqueoRepo.findSolapadosDeBarberos(barberoIds, desde, hasta)) {
+            bloqueos.computeIfAbsent(b.getBarbero().getId(), k -> new ArrayList<>()).add(b);
+        }
+
+        log.debug("[DisponibilidadRango] {} barberos {} → {}: {} con turnos, {} con bloqueos",
+                barberoIds.size(), desde, hasta, ocupados.size(), bloqueos.size());
+        return new Agenda(horarios, ocupados, bloqueos);
+    }
+
+    /** Agenda de varios barberos ya cargada: cada consulta se resuelve en memoria. */
+    public final class Agenda {
+        private final Map<Long, HorarioCompilado> horarios;
+        private final Map<Long, Map<LocalDate, List<int[]>>> ocupados;
+        private final Map<Long, List<BloqueoTurno>> bloqueos;
+
+        private Agenda(Map<Long, HorarioCompilado> horarios,
+                       Map<Long, Map<LocalDate, List<int[]>>> ocupados,
+                       Map<Long, List<BloqueoTurno>> bloqueos) {
+            this.horarios = horarios;
+            this.ocupados = ocupados;
+            this.bloqueos = bloqueos;
+        }
+
+        /** Igual que HorarioService.horariosDisponibles (un slot), sin ir a la DB. */
+        public List<LocalTime> libres(Long barberoId, LocalDate dia) {
+            return libres(barberoId, dia, HorarioService.SLOT_MINUTES);
+        }
+
+        /** Horarios donde entra un servicio de {@code duracionMin}, sin ir a la DB. */
+        public List<LocalTime> libres(Long barberoId, LocalDate dia, int duracionMin) {
+            int[] franjas = franjas(barberoId, dia);
+            if (franjas.length == 0) return List.of();
+
+            IntervalosDia.Builder ocupacion = IntervalosDia.builder();
+            for (int[] t : ocupados.getOrDefault(barberoId, Map.of()).getOrDefault(dia, List.of())) {
+                ocupacion.agregar(t[0], t[1]);
+            }
+            List<int[]> bloqueados = new ArrayList<>();
+            for (BloqueoTurno b : bloqueos.getOrDefault(barberoId, List.of())) {
+                if (!b.getFecha().isAfter(dia) && !b.getFechaHasta().isBefore(dia)) {
+                    bloqueados.add(BloqueoService.rangoEnFecha(b, dia));
+                }
+            }
+            ocupacion.bloqueos(bloqueados);
+
+            return horarioService.calcularLibres(dia, franjas, ocupacion.build(), duracionMin);
+        }
+
+        /** Horarios en los que el barbero trabaja ese día, libres o no. */
+        public List<LocalTime> deTrabajo(Long barberoId, LocalDate dia) {
+            int[] franjas = franjas(barberoId, dia);
+            return franjas.length == 0 ? List.of() : horarioService.slotsDeTrabajo(franjas);
+        }
+
+        private int[] franjas(Long barberoId, LocalDate dia) {
+            HorarioCompilado h = horarios.get(barberoId);
+            return h != null ? h.franjas(dia) : HorarioCompilado.SIN_FRANJAS;
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.model.EventoAgenda;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cambios de disponibilidad en vivo por Server-Sent Events (GET /api/disponibilidad/stream).
+ *
+ * Cada conexión se registra en un bucket por (barbero, día) para cada día de su rango.
+ * Un único suscriptor del {@link BusEventosAgenda} traduce los eventos en deltas
+ * "ocupado" / "liberado" (rango de horas inclusive de un día), serializa cada delta una
+ * sola vez y lo reparte sólo a los buckets afectados: no se consulta la DB por conexión.
+ *
+ * "liberado" significa que ese horario dejó de estar tomado; si queda reservable depende
+ * además del horario del barbero, que el front ya conoce por /api/disponibilidad.
+ * Si cambia el horario de trabajo (día excepcional u horario semanal) se manda "recargar"
+ * con {barberoId, fecha} (fecha null = todos los días) para que vuelva a consultarlo.
+ * Un ping cada pocos segundos mantiene vivos los proxies y descarta conexiones muertas.
+ *
+ * Los envíos no corren en el hilo del bus: cada conexión tiene su cola y un pool chico la
+ * drena en orden, así un cliente lento no atrasa los deltas de los demás. Si acumula más
+ * de {@value #MAX_PENDIENTES} eventos sin poder recibirlos se le cierra el stream; al
+ * reconectar vuelve a consultar la disponibilidad.
+ *
+ * Los deltas salen sólo del bus en memoria: un turno reservado en otra instancia no llega
+ * a las conexiones de esta. Por eso cada conexión recibe además un "recargar" de todo su
+ * rango cada disponibilidad.stream.reloadSeconds, y ese es el máximo que puede quedar
+ * desactualizada en un despliegue con varios nodos (0 lo apaga, para un solo nodo).
+ */
+@Slf4j
+@Service
+public class DisponibilidadStreamService {
+
+    private static final DateTimeFormatter HHMM = DateTimeFormatter.ofPattern("HH:mm");
+
+    /** Eventos encolados sin enviar a partir de los cuales la conexión se da por trabada. */
+    static final int MAX_PENDIENTES = 256;
+
+    private record Clave(long barberoId, LocalDate fecha) {}
+
+    private final class Conexion {
+        final SseEmitter emitter;
+        final long barberoId;
+        final LocalDate desde;
+        final LocalDate hasta;
+        final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> pendientes = new ConcurrentLinkedQueue<>();
+        final AtomicInteger encolados = new AtomicInteger();
+        final AtomicBoolean drenando = new AtomicBoolean();
+        volatile long proximaRecargaMs;
+
+        Conexion(SseEmitter emitter, long barberoId, LocalDate desde, LocalDate hasta) {
+            this.emitter = emitter;
+            this.barberoId = barberoId;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.proximaRecargaMs = System.currentTimeMillis() + recargaMs;
+        }
+
+        /** Encola el evento; lo envía un hilo de {@code envios}, en el orden en que se encoló. */
+        void enviar(Set<ResponseBodyEmitter.DataWithMediaType> datos) {
+            if (encolados.incrementAndGet() > MAX_PENDIENTES) {
+                cerrar(new IllegalStateException("Cliente SSE demasiado lento"));
+                return;
+            }
+            pendientes.add(datos);
+            programarDrenado();
+        }
+
+        private void programarDrenado() {
+            if (!drenando.compareAndSet(false, true)) return;
+            try {
+                envios.execute(this::drenar);
+            } catch (RejectedExecutionException e) {
+                drenando.set(false); // apagando
+            }
+        }
+
+        private void drenar() {
+            try {
+                Set<ResponseBodyEmitter.DataWithMediaType> datos;
+                while ((datos = pendientes.poll()) != null) {
+                    encolados.decrementAndGet();
+                    try {
+                        emitter.send(datos);
+                    } catch (Exception e) {
+                        cerrar(e);
+                        return;
+                    }
+                }
+            } finally {
+                drenando.set(false);
+            }
+            // Lo encolado entre el último poll y soltar la marca no se queda esperando
+            if (!pendientes.isEmpty()) programarDrenado();
+        }
+
+        /** Cliente desconectado o trabado: se limpia acá, sin esperar al timeout. */
+        private void cerrar(Exception causa) {
+            desregistrar(this);
+            pendientes.clear();
+            try {
+                emitter.completeWithError(causa);
+            } catch (Exception ignore) {
+                // ya estaba cerrado
+            }
+        }
+    }
+
+    private final BusEventosAgenda bus;
+    private final ObjectMapper objectMapper;
+    private final long timeoutMs;
+    private final int maxConexiones;
+    private final int maxDias;
+    private final long recargaMs;
+
+    private final Map<Clave, Set<Conexion>> porBarberoDia = new ConcurrentHashMap<>();
+    private final Set<Conexion> conexiones = ConcurrentHashMap.newKeySet();
+    private final AtomicLong deltasEnviados = new AtomicLong();
+    private final ScheduledThreadPoolExecutor ping;
+    private final ThreadPoolExecutor envios;
+
+    public DisponibilidadStreamService(
+            BusEventosAgenda bus,
+            ObjectMapper objectMapper,
+            @Value("${disponibilidad.stream.timeoutMs:1800000}") long timeoutMs,
+            @Value("${disponibilidad.stream.maxConnections:5000}") int maxConexiones,
+            @Value("${disponibilidad.stream.maxDays:62}") int maxDias,
+            @Value("${disponibilidad.stream.pingSeconds:25}") long pingSegundos,
+            @Value("${disponibilidad.stream.reloadSeconds:60}") long recargaSegundos,
+            @Value("${disponibilidad.stream.senderThreads:4}") int hilosEnvio
+    ) {
+        this.bus = bus;
+        this.objectMapper = objectMapper;
+        this.timeoutMs = timeoutMs;
+        this.maxConexiones = maxConexiones;
+        this.maxDias = maxDias;
+        this.recargaMs = recargaSegundos * 1000;
+
+        this.ping = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "sse-disponibilidad-ping");
+            t.setDaemon(true);
+            return t;
+        });
+        this.ping.scheduleAtFixedRate(this::pingear, pingSegundos, pingSegundos, TimeUnit.SECONDS);
+
+        // Cola sin tope: cada conexión tiene a lo sumo un drenado encolado
+        AtomicInteger n = new AtomicInteger();
+        this.envios = new ThreadPoolExecutor(hilosEnvio, hilosEnvio, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "sse-disponibilidad-envio-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.envios.allowCoreThreadTimeOut(true);
+    }
+
+    @PostConstruct
+    void suscribir() {
+        bus.suscribir("sse-disponibilidad", this::alEvento);
+    }
+
+    /**
+     * Abre un stream de cambios para {@code barberoId} entre {@code desde} y {@code hasta} (inclusive).
+     *
+     * @throws IllegalArgumentException si el rango es inválido o demasiado largo
+     * @throws IllegalStateException    si se alcanzó el máximo de conexiones
+     */
+    public SseEmitter abrir(long barberoId, LocalDate desde, LocalDate hasta) {
+        if (hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("'hasta' no puede ser anterior a 'desde'");
+        }
+        if (desde.plusDays(maxDias).isBefore(hasta)) {
+            throw new IllegalArgumentException("El rango máximo es de " + maxDias + " días");
+        }
+        if (conexiones.size() >= maxConexiones) {
+            throw new IllegalStateException("Demasiadas conexiones abiertas, reintentá en unos segundos");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Conexion c = new Conexion(emitter, barberoId, desde, hasta);
+        emitter.onCompletion(() -> desregistrar(c));
+        emitter.onTimeout(() -> desregistrar(c));
+        emitter.onError(e -> desregistrar(c));
+
+        conexiones.add(c);
+        for (LocalDate d = desde; !d.isAfter(hasta); d = d.plusDays(1)) {
+            // Dentro de compute: no compite con desregistrar() borrando el bucket vacío
+            porBarberoDia.compute(new Clave(barberoId, d), (k, set) -> {
+                Set<Conexion> bucket = set != null ? set : ConcurrentHashMap.<Conexion>newKeySet();
+                bucket.add(c);
+                return bucket;
+            });
+        }
+
+        Map<String, Object> hola = new LinkedHashMap<>();
+        hola.put("barberoId", barberoId);
+        hola.put("desde", desde.toString());
+        hola.put("hasta", hasta.toString());
+        c.enviar(evento("conectado", hola));
+        return emitter;
+    }
+
+    public Map<String, Object> estadisticas() {
+        return Map.of(
+                "conexiones", conexiones.size(),
+                "buckets", porBarberoDia.size(),
+                "deltasEnviados", deltasEnviados.get()
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ping.shutdownNow();
+        envios.shutdownNow();
+        for (Conexion c : conexiones) {
+            c.emitter.complete();
+        }
+    }
+
+    /* ===================== Eventos → deltas ===================== */
+
+    private void alEvento(EventoAgenda evento) {
+        if (conexiones.isEmpty()) return;
+
+        if (evento instanceof EventoAgenda.TurnoCreado e) {
+            if (e.ocupaHorario()) publicarTurno("ocupado", e.barberoId(), e.fecha(), e.hora(), e.duracionMin());
+        } else if (evento instanceof EventoAgenda.TurnoCancelado e) {
+            publicarTurno("liberado", e.barberoId(), e.fecha(), e.hora(), e.duracionMin());
+        } else if (evento instanceof EventoAgenda.TurnoMovido e) {
+            publicarTurno("liberado", e.barberoAnteriorId(), e.fechaAnterior(), e.horaAnterior(),
+                    e.duracionAnteriorMin());
+            publicarTurno("ocupado", e.barberoId(), e.fecha(), e.hora(), e.duracionMin());
+        } else if (evento instanceof EventoAgenda.SlotBloqueado e) {
+            publicarRango("ocupado", e.barberoId(), e.inicio(), e.fin());
+        } else if (evento instanceof EventoAgenda.SlotLiberado e) {
+            publicarRango("liberado", e.barberoId(), e.inicio(), e.fin());
+        } else if (evento instanceof EventoAgenda.HorarioCambiado e) {
+            publicarRecarga(e.barberoId(), e.fecha());
+        }
+    }
+
+    /** Un turno ocupa [hora, hora + duracion): el delta va hasta su último minuto inclusive. */
+    private void publicarTurno(String tipo, Long barberoId, LocalDate fecha, LocalTime hora, int duracionMin) {
+        LocalDateTime inicio = LocalDateTime.of(fecha, hora);
+        publicarRango(tipo, barberoId, inicio, inicio.plusMinutes(Math.max(1, duracionMin) - 1L));
+    }
+
+    /** Un intervalo de varios días se parte en un delta por día (desde/hasta inclusive). */
+    private void publicarRango(String tipo, Long barberoId, LocalDateTime inicio, LocalDateTime fin) {
+        for (LocalDate d = inicio.toLocalDate(); !d.isAfter(fin.toLocalDate()); d = d.plusDays(1)) {
+            LocalTime desde = d.equals(inicio.toLocalDate()) ? inicio.toLocalTime() : LocalTime.MIN;
+            LocalTime hasta = d.equals(fin.toLocalDate()) ? fin.toLocalTime() : LocalTime.of(23, 59);
+            publicar(tipo, barberoId, d, desde, hasta);
+        }
+    }
+
+    private void publicar(String tipo, Long barberoId, LocalDate fecha, LocalTime desde, LocalTime hasta) {
+        if (barberoId == null) return;
+        Set<Conexion> destino = porBarberoDia.get(new Clave(barberoId, fecha));
+        if (destino == null || destino.isEmpty()) return;
+
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("barberoId", barberoId);
+        delta.put("fecha", fecha.toString());
+        delta.put("desde", HHMM.format(desde));
+        delta.put("hasta", HHMM.format(hasta));
+        Set<ResponseBodyEmitter.DataWithMediaType> datos = evento(tipo, delta); // se serializa una sola vez
+
+        for (Conexion c : List.copyOf(destino)) {
+            c.enviar(datos);
+            deltasEnviados.incrementAndGet();
+        }
+    }
+
+    /** Horario de trabajo cambiado: a las conexiones del día, o a todas las del barbero si fecha es null. */
+    private void publicarRecarga(Long barberoId, LocalDate fecha) {
+        if (barberoId == null) return;
+        Set<Conexion> destino;
+        if (fecha != null) {
+            destino = porBarberoDia.get(new Clave(barberoId, fecha));
+            if (destino == null || destino.isEmpty()) return;
+        } else {
+            destino = new HashSet<>();
+            for (Conexion c : conexiones) {
+                if (c.barberoId == barberoId) destino.add(c);
+            }
+            if (destino.isEmpty()) return;
+        }
+
+        Set<ResponseBodyEmitter.DataWithMediaType> datos = recarga(barberoId, fecha);
+        for (Conexion c : List.copyOf(destino)) {
+            c.enviar(datos);
+            deltasEnviados.incrementAndGet();
+        }
+    }
+
+    /* ===================== Internos ===================== */
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> evento(String nombre, Map<String, Object> payload) {
+        try {
+            return SseEmitter.event()
+                    .name(nombre)
+                    .data(objectMapper.writeValueAsString(payload), MediaType.APPLICATION_JSON)
+                    .build();
+        } catch (Exception e) {
+            throw new IllegalStateException("No se pudo serializar el evento " + nombre, e);
+        }
+    }
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> recarga(long barberoId, LocalDate fecha) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("barberoId", barberoId);
+        payload.put("fecha", fecha != null ? fecha.toString() : null);
+        return evento("recargar", payload);
+    }
+
+    /**
+     * Ping a todas las conexiones y "recargar" periódico a las que les toca. Como cada una
+     * cuenta desde que abrió, las recargas quedan repartidas y no llegan todas juntas a la DB.
+     */
+    private void pingear() {
+        if (conexiones.isEmpty()) return;
+        Set<ResponseBodyEmitter.DataWithMediaType> datos = SseEmitter.event().comment("ping").build();
+        long ahora = System.currentTimeMillis();
+        for (Conexion c : List.copyOf(conexiones)) {
+            if (recargaMs > 0 && ahora >= c.proximaRecargaMs) {
+                c.proximaRecargaMs = ahora + recargaMs;
+                c.enviar(recarga(c.barberoId, null));
+            } else {
+                c.enviar(datos);
+            }
+        }
+    }
+
+    private void desregistrar(Conexion c) {
+        if (!conexiones.remove(c)) return;
+        for (LocalDate d = c.desde; !d.isAfter(c.hasta); d = d.plusDays(1)) {
+            porBarberoDia.computeIfPresent(new Clave(c.barberoId, d), (k, set) -> {
+                set.remove(c);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+}
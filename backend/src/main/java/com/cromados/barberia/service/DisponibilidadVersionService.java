@@ -0,0 +1,145 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.model.EventoAgenda;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versión de la disponibilidad por (barbero, día), para el ETag de GET /api/disponibilidad.
+ *
+ * Todas las versiones salen de un único contador creciente. Invalidar un día es borrar su
+ * entrada: la próxima consulta le asigna un valor nuevo, mayor que cualquiera entregado
+ * antes, así que nunca se repite un ETag viejo. Se invalida desde un observador sincrónico
+ * del {@link BusEventosAgenda} (turnos, bloqueos, días excepcionales, horario semanal),
+ * en el mismo hilo que commitea, antes de que el cliente pueda volver a preguntar.
+ *
+ * El ETag lleva un id aleatorio de la instancia: tras un reinicio o contra otro nodo no
+ * coincide nunca. Como los eventos son en memoria, un cambio hecho en otra instancia no
+ * invalida esta; por eso cada versión vence a los disponibilidad.etag.ttlSeconds y ese es
+ * el máximo de tiempo que un 304 puede quedar desactualizado en un despliegue con varios nodos.
+ */
+@Slf4j
+@Service
+public class DisponibilidadVersionService {
+
+    /** Un bloqueo más largo que esto invalida el barbero entero en vez de día por día. */
+    private static final int MAX_DIAS_POR_EVENTO = 400;
+
+    private record Clave(long barberoId, LocalDate fecha) {}
+
+    private record Version(long valor, long venceMs) {}
+
+    private final BusEventosAgenda bus;
+    private final long ttlMs;
+    private final int maxEntradas;
+    private final String instancia = UUID.randomUUID().toString().substring(0, 8);
+
+    private final AtomicLong reloj = new AtomicLong();
+    private final Map<Clave, Version> porDia = new ConcurrentHashMap<>();
+    private final AtomicLong invalidaciones = new AtomicLong();
+    private final AtomicLong noModificados = new AtomicLong();
+    private final AtomicLong completos = new AtomicLong();
+
+    public DisponibilidadVersionService(
+            BusEventosAgenda bus,
+            @Value("${disponibilidad.etag.ttlSeconds:60}") long ttlSegundos,
+            @Value("${disponibilidad.etag.maxEntries:50000}") int maxEntradas
+    ) {
+        this.bus = bus;
+        this.ttlMs = ttlSegundos * 1000;
+        this.maxEntradas = maxEntradas;
+    }
+
+    @PostConstruct
+    void observar() {
+        bus.observar(this::alEvento);
+    }
+
+    /**
+     * ETag actual de la disponibilidad de {@code barberoId} en {@code fecha}. Hay que pedirlo
+     * ANTES de leer la DB: si algo cambia en el medio, la versión ya no coincide y el
+     * próximo request recalcula.
+     */
+    public String etag(long barberoId, LocalDate fecha) {
+        long ahora = System.currentTimeMillis();
+        if (porDia.size() > maxEntradas) {
+            purgar(ahora);
+        }
+        Version v = porDia.compute(new Clave(barberoId, fecha), (k, actual) ->
+                actual == null || ahora >= actual.venceMs() ? new Version(reloj.incrementAndGet(), ahora + ttlMs) : actual);
+        return "\"" + instancia + "-" + v.valor() + "\"";
+    }
+
+    /**
+     * ETag de la lista para un servicio de {@code duracionMin}: la misma versión por
+     * barbero/día, distinta por duración (los horarios libres dependen de ella).
+     */
+    public String etag(long barberoId, LocalDate fecha, int duracionMin) {
+        String base = etag(barberoId, fecha);
+        return base.substring(0, base.length() - 1) + "-" + duracionMin + "m\"";
+    }
+
+    /** Para las métricas: si la respuesta fue 304 o se recalculó. */
+    public void registrarRespuesta(boolean noModificado) {
+        (noModificado ? noModificados : completos).incrementAndGet();
+    }
+
+    public Map<String, Object> estadisticas() {
+        return Map.of(
+                "entradas", porDia.size(),
+                "invalidaciones", invalidaciones.get(),
+                "noModificados", noModificados.get(),
+                "completos", completos.get()
+        );
+    }
+
+    /* ===================== Internos ===================== */
+
+    private void alEvento(EventoAgenda evento) {
+        if (evento instanceof EventoAgenda.HorarioCambiado e && e.fecha() == null) {
+            invalidarBarbero(e.barberoId());
+        } else if (evento instanceof EventoAgenda.TurnoMovido e) {
+            invalidar(e.barberoId(), e.fecha(), e.fecha());
+            invalidar(e.barberoAnteriorId(), e.fechaAnterior(), e.fechaAnterior());
+        } else {
+            invalidar(evento.barberoId(), evento.desde(), evento.hasta());
+        }
+    }
+
+    private void invalidar(Long barberoId, LocalDate desde, LocalDate hasta) {
+        if (barberoId == null || desde == null || hasta == null) return;
+        if (ChronoUnit.DAYS.between(desde, hasta) > MAX_DIAS_POR_EVENTO) {
+            invalidarBarbero(barberoId);
+            return;
+        }
+        for (LocalDate d = desde; !d.isAfter(hasta); d = d.plusDays(1)) {
+            porDia.remove(new Clave(barberoId, d));
+        }
+        invalidaciones.incrementAndGet();
+    }
+
+    private void invalidarBarbero(Long barberoId) {
+        if (barberoId == null) return;
+        porDia.keySet().removeIf(k -> k.barberoId() == barberoId);
+        invalidaciones.incrementAndGet();
+    }
+
+    /** Borra días pasados y versiones vencidas; si igual sobra, empieza de cero (sólo cuesta 200s). */
+    private void purgar(long ahora) {
+        LocalDate hoy = LocalDate.now();
+        porDia.entrySet().removeIf(e -> e.getKey().fecha().isBefore(hoy) || ahora >= e.getValue().venceMs());
+        if (porDia.size() > maxEntradas) {
+            log.warn("[Disponibilidad] {} versiones en memoria (máximo {}), se descartan todas", porDia.size(), maxEntradas);
+            porDia.clear();
+        }
+    }
+}
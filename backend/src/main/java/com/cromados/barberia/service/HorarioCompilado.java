@@ -0,0 +1,104 @@
+package com.cromados.barberia.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+
+/**
+ * Horario de trabajo de un barbero ya parseado, listo para comparar enteros.
+ *
+ * Cada día se representa como un int[] plano {inicio0, fin0, inicio1, fin1, ...} en
+ * minutos desde medianoche, [inicio, fin] inclusive y ordenado por inicio. Un día
+ * excepcional reemplaza por completo al horario semanal de ese día de la semana (mismo
+ * criterio que HorarioService). Inmutable: lo arma y cachea HorarioCompiladoService y se
+ * comparte entre hilos; los arrays devueltos no se deben modificar.
+ */
+public final class HorarioCompilado {
+
+    static final int[] SIN_FRANJAS = new int[0];
+
+    private final int[][] semana;                        // índice 1=Lunes ... 7=Domingo
+    private final NavigableMap<LocalDate, int[]> excepcionales;
+
+    HorarioCompilado(int[][] semana, NavigableMap<LocalDate, int[]> excepcionales) {
+        this.semana = semana;
+        this.excepcionales = Collections.unmodifiableNavigableMap(excepcionales);
+    }
+
+    /** Franjas de {@code fecha}: las del día excepcional si hay, si no las del día de la semana. */
+    public int[] franjas(LocalDate fecha) {
+        int[] excepcional = excepcionales.get(fecha);
+        return excepcional != null ? excepcional : semana[fecha.getDayOfWeek().getValue()];
+    }
+
+    /** Franjas del horario semanal de {@code diaSemana} (1=Lunes ... 7=Domingo), sin días excepcionales. */
+    public int[] franjasSemanales(int diaSemana) {
+        return semana[diaSemana];
+    }
+
+    public boolean trabaja(LocalDate fecha) {
+        return franjas(fecha).length > 0;
+    }
+
+    /** true si {@code minuto} (desde medianoche) cae dentro de alguna franja de {@code fecha}. */
+    public boolean dentro(LocalDate fecha, int minuto) {
+        int[] f = franjas(fecha);
+        for (int i = 0; i < f.length; i += 2) {
+            if (minuto < f[i]) return false; // ordenadas por inicio
+            if (minuto <= f[i + 1]) return true;
+        }
+        return false;
+    }
+
+    public boolean dentro(LocalDate fecha, LocalTime hora) {
+        return dentro(fecha, hora.getHour() * 60 + hora.getMinute());
+    }
+
+    /**
+     * true si un servicio de {@code duracion} minutos que empieza en {@code minuto} entra
+     * completo en alguna franja de {@code fecha}: empieza a más tardar en el último horario
+     * ofrecido y termina dentro de la atención (ver {@link #finAtencion}).
+     */
+    public boolean cabe(LocalDate fecha, int minuto, int duracion) {
+        int[] f = franjas(fecha);
+        for (int i = 0; i < f.length; i += 2) {
+            if (minuto < f[i]) return false;
+            if (minuto <= f[i + 1] && minuto + duracion <= finAtencion(f[i + 1])) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Minuto (exclusivo) en que termina la atención de una franja. El fin cargado es el
+     * último horario que se ofrece ("09:00 a 20:00" ofrece las 20:00), así que se atiende
+     * un slot más.
+     */
+    static int finAtencion(int finFranja) {
+        return finFranja + HorarioService.SLOT_MINUTES;
+    }
+
+    /** true si tiene horario semanal o algún día excepcional desde {@code desde}. */
+    public boolean tieneHorarios(LocalDate desde) {
+        for (int d = 1; d <= 7; d++) {
+            if (semana[d].length > 0) return true;
+        }
+        return excepcionales.ceilingKey(desde) != null;
+    }
+
+    /** Franjas de {@code fecha} como texto "HH:mm a HH:mm", para mensajes. */
+    public List<String> describir(LocalDate fecha) {
+        int[] f = franjas(fecha);
+        List<String> res = new ArrayList<>(f.length / 2);
+        for (int i = 0; i < f.length; i += 2) {
+            res.add(hhmm(f[i]) + " a " + hhmm(f[i + 1]));
+        }
+        return res;
+    }
+
+    static String hhmm(int minutos) {
+        return String.format("%02d:%02d", minutos / 60, minutos % 60);
+    }
+}
@@ -0,0 +1,184 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.model.EventoAgenda;
+import com.cromados.barberia.repository.DiaExcepcionalBarberoRepository;
+import com.cromados.barberia.repository.HorarioBarberoRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache de {@link HorarioCompilado} por barbero.
+ *
+ * Los horarios se guardan como texto ("09:00") en HorarioBarbero y DiaExcepcionalBarbero;
+ * acá se parsean una sola vez por barbero a rangos de minutos. Se recompilan sólo cuando
+ * cambian: un observador sincrónico del {@link BusEventosAgenda} descarta el barbero ante
+ * cada HorarioCambiado (lo publican las altas/bajas/ediciones de los controllers de admin
+ * vía HorarioEventosListener), antes de que el próximo request lo lea.
+ *
+ * Un contador de generación evita guardar una compilación leída de la DB antes de un
+ * cambio que se invalidó mientras tanto. Como los eventos son en memoria, cada entrada
+ * vence igual a los horarios.compilados.ttlSeconds: es la cota de desfase si otra
+ * instancia cambió el horario.
+ */
+@Slf4j
+@Service
+public class HorarioCompiladoService {
+
+    private record Entrada(HorarioCompilado horario, long venceMs) {}
+
+    private final HorarioBarberoRepository horarioRepo;
+    private final DiaExcepcionalBarberoRepository diaExcepcionalRepo;
+    private final BusEventosAgenda bus;
+    private final long ttlMs;
+
+    private final Map<Long, Entrada> porBarbero = new ConcurrentHashMap<>();
+    private final AtomicLong generacion = new AtomicLong();
+    private final AtomicLong compilaciones = new AtomicLong();
+
+    public HorarioCompiladoService(
+            HorarioBarberoRepository horarioRepo,
+            DiaExcepcionalBarberoRepository diaExcepcionalRepo,
+            BusEventosAgenda bus,
+            @Value("${horarios.compilados.ttlSeconds:300}") long ttlSegundos
+    ) {
+        this.horarioRepo = horarioRepo;
+        this.diaExcepcionalRepo = diaExcepcionalRepo;
+        this.bus = bus;
+        this.ttlMs = ttlSegundos * 1000;
+    }
+
+    @PostConstruct
+    void observar() {
+        bus.observar(evento -> {
+            if (evento instanceof EventoAgenda.HorarioCambiado e && e.barberoId() != null) {
+                generacion.incrementAndGet();
+                porBarbero.remove(e.barberoId());
+            }
+        });
+    }
+
+    /** Horario compilado de un barbero (sin horarios configurados = nunca trabaja). */
+    public HorarioCompilado obtener(Long barberoId) {
+        return obtener(List.of(barberoId)).get(barberoId);
+    }
+
+    /**
+     * Horarios compilados de varios barberos. Los que no están en cache se compilan juntos:
+     * dos consultas en total, no dos por barbero.
+     */
+    public Map<Long, HorarioCompilado> obtener(Collection<Long> barberoIds) {
+        long ahora = System.currentTimeMillis();
+        Map<Long, HorarioCompilado> res = new HashMap<>();
+        Set<Long> faltantes = new HashSet<>();
+        for (Long id : barberoIds) {
+            Entrada e = porBarbero.get(id);
+            if (e != null && ahora < e.venceMs()) {
+                res.put(id, e.horario());
+            } else {
+                faltantes.add(id);
+            }
+        }
+        if (!faltantes.isEmpty()) {
+            long gen = generacion.get();
+            Map<Long, HorarioCompilado> compilados = compilar(faltantes);
+            boolean vigente = generacion.get() == gen; // si cambió algo mientras leíamos, no se cachea
+            for (Map.Entry<Long, HorarioCompilado> c : compilados.entrySet()) {
+                res.put(c.getKey(), c.getValue());
+                if (vigente) porBarbero.put(c.getKey(), new Entrada(c.getValue(), ahora + ttlMs));
+            }
+        }
+        return res;
+    }
+
+    public Map<String, Object> estadisticas() {
+        return Map.of(
+                "barberos", porBarbero.size(),
+                "compilaciones", compilaciones.get()
+        );
+    }
+
+    /* ===================== Internos ===================== */
+
+    private Map<Long, HorarioCompilado> compilar(Set<Long> ids) {
+        Map<Long, List<List<int[]>>> semanal = new HashMap<>();
+        for (Object[] fila : horarioRepo.findFranjasDeBarberos(ids)) {
+            int[] franja = franja((String) fila[2], (String) fila[3], (Long) fila[0]);
+            int dia = (Integer) fila[1];
+            if (franja == null || dia < 1 || dia > 7) continue;
+            semanal.computeIfAbsent((Long) fila[0], k -> {
+                List<List<int[]>> dias = new ArrayList<>(8);
+                for (int i = 0; i <= 7; i++) dias.add(new ArrayList<>());
+                return dias;
+            }).get(dia).add(franja);
+        }
+
+        Map<Long, Map<LocalDate, List<int[]>>> excepcionales = new HashMap<>();
+        for (Object[] fila : diaExcepcionalRepo.findFranjasDeBarberos(ids)) {
+            int[] franja = franja((String) fila[2], (String) fila[3], (Long) fila[0]);
+            if (franja == null) continue;
+            excepcionales.computeIfAbsent((Long) fila[0], k -> new HashMap<>())
+                    .computeIfAbsent((LocalDate) fila[1], k -> new ArrayList<>())
+                    .add(franja);
+        }
+
+        Map<Long, HorarioCompilado> res = new HashMap<>();
+        for (Long id : ids) {
+            int[][] semana = new int[8][];
+            List<List<int[]>> dias = semanal.get(id);
+            for (int d = 0; d <= 7; d++) {
+                semana[d] = dias != null ? aplanar(dias.get(d)) : HorarioCompilado.SIN_FRANJAS;
+            }
+            NavigableMap<LocalDate, int[]> porFecha = new TreeMap<>();
+            excepcionales.getOrDefault(id, Map.of()).forEach((fecha, f) -> porFecha.put(fecha, aplanar(f)));
+            res.put(id, new HorarioCompilado(semana, porFecha));
+        }
+        compilaciones.addAndGet(ids.size());
+        log.debug("[HorarioCompilado] {} barberos compilados", ids.size());
+        return res;
+    }
+
+    /** Franjas ordenadas por inicio → {inicio0, fin0, inicio1, fin1, ...}. */
+    private static int[] aplanar(List<int[]> franjas) {
+        if (franjas.isEmpty()) return HorarioCompilado.SIN_FRANJAS;
+        franjas.sort(Comparator.comparingInt(f -> f[0]));
+        int[] res = new int[franjas.size() * 2];
+        for (int i = 0; i < franjas.size(); i++) {
+            res[2 * i] = franjas.get(i)[0];
+            res[2 * i + 1] = franjas.get(i)[1];
+        }
+        return res;
+    }
+
+    private static int[] franja(String inicio, String fin, Long barberoId) {
+        int i = minutos(inicio);
+        int f = minutos(fin);
+        if (i < 0 || f < 0 || f < i) {
+            log.warn("[HorarioCompilado] Franja inválida para barbero {}: {} - {}", barberoId, inicio, fin);
+            return null;
+        }
+        return new int[]{i, f};
+    }
+
+    /** "HH:mm" o "HH:mm:ss" → minutos desde medianoche; -1 si no se puede leer. */
+    static int minutos(String hhmm) {
+        if (hhmm == null) return -1;
+        String s = hhmm.trim();
+        if (s.length() < 4) return -1;
+        int dosPuntos = s.indexOf(':');
+        if (dosPuntos < 1 || dosPuntos + 3 > s.length()) return -1;
+        try {
+            int h = Integer.parseInt(s.substring(0, dosPuntos));
+            int m = Integer.parseInt(s.substring(dosPuntos + 1, dosPuntos + 3));
+            return h >= 0 && h < 24 && m >= 0 && m < 60 ? h * 60 + m : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -1,11 +1,7 @@
 package com.cromados.barberia.service;
 
-import com.cromados.barberia.model.DiaExcepcionalBarbero;
-import com.cromados.barberia.model.HorarioBarbero;
+import com.cromados.barberia.model.TipoCorte;
 import com.cromados.barberia.model.Turno;
-import com.cromados.barberia.repository.BloqueoTurnoRepository;
-import com.cromados.barberia.repository.DiaExcepcionalBarberoRepository;
-import com.cromados.barberia.repository.HorarioBarberoRepository;
 import com.cromados.barberia.repository.TurnoRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -14,9 +10,7 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Servicio centralizado para el cálculo de horarios disponibles.
@@ -26,23 +20,36 @@ import java.util.stream.Collectors;
  * - Web (TurnoService)
  * - Bot de Telegram (todos los handlers)
  * - Admin (si necesita consultar disponibilidad)
+ *
+ * Las franjas de trabajo salen de {@link HorarioCompiladoService} (ya parseadas a minutos
+ * y cacheadas): generar slots es aritmética de enteros, sin parsear "HH:mm" por request.
+ * La ocupación del día es un {@link IntervalosDia}: cada turno cuenta con su duración
+ * (servicio + adicionales), así que un horario se ofrece sólo si el servicio entra entero.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class HorarioService {
 
-    private final HorarioBarberoRepository horarioBarberoRepository;
-    private final DiaExcepcionalBarberoRepository diaExcepcionalBarberoRepository;
+    private final HorarioCompiladoService horarioCompiladoService;
     private final TurnoRepository turnoRepository;
-    private final BloqueoTurnoRepository bloqueoTurnoRepository;
+    private final BloqueoService bloqueoService;
 
-    private static final int SLOT_MINUTES = 30;
-    private static final DateTimeFormatter F_HORA = DateTimeFormatter.ofPattern("HH:mm");
+    /** Paso de la grilla de horarios que se ofrecen; también la duración si no se conoce el servicio. */
+    public static final int SLOT_MINUTES = Turno.MINUTOS_TURNO_DEFAULT;
+    private static final int MINUTOS_DIA = 24 * 60;
     private static final ZoneId ZONA_ARGENTINA = ZoneId.of("America/Argentina/Buenos_Aires");
 
     /**
-     * Calcula los horarios disponibles para un barbero en una fecha específica.
+     * Calcula los horarios disponibles para un barbero en una fecha específica, para un
+     * turno de un slot (servicio todavía no elegido). Ver la variante con duración.
+     */
+    public List<LocalTime> horariosDisponibles(Long barberoId, LocalDate fecha) {
+        return horariosDisponibles(barberoId, fecha, SLOT_MINUTES, null);
+    }
+
+    /**
+     * Calcula los horarios en los que entra un servicio de {@code duracionMin} minutos.
      *
      * Considera:
      * - Días excepcionales (DiaExcepcionalBarbero) - PRIORIDAD 1
@@ -50,116 +57,168 @@ public class HorarioService {
      * - Turnos confirmados (pagoConfirmado=true)
      * - Turnos bloqueados (estado=BLOQUEADO)
      * - Turnos confirmados pero no pagados (estado=CONFIRMADO)
-     * - Bloqueos manuales (BloqueoTurno - tabla legacy)
+     * - Bloqueos por intervalo (BloqueoTurno: descansos, vacaciones, francos)
      * - Horarios pasados (si es hoy)
      *
      * PRIORIDAD: Si existe un día excepcional para la fecha, se usan SOLO esas franjas
      * (ignora completamente el horario regular del día de la semana).
      *
-     * @param barberoId ID del barbero
-     * @param fecha Fecha a consultar
+     * Cada turno ocupa [hora, hora + duración) con su duración efectiva (servicio +
+     * adicionales), no un slot fijo: un servicio de 60 minutos tapa los dos slots que pisa.
+     *
+     * @param barberoId      ID del barbero
+     * @param fecha          Fecha a consultar
+     * @param duracionMin    Minutos del servicio a reservar (servicio + adicionales)
+     * @param excluirTurnoId Turno que no cuenta como ocupado (el que se está moviendo), o null
      * @return Lista de horarios disponibles (LocalTime) ordenados
      */
-    public List<LocalTime> horariosDisponibles(Long barberoId, LocalDate fecha) {
-        // 1. Verificar si existe un día excepcional para esta fecha (PRIORIDAD MÁXIMA)
-        List<DiaExcepcionalBarbero> franjasExcepcionales = diaExcepcionalBarberoRepository
-                .findByBarbero_IdAndFecha(barberoId, fecha);
+    public List<LocalTime> horariosDisponibles(Long barberoId, LocalDate fecha, int duracionMin, Long excluirTurnoId) {
+        // 1. Franjas del día (día excepcional con prioridad, si no el horario semanal)
+        int[] franjas = horarioCompiladoService.obtener(barberoId).franjas(fecha);
+        if (franjas.length == 0) {
+            log.debug("[HorarioService] Barbero {} no trabaja el {}", barberoId, fecha);
+            return List.of();
+        }
 
-        List<FranjaHoraria> franjas = new ArrayList<>();
+        // 2 y 3. Turnos ocupados y bloqueos del día como intervalos de minutos
+        IntervalosDia ocupacion = ocupacion(barberoId, fecha, excluirTurnoId);
 
-        if (franjasExcepcionales != null && !franjasExcepcionales.isEmpty()) {
-            // Usar franjas excepcionales (días festivos, eventos especiales, etc.)
-            log.debug("[HorarioService] Barbero {} trabaja día excepcional en {}: {} franjas",
-                      barberoId, fecha, franjasExcepcionales.size());
+        List<LocalTime> libres = calcularLibres(fecha, franjas, ocupacion, duracionMin);
 
-            for (DiaExcepcionalBarbero deb : franjasExcepcionales) {
-                franjas.add(new FranjaHoraria(deb.getInicio(), deb.getFin()));
-            }
-        } else {
-            // Usar horarios regulares según día de la semana
-            final int dow = fecha.getDayOfWeek().getValue(); // 1=Lunes, 7=Domingo
-            List<HorarioBarbero> franjasRegulares = horarioBarberoRepository
-                    .findByBarbero_IdAndDiaSemana(barberoId, dow);
-
-            if (franjasRegulares == null || franjasRegulares.isEmpty()) {
-                log.debug("[HorarioService] Barbero {} no trabaja el día {} (dow={})", barberoId, fecha, dow);
-                return List.of();
-            }
+        log.debug("[HorarioService] Barbero {} en {}: {} horarios libres para {} min de {} franjas, {} intervalos ocupados",
+                  barberoId, fecha, libres.size(), duracionMin, franjas.length / 2, ocupacion.cantidad());
+
+        return libres;
+    }
+
+    /**
+     * true si un servicio de {@code duracionMin} puede empezar a las {@code hora}: dentro de
+     * una franja de atención, sin pisar turnos ni bloqueos y, si es hoy, no pasado.
+     */
+    public boolean admite(Long barberoId, LocalDate fecha, LocalTime hora, int duracionMin, Long excluirTurnoId) {
+        int inicio = hora.getHour() * 60 + hora.getMinute();
+        if (!horarioCompiladoService.obtener(barberoId).cabe(fecha, inicio, duracionMin)) return false;
+        if (inicio < minutoDesde(fecha)) return false;
+        return ocupacion(barberoId, fecha, excluirTurnoId).libre(inicio, duracionMin);
+    }
 
-            for (HorarioBarbero hb : franjasRegulares) {
-                franjas.add(new FranjaHoraria(hb.getInicio(), hb.getFin()));
+    /** Turnos ocupados y bloqueos del día de un barbero, como intervalos. */
+    public IntervalosDia ocupacion(Long barberoId, LocalDate fecha, Long excluirTurnoId) {
+        IntervalosDia.Builder b = IntervalosDia.builder();
+        for (Turno t : turnoRepository.findByBarbero_IdAndFecha(barberoId, fecha)) {
+            if (esTurnoOcupado(t) && !t.getId().equals(excluirTurnoId) && t.getHora() != null) {
+                b.turno(t.getHora(), t.duracionEfectiva());
             }
         }
+        return b.bloqueos(bloqueoService.rangosBloqueados(barberoId, fecha)).build();
+    }
 
-        if (franjas.isEmpty()) {
-            log.debug("[HorarioService] Barbero {} no tiene franjas disponibles para {}", barberoId, fecha);
-            return List.of();
+    /** Horario compilado del barbero (qué días y en qué franjas trabaja). */
+    public HorarioCompilado horarioDe(Long barberoId) {
+        return horarioCompiladoService.obtener(barberoId);
+    }
+
+    /** Minutos que ocupa un servicio con sus adicionales (SLOT_MINUTES si no tiene duración cargada). */
+    public static int duracion(TipoCorte servicio, Collection<TipoCorte> adicionales) {
+        int total = servicio != null && servicio.getDuracionMin() != null && servicio.getDuracionMin() > 0
+                ? servicio.getDuracionMin() : SLOT_MINUTES;
+        for (TipoCorte a : adicionales) {
+            if (a != null && a.getDuracionMin() != null && a.getDuracionMin() > 0) total += a.getDuracionMin();
         }
+        return total;
+    }
 
-        // 2. Obtener turnos ocupados
-        Set<LocalTime> ocupados = turnoRepository.findByBarbero_IdAndFecha(barberoId, fecha)
-                .stream()
-                .filter(this::esTurnoOcupado)
-                .map(Turno::getHora)
-                .collect(Collectors.toSet());
-
-        // 3. Obtener bloqueos manuales (tabla legacy - mantener compatibilidad)
-        Set<LocalTime> bloqueados = bloqueoTurnoRepository.findByBarbero_IdAndFecha(barberoId, fecha)
-                .stream()
-                .map(b -> b.getHora())
-                .collect(Collectors.toSet());
-
-        // 4. Generar slots de 30 minutos dentro de las franjas
-        SortedSet<LocalTime> libres = new TreeSet<>();
-        for (FranjaHoraria franja : franjas) {
-            LocalTime inicio = parseHora(franja.inicio);
-            LocalTime fin = parseHora(franja.fin);
-
-            if (inicio == null || fin == null || fin.isBefore(inicio)) {
-                log.warn("[HorarioService] Franja inválida para barbero {}: {} - {}",
-                         barberoId, franja.inicio, franja.fin);
-                continue;
-            }
+    /**
+     * true si un turno de {@code duracionMin} a las {@code hora} pisa algún turno ocupado
+     * (mismo criterio que la disponibilidad) de {@code turnosDia}, todos del mismo día.
+     */
+    public static boolean pisaTurnoOcupado(Collection<Turno> turnosDia, LocalTime hora, int duracionMin) {
+        return !turnosOcupados(turnosDia).build().libre(hora, duracionMin);
+    }
 
-            // Generar slots cada 30 minutos dentro de la franja
-            LocalTime slot = inicio;
-            while (slot.compareTo(fin) <= 0) {
-                if (!ocupados.contains(slot) && !bloqueados.contains(slot)) {
-                    libres.add(slot);
-                }
+    /**
+     * {@link #pisaTurnoOcupado} más los bloqueos del barbero en {@code fecha}: la misma
+     * ocupación que {@link #ocupacion}, pero con los turnos del día que ya tiene cargados el
+     * llamador (p. ej. los del pago en curso, todavía sin guardar).
+     */
+    public boolean pisaOcupacion(Long barberoId, LocalDate fecha, Collection<Turno> turnosDia,
+                                 LocalTime hora, int duracionMin) {
+        return !turnosOcupados(turnosDia)
+                .bloqueos(bloqueoService.rangosBloqueados(barberoId, fecha))
+                .build()
+                .libre(hora, duracionMin);
+    }
+
+    private static IntervalosDia.Builder turnosOcupados(Collection<Turno> turnosDia) {
+        IntervalosDia.Builder b = IntervalosDia.builder();
+        for (Turno t : turnosDia) {
+            if (esTurnoOcupado(t) && t.getHora() != null) b.turno(t.getHora(), t.duracionEfectiva());
+        }
+        return b;
+    }
+
+    /**
+     * Pasos 4 y 5 de {@link #horariosDisponibles}, sin tocar la DB: horarios de las franjas
+     * donde entra {@code duracionMin} sin pisar la ocupación, menos los ya pasados si es hoy.
+     * Lo usa también DisponibilidadRangoService con datos cargados por rango.
+     *
+     * @param franjas {inicio0, fin0, ...} en minutos, como HorarioCompilado.franjas
+     */
+    List<LocalTime> calcularLibres(LocalDate fecha, int[] franjas, IntervalosDia ocupacion, int duracionMin) {
+        return generarSlots(franjas, ocupacion, duracionMin, minutoDesde(fecha));
+    }
+
+    /**
+     * Horarios de trabajo del día según las franjas, sin mirar turnos, bloqueos ni la hora
+     * actual (para grillas que distinguen "ocupado" de "no trabaja").
+     */
+    List<LocalTime> slotsDeTrabajo(int[] franjas) {
+        return generarSlots(franjas, IntervalosDia.VACIO, SLOT_MINUTES, 0);
+    }
+
+    /**
+     * 5. Primer minuto reservable: si es hoy, la hora actual (zona horaria de Argentina).
+     *    Truncado a minutos: a las 21:30:59 el slot 21:30 todavía está disponible, a las 21:31:00 ya no.
+     */
+    private static int minutoDesde(LocalDate fecha) {
+        if (!fecha.isEqual(LocalDate.now(ZONA_ARGENTINA))) return 0;
+        LocalTime now = LocalTime.now(ZONA_ARGENTINA);
+        return now.getHour() * 60 + now.getMinute();
+    }
 
-                // Avanzar al siguiente slot
-                LocalTime nextSlot = slot.plusMinutes(SLOT_MINUTES);
-                // Si el nextSlot es menor que el slot actual, significa que pasó medianoche
-                // Esto previene loops infinitos cuando fin es cercano a medianoche (ej: 23:30)
-                if (nextSlot.isBefore(slot)) {
-                    break;
+    /**
+     * 4. Candidatos de cada franja: la grilla de 30 minutos desde su inicio más el fin de cada
+     * intervalo ocupado que cae adentro (así un servicio corto se acomoda justo después de
+     * otro y no se pierde el hueco hasta el próximo slot). Queda cada candidato donde el
+     * servicio entra en la franja ({@link HorarioCompilado#finAtencion}) sin pisar la ocupación.
+     */
+    private List<LocalTime> generarSlots(int[] franjas, IntervalosDia ocupacion, int duracionMin, int desde) {
+        BitSet libres = new BitSet(MINUTOS_DIA); // ordena y deduplica franjas superpuestas
+        for (int i = 0; i < franjas.length; i += 2) {
+            int ini = franjas[i];
+            int limite = HorarioCompilado.finAtencion(franjas[i + 1]);
+            for (int slot = ini; slot + duracionMin <= limite; slot += SLOT_MINUTES) {
+                probar(libres, slot, ocupacion, duracionMin, desde);
+            }
+            for (int k = 0; k < ocupacion.cantidad(); k++) {
+                int fin = ocupacion.fin(k);
+                if (fin > ini && fin + duracionMin <= limite) {
+                    probar(libres, fin, ocupacion, duracionMin, desde);
                 }
-                slot = nextSlot;
             }
         }
 
-        // 5. Filtrar horarios pasados si es hoy (usar zona horaria de Argentina)
-        LocalDate hoy = LocalDate.now(ZONA_ARGENTINA);
-        if (fecha.isEqual(hoy)) {
-            LocalTime now = LocalTime.now(ZONA_ARGENTINA);
-            // Truncar a minutos (ignorar segundos) para que el slot actual siga disponible
-            // Ej: Si son las 21:29:58, el slot 21:30 debe estar disponible
-            // Si son las 21:30:59, el slot 21:30 todavía debe estar disponible
-            // Si son las 21:31:00, el slot 21:30 ya NO debe estar disponible
-            LocalTime nowTruncated = LocalTime.of(now.getHour(), now.getMinute());
-
-            log.debug("[HorarioService] Filtrando horarios pasados. Hora Argentina: {}, Truncada: {}", now, nowTruncated);
-
-            libres = libres.stream()
-                    .filter(t -> !t.isBefore(nowTruncated))
-                    .collect(Collectors.toCollection(TreeSet::new));
+        List<LocalTime> res = new ArrayList<>(libres.cardinality());
+        for (int m = libres.nextSetBit(0); m >= 0; m = libres.nextSetBit(m + 1)) {
+            res.add(LocalTime.of(m / 60, m % 60));
         }
+        return res;
+    }
 
-        log.debug("[HorarioService] Barbero {} en {}: {} slots libres de {} franjas, {} ocupados, {} bloqueados",
-                  barberoId, fecha, libres.size(), franjas.size(), ocupados.size(), bloqueados.size());
-
-        return new ArrayList<>(libres);
+    private static void probar(BitSet libres, int inicio, IntervalosDia ocupacion, int duracionMin, int desde) {
+        if (inicio >= desde && inicio < MINUTOS_DIA && ocupacion.libre(inicio, duracionMin)) {
+            libres.set(inicio);
+        }
     }
 
     /**
@@ -170,42 +229,9 @@ public class HorarioService {
      * - estado = "CONFIRMADO" (reservas confirmadas manualmente)
      * - estado = "BLOQUEADO" (turnos presenciales desde Telegram)
      */
-    private boolean esTurnoOcupado(Turno t) {
+    static boolean esTurnoOcupado(Turno t) {
         return Boolean.TRUE.equals(t.getPagoConfirmado())
                 || "CONFIRMADO".equalsIgnoreCase(String.valueOf(t.getEstado()))
                 || "BLOQUEADO".equalsIgnoreCase(String.valueOf(t.getEstado()));
     }
-
-    /**
-     * Parsea una hora en formato String a LocalTime.
-     * Soporta:
-     * - "HH:mm" (ej: "09:30")
-     * - "HH:mm:ss" (ej: "09:30:00")
-     * - Otros formatos ISO
-     */
-    private LocalTime parseHora(String hhmm) {
-        if (hhmm == null || hhmm.isBlank()) return null;
-        try {
-            if (hhmm.length() == 5) return LocalTime.parse(hhmm, F_HORA);
-            if (hhmm.length() >= 8) return LocalTime.parse(hhmm.substring(0, 8));
-            return LocalTime.parse(hhmm);
-        } catch (Exception e) {
-            log.warn("[HorarioService] Error parseando hora: {}", hhmm, e);
-            return null;
-        }
-    }
-
-    /**
-     * Clase auxiliar interna para representar una franja horaria genérica.
-     * Permite tratar uniformemente franjas regulares (HorarioBarbero) y excepcionales (DiaExcepcionalBarbero).
-     */
-    private static class FranjaHoraria {
-        final String inicio;
-        final String fin;
-
-        FranjaHoraria(String inicio, String fin) {
-            this.inicio = inicio;
-            this.fin = fin;
-        }
-    }
 }
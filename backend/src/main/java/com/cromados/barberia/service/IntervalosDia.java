@@ -0,0 +1,133 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.model.Turno;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Ocupación de un barbero en un día como intervalos de minutos [inicio, fin), ordenados y
+ * fusionados (los que se tocan o se pisan quedan en uno solo).
+ *
+ * Cada turno ocupa desde su hora durante su duración efectiva (servicio + adicionales, ver
+ * {@link Turno#duracionEfectiva()}); cada bloqueo, su rango inclusive del día. Preguntar si
+ * un servicio de D minutos entra a una hora es una búsqueda binaria: O(log n) por prueba.
+ * Inmutable; se arma por request con {@link #builder()}.
+ */
+public final class IntervalosDia {
+
+    public static final IntervalosDia VACIO = new IntervalosDia(new int[0], new int[0]);
+
+    private final int[] inicios;
+    private final int[] fines;       // exclusivo
+
+    private IntervalosDia(int[] inicios, int[] fines) {
+        this.inicios = inicios;
+        this.fines = fines;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Turnos tal cual (el llamador decide cuáles ocupan); cada uno con su duración efectiva. */
+    public static IntervalosDia deTurnos(Collection<Turno> turnos) {
+        return builder().turnos(turnos).build();
+    }
+
+    /** true si [inicio, inicio + duracion) no pisa ningún intervalo ocupado. */
+    public boolean libre(int inicio, int duracion) {
+        int i = ultimoQueEmpiezaAntesDe(inicio + duracion);
+        return i < 0 || fines[i] <= inicio; // fusionados: el último que empieza antes es el que más lejos llega
+    }
+
+    public boolean libre(LocalTime hora, int duracion) {
+        return libre(hora.getHour() * 60 + hora.getMinute(), duracion);
+    }
+
+    int cantidad() {
+        return inicios.length;
+    }
+
+    /** Fin (exclusivo) del intervalo {@code i}: primer minuto libre después de él. */
+    int fin(int i) {
+        return fines[i];
+    }
+
+    /** Índice del último intervalo con inicio &lt; {@code minuto}, o -1. */
+    private int ultimoQueEmpiezaAntesDe(int minuto) {
+        int lo = 0, hi = inicios.length - 1, res = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (inicios[mid] < minuto) {
+                res = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return res;
+    }
+
+    public static final class Builder {
+        private int[] inicios = new int[8];
+        private int[] fines = new int[8];
+        private int n;
+
+        private Builder() {}
+
+        /** Intervalo [inicio, fin) en minutos desde medianoche; los vacíos se ignoran. */
+        public Builder agregar(int inicio, int fin) {
+            if (fin <= inicio) return this;
+            if (n == inicios.length) {
+                inicios = Arrays.copyOf(inicios, n * 2);
+                fines = Arrays.copyOf(fines, n * 2);
+            }
+            inicios[n] = inicio;
+            fines[n] = fin;
+            n++;
+            return this;
+        }
+
+        public Builder turno(LocalTime hora, int duracionMin) {
+            int inicio = hora.getHour() * 60 + hora.getMinute();
+            return agregar(inicio, inicio + duracionMin);
+        }
+
+        public Builder turnos(Collection<Turno> turnos) {
+            for (Turno t : turnos) {
+                if (t.getHora() != null) turno(t.getHora(), t.duracionEfectiva());
+            }
+            return this;
+        }
+
+        /** Rangos inclusive [inicio, fin] como los de BloqueoService.rangosBloqueados. */
+        public Builder bloqueos(List<int[]> rangos) {
+            for (int[] r : rangos) agregar(r[0], r[1] + 1);
+            return this;
+        }
+
+        public IntervalosDia build() {
+            if (n == 0) return VACIO;
+            Integer[] orden = new Integer[n];
+            for (int i = 0; i < n; i++) orden[i] = i;
+            Arrays.sort(orden, (a, b) -> Integer.compare(inicios[a], inicios[b]));
+
+            int[] ini = new int[n];
+            int[] fin = new int[n];
+            int m = 0;
+            for (Integer i : orden) {
+                if (m > 0 && inicios[i] <= fin[m - 1]) {
+                    fin[m - 1] = Math.max(fin[m - 1], fines[i]);
+                } else {
+                    ini[m] = inicios[i];
+                    fin[m] = fines[i];
+                    m++;
+                }
+            }
+            return new IntervalosDia(Arrays.copyOf(ini, m), Arrays.copyOf(fin, m));
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.repository.JobLeaseRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coordinación de jobs programados entre instancias del backend.
+ *
+ * {@link #ejecutar} toma el lease del job en la tabla job_lease y sólo corre la tarea si
+ * lo consigue; mientras corre, un heartbeat lo renueva cada ttl/3. Si la instancia muere
+ * a mitad de camino el lease vence solo y la próxima corrida en cualquier nodo lo retoma.
+ * Dentro de una misma instancia un lock local evita que el cron y un temporizador corran
+ * el mismo job a la vez.
+ *
+ * Los jobs que sólo limpian estado en memoria del propio nodo (sesiones de Telegram y
+ * WhatsApp) no toman lease: deben correr en todas las instancias. Usan {@link #medir}
+ * para quedar igual en las métricas.
+ */
+@Slf4j
+@Service
+public class JobLeaseService {
+
+    public static final String JOB_RECORDATORIOS = "recordatorios";
+    public static final String JOB_REAPER = "reaper";
+    public static final String JOB_CHECKOUTS = "checkouts";
+    public static final String JOB_RECONCILIACION = "reconciliacion-pagos";
+    public static final String JOB_DIRECTORIO_CLIENTES = "directorio-clientes";
+    public static final String JOB_REFRESH_REVOCADOS = "refresh-revocados";
+
+    private final JobLeaseRepository leaseRepo;
+    private final long ttlSegundos;
+    private final long minimoSegundos;
+    private final String owner;
+
+    private final ScheduledThreadPoolExecutor heartbeat;
+    private final Map<String, ReentrantLock> locksLocales = new ConcurrentHashMap<>();
+    /** Hasta cuándo (System.nanoTime) esta instancia tiene que retener cada job por un cron. */
+    private final Map<String, Long> retenidoHastaNanos = new ConcurrentHashMap<>();
+    private final Map<String, Metricas> metricas = new ConcurrentHashMap<>();
+
+    public JobLeaseService(
+            JobLeaseRepository leaseRepo,
+            @Value("${jobs.lease.ttlSeconds:120}") long ttlSegundos,
+            @Value("${jobs.lease.minHoldSeconds:30}") long minimoSegundos
+    ) {
+        this.leaseRepo = leaseRepo;
+        this.ttlSegundos = ttlSegundos;
+        this.minimoSegundos = minimoSegundos;
+        this.owner = identificarInstancia();
+
+        this.heartbeat = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "job-lease-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        this.heartbeat.setRemoveOnCancelPolicy(true);
+        log.info("[JobLease] Instancia {} (ttl {}s, retención mínima {}s)", owner, ttlSegundos, minimoSegundos);
+    }
+
+    /**
+     * Corre {@code tarea} sólo si esta instancia obtiene el lease de {@code job} y lo libera al terminar.
+     *
+     * @return true si corrió; false si otra instancia (u otro hilo local) tiene el lease
+     */
+    public boolean ejecutar(String job, Runnable tarea) {
+        return ejecutar(job, 0, tarea);
+    }
+
+    /**
+     * Igual que {@link #ejecutar} pero para crons: retiene el lease al menos jobs.lease.minHoldSeconds
+     * desde que se tomó, así otra instancia cuyo reloj dispara el mismo cron unos segundos
+     * después no lo vuelve a correr. Si mientras tanto esta misma instancia vuelve a correr el
+     * job con {@link #ejecutar}, esa corrida no acorta la retención.
+     */
+    public boolean ejecutarCron(String job, Runnable tarea) {
+        return ejecutar(job, minimoSegundos, tarea);
+    }
+
+    private boolean ejecutar(String job, long retencionSegundos, Runnable tarea) {
+        Metricas m = metricas(job);
+        ReentrantLock local = locksLocales.computeIfAbsent(job, k -> new ReentrantLock());
+        if (!local.tryLock()) {
+            m.omitidos.incrementAndGet();
+            return false;
+        }
+        try {
+            long t0 = System.nanoTime();
+            boolean adquirido;
+            try {
+                adquirido = leaseRepo.adquirir(job, owner, ttlSegundos) == 1;
+            } catch (Exception e) {
+                m.erroresLease.incrementAndGet();
+                log.error("[JobLease] No se pudo consultar el lease de '{}': {}", job, e.getMessage());
+                return false;
+            }
+            m.registrarAdquisicion(System.nanoTime() - t0);
+
+            if (!adquirido) {
+                m.omitidos.incrementAndGet();
+                log.debug("[JobLease] '{}' lo está corriendo otra instancia", job);
+                return false;
+            }
+            m.adquiridos.incrementAndGet();
+
+            long periodo = Math.max(1, ttlSegundos / 3);
+            ScheduledFuture<?> renovacion = heartbeat.scheduleAtFixedRate(
+                    () -> renovar(job, m), periodo, periodo, TimeUnit.SECONDS);
+            try {
+                medir(m, tarea);
+            } finally {
+                renovacion.cancel(false);
+                try {
+                    leaseRepo.liberar(job, owner, retencion(job, retencionSegundos, t0));
+                } catch (Exception e) {
+                    // Si no se puede liberar, el lease vence solo al cumplirse el ttl
+                    m.erroresLease.incrementAndGet();
+                    log.warn("[JobLease] No se pudo liberar '{}': {}", job, e.getMessage());
+                }
+            }
+            return true;
+        } finally {
+            local.unlock();
+        }
+    }
+
+    /** Corre un job local (sin lease) registrando duración y errores. */
+    public void medir(String job, Runnable tarea) {
+        Metricas m = metricas(job);
+        m.local = true;
+        medir(m, tarea);
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    /** Foto de las métricas por job (para /admin/jobs). */
+    public Map<String, Map<String, Object>> estadisticas() {
+        Map<String, Map<String, Object>> res = new TreeMap<>();
+        metricas.forEach((job, m) -> res.put(job, m.snapshot()));
+        return res;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+    }
+
+    /* ===================== Internos ===================== */
+
+    private void medir(Metricas m, Runnable tarea) {
+        long inicio = System.nanoTime();
+        try {
+            tarea.run();
+        } catch (RuntimeException e) {
+            m.fallidos.incrementAndGet();
+            throw e;
+        } finally {
+            m.registrarEjecucion(System.nanoTime() - inicio);
+        }
+    }
+
+    /**
+     * Segundos a retener desde esta adquisición (la DB los cuenta desde adquirido_en). Una
+     * corrida que retoma un lease propio todavía retenido por un cron sigue reteniéndolo
+     * hasta el final de esa retención. Se llama con el lock local del job tomado.
+     */
+    private long retencion(String job, long retencionSegundos, long adquiridoNanos) {
+        if (retencionSegundos > 0) {
+            long hasta = adquiridoNanos + TimeUnit.SECONDS.toNanos(retencionSegundos);
+            retenidoHastaNanos.merge(job, hasta, (a, b) -> a - b > 0 ? a : b);
+        }
+        Long hasta = retenidoHastaNanos.get(job);
+        if (hasta == null) return retencionSegundos;
+        long restanteNanos = hasta - adquiridoNanos;
+        if (restanteNanos <= 0) {
+            retenidoHastaNanos.remove(job);
+            return retencionSegundos;
+        }
+        return Math.max(retencionSegundos, (restanteNanos + 999_999_999L) / 1_000_000_000L);
+    }
+
+    private void renovar(String job, Metricas m) {
+        try {
+            if (leaseRepo.renovar(job, owner, ttlSegundos) == 0) {
+                m.perdidos.incrementAndGet();
+                log.error("[JobLease] Se perdió el lease de '{}' mientras corría (¿pausa larga / DB caída?)", job);
+            }
+        } catch (Exception e) {
+            m.erroresLease.incrementAndGet();
+            log.warn("[JobLease] Heartbeat de '{}' falló: {}", job, e.getMessage());
+        }
+    }
+
+    private Metricas metricas(String job) {
+        return metricas.computeIfAbsent(job, k -> new Metricas());
+    }
+
+    private static String identificarInstancia() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "desconocido";
+        }
+        return host + ":" + ProcessHandle.current().pid() + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private static final class Metricas {
+        final AtomicLong adquiridos = new AtomicLong();
+        final AtomicLong omitidos = new AtomicLong();
+        final AtomicLong perdidos = new AtomicLong();
+        final AtomicLong erroresLease = new AtomicLong();
+        final AtomicLong ejecuciones = new AtomicLong();
+        final AtomicLong fallidos = new AtomicLong();
+        final AtomicLong ultimaAdquisicionNanos = new AtomicLong();
+        final AtomicLong maxAdquisicionNanos = new AtomicLong();
+        final AtomicLong ultimaDuracionNanos = new AtomicLong();
+        final AtomicLong maxDuracionNanos = new AtomicLong();
+        final AtomicLong totalDuracionNanos = new AtomicLong();
+        volatile Instant ultimaEjecucion;
+        volatile boolean local;
+
+        void registrarAdquisicion(long nanos) {
+            ultimaAdquisicionNanos.set(nanos);
+            maxAdquisicionNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        void registrarEjecucion(long nanos) {
+            ejecuciones.incrementAndGet();
+            ultimaDuracionNanos.set(nanos);
+            maxDuracionNanos.accumulateAndGet(nanos, Math::max);
+            totalDuracionNanos.addAndGet(nanos);
+            ultimaEjecucion = Instant.now();
+        }
+
+        Map<String, Object> snapshot() {
+            long n = ejecuciones.get();
+            Map<String, Object> s = new TreeMap<>();
+            s.put("local", local);
+            s.put("adquiridos", adquiridos.get());
+            s.put("omitidos", omitidos.get());
+            s.put("perdidos", perdidos.get());
+            s.put("erroresLease", erroresLease.get());
+            s.put("ejecuciones", n);
+            s.put("fallidos", fallidos.get());
+            s.put("ultimaAdquisicionMs", ultimaAdquisicionNanos.get() / 1_000_000d);
+            s.put("maxAdquisicionMs", maxAdquisicionNanos.get() / 1_000_000d);
+            s.put("ultimaDuracionMs", ultimaDuracionNanos.get() / 1_000_000d);
+            s.put("maxDuracionMs", maxDuracionNanos.get() / 1_000_000d);
+            s.put("promedioDuracionMs", n == 0 ? 0d : totalDuracionNanos.get() / 1_000_000d / n);
+            s.put("ultimaEjecucion", ultimaEjecucion);
+            return s;
+        }
+    }
+}
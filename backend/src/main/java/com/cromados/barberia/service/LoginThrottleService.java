@@ -0,0 +1,137 @@
+package com.cromados.barberia.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Límite de intentos de login por IP y por usuario, antes de verificar la contraseña.
+ *
+ * Cada IP y cada usuario tienen su {@link TokenBucket}: una ráfaga se rechaza con 429 sin
+ * llegar a bcrypt, así que el costo de autenticar queda acotado por las tasas configuradas
+ * (auth.throttle.*) y no por cuántos requests manden. El de usuario frena ataques al admin
+ * desde muchas IPs; el de IP, a una IP probando usuarios.
+ *
+ * Sólo el usuario configurado (admin.username) tiene bucket propio: cualquier otro nombre
+ * nunca autentica, así que todos comparten uno. Si no, una ráfaga de nombres inventados
+ * llenaría el mapa y dejaría sin lugar a las IPs legítimas.
+ *
+ * Los buckets viven en memoria (por instancia). Al pasar auth.throttle.maxClaves se
+ * descartan los que llevan más de un ciclo de recarga sin uso: ya estarían llenos. Si aun
+ * así no hay lugar (muchas IPs o usuarios distintos a la vez), el intento de una clave
+ * nueva se rechaza sin crearle bucket: el mapa nunca pasa del tope.
+ */
+@Slf4j
+@Service
+public class LoginThrottleService {
+
+    private static final class Entrada {
+        final TokenBucket bucket;
+        volatile long ultimoUsoMs;
+
+        Entrada(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    private final double capacidadIp;
+    private final double porSegundoIp;
+    private final double capacidadUsuario;
+    private final double porSegundoUsuario;
+    private final int maxClaves;
+    private final String usuarioAdmin;
+
+    private final Map<String, Entrada> buckets = new ConcurrentHashMap<>();
+    private volatile long ultimaPurgaMs;
+
+    private final AtomicLong permitidos = new AtomicLong();
+    private final AtomicLong rechazadosIp = new AtomicLong();
+    private final AtomicLong rechazadosUsuario = new AtomicLong();
+    private final AtomicLong rechazadosSinLugar = new AtomicLong();
+
+    public LoginThrottleService(
+            @Value("${auth.throttle.ip.capacidad:10}") double capacidadIp,
+            @Value("${auth.throttle.ip.porMinuto:10}") double porMinutoIp,
+            @Value("${auth.throttle.usuario.capacidad:5}") double capacidadUsuario,
+            @Value("${auth.throttle.usuario.porMinuto:5}") double porMinutoUsuario,
+            @Value("${auth.throttle.maxClaves:10000}") int maxClaves,
+            @Value("${admin.username}") String usuarioAdmin
+    ) {
+        this.capacidadIp = capacidadIp;
+        this.porSegundoIp = porMinutoIp / 60d;
+        this.capacidadUsuario = capacidadUsuario;
+        this.porSegundoUsuario = porMinutoUsuario / 60d;
+        this.maxClaves = maxClaves;
+        this.usuarioAdmin = usuarioAdmin.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Consume un intento de la IP y otro del usuario.
+     *
+     * @return false si alguno de los dos está agotado (no se debe verificar la contraseña)
+     */
+    public boolean permitir(String ip, String usuario) {
+        if (!consumir("ip:" + (ip == null ? "?" : ip), capacidadIp, porSegundoIp)) {
+            rechazadosIp.incrementAndGet();
+            log.warn("[LoginThrottle] ⛔ Demasiados intentos desde {}", ip);
+            return false;
+        }
+        String u = usuario == null ? "" : usuario.trim().toLowerCase(Locale.ROOT);
+        String claveUsuario = u.equals(usuarioAdmin) ? "usuario:" + u : "usuario:*";
+        if (!consumir(claveUsuario, capacidadUsuario, porSegundoUsuario)) {
+            rechazadosUsuario.incrementAndGet();
+            log.warn("[LoginThrottle] ⛔ Demasiados intentos para el usuario '{}' (desde {})", u, ip);
+            return false;
+        }
+        permitidos.incrementAndGet();
+        return true;
+    }
+
+    public Map<String, Object> estadisticas() {
+        return Map.of(
+                "claves", buckets.size(),
+                "permitidos", permitidos.get(),
+                "rechazadosIp", rechazadosIp.get(),
+                "rechazadosUsuario", rechazadosUsuario.get(),
+                "rechazadosSinLugar", rechazadosSinLugar.get()
+        );
+    }
+
+    /* ===================== Internos ===================== */
+
+    private boolean consumir(String clave, double capacidad, double porSegundo) {
+        long ahora = System.currentTimeMillis();
+        Entrada e = buckets.get(clave);
+        if (e == null) {
+            if (buckets.size() >= maxClaves) {
+                purgar(ahora);
+                if (buckets.size() >= maxClaves) {
+                    rechazadosSinLugar.incrementAndGet();
+                    return false;
+                }
+            }
+            e = buckets.computeIfAbsent(clave, k -> new Entrada(new TokenBucket(capacidad, porSegundo)));
+        }
+        e.ultimoUsoMs = ahora;
+        return e.bucket.tryAcquire();
+    }
+
+    /**
+     * Descarta los buckets sin uso por más de lo que tarda en llenarse el más lento. A lo
+     * sumo una pasada por segundo: con el mapa lleno de claves activas, cada intento nuevo
+     * no vuelve a recorrerlo entero.
+     */
+    private synchronized void purgar(long ahora) {
+        if (ahora - ultimaPurgaMs < 1000) return;
+        ultimaPurgaMs = ahora;
+        long cicloMs = (long) Math.ceil(1000 * Math.max(capacidadIp / porSegundoIp, capacidadUsuario / porSegundoUsuario));
+        int antes = buckets.size();
+        buckets.values().removeIf(e -> ahora - e.ultimoUsoMs > cicloMs);
+        log.debug("[LoginThrottle] Purgados {} buckets inactivos", antes - buckets.size());
+    }
+}
@@ -0,0 +1,118 @@
+package com.cromados.barberia.service;
+
+import com.mercadopago.MercadoPagoConfig;
+import com.mercadopago.client.payment.PaymentClient;
+import com.mercadopago.client.preference.PreferenceClient;
+import com.mercadopago.client.preference.PreferenceRequest;
+import com.mercadopago.core.MPRequestOptions;
+import com.mercadopago.exceptions.MPApiException;
+import com.mercadopago.exceptions.MPException;
+import com.mercadopago.net.MPDefaultHttpClient;
+import com.mercadopago.net.MPHttpClient;
+import com.mercadopago.net.MPResultsResourcesPage;
+import com.mercadopago.net.MPSearchRequest;
+import com.mercadopago.resources.payment.Payment;
+import com.mercadopago.resources.preference.Preference;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PaymentGateway contra la API real de MercadoPago.
+ *
+ * El cliente HTTP del SDK (pool de conexiones de Apache HttpClient) y los clientes de
+ * preferencias/pagos se crean una sola vez al arrancar y se reutilizan. El access token y
+ * los timeouts viajan en cada request vía MPRequestOptions, así que no se toca el estado
+ * estático de MercadoPagoConfig en cada checkout/webhook.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "mp.gateway", havingValue = "mercadopago", matchIfMissing = true)
+public class MercadoPagoGateway implements PaymentGateway {
+
+    // Formato de fechas que acepta /v1/payments/search (ISO 8601 con milisegundos y offset)
+    private static final DateTimeFormatter FECHA_BUSQUEDA =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+                    .withZone(ZoneId.of("America/Argentina/Buenos_Aires"));
+
+    private final PreferenceClient preferenceClient;
+    private final PaymentClient paymentClient;
+    private final MPRequestOptions opciones;
+
+    public MercadoPagoGateway(
+            @Value("${mp.access.token:}") String accessToken,
+            @Value("${mp.http.maxConnections:20}") int maxConnections,
+            @Value("${mp.http.connectTimeoutMs:3000}") int connectTimeoutMs,
+            @Value("${mp.http.poolTimeoutMs:2000}") int poolTimeoutMs,
+            @Value("${mp.http.socketTimeoutMs:8000}") int socketTimeoutMs
+    ) {
+        if (accessToken == null || accessToken.isBlank()) {
+            throw new IllegalStateException(
+                "CRITICAL: MP_ACCESS_TOKEN is not configured. " +
+                "Set environment variable MP_ACCESS_TOKEN before starting the application " +
+                "(or mp.gateway=stub for local development)."
+            );
+        }
+
+        // Configuración global del pool: el SDK la lee al construir su cliente HTTP
+        MercadoPagoConfig.setMaxConnections(maxConnections);
+        MercadoPagoConfig.setConnectionTimeout(connectTimeoutMs);
+        MercadoPagoConfig.setConnectionRequestTimeout(poolTimeoutMs);
+        MercadoPagoConfig.setSocketTimeout(socketTimeoutMs);
+        MercadoPagoConfig.setAccessToken(accessToken);
+
+        MPHttpClient httpClient = new MPDefaultHttpClient();
+        MercadoPagoConfig.setHttpClient(httpClient);
+        this.preferenceClient = new PreferenceClient(httpClient);
+        this.paymentClient = new PaymentClient(httpClient);
+        this.opciones = MPRequestOptions.builder()
+                .accessToken(accessToken)
+                .connectionTimeout(connectTimeoutMs)
+                .connectionRequestTimeout(poolTimeoutMs)
+                .socketTimeout(socketTimeoutMs)
+                .build();
+
+        log.info("[MP] ✅ Gateway MercadoPago listo (pool {} conexiones, timeouts {}/{}/{} ms)",
+                maxConnections, connectTimeoutMs, poolTimeoutMs, socketTimeoutMs);
+    }
+
+    @Override
+    public PreferenciaCreada crearPreferencia(PreferenceRequest request) throws MPException, MPApiException {
+        Preference pref = preferenceClient.create(request, opciones);
+        String initPoint = pref.getInitPoint() != null ? pref.getInitPoint() : pref.getSandboxInitPoint();
+        return new PreferenciaCreada(pref.getId(), initPoint);
+    }
+
+    @Override
+    public Payment obtenerPago(long paymentId) throws MPException, MPApiException {
+        return paymentClient.get(paymentId, opciones);
+    }
+
+    @Override
+    public PaginaPagos buscarPagos(Instant desde, Instant hasta, int offset, int limite) throws MPException, MPApiException {
+        Map<String, Object> filtros = new LinkedHashMap<>();
+        filtros.put("sort", "date_last_updated");
+        filtros.put("criteria", "asc");
+        filtros.put("range", "date_last_updated");
+        filtros.put("begin_date", FECHA_BUSQUEDA.format(desde));
+        filtros.put("end_date", FECHA_BUSQUEDA.format(hasta));
+
+        MPResultsResourcesPage<Payment> pagina = paymentClient.search(MPSearchRequest.builder()
+                .offset(offset)
+                .limit(limite)
+                .filters(filtros)
+                .build(), opciones);
+
+        List<Payment> pagos = pagina.getResults() != null ? pagina.getResults() : List.of();
+        int total = pagina.getPaging() != null ? pagina.getPaging().getTotal() : pagos.size();
+        return new PaginaPagos(pagos, total);
+    }
+}
@@ -0,0 +1,127 @@
+package com.cromados.barberia.service;
+
+import com.mercadopago.resources.payment.Payment;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Consultas de pagos a MercadoPago con single-flight y TTL corto.
+ *
+ * MP manda varias notificaciones por el mismo pago (payment.created, payment.updated,
+ * reintentos). Las consultas concurrentes de un mismo id comparten una sola llamada a la
+ * API; un pago en estado final (approved, rejected, ...) queda en cache unos segundos
+ * para absorber los reintentos. Los estados intermedios no se cachean: la siguiente
+ * notificación suele ser justamente el cambio de estado.
+ *
+ * También recuerda los ids ya procesados (LRU acotado) para rechazar duplicados sin
+ * tocar la DB; la fuente de verdad es el índice único de pagos.mp_payment_id.
+ */
+@Slf4j
+@Service
+public class MercadoPagoPaymentCache {
+
+    private static final Set<String> ESTADOS_FINALES =
+            Set.of("approved", "rejected", "cancelled", "refunded", "charged_back");
+
+    private static final int MAX_PROCESADOS = 10_000;
+    private static final int MAX_CACHEADOS = 256; // por encima se purgan los vencidos
+
+    private final PaymentGateway paymentGateway;
+    private final long ttlMs;
+
+    private final Map<Long, Entrada> pagos = new ConcurrentHashMap<>();
+    private final Set<Long> procesados = Collections.newSetFromMap(Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                    return size() > MAX_PROCESADOS;
+                }
+            }));
+
+    private record Entrada(CompletableFuture<Payment> pago, long creadoMs) {}
+
+    public MercadoPagoPaymentCache(
+            PaymentGateway paymentGateway,
+            @Value("${mp.payments.cacheTtlMs:30000}") long ttlMs
+    ) {
+        this.paymentGateway = paymentGateway;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Devuelve el pago {@code paymentId}. Si ya hay una consulta en curso para ese id,
+     * espera esa misma en lugar de hacer otra.
+     */
+    public Payment obtener(long paymentId) throws Exception {
+        long ahora = System.currentTimeMillis();
+        if (pagos.size() > MAX_CACHEADOS) {
+            pagos.values().removeIf(e -> e.pago().isDone() && ahora - e.creadoMs() > ttlMs);
+        }
+        CompletableFuture<Payment> nuevo = new CompletableFuture<>();
+        Entrada propia = new Entrada(nuevo, ahora);
+
+        Entrada entrada = pagos.compute(paymentId, (id, actual) ->
+                actual == null || (actual.pago().isDone() && ahora - actual.creadoMs() > ttlMs) ? propia : actual);
+
+        if (entrada != propia) {
+            log.debug("[MP][Cache] Payment {} compartido (en curso o en cache)", paymentId);
+            return esperar(entrada.pago());
+        }
+
+        try {
+            Payment payment = paymentGateway.obtenerPago(paymentId);
+            nuevo.complete(payment);
+            if (payment == null || payment.getStatus() == null
+                    || !ESTADOS_FINALES.contains(payment.getStatus().toLowerCase())) {
+                pagos.remove(paymentId, propia);
+            }
+            return payment;
+        } catch (Exception e) {
+            nuevo.completeExceptionally(e);
+            pagos.remove(paymentId, propia);
+            throw e;
+        }
+    }
+
+    /**
+     * Deja en cache un pago ya obtenido por otra vía (ej. búsqueda de la reconciliación),
+     * así el procesamiento posterior no vuelve a consultarlo. Sólo estados finales.
+     */
+    public void precargar(Payment payment) {
+        if (payment == null || payment.getId() == null || payment.getStatus() == null
+                || !ESTADOS_FINALES.contains(payment.getStatus().toLowerCase())) {
+            return;
+        }
+        pagos.put(payment.getId(), new Entrada(CompletableFuture.completedFuture(payment), System.currentTimeMillis()));
+    }
+
+    /** Descarta el pago cacheado (ej. se sabe que cambió de estado). */
+    public void invalidar(long paymentId) {
+        pagos.remove(paymentId);
+    }
+
+    public boolean yaProcesado(long paymentId) {
+        return procesados.contains(paymentId);
+    }
+
+    public void marcarProcesado(long paymentId) {
+        procesados.add(paymentId);
+    }
+
+    private static Payment esperar(CompletableFuture<Payment> pago) throws Exception {
+        try {
+            return pago.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception ex ? ex : e;
+        }
+    }
+}
@@ -5,15 +5,16 @@ import com.cromados.barberia.dto.CheckoutRequest;
 import com.cromados.barberia.model.*;
 import com.cromados.barberia.service.TelegramBotService;
 import com.cromados.barberia.repository.*;
-import com.mercadopago.MercadoPagoConfig;
-import com.mercadopago.client.payment.PaymentClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mercadopago.resources.payment.Payment;
-import jakarta.transaction.Transactional;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -23,7 +24,8 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 @Service
 public class PagoService {
@@ -33,14 +35,24 @@ public class PagoService {
     private final TipoCorteRepository servicioRepo;
     private final SucursalRepository sucursalRepo;
     private final NotificationService notificationService;
+    private final PagoRepository pagoRepo;
+    private final MercadoPagoPaymentCache paymentCache;
+    private final PaymentGateway paymentGateway;
+    private final CheckoutSesionRepository checkoutRepo;
+    private final JobLeaseService jobLeaseService;
+    private final HorarioService horarioService;
+    private final TransactionTemplate transaccion;
 
-    private final String mpAccessToken;
     private final String mpWebhookSecret;
     private final String frontendBaseUrlRaw;
     private final TelegramBotService telegramBot;
     private final TwilioService twilioService;
 
     private static final Logger log = LoggerFactory.getLogger(PagoService.class);
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    @Value("${mp.checkout.retentionDays:30}")
+    private long checkoutRetencionDias;
 
     @Value("${whatsapp.meta.sucursal1.phone:}")
     private String sucursal1Phone;
@@ -54,9 +66,15 @@ public class PagoService {
             TipoCorteRepository servicioRepo,
             SucursalRepository sucursalRepo,
             NotificationService notificationService,
+            PagoRepository pagoRepo,
+            MercadoPagoPaymentCache paymentCache,
+            PaymentGateway paymentGateway,
+            CheckoutSesionRepository checkoutRepo,
+            JobLeaseService jobLeaseService,
+            HorarioService horarioService,
+            PlatformTransactionManager transactionManager,
             TelegramBotService telegramBot,
             TwilioService twilioService,
-            @Value("${mp.access.token:}") String mpAccessToken,
             @Value("${mp.webhook.secret:}") String mpWebhookSecret,
             @Value("${app.frontend.baseUrl:}") String frontendBaseUrlRaw
     ) {
@@ -65,7 +83,13 @@ public class PagoService {
         this.servicioRepo = servicioRepo;
         this.sucursalRepo = sucursalRepo;
         this.notificationService = notificationService;
-        this.mpAccessToken = mpAccessToken;
+        this.pagoRepo = pagoRepo;
+        this.paymentCache = paymentCache;
+        this.paymentGateway = paymentGateway;
+        this.checkoutRepo = checkoutRepo;
+        this.jobLeaseService = jobLeaseService;
+        this.horarioService = horarioService;
+        this.transaccion = new TransactionTemplate(transactionManager);
         this.mpWebhookSecret = mpWebhookSecret;
         this.frontendBaseUrlRaw = frontendBaseUrlRaw;
         this.telegramBot = telegramBot;
@@ -74,11 +98,10 @@ public class PagoService {
     
     @PostConstruct
     public void validateConfiguration() {
-        if (mpAccessToken == null || mpAccessToken.isBlank()) {
-            throw new IllegalStateException(
-                "CRITICAL: MP_ACCESS_TOKEN is not configured. " +
-                "Set environment variable MP_ACCESS_TOKEN before starting the application."
-            );
+        // El access token lo valida MercadoPagoGateway al crearse
+        if (paymentGateway.simulado()) {
+            log.warn("[PagoService] ⚠️ Pasarela de pagos simulada: sin validación de firma de webhooks reales");
+            return;
         }
 
         if (mpWebhookSecret == null || mpWebhookSecret.isBlank()) {
@@ -248,12 +271,6 @@ public class PagoService {
     public Map<String, Object> crearPreferencia(CheckoutRequest req) throws Exception {
         validarDatosBasicos(req);
 
-        if (mpAccessToken == null || mpAccessToken.isBlank()) {
-            throw new IllegalArgumentException("Falta mp.access.token en configuración.");
-        }
-
-        MercadoPagoConfig.setAccessToken(mpAccessToken);
-
         Barbero barbero = barberoRepo.findById(req.getBarberoId())
                 .orElseThrow(() -> new IllegalArgumentException("Barbero inexistente"));
         Sucursal sucursal = sucursalRepo.findById(req.getSucursalId())
@@ -263,40 +280,53 @@ public class PagoService {
         TipoCorte servicio = servicioRepo.findById(req.getTipoCorteId())
                 .orElseThrow(() -> new IllegalArgumentException("Servicio inexistente: " + req.getTipoCorteId()));
 
-        BigDecimal precioTotal = BigDecimal.valueOf(servicio.getPrecio() == null ? 0 : servicio.getPrecio());
+        // 🆕 Los tres formatos del front (sesiones, horarios legacy, fecha/hora) quedan como sesiones tipadas
+        List<SesionCheckout> sesiones = normalizarSesiones(req);
 
-        // 🆕 Calcular precio con el nuevo formato de sesiones
-        int totalSesiones = 1;
-        if (req.getSesiones() != null && !req.getSesiones().isEmpty()) {
-            // Nuevo formato: array de sesiones con adicionales por sesión
-            totalSesiones = req.getSesiones().size();
-            for (var sesion : req.getSesiones()) {
-                if (sesion.getAdicionalesIds() != null && !sesion.getAdicionalesIds().isEmpty()) {
-                    for (Long adicionalId : sesion.getAdicionalesIds()) {
-                        TipoCorte adicional = servicioRepo.findById(adicionalId)
-                                .orElseThrow(() -> new IllegalArgumentException("Servicio adicional inexistente: " + adicionalId));
-                        BigDecimal precioAdicional = BigDecimal.valueOf(adicional.getPrecio() == null ? 0 : adicional.getPrecio());
-                        precioTotal = precioTotal.add(precioAdicional);
-                    }
+        // ✅ Servicios de cada sesión + adicionales en una sola consulta
+        Map<Long, TipoCorte> serviciosPorId = new java.util.HashMap<>();
+        servicioRepo.findAllById(sesiones.stream()
+                        .flatMap(s -> java.util.stream.Stream.concat(
+                                java.util.stream.Stream.of(s.tipoCorteId()), s.adicionalesIds().stream()))
+                        .distinct().toList())
+                .forEach(s -> serviciosPorId.put(s.getId(), s));
+
+        BigDecimal precioTotal = BigDecimal.valueOf(servicio.getPrecio() == null ? 0 : servicio.getPrecio());
+        List<CheckoutItem> items = new ArrayList<>();
+        for (SesionCheckout sesion : sesiones) {
+            if (!serviciosPorId.containsKey(sesion.tipoCorteId())) {
+                throw new IllegalArgumentException("Servicio inexistente: " + sesion.tipoCorteId());
+            }
+            List<String> nombresAdicionales = new ArrayList<>();
+            List<TipoCorte> adicionales = new ArrayList<>();
+            for (Long adicionalId : sesion.adicionalesIds()) {
+                TipoCorte adicional = serviciosPorId.get(adicionalId);
+                if (adicional == null) {
+                    throw new IllegalArgumentException("Servicio adicional inexistente: " + adicionalId);
                 }
+                precioTotal = precioTotal.add(BigDecimal.valueOf(adicional.getPrecio() == null ? 0 : adicional.getPrecio()));
+                nombresAdicionales.add(adicional.getNombre());
+                adicionales.add(adicional);
             }
-            log.info("[MP][checkout] Formato nuevo: {} sesiones con adicionales por sesión", totalSesiones);
-        } else if (req.getAdicionalesIds() != null && !req.getAdicionalesIds().isEmpty()) {
-            // Formato legacy: adicionales globales
-            for (Long adicionalId : req.getAdicionalesIds()) {
-                TipoCorte adicional = servicioRepo.findById(adicionalId)
-                        .orElseThrow(() -> new IllegalArgumentException("Servicio adicional inexistente: " + adicionalId));
-                BigDecimal precioAdicional = BigDecimal.valueOf(adicional.getPrecio() == null ? 0 : adicional.getPrecio());
-                precioTotal = precioTotal.add(precioAdicional);
+
+            // ⏱️ El servicio con sus adicionales tiene que entrar entero en el horario elegido
+            int duracion = HorarioService.duracion(serviciosPorId.get(sesion.tipoCorteId()), adicionales);
+            if (!horarioService.admite(barbero.getId(), sesion.fecha(), sesion.hora(), duracion, null)) {
+                throw new IllegalArgumentException("El horario " + sesion.fecha() + " " + sesion.hora()
+                        + " ya no está disponible para un servicio de " + duracion + " minutos");
             }
-        }
 
-        if (req.getHorarios() != null && !req.getHorarios().isEmpty()) {
-            totalSesiones = req.getHorarios().size();
+            items.add(CheckoutItem.builder()
+                    .fecha(sesion.fecha())
+                    .hora(sesion.hora())
+                    .tipoCorteId(sesion.tipoCorteId())
+                    .adicionales(nombresAdicionales.isEmpty() ? null : String.join(", ", nombresAdicionales))
+                    .duracionMin(duracion)
+                    .build());
         }
 
         log.info("[MP][checkout] Servicio: {}, {} sesiones, precio total: {}",
-                servicio.getNombre(), totalSesiones, precioTotal);
+                servicio.getNombre(), sesiones.size(), precioTotal);
 
         BigDecimal montoBase = (req.getMontoTotal() != null && req.getMontoTotal().compareTo(BigDecimal.ZERO) > 0)
                 ? req.getMontoTotal()
@@ -313,6 +343,27 @@ public class PagoService {
 
         log.info("[MP][checkout] montoTotalReq={} precioTotal={} senia={} -> unitPrice={}",
                 req.getMontoTotal(), precioTotal, req.getSenia(), unitPrice);
+        log.info("[MP][checkout] Cliente: {} | Teléfono: {} | Edad: {}",
+            sanitizePersonalData("name", req.getClienteNombre()),
+            sanitizePersonalData("phone", req.getClienteTelefono()),
+            req.getClienteEdad()
+        );
+
+        // 🆕 El carrito queda en la DB; a MP sólo viaja su external_reference
+        CheckoutSesion checkout = new CheckoutSesion();
+        checkout.setExternalReference(java.util.UUID.randomUUID().toString());
+        checkout.setSucursalId(req.getSucursalId());
+        checkout.setBarberoId(req.getBarberoId());
+        checkout.setTipoCorteId(req.getTipoCorteId());
+        checkout.setClienteNombre(req.getClienteNombre());
+        checkout.setClienteTelefono(req.getClienteTelefono());
+        checkout.setClienteEdad(req.getClienteEdad());
+        checkout.setSenia(Boolean.TRUE.equals(req.getSenia()));
+        checkout.setMontoTotal(montoBase);
+        checkout.setUnitPrice(unitPrice);
+        checkout.setItems(items);
+        // Se guarda antes de crear la preferencia: un pago nunca puede llegar sin su checkout
+        checkout = checkoutRepo.save(checkout);
 
         String title = "Reserva Cromados – " + barbero.getNombre() + " (" + sucursal.getNombre() + ")";
 
@@ -324,79 +375,14 @@ public class PagoService {
                         .currencyId("ARS")
                         .build();
 
+        // Metadata sólo informativa (panel de MP); el webhook usa el checkout guardado
         java.util.Map<String, Object> metadata = new java.util.LinkedHashMap<>();
+        metadata.put("checkoutId", checkout.getExternalReference());
         metadata.put("turnoId", req.getTurnoId());
         metadata.put("sucursalId", req.getSucursalId());
         metadata.put("barberoId", req.getBarberoId());
-
-        metadata.put("clienteNombre", req.getClienteNombre());
-        log.info("[MP][checkout] Cliente: {} | Teléfono: {} | Edad: {}",
-            sanitizePersonalData("name", req.getClienteNombre()),
-            sanitizePersonalData("phone", req.getClienteTelefono()),
-            req.getClienteEdad()
-        );
-        metadata.put("clienteTelefono", req.getClienteTelefono());
-        metadata.put("clienteEdad", req.getClienteEdad());
-        metadata.put("senia", Boolean.TRUE.equals(req.getSenia()));
-        metadata.put("montoTotal", montoBase);
-        metadata.put("unitPriceUsado", unitPrice);
-
-        // Guardar servicio principal
         metadata.put("tipoCorteId", req.getTipoCorteId());
-
-        // 🆕 Nuevo formato: Serializar sesiones con adicionales por sesión
-        if (req.getSesiones() != null && !req.getSesiones().isEmpty()) {
-            StringBuilder sesionesJson = new StringBuilder("[");
-            for (int i = 0; i < req.getSesiones().size(); i++) {
-                if (i > 0) sesionesJson.append(",");
-                var sesion = req.getSesiones().get(i);
-                sesionesJson.append("{");
-                sesionesJson.append("\"fecha\":\"").append(sesion.getFecha()).append("\",");
-                sesionesJson.append("\"hora\":\"").append(sesion.getHora()).append("\"");
-
-                // Incluir adicionales si existen para esta sesión
-                if (sesion.getAdicionalesIds() != null && !sesion.getAdicionalesIds().isEmpty()) {
-                    sesionesJson.append(",\"adicionalesIds\":[");
-                    for (int j = 0; j < sesion.getAdicionalesIds().size(); j++) {
-                        if (j > 0) sesionesJson.append(",");
-                        sesionesJson.append(sesion.getAdicionalesIds().get(j));
-                    }
-                    sesionesJson.append("]");
-                }
-                sesionesJson.append("}");
-            }
-            sesionesJson.append("]");
-            metadata.put("sesiones", sesionesJson.toString());
-            log.info("[MP][checkout] Sesiones (nuevo formato): {}", sesionesJson.toString());
-        }
-        // Legacy: Serializar adicionales si existen (sesión única)
-        else if (req.getAdicionalesIds() != null && !req.getAdicionalesIds().isEmpty()) {
-            StringBuilder adicionalesStr = new StringBuilder();
-            for (int i = 0; i < req.getAdicionalesIds().size(); i++) {
-                if (i > 0) adicionalesStr.append(",");
-                adicionalesStr.append(req.getAdicionalesIds().get(i));
-            }
-            metadata.put("adicionalesIds", adicionalesStr.toString());
-            log.info("[MP][checkout] Adicionales (legacy): {}", adicionalesStr.toString());
-        }
-
-        // Legacy: Serializar horarios múltiples si existen (para multi-sesión sin adicionales)
-        if (req.getHorarios() != null && !req.getHorarios().isEmpty()) {
-            StringBuilder horariosJson = new StringBuilder("[");
-            for (int i = 0; i < req.getHorarios().size(); i++) {
-                if (i > 0) horariosJson.append(",");
-                String horario = req.getHorarios().get(i);
-                horariosJson.append(horario);
-            }
-            horariosJson.append("]");
-            metadata.put("horarios", horariosJson.toString());
-            log.info("[MP][checkout] Horarios múltiples (legacy): {}", horariosJson.toString());
-        } else if (req.getSesiones() == null || req.getSesiones().isEmpty()) {
-            // Sesión única (solo si no hay sesiones en nuevo formato)
-            metadata.put("fecha", req.getFecha());
-            metadata.put("hora", req.getHora());
-            log.info("[MP][checkout] Sesión única: {} {}", req.getFecha(), req.getHora());
-        }
+        metadata.put("senia", checkout.getSenia());
 
         String front = pickFrontendBase();
         String back = pickBackendBase();
@@ -407,6 +393,7 @@ public class PagoService {
         com.mercadopago.client.preference.PreferenceRequest.PreferenceRequestBuilder prefBuilder =
                 com.mercadopago.client.preference.PreferenceRequest.builder()
                         .items(java.util.Collections.singletonList(item))
+                        .externalReference(checkout.getExternalReference())
                         .metadata(metadata);
 
         if (!front.isEmpty()) {
@@ -444,12 +431,15 @@ public class PagoService {
         com.mercadopago.client.preference.PreferenceRequest prefReq = prefBuilder.build();
 
         try {
-            com.mercadopago.client.preference.PreferenceClient client = new com.mercadopago.client.preference.PreferenceClient();
-            com.mercadopago.resources.preference.Preference pref = client.create(prefReq);
+            PaymentGateway.PreferenciaCreada pref = paymentGateway.crearPreferencia(prefReq);
+            checkout.setPreferenceId(pref.id());
+            checkoutRepo.save(checkout);
+            log.info("[MP][checkout] Checkout {} → preferencia {} ({} sesiones)",
+                    checkout.getExternalReference(), pref.id(), items.size());
 
             java.util.Map<String, Object> resp = new java.util.HashMap<>();
-            resp.put("id", pref.getId());
-            String initPoint = pref.getInitPoint() != null ? pref.getInitPoint() : pref.getSandboxInitPoint();
+            resp.put("id", pref.id());
+            String initPoint = pref.initPoint();
             resp.put("init_point", initPoint);
             resp.put("initPoint", initPoint); // Soporte para camelCase en frontend
             return resp;
@@ -464,8 +454,23 @@ public class PagoService {
         }
     }
 
-    @Transactional
-    public synchronized void procesarWebhook(Map<String, String> query) throws Exception {
+    /**
+     * Procesa una notificación de MercadoPago.
+     *
+     * Los duplicados (mismo pago ya registrado en pagos.mp_payment_id) se descartan antes
+     * de consultar MP; las consultas concurrentes del mismo pago comparten una sola llamada
+     * (MercadoPagoPaymentCache). Sólo la creación de turnos se serializa, entre instancias:
+     * por pago (PagoRepository.bloquearPorMpPaymentId) y por día de la agenda del barbero
+     * (bloquearAgenda), para que dos pagos al mismo horario no confirmen los dos.
+     *
+     * La consulta a MP corre fuera de la transacción: una conexión del pool no queda tomada
+     * durante el viaje por la red. Sólo los locks, la idempotencia y la creación de turnos
+     * son transaccionales (procesarPagoAprobado).
+     *
+     * El carrito se toma del checkout guardado al crear la preferencia (external_reference);
+     * la metadata sólo se parsea para preferencias anteriores a los checkouts guardados.
+     */
+    public void procesarWebhook(Map<String, String> query) throws Exception {
         try {
             log.info("[MP] Webhook query={}", query);
         } catch (Exception ignore) {}
@@ -483,9 +488,14 @@ public class PagoService {
             return;
         }
 
-        MercadoPagoConfig.setAccessToken(mpAccessToken);
-        PaymentClient paymentClient = new PaymentClient();
-        Payment payment = paymentClient.get(Long.parseLong(dataId));
+        long paymentId = Long.parseLong(dataId);
+        if (paymentCache.yaProcesado(paymentId) || pagoRepo.existsByMpPaymentId(dataId)) {
+            paymentCache.marcarProcesado(paymentId);
+            log.info("[MP] Payment {} ya procesado. Notificación ignorada (idempotencia).", paymentId);
+            return;
+        }
+
+        Payment payment = paymentCache.obtener(paymentId);
 
         if (payment == null) {
             log.warn("[MP] Payment {} no encontrado en API", dataId);
@@ -493,17 +503,206 @@ public class PagoService {
         }
 
         String status = payment.getStatus();
-        log.info("[MP] paymentId={} status={} metadata={}", payment.getId(), status, payment.getMetadata());
+        log.info("[MP] paymentId={} status={} externalReference={}", payment.getId(), status, payment.getExternalReference());
 
         if (!"approved".equalsIgnoreCase(status)) {
             log.info("[MP] Payment {} no aprobado ({}). No se crea turno.", payment.getId(), status);
             return;
         }
 
+        transaccion.executeWithoutResult(tx -> procesarPagoAprobado(payment));
+    }
+
+    /** Parte transaccional del webhook: un pago aprobado ya obtenido de MP. */
+    private void procesarPagoAprobado(Payment payment) {
+        long paymentId = payment.getId();
+
+        // Lock por pago hasta el commit: un duplicado concurrente espera acá y, al seguir, ve el
+        // Pago ya commiteado. Un synchronized se soltaba antes del commit y el duplicado creaba
+        // turnos y notificaciones antes de chocar con uk_pagos_mp_payment_id.
+        pagoRepo.bloquearPorMpPaymentId(paymentId);
+        if (pagoRepo.existsByMpPaymentId(String.valueOf(payment.getId()))) {
+            paymentCache.marcarProcesado(paymentId);
+            log.info("[MP] Payment {} ya procesado por otra notificación.", payment.getId());
+            return;
+        }
+
+        // 🆕 Checkouts nuevos: una consulta indexada por external_reference con las sesiones incluidas
+        // (después del lock, para ver el procesadoEn que commiteó la notificación anterior)
+        String externalReference = payment.getExternalReference();
+        CheckoutSesion checkout = externalReference == null || externalReference.isBlank() ? null
+                : checkoutRepo.findByExternalReference(externalReference).orElse(null);
+
+        // Checkout ya procesado sin Pago (todos los horarios estaban ocupados): un reintento de MP
+        // en otra instancia o tras un reinicio no debe crear turnos que al cliente ya se le negaron.
+        // Es el mismo criterio que la reconciliación con checkout_sesion.mp_payment_id.
+        if (checkout != null && checkout.getProcesadoEn() != null) {
+            paymentCache.marcarProcesado(paymentId);
+            if (String.valueOf(payment.getId()).equals(checkout.getMpPaymentId())) {
+                log.info("[MP] Checkout {} ya procesado para payment {}. Notificación ignorada.",
+                        checkout.getExternalReference(), payment.getId());
+            } else {
+                log.warn("[MP] ⚠️ Payment {} aprobado para el checkout {}, ya procesado con el payment {}. Revisar a mano.",
+                        payment.getId(), checkout.getExternalReference(), checkout.getMpPaymentId());
+            }
+            return;
+        }
+
+        if (checkout != null) {
+            log.info("[MP][Webhook] Procesando checkout {}", checkout.getExternalReference());
+            registrarPago(payment, crearTurnosDesdeCheckout(payment, checkout), checkout.getSenia());
+        } else {
+            // Preferencias creadas antes de los checkouts guardados: el carrito viene en la metadata
+            procesarMetadataLegacy(payment);
+        }
+    }
+
+    /**
+     * Crea los turnos de un checkout guardado en un único batch. Servicios, adicionales y
+     * montos ya vienen resueltos; barbero, sucursal y servicios se referencian sin cargarlos.
+     */
+    private List<Turno> crearTurnosDesdeCheckout(Payment payment, CheckoutSesion checkout) {
+        List<CheckoutItem> items = checkout.getItems();
+        if (items.isEmpty()) {
+            log.warn("[MP][Checkout] Checkout {} sin sesiones", checkout.getExternalReference());
+            return List.of();
+        }
+
+        boolean multiSesion = items.size() > 1;
+        String grupoId = multiSesion ? java.util.UUID.randomUUID().toString() : null;
+        Barbero barbero = barberoRepo.getReferenceById(checkout.getBarberoId());
+        Sucursal sucursal = sucursalRepo.getReferenceById(checkout.getSucursalId());
+        Map<LocalDate, List<Turno>> turnosPorFecha = cargarTurnosPorFecha(checkout.getBarberoId(),
+                items.stream().map(CheckoutItem::getFecha).toList());
+
+        List<Turno> creados = new ArrayList<>();
+        for (CheckoutItem item : items) {
+            List<Turno> turnosDia = turnosPorFecha.computeIfAbsent(item.getFecha(), f -> new ArrayList<>());
+            TipoCorte servicio = servicioRepo.getReferenceById(item.getTipoCorteId());
+            int duracion = item.getDuracionMin() != null
+                    ? item.getDuracionMin()
+                    : HorarioService.duracion(servicio, List.of()); // checkouts anteriores a la columna
+
+            // Verificar si está ocupado (idempotencia por pago: ver registrarPago)
+            boolean ocupado = horarioService.pisaOcupacion(checkout.getBarberoId(), item.getFecha(), turnosDia,
+                    item.getHora(), duracion);
+
+            if (ocupado) {
+                log.warn("[MP][Checkout] Horario {} {} ocupado al confirmar pago {}, saltando",
+                        item.getFecha(), item.getHora(), payment.getId());
+                continue;
+            }
+
+            Turno t = new Turno();
+            t.setBarbero(barbero);
+            t.setSucursal(sucursal);
+            t.setTipoCorte(servicio);
+            t.setFecha(item.getFecha());
+            t.setHora(item.getHora());
+            t.setDuracionMin(duracion);
+            t.setEstado("CONFIRMADO");
+            t.setPagoConfirmado(true);
+            t.setClienteNombre(checkout.getClienteNombre());
+            t.setClienteTelefono(checkout.getClienteTelefono());
+            t.setClienteEdad(checkout.getClienteEdad() != null ? checkout.getClienteEdad() : 0);
+            t.setAdicionales(item.getAdicionales());
+            t.setGrupoId(grupoId);
+
+            // 💰 Sólo el primer turno creado lleva el monto (evita duplicarlo en los totales)
+            if (creados.isEmpty()) {
+                t.setMontoPagado(checkout.getUnitPrice());
+                t.setSenia(checkout.getSenia());
+                if (Boolean.TRUE.equals(checkout.getSenia()) && checkout.getMontoTotal() != null) {
+                    t.setMontoEfectivo(checkout.getMontoTotal().subtract(checkout.getUnitPrice()));
+                }
+            } else {
+                t.setMontoPagado(BigDecimal.ZERO);
+            }
+
+            turnosDia.add(t);
+            creados.add(t);
+        }
+
+        checkout.setProcesadoEn(java.time.Instant.now());
+        checkout.setMpPaymentId(String.valueOf(payment.getId()));
+
+        if (creados.isEmpty()) {
+            log.warn("[MP][Checkout] No se creó ningún turno para el checkout {} (horarios ocupados)",
+                    checkout.getExternalReference());
+            return List.of();
+        }
+
+        creados = turnoRepo.saveAll(creados);
+        log.info("[MP][Checkout] {} turno(s) creados para checkout {} (payment {}, grupo {})",
+                creados.size(), checkout.getExternalReference(), payment.getId(), grupoId);
+
+        // ✅ NOTIFICAR AL BARBERO POR TELEGRAM
+        try {
+            if (multiSesion) {
+                telegramBot.notificarNuevoTurnoGrupo(creados);
+            } else {
+                telegramBot.notificarNuevoTurno(creados.get(0));
+            }
+        } catch (Exception e) {
+            log.error("[Telegram][Checkout] Error enviando notificación: {}", e.getMessage());
+        }
+
+        // ✅ ENVIAR CONFIRMACIÓN AL CLIENTE POR TWILIO WHATSAPP
+        try {
+            DateTimeFormatter fechaFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+            DateTimeFormatter horaFormatter = DateTimeFormatter.ofPattern("HH:mm");
+            Turno primerTurno = creados.get(0);
+
+            // Determinar teléfono de la sucursal (basado en ID: 1 o 2)
+            String telefonoSucursal = checkout.getSucursalId() == 1 ? sucursal1Phone : sucursal2Phone;
+
+            enviarConfirmacionTrasCommit(primerTurno.getId(), () -> twilioService.sendConfirmacionAsync(
+                    primerTurno.getClienteTelefono(),
+                    primerTurno.getClienteNombre(),
+                    primerTurno.getFecha().format(fechaFormatter),
+                    primerTurno.getHora().format(horaFormatter),
+                    primerTurno.getBarbero().getNombre(),
+                    primerTurno.getSucursal().getNombre(),
+                    telefonoSucursal
+            ));
+        } catch (Exception e) {
+            log.error("[Twilio][Checkout] Error enviando confirmación: {}", e.getMessage(), e);
+        }
+
+        if (Boolean.TRUE.equals(checkout.getSenia())) {
+            notificationService.notifyPagoParcial(creados.get(0));
+        }
+        return creados;
+    }
+
+    /**
+     * Borra los checkouts de más de mp.checkout.retentionDays días: ya se procesaron (el
+     * registro queda en pagos) o la preferencia nunca se pagó.
+     */
+    @Scheduled(cron = "0 30 4 * * *")
+    public void purgarCheckoutsViejos() {
+        jobLeaseService.ejecutarCron(JobLeaseService.JOB_CHECKOUTS, () -> {
+            int borrados = checkoutRepo.deleteCreadosAntesDe(
+                    java.time.Instant.now().minus(java.time.Duration.ofDays(checkoutRetencionDias)));
+            if (borrados > 0) {
+                log.info("[MP][Checkout] {} checkouts viejos purgados", borrados);
+            }
+        });
+    }
+
+    /**
+     * Camino previo a los checkouts guardados: el carrito viene serializado en la metadata
+     * del pago en alguno de los tres formatos históricos. Se mantiene para las preferencias
+     * que ya estaban creadas al desplegar.
+     */
+    private void procesarMetadataLegacy(Payment payment) {
         @SuppressWarnings("unchecked")
         Map<String, Object> metadata = (Map<String, Object>) payment.getMetadata();
-        if (metadata == null || metadata.isEmpty()) {
-            log.error("[MP] Payment {} aprobado pero SIN metadata. No se puede crear turno.", payment.getId());
+        if (!esMetadataLegacy(metadata)) {
+            // Pago ajeno (u otra integración con metadata propia): nada que crear, y sin excepción
+            // para que MP no reintente la notificación indefinidamente
+            log.error("[MP] Payment {} aprobado pero SIN checkout ni metadata de reserva. No se puede crear turno.",
+                    payment.getId());
             return;
         }
 
@@ -523,9 +722,7 @@ public class PagoService {
         log.info("[MP][DEBUG] Metadata extraída: esSenia={}, montoTotal={}, unitPriceUsado={}",
                 esSenia, montoTotal, unitPriceUsado);
 
-        Objects.requireNonNull(sucursalId, "sucursalId requerido");
-        Objects.requireNonNull(barberoId, "barberoId requerido");
-        Objects.requireNonNull(servicioId, "tipoCorteId requerido");
+        List<Turno> creados;
 
         // 🆕 Detectar formato de sesiones
         String sesionesJson = getMetaStr(metadata, "sesiones", "sesiones");
@@ -534,13 +731,13 @@ public class PagoService {
         if (sesionesJson != null && !sesionesJson.trim().isEmpty()) {
             // 🆕 NUEVO FORMATO: Sesiones con adicionales por sesión
             log.info("[MP][Webhook] Procesando nuevo formato de sesiones");
-            crearTurnosDesdeNuevoFormato(payment, metadata, sucursalId, barberoId, servicioId,
+            creados = crearTurnosDesdeNuevoFormato(payment, metadata, sucursalId, barberoId, servicioId,
                     clienteNombre, clienteTelefono, clienteEdad,
                     esSenia, montoTotal, unitPriceUsado, sesionesJson);
         } else if (horariosJson != null && !horariosJson.trim().isEmpty()) {
             // MULTI-SESIÓN LEGACY (sin adicionales por sesión)
             log.info("[MP][Webhook] Procesando formato legacy de multi-sesión");
-            crearTurnosMultiSesion(payment, metadata, sucursalId, barberoId, servicioId,
+            creados = crearTurnosMultiSesion(payment, metadata, sucursalId, barberoId, servicioId,
                     clienteNombre, clienteTelefono, clienteEdad,
                     esSenia, montoTotal, unitPriceUsado, horariosJson);
         } else {
@@ -552,40 +749,42 @@ public class PagoService {
             LocalDate fecha = LocalDate.parse(fechaStr);
             LocalTime hora = LocalTime.parse(horaStr);
 
-            crearTurnoUnico(payment, sucursalId, barberoId, servicioId, fecha, hora,
+            creados = crearTurnoUnico(payment, sucursalId, barberoId, servicioId, fecha, hora,
                     clienteNombre, clienteTelefono, clienteEdad,
                     esSenia, montoTotal, unitPriceUsado, adicionalesIdsStr);
         }
+
+        registrarPago(payment, creados, esSenia);
     }
 
-    private void crearTurnoUnico(Payment payment, Long sucursalId, Long barberoId, Long servicioId,
-                                  LocalDate fecha, LocalTime hora, String clienteNombre,
-                                  String clienteTelefono, Integer clienteEdad, Boolean esSenia,
-                                  BigDecimal montoTotal, BigDecimal unitPriceUsado, String adicionalesIdsStr) {
-        // Verificar si ya existe un turno para este pago (idempotencia)
-        boolean yaExiste = turnoRepo.findByBarbero_IdAndFecha(barberoId, fecha).stream()
-                .filter(t -> "CONFIRMADO".equals(t.getEstado()) && Boolean.TRUE.equals(t.getPagoConfirmado()))
-                .filter(t -> t.getHora().equals(hora))
-                .anyMatch(t -> clienteNombre.equalsIgnoreCase(t.getClienteNombre()));
-
-        if (yaExiste) {
-            log.warn("[MP] Ya existe un turno CONFIRMADO para {} el {} a las {} (barbero {}). Payment {} ignorado (idempotencia).",
-                    clienteNombre, fecha, hora, barberoId, payment.getId());
+    /**
+     * Registra el pago procesado contra el primer turno creado. El índice único de
+     * mp_payment_id hace que un duplicado concurrente (otra instancia) falle y revierta
+     * su transacción en lugar de duplicar turnos.
+     */
+    private void registrarPago(Payment payment, List<Turno> creados, Boolean esSenia) {
+        Long paymentId = payment.getId();
+        // Recién tras el commit: si la transacción se revierte, el reintento de MP debe procesarse
+        TrasCommit.ejecutar(() -> paymentCache.marcarProcesado(paymentId));
+        if (creados.isEmpty()) {
+            // Horario ocupado: no hay turno al cual asociar el Pago (turno_id es obligatorio)
             return;
         }
 
-        // Verificar si el horario está ocupado por otro cliente
-        boolean ocupado = turnoRepo.findByBarbero_IdAndFecha(barberoId, fecha).stream()
-                .filter(t -> Boolean.TRUE.equals(t.getPagoConfirmado())
-                        || "CONFIRMADO".equalsIgnoreCase(String.valueOf(t.getEstado())))
-                .anyMatch(t -> t.getHora().equals(hora));
-
-        if (ocupado) {
-            log.warn("[MP] El horario {} {} para barbero {} ya está ocupado al confirmar pago {}.",
-                    fecha, hora, barberoId, payment.getId());
-            return;
-        }
+        Pago pago = new Pago();
+        pago.setTurno(creados.get(0));
+        pago.setMpPaymentId(String.valueOf(payment.getId()));
+        pago.setStatus(payment.getStatus());
+        pago.setMonto(payment.getTransactionAmount());
+        pago.setMoneda(payment.getCurrencyId());
+        pago.setSenia(esSenia);
+        pagoRepo.save(pago);
+    }
 
+    private List<Turno> crearTurnoUnico(Payment payment, Long sucursalId, Long barberoId, Long servicioId,
+                                  LocalDate fecha, LocalTime hora, String clienteNombre,
+                                  String clienteTelefono, Integer clienteEdad, Boolean esSenia,
+                                  BigDecimal montoTotal, BigDecimal unitPriceUsado, String adicionalesIdsStr) {
         Barbero barbero = barberoRepo.findById(barberoId)
                 .orElseThrow(() -> new IllegalArgumentException("Barbero inexistente"));
         TipoCorte servicio = servicioRepo.findById(servicioId)
@@ -609,6 +808,7 @@ public class PagoService {
         t.setClienteEmail(null);
 
         // 🆕 Procesar servicios adicionales
+        List<TipoCorte> adicionales = new ArrayList<>();
         if (adicionalesIdsStr != null && !adicionalesIdsStr.trim().isEmpty()) {
             String[] ids = adicionalesIdsStr.split(",");
             List<String> nombres = new ArrayList<>();
@@ -618,6 +818,7 @@ public class PagoService {
                     TipoCorte adicional = servicioRepo.findById(id).orElse(null);
                     if (adicional != null) {
                         nombres.add(adicional.getNombre());
+                        adicionales.add(adicional);
                     }
                 } catch (NumberFormatException e) {
                     log.warn("[MP] ID de adicional inválido: {}", idStr);
@@ -628,6 +829,16 @@ public class PagoService {
                 log.info("[MP] Adicionales guardados: {}", t.getAdicionales());
             }
         }
+        t.setDuracionMin(HorarioService.duracion(servicio, adicionales));
+
+        // Verificar si el horario está ocupado (idempotencia por pago: ver registrarPago)
+        bloquearAgenda(barberoId, List.of(fecha));
+        if (horarioService.pisaOcupacion(barberoId, fecha, turnoRepo.findByBarbero_IdAndFecha(barberoId, fecha),
+                hora, t.getDuracionMin())) {
+            log.warn("[MP] El horario {} {} para barbero {} ya está ocupado al confirmar pago {}.",
+                    fecha, hora, barberoId, payment.getId());
+            return List.of();
+        }
 
         // Calcular y guardar campos de pago
         log.info("[MP][DEBUG] servicio.getPrecio()={}", servicio.getPrecio());
@@ -688,7 +899,7 @@ public class PagoService {
             // Determinar teléfono de la sucursal (basado en ID: 1 o 2)
             String telefonoSucursal = saved.getSucursal().getId() == 1 ? sucursal1Phone : sucursal2Phone;
 
-            twilioService.sendConfirmacion(
+            enviarConfirmacionTrasCommit(saved.getId(), () -> twilioService.sendConfirmacionAsync(
                     saved.getClienteTelefono(),
                     saved.getClienteNombre(),
                     fechaFormateada,
@@ -696,8 +907,8 @@ public class PagoService {
                     saved.getBarbero().getNombre(),
                     saved.getSucursal().getNombre(),
                     telefonoSucursal
-            );
-            log.info("[Twilio] Confirmación enviada al cliente {} ({})",
+            ));
+            log.info("[Twilio] Confirmación encolada para el cliente {} ({})",
                     saved.getClienteNombre(), saved.getClienteTelefono());
         } catch (Exception e) {
             log.error("[Twilio] Error enviando confirmación: {}", e.getMessage(), e);
@@ -710,9 +921,10 @@ public class PagoService {
 
         log.info("[MP] Turno creado OK id={} fecha={} hora={} barbero={} pago={} senia={}",
                 saved.getId(), saved.getFecha(), saved.getHora(), barberoId, payment.getId(), esSenia);
+        return List.of(saved);
     }
 
-    private void crearTurnosMultiSesion(Payment payment, Map<String, Object> metadata,
+    private List<Turno> crearTurnosMultiSesion(Payment payment, Map<String, Object> metadata,
                                         Long sucursalId, Long barberoId, Long servicioId,
                                         String clienteNombre, String clienteTelefono, Integer clienteEdad,
                                         Boolean esSenia, BigDecimal montoTotal, BigDecimal unitPriceUsado,
@@ -769,12 +981,12 @@ public class PagoService {
             }
         } catch (Exception e) {
             log.error("[MP][MultiSesion] Error parseando JSON: {}", e.getMessage(), e);
-            return;
+            return List.of();
         }
 
         if (horarios.isEmpty()) {
             log.warn("[MP][MultiSesion] No se pudieron parsear horarios del JSON: {}", horariosJson);
-            return;
+            return List.of();
         }
 
         log.info("[MP][MultiSesion] ✅ {} sesiones detectadas", horarios.size());
@@ -806,32 +1018,30 @@ public class PagoService {
 
         java.util.List<Turno> turnosCreados = new java.util.ArrayList<>();
 
+        // ✅ Cargar servicios y turnos existentes de todo el rango una sola vez
+        // (consultar dentro del loop fuerza un flush por iteración y rompe el batch de INSERTs)
+        Map<Long, TipoCorte> serviciosPorId = new java.util.HashMap<>();
+        servicioRepo.findAllById(horarios.stream().map(h -> h.servicioId).distinct().toList())
+                .forEach(s -> serviciosPorId.put(s.getId(), s));
+        Map<LocalDate, List<Turno>> turnosPorFecha = cargarTurnosPorFecha(barberoId,
+                horarios.stream().map(h -> h.fecha).toList());
+
         // Crear cada turno con su servicio específico
         for (int i = 0; i < horarios.size(); i++) {
             HorarioData horario = horarios.get(i);
             boolean esPrimerTurno = (i == 0);
 
-            // 🆕 Cargar servicio específico para esta sesión
-            TipoCorte servicio = servicioRepo.findById(horario.servicioId)
-                    .orElseThrow(() -> new IllegalArgumentException("Servicio " + horario.servicioId + " inexistente"));
-
-            // Verificar si ya existe (idempotencia)
-            boolean yaExiste = turnoRepo.findByBarbero_IdAndFecha(barberoId, horario.fecha).stream()
-                    .filter(t -> "CONFIRMADO".equals(t.getEstado()) && Boolean.TRUE.equals(t.getPagoConfirmado()))
-                    .filter(t -> t.getHora().equals(horario.hora))
-                    .anyMatch(t -> clienteNombre.equalsIgnoreCase(t.getClienteNombre()));
-
-            if (yaExiste) {
-                log.warn("[MP][MultiSesion] Ya existe turno para {} el {} a las {}, saltando",
-                        clienteNombre, horario.fecha, horario.hora);
-                continue;
+            // 🆕 Servicio específico para esta sesión
+            TipoCorte servicio = serviciosPorId.get(horario.servicioId);
+            if (servicio == null) {
+                throw new IllegalArgumentException("Servicio " + horario.servicioId + " inexistente");
             }
 
+            List<Turno> turnosDia = turnosPorFecha.computeIfAbsent(horario.fecha, f -> new ArrayList<>());
+
             // Verificar si está ocupado
-            boolean ocupado = turnoRepo.findByBarbero_IdAndFecha(barberoId, horario.fecha).stream()
-                    .filter(t -> Boolean.TRUE.equals(t.getPagoConfirmado())
-                            || "CONFIRMADO".equalsIgnoreCase(String.valueOf(t.getEstado())))
-                    .anyMatch(t -> t.getHora().equals(horario.hora));
+            int duracion = HorarioService.duracion(servicio, List.of());
+            boolean ocupado = horarioService.pisaOcupacion(barberoId, horario.fecha, turnosDia, horario.hora, duracion);
 
             if (ocupado) {
                 log.warn("[MP][MultiSesion] Horario {} {} ocupado, saltando", horario.fecha, horario.hora);
@@ -844,6 +1054,7 @@ public class PagoService {
             t.setTipoCorte(servicio);
             t.setFecha(horario.fecha);
             t.setHora(horario.hora);
+            t.setDuracionMin(duracion);
             t.setEstado("CONFIRMADO");
             t.setPagoConfirmado(true);
             t.setClienteNombre(clienteNombre);
@@ -874,16 +1085,21 @@ public class PagoService {
                         grupoId.substring(0, 8));
             }
 
-            Turno saved = turnoRepo.save(t);
-            turnosCreados.add(saved);
-            log.info("[MP][MultiSesion] Turno {}/{} creado: {} {} - {} (grupo: {})",
-                    turnosCreados.size(), horarios.size(), horario.fecha, horario.hora,
-                    servicio.getNombre(), grupoId.substring(0, 8));
+            turnosDia.add(t);
+            turnosCreados.add(t);
         }
 
         if (turnosCreados.isEmpty()) {
             log.warn("[MP][MultiSesion] No se creó ningún turno (todos ocupados o duplicados)");
-            return;
+            return List.of();
+        }
+
+        turnosCreados = turnoRepo.saveAll(turnosCreados);
+        for (int i = 0; i < turnosCreados.size(); i++) {
+            Turno saved = turnosCreados.get(i);
+            log.info("[MP][MultiSesion] Turno {}/{} creado: {} {} - {} (grupo: {})",
+                    i + 1, horarios.size(), saved.getFecha(), saved.getHora(),
+                    saved.getTipoCorte().getNombre(), grupoId.substring(0, 8));
         }
 
         // ✅ NOTIFICAR AL BARBERO POR TELEGRAM (todos los turnos juntos)
@@ -909,7 +1125,7 @@ public class PagoService {
             String telefonoSucursal = primerTurno.getSucursal().getId() == 1 ? sucursal1Phone : sucursal2Phone;
 
             // Enviar confirmación con primera fecha/hora (multisesión tiene detalle en variable 2)
-            twilioService.sendConfirmacion(
+            enviarConfirmacionTrasCommit(primerTurno.getId(), () -> twilioService.sendConfirmacionAsync(
                     primerTurno.getClienteTelefono(),
                     primerTurno.getClienteNombre(),
                     primerTurno.getFecha().format(fechaFormatter),
@@ -917,10 +1133,10 @@ public class PagoService {
                     primerTurno.getBarbero().getNombre(),
                     primerTurno.getSucursal().getNombre(),
                     telefonoSucursal
-            );
+            ));
 
             // Log detallado de todas las sesiones
-            log.info("[Twilio][MultiSesion] ✅ Confirmación enviada a {} ({})",
+            log.info("[Twilio][MultiSesion] ✅ Confirmación encolada para {} ({})",
                     clienteNombre, primerTurno.getClienteTelefono());
             log.info("[Twilio][MultiSesion] 📋 {} servicios/sesiones enviados",
                     turnosCreados.size());
@@ -940,12 +1156,13 @@ public class PagoService {
 
         log.info("[MP][MultiSesion] Grupo {} creado con {} turnos. Payment {}",
                 grupoId, turnosCreados.size(), payment.getId());
+        return turnosCreados;
     }
 
     /**
      * Procesa el nuevo formato de sesiones que incluye adicionales por sesión.
      */
-    private void crearTurnosDesdeNuevoFormato(Payment payment, Map<String, Object> metadata,
+    private List<Turno> crearTurnosDesdeNuevoFormato(Payment payment, Map<String, Object> metadata,
                                               Long sucursalId, Long barberoId, Long servicioId,
                                               String clienteNombre, String clienteTelefono, Integer clienteEdad,
                                               Boolean esSenia, BigDecimal montoTotal, BigDecimal unitPriceUsado,
@@ -1006,12 +1223,12 @@ public class PagoService {
             }
         } catch (Exception e) {
             log.error("[MP][NuevoFormato] Error parseando JSON: {}", e.getMessage(), e);
-            return;
+            return List.of();
         }
 
         if (sesiones.isEmpty()) {
             log.warn("[MP][NuevoFormato] No se pudieron parsear sesiones del JSON");
-            return;
+            return List.of();
         }
 
         log.info("[MP][NuevoFormato] ✅ {} sesiones parseadas", sesiones.size());
@@ -1042,28 +1259,23 @@ public class PagoService {
 
         java.util.List<Turno> turnosCreados = new java.util.ArrayList<>();
 
+        // ✅ Cargar adicionales y turnos existentes de todo el rango una sola vez
+        Map<Long, TipoCorte> adicionalesPorId = new java.util.HashMap<>();
+        servicioRepo.findAllById(sesiones.stream().flatMap(ses -> ses.adicionalesIds.stream()).distinct().toList())
+                .forEach(a -> adicionalesPorId.put(a.getId(), a));
+        Map<LocalDate, List<Turno>> turnosPorFecha = cargarTurnosPorFecha(barberoId,
+                sesiones.stream().map(ses -> ses.fecha).toList());
+
         // Crear turnos
         for (int i = 0; i < sesiones.size(); i++) {
             SesionData sesion = sesiones.get(i);
             boolean esPrimerTurno = (i == 0);
-
-            // Verificar si ya existe
-            boolean yaExiste = turnoRepo.findByBarbero_IdAndFecha(barberoId, sesion.fecha).stream()
-                    .filter(t -> "CONFIRMADO".equals(t.getEstado()) && Boolean.TRUE.equals(t.getPagoConfirmado()))
-                    .filter(t -> t.getHora().equals(sesion.hora))
-                    .anyMatch(t -> clienteNombre.equalsIgnoreCase(t.getClienteNombre()));
-
-            if (yaExiste) {
-                log.warn("[MP][NuevoFormato] Ya existe turno para {} el {} a las {}, saltando",
-                        clienteNombre, sesion.fecha, sesion.hora);
-                continue;
-            }
+            List<Turno> turnosDia = turnosPorFecha.computeIfAbsent(sesion.fecha, f -> new ArrayList<>());
 
             // Verificar si está ocupado
-            boolean ocupado = turnoRepo.findByBarbero_IdAndFecha(barberoId, sesion.fecha).stream()
-                    .filter(t -> Boolean.TRUE.equals(t.getPagoConfirmado())
-                            || "CONFIRMADO".equalsIgnoreCase(String.valueOf(t.getEstado())))
-                    .anyMatch(t -> t.getHora().equals(sesion.hora));
+            int duracion = HorarioService.duracion(servicioPrincipal, sesion.adicionalesIds.stream()
+                    .map(adicionalesPorId::get).toList());
+            boolean ocupado = horarioService.pisaOcupacion(barberoId, sesion.fecha, turnosDia, sesion.hora, duracion);
 
             if (ocupado) {
                 log.warn("[MP][NuevoFormato] Horario {} {} ocupado, saltando", sesion.fecha, sesion.hora);
@@ -1076,6 +1288,7 @@ public class PagoService {
             t.setTipoCorte(servicioPrincipal);
             t.setFecha(sesion.fecha);
             t.setHora(sesion.hora);
+            t.setDuracionMin(duracion);
             t.setEstado("CONFIRMADO");
             t.setPagoConfirmado(true);
             t.setClienteNombre(clienteNombre);
@@ -1087,7 +1300,7 @@ public class PagoService {
             if (!sesion.adicionalesIds.isEmpty()) {
                 java.util.List<String> nombres = new java.util.ArrayList<>();
                 for (Long adicionalId : sesion.adicionalesIds) {
-                    TipoCorte adicional = servicioRepo.findById(adicionalId).orElse(null);
+                    TipoCorte adicional = adicionalesPorId.get(adicionalId);
                     if (adicional != null) {
                         nombres.add(adicional.getNombre());
                     }
@@ -1114,14 +1327,19 @@ public class PagoService {
                 log.info("[MP][NuevoFormato] ⚪ Turno adicional - sin monto");
             }
 
-            Turno saved = turnoRepo.save(t);
-            turnosCreados.add(saved);
-            log.info("[MP][NuevoFormato] Turno {}/{} creado: {} {}", i + 1, sesiones.size(), sesion.fecha, sesion.hora);
+            turnosDia.add(t);
+            turnosCreados.add(t);
         }
 
         if (turnosCreados.isEmpty()) {
             log.warn("[MP][NuevoFormato] No se creó ningún turno");
-            return;
+            return List.of();
+        }
+
+        turnosCreados = turnoRepo.saveAll(turnosCreados);
+        for (int i = 0; i < turnosCreados.size(); i++) {
+            Turno saved = turnosCreados.get(i);
+            log.info("[MP][NuevoFormato] Turno {}/{} creado: {} {}", i + 1, sesiones.size(), saved.getFecha(), saved.getHora());
         }
 
         // Notificar
@@ -1141,7 +1359,7 @@ public class PagoService {
             // Determinar teléfono de la sucursal (basado en ID: 1 o 2)
             String telefonoSucursal = primerTurno.getSucursal().getId() == 1 ? sucursal1Phone : sucursal2Phone;
 
-            twilioService.sendConfirmacion(
+            enviarConfirmacionTrasCommit(primerTurno.getId(), () -> twilioService.sendConfirmacionAsync(
                     primerTurno.getClienteTelefono(),
                     primerTurno.getClienteNombre(),
                     primerTurno.getFecha().format(fechaFormatter),
@@ -1149,9 +1367,9 @@ public class PagoService {
                     primerTurno.getBarbero().getNombre(),
                     primerTurno.getSucursal().getNombre(),
                     telefonoSucursal
-            );
+            ));
 
-            log.info("[Twilio][NuevoFormato] ✅ Confirmación enviada a {}", clienteNombre);
+            log.info("[Twilio][NuevoFormato] ✅ Confirmación encolada para {}", clienteNombre);
         } catch (Exception e) {
             log.error("[Twilio][NuevoFormato] Error: {}", e.getMessage(), e);
         }
@@ -1161,6 +1379,99 @@ public class PagoService {
         }
 
         log.info("[MP][NuevoFormato] Grupo {} creado con {} turnos", grupoId, turnosCreados.size());
+        return turnosCreados;
+    }
+
+    /**
+     * Envía la confirmación de WhatsApp recién cuando commitea la transacción del webhook:
+     * el webhook de MP no espera la latencia de Twilio y el SID se guarda sobre un turno
+     * ya visible. Sin transacción activa se despacha de inmediato.
+     */
+    private void enviarConfirmacionTrasCommit(Long turnoId, Supplier<CompletableFuture<String>> envio) {
+        Runnable despachar = () -> envio.get()
+                .thenAccept(sid -> {
+                    turnoRepo.registrarWhatsappSid(turnoId, sid);
+                    log.info("[Twilio] Confirmación enviada. Turno #{} SID={}", turnoId, sid);
+                })
+                .exceptionally(e -> {
+                    log.error("[Twilio] Error enviando confirmación del turno #{}: {}", turnoId, e.getMessage(), e);
+                    return null;
+                });
+
+        TrasCommit.ejecutar(despachar);
+    }
+
+    /**
+     * Carga en una sola consulta los turnos del barbero entre la primera y la última fecha,
+     * agrupados por fecha (listas mutables para poder sumar los turnos nuevos del mismo pago).
+     * Antes toma el lock de agenda de esos días (ver bloquearAgenda).
+     */
+    private Map<LocalDate, List<Turno>> cargarTurnosPorFecha(Long barberoId, List<LocalDate> fechas) {
+        Map<LocalDate, List<Turno>> porFecha = new java.util.HashMap<>();
+        if (fechas.isEmpty()) return porFecha;
+        bloquearAgenda(barberoId, fechas);
+        LocalDate desde = fechas.stream().min(LocalDate::compareTo).orElseThrow();
+        LocalDate hasta = fechas.stream().max(LocalDate::compareTo).orElseThrow();
+        for (Turno t : turnoRepo.findByBarbero_IdAndFechaBetweenOrderByFechaAscHoraAsc(barberoId, desde, hasta)) {
+            porFecha.computeIfAbsent(t.getFecha(), f -> new ArrayList<>()).add(t);
+        }
+        return porFecha;
+    }
+
+    /**
+     * Lock por (barbero, día) de cada fecha del carrito hasta el commit. El lock por pago no
+     * alcanza: dos pagos distintos al mismo horario leerían los turnos commiteados a la vez,
+     * ninguno vería el turno sin commitear del otro y los dos pasarían pisaOcupacion. Los días
+     * se bloquean en orden para que dos carritos con fechas en común no se traben entre sí.
+     */
+    private void bloquearAgenda(Long barberoId, List<LocalDate> fechas) {
+        fechas.stream().distinct().sorted()
+                .forEach(f -> turnoRepo.bloquearAgendaDelDia(barberoId, f.toEpochDay()));
+    }
+
+    /** Sesión del carrito ya parseada (formato común a los tres formatos del front). */
+    private record SesionCheckout(LocalDate fecha, LocalTime hora, Long tipoCorteId, List<Long> adicionalesIds) {}
+
+    /**
+     * Pasa el request a sesiones tipadas. Prioridad: sesiones (nuevo formato) &gt;
+     * horarios (legacy, JSON con servicioId opcional) &gt; fecha/hora única. Los adicionales
+     * globales del formato legacy quedan en la primera sesión.
+     */
+    private List<SesionCheckout> normalizarSesiones(CheckoutRequest req) {
+        List<SesionCheckout> sesiones = new ArrayList<>();
+        List<Long> adicionalesGlobales = req.getAdicionalesIds() != null ? req.getAdicionalesIds() : List.of();
+
+        if (req.getSesiones() != null && !req.getSesiones().isEmpty()) {
+            for (var sesion : req.getSesiones()) {
+                sesiones.add(new SesionCheckout(LocalDate.parse(sesion.getFecha()), LocalTime.parse(sesion.getHora()),
+                        req.getTipoCorteId(),
+                        sesion.getAdicionalesIds() != null ? sesion.getAdicionalesIds() : List.of()));
+            }
+            log.info("[MP][checkout] Formato nuevo: {} sesiones con adicionales por sesión", sesiones.size());
+            return sesiones;
+        }
+
+        if (req.getHorarios() != null && !req.getHorarios().isEmpty()) {
+            // Legacy: cada horario es un JSON {"fecha":"2025-11-01","hora":"10:00","servicioId":5}
+            for (String horario : req.getHorarios()) {
+                try {
+                    var nodo = JSON.readTree(horario);
+                    Long servicioId = nodo.hasNonNull("servicioId") ? nodo.get("servicioId").asLong() : req.getTipoCorteId();
+                    sesiones.add(new SesionCheckout(LocalDate.parse(nodo.get("fecha").asText()),
+                            LocalTime.parse(nodo.get("hora").asText()), servicioId,
+                            sesiones.isEmpty() ? adicionalesGlobales : List.of()));
+                } catch (Exception e) {
+                    throw new IllegalArgumentException("Horario inválido: " + horario);
+                }
+            }
+            log.info("[MP][checkout] Horarios múltiples (legacy): {} sesiones", sesiones.size());
+            return sesiones;
+        }
+
+        sesiones.add(new SesionCheckout(LocalDate.parse(req.getFecha()), LocalTime.parse(req.getHora()),
+                req.getTipoCorteId(), adicionalesGlobales));
+        log.info("[MP][checkout] Sesión única: {} {}", req.getFecha(), req.getHora());
+        return sesiones;
     }
 
     // Clase auxiliar para parsear sesiones (nuevo formato)
@@ -1237,6 +1548,17 @@ public class PagoService {
         }
     }
 
+    /**
+     * Si la metadata trae el carrito de una preferencia anterior a los checkouts guardados:
+     * sucursal, barbero y servicio son obligatorios en los tres formatos históricos.
+     */
+    static boolean esMetadataLegacy(Map<String, Object> meta) {
+        if (meta == null || meta.isEmpty()) return false;
+        return (meta.get("sucursalId") != null || meta.get("sucursal_id") != null)
+                && (meta.get("barberoId") != null || meta.get("barbero_id") != null)
+                && (meta.get("tipoCorteId") != null || meta.get("tipo_corte_id") != null);
+    }
+
     private Long getMetaLong(Map<String, Object> meta, String camel, String snake) {
         Object v = meta.get(camel);
         if (v == null) v = meta.get(snake);
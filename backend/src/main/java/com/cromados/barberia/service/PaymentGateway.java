@@ -0,0 +1,43 @@
+package com.cromados.barberia.service;
+
+import com.mercadopago.client.preference.PreferenceRequest;
+import com.mercadopago.exceptions.MPApiException;
+import com.mercadopago.exceptions.MPException;
+import com.mercadopago.resources.payment.Payment;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Pasarela de pagos usada por PagoService.
+ *
+ * Implementaciones (mp.gateway):
+ * - "mercadopago" (default): {@link MercadoPagoGateway}, clientes del SDK configurados una vez
+ *   con pool de conexiones y timeouts.
+ * - "stub": {@link StubPaymentGateway}, en memoria, para desarrollo y pruebas de carga sin la API.
+ *
+ * Usa los tipos del SDK de MercadoPago (PreferenceRequest / Payment) para que PagoService
+ * no cambie según la implementación.
+ */
+public interface PaymentGateway {
+
+    record PreferenciaCreada(String id, String initPoint) {}
+
+    /** Página de una búsqueda de pagos; {@code total} es el total de la búsqueda, no de la página. */
+    record PaginaPagos(List<Payment> pagos, int total) {}
+
+    PreferenciaCreada crearPreferencia(PreferenceRequest request) throws MPException, MPApiException;
+
+    Payment obtenerPago(long paymentId) throws MPException, MPApiException;
+
+    /**
+     * Pagos actualizados en [desde, hasta], ordenados por fecha de actualización ascendente.
+     * Se pagina con offset/limite (API de búsqueda de MP).
+     */
+    PaginaPagos buscarPagos(Instant desde, Instant hasta, int offset, int limite) throws MPException, MPApiException;
+
+    /** true si los pagos son simulados (no hay firma de webhook real que validar). */
+    default boolean simulado() {
+        return false;
+    }
+}
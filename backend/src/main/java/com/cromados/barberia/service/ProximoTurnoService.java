@@ -0,0 +1,149 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.dto.ProximoTurnoDTO;
+import com.cromados.barberia.model.Barbero;
+import com.cromados.barberia.model.TipoCorte;
+import com.cromados.barberia.repository.BarberoRepository;
+import com.cromados.barberia.repository.TipoCorteRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Búsqueda de los próximos turnos libres de una sucursal para un servicio, entre todos
+ * los barberos que lo ofrecen (GET /api/disponibilidad/proximo).
+ *
+ * Carga todo el rango de una vez con {@link DisponibilidadRangoService} (una consulta
+ * por tabla para todos los barberos) y después recorre cada barbero con un cursor día
+ * por día. Los cursores se mezclan con una cola de prioridad (k-way merge): los días de
+ * un barbero se calculan recién cuando hace falta, así que pedir los primeros 5 turnos
+ * no arma la grilla completa de 60 días. Sólo se ofrecen horarios donde entra la duración
+ * del servicio.
+ */
+@Slf4j
+@Service
+public class ProximoTurnoService {
+
+    private static final ZoneId ZONA_ARGENTINA = ZoneId.of("America/Argentina/Buenos_Aires");
+    private static final DateTimeFormatter HHMM = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final TipoCorteRepository tipoCorteRepo;
+    private final BarberoRepository barberoRepo;
+    private final DisponibilidadRangoService disponibilidadRango;
+    private final int maxDias;
+    private final int maxResultados;
+
+    public ProximoTurnoService(
+            TipoCorteRepository tipoCorteRepo,
+            BarberoRepository barberoRepo,
+            DisponibilidadRangoService disponibilidadRango,
+            @Value("${disponibilidad.proximo.maxDays:60}") int maxDias,
+            @Value("${disponibilidad.proximo.maxResults:20}") int maxResultados
+    ) {
+        this.tipoCorteRepo = tipoCorteRepo;
+        this.barberoRepo = barberoRepo;
+        this.disponibilidadRango = disponibilidadRango;
+        this.maxDias = maxDias;
+        this.maxResultados = maxResultados;
+    }
+
+    /**
+     * Los primeros {@code cantidad} turnos libres desde {@code desde} (hoy si es null o
+     * pasado), ordenados por fecha y hora, mirando hasta disponibilidad.proximo.maxDays días.
+     *
+     * @throws NoSuchElementException   si el servicio no existe
+     * @throws IllegalArgumentException si el servicio no se puede reservar o la cantidad es inválida
+     */
+    @Transactional(readOnly = true)
+    public List<ProximoTurnoDTO> buscar(Long sucursalId, Long tipoCorteId, LocalDate desde, int cantidad) {
+        if (cantidad < 1 || cantidad > maxResultados) {
+            throw new IllegalArgumentException("La cantidad debe estar entre 1 y " + maxResultados);
+        }
+        TipoCorte servicio = tipoCorteRepo.findById(tipoCorteId)
+                .orElseThrow(() -> new NoSuchElementException("Servicio no encontrado"));
+        if (!Boolean.TRUE.equals(servicio.getActivo()) || Boolean.TRUE.equals(servicio.getAdicional())) {
+            throw new IllegalArgumentException("El servicio no se puede reservar");
+        }
+
+        // Barberos de la sucursal que ofrecen el servicio (sin habilitados = todos)
+        Set<Long> habilitados = new HashSet<>();
+        for (Barbero b : servicio.getBarberosHabilitados()) habilitados.add(b.getId());
+        List<Barbero> barberos = barberoRepo.findBySucursal_Id(sucursalId).stream()
+                .filter(b -> habilitados.isEmpty() || habilitados.contains(b.getId()))
+                .toList();
+        if (barberos.isEmpty()) return List.of();
+
+        LocalDate hoy = LocalDate.now(ZONA_ARGENTINA);
+        LocalDate inicio = desde == null || desde.isBefore(hoy) ? hoy : desde;
+        LocalDate fin = inicio.plusDays(maxDias - 1L);
+        DisponibilidadRangoService.Agenda agenda =
+                disponibilidadRango.cargar(barberos.stream().map(Barbero::getId).toList(), inicio, fin);
+
+        int duracion = HorarioService.duracion(servicio, List.of());
+        PriorityQueue<Cursor> cola = new PriorityQueue<>(barberos.size(), Comparator
+                .comparing((Cursor c) -> c.fecha)
+                .thenComparing(Cursor::hora)
+                .thenComparing(c -> c.barbero.getId()));
+        for (Barbero b : barberos) {
+            Cursor c = new Cursor(b, inicio, fin, duracion, agenda);
+            if (c.avanzar()) cola.add(c);
+        }
+
+        List<ProximoTurnoDTO> res = new ArrayList<>(cantidad);
+        while (res.size() < cantidad && !cola.isEmpty()) {
+            Cursor c = cola.poll();
+            res.add(new ProximoTurnoDTO(c.barbero.getId(), c.barbero.getNombre(), c.fecha.toString(),
+                    HHMM.format(c.hora())));
+            if (c.avanzar()) cola.add(c);
+        }
+
+        log.debug("[ProximoTurno] Sucursal {} servicio {} desde {}: {} turnos entre {} barberos",
+                sucursalId, tipoCorteId, inicio, res.size(), barberos.size());
+        return res;
+    }
+
+    /* ===================== Internos ===================== */
+
+    /** Recorre los horarios libres de un barbero en orden, calculando cada día al llegar a él. */
+    private static final class Cursor {
+        final Barbero barbero;
+        final LocalDate hasta;
+        final int duracion;
+        final DisponibilidadRangoService.Agenda agenda;
+        LocalDate fecha;
+        List<LocalTime> libres = List.of();
+        int indice = -1;
+
+        Cursor(Barbero barbero, LocalDate desde, LocalDate hasta, int duracion,
+               DisponibilidadRangoService.Agenda agenda) {
+            this.barbero = barbero;
+            this.hasta = hasta;
+            this.duracion = duracion;
+            this.agenda = agenda;
+            this.fecha = desde.minusDays(1);
+        }
+
+        LocalTime hora() {
+            return libres.get(indice);
+        }
+
+        /** Pasa al siguiente horario libre. @return false si no quedan en el rango */
+        boolean avanzar() {
+            indice++;
+            while (indice >= libres.size()) {
+                fecha = fecha.plusDays(1);
+                if (fecha.isAfter(hasta)) return false;
+                libres = agenda.libres(barbero.getId(), fecha, duracion);
+                indice = 0;
+            }
+            return true;
+        }
+    }
+}
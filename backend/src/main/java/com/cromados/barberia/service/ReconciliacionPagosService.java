@@ -0,0 +1,231 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.model.JobWatermark;
+import com.cromados.barberia.repository.CheckoutSesionRepository;
+import com.cromados.barberia.repository.JobWatermarkRepository;
+import com.cromados.barberia.repository.PagoRepository;
+import com.mercadopago.resources.payment.Payment;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reconciliación de pagos contra MercadoPago, para los webhooks que nunca llegaron.
+ *
+ * Recorre con la API de búsqueda los pagos actualizados desde la última marca de agua
+ * (job_watermark, con unos minutos de solapamiento), página por página sin acumularlos.
+ * Por cada página cruza en lote los aprobados contra pagos.mp_payment_id y
+ * checkout_sesion.mp_payment_id; los que faltan se procesan por el mismo camino que el
+ * webhook (PagoService.procesarWebhook), así que crear turnos sigue siendo idempotente.
+ *
+ * Un pago es nuestro si su external_reference es de un checkout guardado o si su metadata
+ * trae el carrito de las preferencias anteriores; el resto se cuenta como ajeno.
+ *
+ * La marca sólo avanza si la corrida terminó sin errores; si no, la próxima vuelve a
+ * recorrer la misma ventana. Un pago que falla en mp.reconciliacion.maxIntentos corridas
+ * seguidas se descarta (queda en el log y en las estadísticas para revisarlo a mano) y deja
+ * de frenar la marca. Los intentos se llevan en memoria: un reinicio o un cambio de lease
+ * a otra instancia les da otra tanda. Corre en una sola instancia (lease JOB_RECONCILIACION).
+ */
+@Slf4j
+@Service
+public class ReconciliacionPagosService {
+
+    private static final String WATERMARK = JobLeaseService.JOB_RECONCILIACION;
+
+    /** Cuánto se recuerda un pago descartado (cubre de sobra el solapamiento entre corridas). */
+    private static final Duration RETENCION_DESCARTADOS = Duration.ofDays(1);
+
+    private final PaymentGateway paymentGateway;
+    private final PagoService pagoService;
+    private final PagoRepository pagoRepo;
+    private final CheckoutSesionRepository checkoutRepo;
+    private final JobWatermarkRepository watermarkRepo;
+    private final MercadoPagoPaymentCache paymentCache;
+    private final JobLeaseService jobLeaseService;
+
+    private final int tamanioPagina;
+    private final Duration solapamiento;
+    private final Duration ventanaInicial;
+    private final int maxIntentos;
+
+    private final Map<String, Integer> intentosFallidos = new ConcurrentHashMap<>(); // paymentId → corridas con error
+    private final Map<String, Instant> descartados = new ConcurrentHashMap<>();      // paymentId → cuándo se descartó
+
+    private volatile Resultado ultimo;
+
+    public record Resultado(Instant desde, Instant hasta, int revisados, int aprobados, int yaRegistrados,
+                            int reprocesados, int ajenos, int errores, int descartados, long duracionMs,
+                            Instant finalizado) {}
+
+    public ReconciliacionPagosService(
+            PaymentGateway paymentGateway,
+            PagoService pagoService,
+            PagoRepository pagoRepo,
+            CheckoutSesionRepository checkoutRepo,
+            JobWatermarkRepository watermarkRepo,
+            MercadoPagoPaymentCache paymentCache,
+            JobLeaseService jobLeaseService,
+            @Value("${mp.reconciliacion.pageSize:100}") int tamanioPagina,
+            @Value("${mp.reconciliacion.overlapMinutes:15}") long solapamientoMinutos,
+            @Value("${mp.reconciliacion.initialLookbackHours:24}") long ventanaInicialHoras,
+            @Value("${mp.reconciliacion.maxIntentos:3}") int maxIntentos
+    ) {
+        this.paymentGateway = paymentGateway;
+        this.pagoService = pagoService;
+        this.pagoRepo = pagoRepo;
+        this.checkoutRepo = checkoutRepo;
+        this.watermarkRepo = watermarkRepo;
+        this.paymentCache = paymentCache;
+        this.jobLeaseService = jobLeaseService;
+        this.tamanioPagina = tamanioPagina;
+        this.solapamiento = Duration.ofMinutes(solapamientoMinutos);
+        this.ventanaInicial = Duration.ofHours(ventanaInicialHoras);
+        this.maxIntentos = Math.max(1, maxIntentos);
+    }
+
+    /** Cada 10 minutos, desfasado de los crons del reaper y los recordatorios. */
+    @Scheduled(cron = "0 7/10 * * * *")
+    public void reconciliarProgramado() {
+        jobLeaseService.ejecutarCron(JobLeaseService.JOB_RECONCILIACION, this::reconciliar);
+    }
+
+    /**
+     * Corre la reconciliación ahora (endpoint de admin).
+     *
+     * @throws IllegalStateException si otra corrida tiene el lease
+     */
+    public Resultado reconciliarAhora() {
+        if (!jobLeaseService.ejecutar(JobLeaseService.JOB_RECONCILIACION, this::reconciliar)) {
+            throw new IllegalStateException("La reconciliación ya está corriendo en otra instancia");
+        }
+        return ultimo;
+    }
+
+    public Resultado getUltimo() {
+        return ultimo;
+    }
+
+    /** Pagos descartados tras fallar maxIntentos corridas (para revisarlos a mano). */
+    public List<String> getDescartados() {
+        return new ArrayList<>(descartados.keySet());
+    }
+
+    /* ===================== Internos ===================== */
+
+    private void reconciliar() {
+        long inicio = System.nanoTime();
+        Instant hasta = Instant.now();
+        Instant desde = watermarkRepo.findById(WATERMARK)
+                .map(w -> w.getValor().minus(solapamiento))
+                .orElse(hasta.minus(ventanaInicial));
+        descartados.values().removeIf(t -> t.isBefore(hasta.minus(RETENCION_DESCARTADOS)));
+
+        int revisados = 0, aprobados = 0, yaRegistrados = 0, reprocesados = 0, ajenos = 0, errores = 0;
+        int descartadosCorrida = 0;
+        int offset = 0;
+        while (true) {
+            PaymentGateway.PaginaPagos pagina;
+            try {
+                pagina = paymentGateway.buscarPagos(desde, hasta, offset, tamanioPagina);
+            } catch (Exception e) {
+                errores++;
+                log.error("[Reconciliacion] Error buscando pagos (offset {}): {}", offset, e.getMessage());
+                break;
+            }
+            if (pagina.pagos().isEmpty()) break;
+            revisados += pagina.pagos().size();
+            offset += pagina.pagos().size();
+
+            // Aprobados de esta página que pertenecen a un checkout nuestro (external_reference o metadata)
+            Set<String> referencias = new HashSet<>();
+            for (Payment p : pagina.pagos()) {
+                if (p.getExternalReference() != null && !p.getExternalReference().isBlank()) {
+                    referencias.add(p.getExternalReference());
+                }
+            }
+            Set<String> checkouts = referencias.isEmpty() ? Set.of()
+                    : new HashSet<>(checkoutRepo.findExternalReferencesIn(referencias));
+
+            Map<String, Payment> candidatos = new LinkedHashMap<>();
+            for (Payment p : pagina.pagos()) {
+                if (p.getId() == null || !"approved".equalsIgnoreCase(p.getStatus())) continue;
+                aprobados++;
+                boolean propio = checkouts.contains(p.getExternalReference())
+                        || PagoService.esMetadataLegacy(p.getMetadata());
+                if (propio) {
+                    candidatos.put(String.valueOf(p.getId()), p);
+                } else {
+                    ajenos++;
+                }
+            }
+
+            if (!candidatos.isEmpty()) {
+                Set<String> registrados = new HashSet<>(pagoRepo.findMpPaymentIdsIn(candidatos.keySet()));
+                registrados.addAll(checkoutRepo.findMpPaymentIdsIn(candidatos.keySet()));
+                Set<String> faltantes = new LinkedHashSet<>(candidatos.keySet());
+                faltantes.removeAll(registrados);
+                yaRegistrados += candidatos.size() - faltantes.size();
+
+                for (String paymentId : faltantes) {
+                    if (descartados.containsKey(paymentId)) {
+                        descartadosCorrida++;
+                        continue;
+                    }
+                    // El pago ya está en mano: el webhook no lo vuelve a pedir a MP
+                    paymentCache.precargar(candidatos.get(paymentId));
+                    try {
+                        log.warn("[Reconciliacion] ⚠️ Payment {} aprobado sin registrar (¿webhook perdido?). Procesando.",
+                                paymentId);
+                        pagoService.procesarWebhook(Map.of("type", "payment", "data.id", paymentId));
+                        intentosFallidos.remove(paymentId);
+                        reprocesados++;
+                    } catch (Exception e) {
+                        int intentos = intentosFallidos.merge(paymentId, 1, Integer::sum);
+                        log.error("[Reconciliacion] Error procesando payment {} (intento {}/{}): {}",
+                                paymentId, intentos, maxIntentos, e.getMessage(), e);
+                        if (intentos >= maxIntentos) {
+                            intentosFallidos.remove(paymentId);
+                            descartados.put(paymentId, Instant.now());
+                            descartadosCorrida++;
+                            log.error("[Reconciliacion] ❌ Payment {} descartado tras {} corridas con error; revisar a mano",
+                                    paymentId, intentos);
+                        } else {
+                            errores++;
+                        }
+                    }
+                }
+            }
+
+            if (offset >= pagina.total()) break;
+        }
+
+        if (errores == 0) {
+            watermarkRepo.save(new JobWatermark(WATERMARK, hasta, Instant.now()));
+        }
+
+        long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+        ultimo = new Resultado(desde, hasta, revisados, aprobados, yaRegistrados, reprocesados, ajenos, errores,
+                descartadosCorrida, duracionMs, Instant.now());
+
+        if (reprocesados > 0 || errores > 0 || descartadosCorrida > 0) {
+            log.warn("[Reconciliacion] {} → {}: {} pagos revisados, {} reprocesados, {} errores, {} descartados ({} ms)",
+                    desde, hasta, revisados, reprocesados, errores, descartadosCorrida, duracionMs);
+        } else {
+            log.info("[Reconciliacion] {} → {}: {} pagos revisados, {} aprobados ya registrados ({} ms)",
+                    desde, hasta, revisados, yaRegistrados, duracionMs);
+        }
+    }
+}
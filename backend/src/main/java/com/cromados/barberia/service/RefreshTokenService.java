@@ -0,0 +1,191 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.model.RefreshRevocado;
+import com.cromados.barberia.repository.RefreshRevocadoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rotación y revocación de refresh tokens.
+ *
+ * Cada refresh se usa una sola vez: al rotarlo su jti queda revocado hasta su exp. Todos
+ * los refresh de una misma sesión comparten una familia (claim "fam"); si alguien presenta
+ * uno ya rotado fuera de la ventana de gracia (posible robo) o se hace logout, se revoca la
+ * familia entera y ninguno de sus tokens sirve más.
+ *
+ * La consulta es un get() sobre un mapa en memoria; la tabla refresh_revocado es la fuente
+ * común entre instancias. Cada instancia trae las filas nuevas cada
+ * security.jwt.refresh.syncMs y la rotación se decide con un INSERT ... ON CONFLICT DO
+ * NOTHING, así dos instancias no pueden aceptar el mismo refresh; antes de aceptarlo se
+ * mira además la fila de su familia, así una sesión revocada en otra instancia no rota
+ * durante el intervalo de sincronización. Las filas vencidas se borran cada hora.
+ */
+@Slf4j
+@Service
+public class RefreshTokenService {
+
+    public enum Resultado {
+        /** Primer uso: se rotó y corresponde emitir un refresh nuevo. */
+        OK,
+        /** Ya rotado hace menos de la gracia (otra pestaña refrescó a la vez): no se emite nada. */
+        ROTADO,
+        /** Familia revocada o reuso fuera de la gracia. */
+        REVOCADO
+    }
+
+    private record Revocado(long expiraMs, long revocadoMs) {}
+
+    private static final String FAMILIA = "fam:";
+    /** Solapamiento al sincronizar: un commit puede llevar un now() anterior a la última lectura. */
+    private static final long MARGEN_SYNC_MS = 30_000;
+
+    private final RefreshRevocadoRepository repo;
+    private final JobLeaseService jobLeaseService;
+    private final long graciaMs;
+    private final long vidaRefreshMs;
+
+    private final Map<String, Revocado> revocados = new ConcurrentHashMap<>();
+    private volatile Instant ultimaSync = Instant.EPOCH;
+
+    private final AtomicLong rotaciones = new AtomicLong();
+    private final AtomicLong concurrentes = new AtomicLong();
+    private final AtomicLong rechazados = new AtomicLong();
+    private final AtomicLong reusos = new AtomicLong();
+
+    public RefreshTokenService(
+            RefreshRevocadoRepository repo,
+            JobLeaseService jobLeaseService,
+            @Value("${security.jwt.refresh.graciaSegundos:10}") long graciaSegundos,
+            @Value("${security.jwt.refresh.expDays}") int refreshExpDays
+    ) {
+        this.repo = repo;
+        this.jobLeaseService = jobLeaseService;
+        this.graciaMs = graciaSegundos * 1000;
+        this.vidaRefreshMs = refreshExpDays * 86_400_000L;
+    }
+
+    /**
+     * Consume el refresh {@code jti} de la familia {@code familia} (null en tokens emitidos
+     * antes de las familias).
+     */
+    public Resultado consumir(String jti, String familia, Instant expira) {
+        if (jti == null || (familia != null && revocados.containsKey(FAMILIA + familia))) {
+            rechazados.incrementAndGet();
+            return Resultado.REVOCADO;
+        }
+
+        long ahora = System.currentTimeMillis();
+        Revocado previo = revocados.get(jti);
+        if (previo == null) {
+            if (repo.revocar(jti, expira) == 1) {
+                revocados.put(jti, new Revocado(expira.toEpochMilli(), ahora));
+                if (familiaRevocadaEnOtraInstancia(familia)) {
+                    rechazados.incrementAndGet();
+                    return Resultado.REVOCADO;
+                }
+                rotaciones.incrementAndGet();
+                return Resultado.OK;
+            }
+            // Lo rotó otra instancia y todavía no lo sincronizamos
+            previo = repo.findById(jti)
+                    .map(RefreshTokenService::revocado)
+                    .orElse(new Revocado(expira.toEpochMilli(), ahora));
+            revocados.putIfAbsent(jti, previo);
+        }
+
+        if (ahora - previo.revocadoMs() <= graciaMs) {
+            concurrentes.incrementAndGet();
+            return Resultado.ROTADO;
+        }
+
+        reusos.incrementAndGet();
+        log.warn("[RefreshToken] ⚠️ Reuso del refresh {} (familia {}); se revoca la sesión", jti, familia);
+        revocarFamilia(familia);
+        return Resultado.REVOCADO;
+    }
+
+    /** Logout: revoca el refresh presentado y toda su familia. */
+    public void revocarSesion(String jti, String familia, Instant expira) {
+        if (jti != null && !revocados.containsKey(jti)) {
+            repo.revocar(jti, expira);
+            revocados.putIfAbsent(jti, new Revocado(expira.toEpochMilli(), System.currentTimeMillis()));
+        }
+        revocarFamilia(familia);
+    }
+
+    /** Trae las revocaciones de otras instancias (la primera corrida, al arrancar, carga todas). */
+    @Scheduled(fixedDelayString = "${security.jwt.refresh.syncMs:5000}")
+    public void sincronizar() {
+        try {
+            Instant desde = ultimaSync.minusMillis(MARGEN_SYNC_MS);
+            Instant max = ultimaSync;
+            int nuevas = 0;
+            for (RefreshRevocado r : repo.findRevocadasDesde(desde, Instant.now())) {
+                if (revocados.putIfAbsent(r.getClave(), revocado(r)) == null) nuevas++;
+                if (r.getRevocadoEn().isAfter(max)) max = r.getRevocadoEn();
+            }
+            ultimaSync = max;
+            if (nuevas > 0) log.debug("[RefreshToken] {} revocaciones sincronizadas", nuevas);
+        } catch (Exception e) {
+            log.warn("[RefreshToken] ⚠️ No se pudo sincronizar revocaciones: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "0 17 * * * *")
+    public void podar() {
+        long ahora = System.currentTimeMillis();
+        revocados.values().removeIf(r -> r.expiraMs() < ahora);
+        jobLeaseService.ejecutarCron(JobLeaseService.JOB_REFRESH_REVOCADOS, () -> {
+            int borradas = repo.deleteVencidas();
+            if (borradas > 0) log.info("[RefreshToken] 🧹 {} revocaciones vencidas borradas", borradas);
+        });
+    }
+
+    public Map<String, Object> estadisticas() {
+        return Map.of(
+                "revocados", revocados.size(),
+                "rotaciones", rotaciones.get(),
+                "concurrentes", concurrentes.get(),
+                "rechazados", rechazados.get(),
+                "reusos", reusos.get()
+        );
+    }
+
+    /* ===================== Internos ===================== */
+
+    /**
+     * Antes de emitir un refresh nuevo se mira la fila de la familia por clave primaria: un
+     * logout o un reuso en otra instancia puede no haber llegado todavía por sincronizar().
+     */
+    private boolean familiaRevocadaEnOtraInstancia(String familia) {
+        if (familia == null) return false;
+        return repo.findById(FAMILIA + familia)
+                .map(r -> {
+                    revocados.putIfAbsent(r.getClave(), revocado(r));
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    /** La familia puede tener tokens emitidos hasta ahora: vale lo que dura un refresh. */
+    private void revocarFamilia(String familia) {
+        if (familia == null) return;
+        String clave = FAMILIA + familia;
+        if (revocados.containsKey(clave)) return;
+        Instant expira = Instant.now().plus(vidaRefreshMs, ChronoUnit.MILLIS);
+        repo.revocar(clave, expira);
+        revocados.putIfAbsent(clave, new Revocado(expira.toEpochMilli(), System.currentTimeMillis()));
+    }
+
+    private static Revocado revocado(RefreshRevocado r) {
+        return new Revocado(r.getExpiraAt().toEpochMilli(), r.getRevocadoEn().toEpochMilli());
+    }
+}
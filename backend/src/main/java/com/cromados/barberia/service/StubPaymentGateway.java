@@ -0,0 +1,179 @@
+package com.cromados.barberia.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mercadopago.client.preference.PreferenceItemRequest;
+import com.mercadopago.client.preference.PreferenceRequest;
+import com.mercadopago.exceptions.MPApiException;
+import com.mercadopago.exceptions.MPException;
+import com.mercadopago.resources.payment.Payment;
+import com.mercadopago.serialization.Serializer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PaymentGateway en memoria para desarrollo y pruebas de carga sin la API de MercadoPago.
+ *
+ * Las preferencias quedan en un mapa y su init_point apunta a
+ * GET /dev/mercadopago/checkout/{preferenceId}, que simula el pago y dispara el webhook
+ * (MercadoPagoStubController). Los pagos se arman con el deserializador del SDK, así que
+ * PagoService los procesa igual que los reales (external_reference y metadata con claves
+ * snake_case incluidas).
+ *
+ * Activar con mp.gateway=stub y el perfil dev o local. mp.stub.latencyMs agrega una demora
+ * fija por llamada. Con la pasarela simulada no hay firma de webhooks y cualquiera puede
+ * "pagar" una preferencia, así que fuera de esos perfiles no hay PaymentGateway y la app no
+ * arranca; tampoco arranca si además hay un access token real configurado.
+ */
+@Slf4j
+@Service
+@Profile({"dev", "local"})
+@ConditionalOnProperty(name = "mp.gateway", havingValue = "stub")
+public class StubPaymentGateway implements PaymentGateway {
+
+    public record PreferenciaSimulada(String id, String externalReference, Map<String, Object> metadata, BigDecimal monto,
+                                      String moneda, String successUrl, String pendingUrl, String failureUrl) {}
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String baseUrl;
+    private final long latenciaMs;
+
+    private final Map<String, PreferenciaSimulada> preferencias = new ConcurrentHashMap<>();
+    private final Map<Long, String> pagos = new ConcurrentHashMap<>(); // id → JSON (se deserializa en cada get)
+    private final AtomicLong secuenciaPagos = new AtomicLong(9_000_000_000L);
+
+    public StubPaymentGateway(
+            @Value("${mp.stub.baseUrl:http://localhost:8080}") String baseUrl,
+            @Value("${mp.stub.latencyMs:0}") long latenciaMs,
+            @Value("${mp.access.token:}") String accessToken
+    ) {
+        if (accessToken != null && !accessToken.isBlank()) {
+            throw new IllegalStateException(
+                "CRITICAL: mp.gateway=stub with MP_ACCESS_TOKEN configured. " +
+                "The simulated gateway skips webhook signatures and lets anyone mark a preference as paid. " +
+                "Unset MP_GATEWAY (or MP_ACCESS_TOKEN) before starting the application."
+            );
+        }
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.latenciaMs = latenciaMs;
+        log.warn("[MP][Stub] ⚠️ Pasarela SIMULADA activa: no se cobra nada (init_point → {}/dev/mercadopago)", this.baseUrl);
+    }
+
+    @Override
+    public PreferenciaCreada crearPreferencia(PreferenceRequest request) {
+        simularLatencia();
+        String id = "stub-" + UUID.randomUUID();
+
+        BigDecimal monto = BigDecimal.ZERO;
+        String moneda = "ARS";
+        if (request.getItems() != null) {
+            for (PreferenceItemRequest item : request.getItems()) {
+                int cantidad = item.getQuantity() != null ? item.getQuantity() : 1;
+                if (item.getUnitPrice() != null) monto = monto.add(item.getUnitPrice().multiply(BigDecimal.valueOf(cantidad)));
+                if (item.getCurrencyId() != null) moneda = item.getCurrencyId();
+            }
+        }
+
+        var backUrls = request.getBackUrls();
+        preferencias.put(id, new PreferenciaSimulada(id, request.getExternalReference(),
+                request.getMetadata() != null ? new LinkedHashMap<>(request.getMetadata()) : Map.of(),
+                monto, moneda,
+                backUrls != null ? backUrls.getSuccess() : null,
+                backUrls != null ? backUrls.getPending() : null,
+                backUrls != null ? backUrls.getFailure() : null));
+
+        return new PreferenciaCreada(id, baseUrl + "/dev/mercadopago/checkout/" + id);
+    }
+
+    @Override
+    public Payment obtenerPago(long paymentId) throws MPException, MPApiException {
+        simularLatencia();
+        String json = pagos.get(paymentId);
+        return json != null ? Serializer.deserializeFromJson(Payment.class, json) : null;
+    }
+
+    @Override
+    public PaginaPagos buscarPagos(Instant desde, Instant hasta, int offset, int limite) throws MPException, MPApiException {
+        simularLatencia();
+        List<Payment> encontrados = new ArrayList<>();
+        for (String json : new TreeMap<>(pagos).values()) {
+            Payment p = Serializer.deserializeFromJson(Payment.class, json);
+            Instant actualizado = p.getDateLastUpdated().toInstant();
+            if (!actualizado.isBefore(desde) && !actualizado.isAfter(hasta)) encontrados.add(p);
+        }
+        int hastaIdx = Math.min(encontrados.size(), offset + limite);
+        List<Payment> pagina = offset >= hastaIdx ? List.of() : encontrados.subList(offset, hastaIdx);
+        return new PaginaPagos(pagina, encontrados.size());
+    }
+
+    @Override
+    public boolean simulado() {
+        return true;
+    }
+
+    public Optional<PreferenciaSimulada> preferencia(String preferenceId) {
+        return Optional.ofNullable(preferencias.get(preferenceId));
+    }
+
+    /**
+     * Simula que el cliente pagó la preferencia con el estado dado (approved, pending, rejected).
+     *
+     * @return id del pago simulado (el que llega en data.id del webhook)
+     */
+    public long pagar(String preferenceId, String status) {
+        PreferenciaSimulada pref = preferencias.get(preferenceId);
+        if (pref == null) {
+            throw new IllegalArgumentException("Preferencia simulada inexistente: " + preferenceId);
+        }
+
+        long id = secuenciaPagos.incrementAndGet();
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        pref.metadata().forEach((k, v) -> metadata.put(snakeCase(k), v)); // MP devuelve la metadata en snake_case
+
+        Map<String, Object> pago = new LinkedHashMap<>();
+        pago.put("id", id);
+        pago.put("status", status);
+        pago.put("status_detail", "approved".equals(status) ? "accredited" : status);
+        pago.put("transaction_amount", pref.monto());
+        pago.put("currency_id", pref.moneda());
+        pago.put("date_created", OffsetDateTime.now().toString());
+        pago.put("date_last_updated", OffsetDateTime.now().toString());
+        pago.put("external_reference", pref.externalReference());
+        pago.put("metadata", metadata);
+        try {
+            pagos.put(id, mapper.writeValueAsString(pago));
+        } catch (Exception e) {
+            throw new IllegalStateException("No se pudo serializar el pago simulado", e);
+        }
+        log.info("[MP][Stub] Pago simulado {} ({}) para preferencia {}", id, status, preferenceId);
+        return id;
+    }
+
+    private void simularLatencia() {
+        if (latenciaMs <= 0) return;
+        try {
+            Thread.sleep(latenciaMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String snakeCase(String clave) {
+        return clave.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase();
+    }
+}
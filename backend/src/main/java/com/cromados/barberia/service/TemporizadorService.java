@@ -0,0 +1,229 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.model.TurnoTemporizadorListener;
+import com.cromados.barberia.repository.TurnoRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Temporizadores de turnos: expiración de reservas PENDIENTE_PAGO y recordatorios de WhatsApp.
+ *
+ * La fuente durable son las columnas indexadas de turno (expira_at y recordatorio_due_at);
+ * este servicio sólo mantiene un timing wheel en memoria para disparar cada tarea en su
+ * momento exacto en lugar de esperar a la próxima pasada de un cron. Al arrancar se
+ * reconstruye desde la DB y {@link TurnoTemporizadorListener} lo mantiene al día en cada
+ * alta/edición/baja. Si la app se cae, nada se pierde: al volver se reprograma todo y los
+ * vencidos se disparan enseguida; los crons de ZombieBookingReaperScheduler y
+ * WhatsAppRecordatorioScheduler quedan como red de seguridad.
+ */
+@Slf4j
+@Service
+public class TemporizadorService {
+
+    private static final ZoneId ZONA_ARGENTINA = ZoneId.of("America/Argentina/Buenos_Aires");
+
+    private static final String PREFIJO_EXPIRACION = "EXP:";
+    private static final String PREFIJO_RECORDATORIO = "REC:";
+    private static final String CLAVE_BARRIDO_REINTENTO = PREFIJO_RECORDATORIO + "barrido:reintento";
+
+    /** Si el lease del job lo tiene otra corrida, el temporizador se reintenta tras esta espera. */
+    private static final long SEGUNDOS_REINTENTO = 30;
+
+    /** Recordatorios vencidos hace más de esto no se envían (mismo margen que el cron). */
+    private static final long HORAS_GRACIA_RECORDATORIO = 1;
+
+    private final TurnoRepository turnoRepository;
+    private final ZombieBookingReaperScheduler reaper;
+    private final WhatsAppRecordatorioScheduler recordatorios;
+    private final JobLeaseService jobLeaseService;
+
+    private final Clock tiempo;
+    private final ThreadPoolExecutor workers;
+    private final TimingWheel wheel;
+
+    @Autowired
+    public TemporizadorService(
+            TurnoRepository turnoRepository,
+            ZombieBookingReaperScheduler reaper,
+            WhatsAppRecordatorioScheduler recordatorios,
+            JobLeaseService jobLeaseService,
+            @Value("${timers.tickMs:1000}") long tickMs,
+            @Value("${timers.workers:2}") int workerThreads
+    ) {
+        this(turnoRepository, reaper, recordatorios, jobLeaseService, Clock.systemUTC(),
+                crearWorkers(workerThreads), tickMs);
+    }
+
+    private TemporizadorService(TurnoRepository turnoRepository, ZombieBookingReaperScheduler reaper,
+                                WhatsAppRecordatorioScheduler recordatorios, JobLeaseService jobLeaseService,
+                                Clock tiempo, ThreadPoolExecutor workers, long tickMs) {
+        // 64 slots x 4 niveles con tick de 1 s: ~194 días de horizonte
+        this(turnoRepository, reaper, recordatorios, jobLeaseService, tiempo, workers,
+                new TimingWheel(tickMs, 64, 4, workers, "timer-wheel", tiempo));
+    }
+
+    /** Para tests: reloj y wheel del llamador ({@code workers} null si el wheel no usa pool propio). */
+    TemporizadorService(TurnoRepository turnoRepository, ZombieBookingReaperScheduler reaper,
+                        WhatsAppRecordatorioScheduler recordatorios, JobLeaseService jobLeaseService,
+                        Clock tiempo, ThreadPoolExecutor workers, TimingWheel wheel) {
+        this.turnoRepository = turnoRepository;
+        this.reaper = reaper;
+        this.recordatorios = recordatorios;
+        this.jobLeaseService = jobLeaseService;
+        this.tiempo = tiempo;
+        this.workers = workers;
+        this.wheel = wheel;
+    }
+
+    private static ThreadPoolExecutor crearWorkers(int workerThreads) {
+        AtomicInteger n = new AtomicInteger();
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(
+                workerThreads, workerThreads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1000),
+                r -> {
+                    Thread t = new Thread(r, "timer-worker-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        workers.allowCoreThreadTimeOut(true);
+        return workers;
+    }
+
+    /** Reconstruye el wheel desde la DB (sólo proyecciones id + vencimiento). */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        int expiraciones = 0;
+        for (Object[] fila : turnoRepository.findExpiracionesProgramables()) {
+            programarExpiracion((Long) fila[0], (Instant) fila[1]);
+            expiraciones++;
+        }
+
+        LocalDateTime desde = LocalDateTime.ofInstant(tiempo.instant(), ZONA_ARGENTINA).minusHours(HORAS_GRACIA_RECORDATORIO);
+        int recordatoriosProgramados = 0;
+        for (Object[] fila : turnoRepository.findRecordatoriosProgramables(desde)) {
+            programarRecordatorio((Long) fila[0], (LocalDateTime) fila[1]);
+            recordatoriosProgramados++;
+        }
+
+        log.info("[Temporizador] Reconstruido: {} expiraciones y {} recordatorios programados",
+                expiraciones, recordatoriosProgramados);
+    }
+
+    /**
+     * Alinea los temporizadores de un turno con su estado recién commiteado.
+     *
+     * @param expiraAt          vencimiento de la reserva (null si ya no está PENDIENTE_PAGO)
+     * @param recordatorioDueAt vencimiento del recordatorio (null si no corresponde enviarlo)
+     */
+    public void sincronizar(Long turnoId, String estado, Instant expiraAt, LocalDateTime recordatorioDueAt) {
+        if (turnoId == null) return;
+
+        if ("PENDIENTE_PAGO".equals(estado) && expiraAt != null) {
+            programarExpiracion(turnoId, expiraAt);
+        } else {
+            wheel.cancelar(PREFIJO_EXPIRACION + turnoId);
+        }
+
+        if (recordatorioDueAt != null) {
+            programarRecordatorio(turnoId, recordatorioDueAt);
+        } else {
+            wheel.cancelar(PREFIJO_RECORDATORIO + turnoId);
+        }
+    }
+
+    /**
+     * Aplica el cambio publicado por {@link TurnoTemporizadorListener} tras el commit; sin
+     * transacción (fallbackExecution) se aplica en el momento.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarTurno(TurnoTemporizadorListener.Cambio cambio) {
+        if (cambio.borrado()) {
+            cancelar(cambio.turnoId());
+        } else {
+            sincronizar(cambio.turnoId(), cambio.estado(), cambio.expiraAt(), cambio.recordatorioDueAt());
+        }
+    }
+
+    public void cancelar(Long turnoId) {
+        wheel.cancelar(PREFIJO_EXPIRACION + turnoId);
+        wheel.cancelar(PREFIJO_RECORDATORIO + turnoId);
+    }
+
+    public int pendientes() {
+        return wheel.pendientes();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.detener();
+        if (workers != null) workers.shutdown();
+    }
+
+    /* ===================== Programación ===================== */
+
+    private void programarExpiracion(Long turnoId, Instant expiraAt) {
+        wheel.programar(PREFIJO_EXPIRACION + turnoId, expiraAt, () -> {
+            try {
+                boolean corrio = jobLeaseService.ejecutar(JobLeaseService.JOB_REAPER, () -> reaper.expirarTurno(turnoId));
+                if (!corrio) reintentar(PREFIJO_EXPIRACION + turnoId, () -> programarExpiracion(turnoId, expiraAt));
+            } catch (Exception e) {
+                log.error("[Temporizador] Error expirando turno #{}: {}", turnoId, e.getMessage(), e);
+            }
+        });
+    }
+
+    private void programarRecordatorio(Long turnoId, LocalDateTime dueAt) {
+        Instant vencimiento = dueAt.atZone(ZONA_ARGENTINA).toInstant();
+        if (vencimiento.isBefore(tiempo.instant().minusSeconds(HORAS_GRACIA_RECORDATORIO * 3600))) {
+            // Demasiado viejo (ej. turno reservado con menos de 6 h de anticipación): no se recuerda
+            wheel.cancelar(PREFIJO_RECORDATORIO + turnoId);
+            return;
+        }
+        wheel.programar(PREFIJO_RECORDATORIO + turnoId, vencimiento, this::barrerRecordatorios);
+    }
+
+    /**
+     * Al vencer un recordatorio se barren todos los vencidos juntos, con un solo lease
+     * (WhatsAppRecordatorioScheduler.barrerProgramados). Si el lease lo tiene otra corrida se
+     * reintenta un único barrido: la clave de reintento es una sola para toda la ráfaga.
+     */
+    private void barrerRecordatorios() {
+        try {
+            if (!recordatorios.barrerProgramados()) {
+                wheel.programar(CLAVE_BARRIDO_REINTENTO, tiempo.instant().plusSeconds(SEGUNDOS_REINTENTO),
+                        this::barrerRecordatorios);
+            }
+        } catch (Exception e) {
+            log.error("[Temporizador] Error barriendo recordatorios: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Otra instancia (o el cron local) tiene el lease del job: se reintenta en unos segundos,
+     * salvo que mientras tanto el turno haya reprogramado esa clave.
+     */
+    private void reintentar(String clave, Runnable reprogramar) {
+        if (wheel.estaProgramado(clave)) return;
+        wheel.programar(clave + ":reintento", tiempo.instant().plusSeconds(SEGUNDOS_REINTENTO), () -> {
+            if (!wheel.estaProgramado(clave)) reprogramar.run();
+        });
+    }
+}
@@ -0,0 +1,218 @@
+package com.cromados.barberia.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Timing wheel jerárquico en memoria (estilo Kafka / kernel de Linux).
+ *
+ * Cada nivel tiene {@code slots} buckets; un bucket del nivel L cubre tick * slots^L.
+ * Agregar o cancelar un temporizador es O(1); avanzar un tick procesa sólo el bucket
+ * actual, y los niveles superiores se "bajan" (cascade) cuando el nivel inferior da la
+ * vuelta. Con tick de 1 s, 64 slots y 4 niveles cubre ~194 días; lo que excede se
+ * reubica en cada vuelta del nivel superior.
+ *
+ * Un único hilo daemon avanza el reloj; las tareas vencidas corren en {@code ejecutor}.
+ * Las claves son únicas: programar una clave existente reemplaza el temporizador anterior.
+ * Los tests usan un {@link Clock} propio, sin hilo, y avanzan con {@link #ponerAlDia()}.
+ */
+@Slf4j
+public class TimingWheel {
+
+    private static final class Entrada {
+        final String clave;
+        final long vencimientoTick;
+        final Runnable tarea;
+
+        Entrada(String clave, long vencimientoTick, Runnable tarea) {
+            this.clave = clave;
+            this.vencimientoTick = vencimientoTick;
+            this.tarea = tarea;
+        }
+    }
+
+    private final long tickMs;
+    private final int bits;
+    private final int mascara;
+    private final int niveles;
+    private final List<List<ArrayDeque<Entrada>>> buckets;
+    private final Map<String, Entrada> porClave = new HashMap<>();
+    private final Executor ejecutor;
+    private final Clock tiempo;
+    private final Thread reloj;
+
+    private long tickActual;
+    private volatile boolean activo = true;
+
+    /**
+     * @param tickMs   resolución en milisegundos
+     * @param slots    buckets por nivel (potencia de 2)
+     * @param niveles  cantidad de niveles
+     * @param ejecutor dónde corren las tareas vencidas
+     * @param nombre   nombre del hilo del reloj
+     */
+    public TimingWheel(long tickMs, int slots, int niveles, Executor ejecutor, String nombre) {
+        this(tickMs, slots, niveles, ejecutor, nombre, Clock.systemUTC());
+    }
+
+    /**
+     * @param nombre nombre del hilo del reloj; null para no arrancarlo (el llamador avanza
+     *               el wheel con {@link #ponerAlDia()})
+     * @param tiempo fuente de la hora actual
+     */
+    TimingWheel(long tickMs, int slots, int niveles, Executor ejecutor, String nombre, Clock tiempo) {
+        if (Integer.bitCount(slots) != 1) {
+            throw new IllegalArgumentException("slots debe ser potencia de 2");
+        }
+        this.tickMs = tickMs;
+        this.bits = Integer.numberOfTrailingZeros(slots);
+        this.mascara = slots - 1;
+        this.niveles = niveles;
+        this.ejecutor = ejecutor;
+        this.buckets = new ArrayList<>(niveles);
+        for (int l = 0; l < niveles; l++) {
+            List<ArrayDeque<Entrada>> nivel = new ArrayList<>(slots);
+            for (int i = 0; i < slots; i++) {
+                nivel.add(new ArrayDeque<>());
+            }
+            buckets.add(nivel);
+        }
+        this.tiempo = tiempo;
+        this.tickActual = tiempo.millis() / tickMs;
+        if (nombre == null) {
+            this.reloj = null;
+            return;
+        }
+        this.reloj = new Thread(this::correr, nombre);
+        this.reloj.setDaemon(true);
+        this.reloj.start();
+    }
+
+    /** Programa (o reprograma) la tarea {@code clave} para {@code vencimiento}. Si ya venció, corre enseguida. */
+    public void programar(String clave, Instant vencimiento, Runnable tarea) {
+        // Redondeo hacia arriba: la tarea nunca corre antes de su vencimiento
+        long tick = Math.floorDiv(vencimiento.toEpochMilli() + tickMs - 1, tickMs);
+        List<Entrada> vencidas = new ArrayList<>(1);
+        synchronized (this) {
+            Entrada nueva = new Entrada(clave, tick, tarea);
+            porClave.put(clave, nueva);
+            ubicar(nueva, vencidas);
+        }
+        despachar(vencidas);
+    }
+
+    /** Cancela la tarea {@code clave} si estaba programada. */
+    public synchronized boolean cancelar(String clave) {
+        return porClave.remove(clave) != null;
+    }
+
+    public synchronized boolean estaProgramado(String clave) {
+        return porClave.containsKey(clave);
+    }
+
+    public synchronized int pendientes() {
+        return porClave.size();
+    }
+
+    public void detener() {
+        activo = false;
+        if (reloj != null) reloj.interrupt();
+    }
+
+    /* ===================== Internos (con lock tomado) ===================== */
+
+    private void ubicar(Entrada e, List<Entrada> vencidas) {
+        long delta = e.vencimientoTick - tickActual;
+        if (delta <= 0) {
+            vencidas.add(e);
+            return;
+        }
+        for (int l = 0; l < niveles; l++) {
+            if (delta < (1L << (bits * (l + 1)))) {
+                int idx = (int) ((e.vencimientoTick >>> (bits * l)) & mascara);
+                buckets.get(l).get(idx).add(e);
+                return;
+            }
+        }
+        // Más allá del último nivel: se estaciona en el bucket que baja último y se reubica al bajar
+        int top = niveles - 1;
+        int idx = (int) (((tickActual >>> (bits * top)) - 1) & mascara);
+        buckets.get(top).get(idx).add(e);
+    }
+
+    /** Avanza un tick: baja los niveles superiores que correspondan y vence el bucket actual. */
+    private void avanzar(List<Entrada> vencidas) {
+        tickActual++;
+        for (int l = niveles - 1; l >= 1; l--) {
+            if ((tickActual & ((1L << (bits * l)) - 1)) == 0) {
+                int idx = (int) ((tickActual >>> (bits * l)) & mascara);
+                ArrayDeque<Entrada> bucket = buckets.get(l).get(idx);
+                Entrada e;
+                while ((e = bucket.poll()) != null) {
+                    if (porClave.get(e.clave) == e) ubicar(e, vencidas);
+                }
+            }
+        }
+        ArrayDeque<Entrada> actual = buckets.get(0).get((int) (tickActual & mascara));
+        Entrada e;
+        while ((e = actual.poll()) != null) {
+            if (porClave.get(e.clave) == e) vencidas.add(e);
+        }
+    }
+
+    /* ===================== Reloj ===================== */
+
+    private void correr() {
+        while (activo) {
+            try {
+                long proximo;
+                synchronized (this) {
+                    proximo = (tickActual + 1) * tickMs;
+                }
+                long espera = proximo - tiempo.millis();
+                if (espera > 0) Thread.sleep(espera);
+                ponerAlDia();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                log.error("[TimingWheel] Error avanzando el reloj: {}", ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Avanza hasta la hora actual y despacha lo vencido. Si el hilo se atrasó (GC,
+     * suspensión) se ponen al día todos los ticks pendientes.
+     */
+    void ponerAlDia() {
+        List<Entrada> vencidas = new ArrayList<>();
+        synchronized (this) {
+            long objetivo = tiempo.millis() / tickMs;
+            while (tickActual < objetivo) avanzar(vencidas);
+        }
+        despachar(vencidas);
+    }
+
+    private void despachar(List<Entrada> vencidas) {
+        for (Entrada e : vencidas) {
+            synchronized (this) {
+                // Puede haberse cancelado o reprogramado entre que venció y ahora
+                if (!porClave.remove(e.clave, e)) continue;
+            }
+            try {
+                ejecutor.execute(e.tarea);
+            } catch (Exception ex) {
+                log.error("[TimingWheel] No se pudo ejecutar '{}': {}", e.clave, ex.getMessage(), ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.cromados.barberia.service;
+
+/**
+ * Token bucket simple y thread-safe.
+ *
+ * Arranca lleno con {@code capacidad} tokens y repone {@code tokensPorSegundo}.
+ * Se usa para limitar la tasa de envíos a proveedores externos (ej. Twilio por cuenta)
+ * y los intentos de login por IP y usuario (LoginThrottleService).
+ */
+public class TokenBucket {
+
+    private final double capacidad;
+    private final double tokensPorNano;
+
+    private double tokens;
+    private long ultimaRecarga;
+
+    public TokenBucket(double capacidad, double tokensPorSegundo) {
+        if (capacidad <= 0 || tokensPorSegundo <= 0) {
+            throw new IllegalArgumentException("capacidad y tokensPorSegundo deben ser > 0");
+        }
+        this.capacidad = capacidad;
+        this.tokensPorNano = tokensPorSegundo / 1_000_000_000d;
+        this.tokens = capacidad;
+        this.ultimaRecarga = System.nanoTime();
+    }
+
+    /** Consume un token si hay disponible; nunca bloquea. */
+    public synchronized boolean tryAcquire() {
+        recargar();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /** Consume un token, esperando lo necesario hasta que haya uno disponible. */
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long esperaNanos;
+            synchronized (this) {
+                recargar();
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+                esperaNanos = (long) Math.ceil((1 - tokens) / tokensPorNano);
+            }
+            Thread.sleep(Math.max(1, esperaNanos / 1_000_000), (int) (esperaNanos % 1_000_000));
+        }
+    }
+
+    private void recargar() {
+        long ahora = System.nanoTime();
+        tokens = Math.min(capacidad, tokens + (ahora - ultimaRecarga) * tokensPorNano);
+        ultimaRecarga = ahora;
+    }
+}
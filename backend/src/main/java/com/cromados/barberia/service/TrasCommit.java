@@ -0,0 +1,32 @@
+package com.cromados.barberia.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Difiere un efecto en memoria o hacia afuera (caches, bus de eventos, notificaciones)
+ * hasta que commitee la transacción actual.
+ *
+ * Si se aplicara en el momento, un rollback dejaría el efecto sobre datos que nunca
+ * existieron, y otra lectura concurrente podría ver el efecto antes que los datos. Sin
+ * transacción activa (llamadas fuera de @Transactional, jobs) se ejecuta enseguida. Desde
+ * entity listeners también vale en el flush del commit: Spring recién dispara afterCommit
+ * después de que Hibernate terminó de escribir.
+ */
+public final class TrasCommit {
+
+    private TrasCommit() {}
+
+    public static void ejecutar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+}
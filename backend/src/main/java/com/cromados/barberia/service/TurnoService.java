@@ -1,7 +1,6 @@
 package com.cromados.barberia.service;
 
 import com.cromados.barberia.dto.TurnoRequest;
-import com.cromados.barberia.model.HorarioBarbero;
 import com.cromados.barberia.model.Turno;
 import com.cromados.barberia.repository.*;
 import jakarta.transaction.Transactional;
@@ -22,8 +21,7 @@ public class TurnoService {
     private final BarberoRepository barberoRepository;
     private final SucursalRepository sucursalRepository;
     private final TipoCorteRepository tipoCorteRepository;
-    private final HorarioBarberoRepository horarioBarberoRepository;  // Para validarFranjaAtencion
-    private final BloqueoTurnoRepository bloqueoTurnoRepository;      // Para compatibilidad tabla legacy
+    private final BloqueoService bloqueoService;                       // Bloqueos por intervalo
     private final HorarioService horarioService;  // ✅ Usar servicio centralizado
 
     private static final DateTimeFormatter F_HORA = DateTimeFormatter.ofPattern("HH:mm");
@@ -37,6 +35,26 @@ public class TurnoService {
         return horarioService.horariosDisponibles(barberoId, fecha);
     }
 
+    /** Horarios donde entra un servicio de {@code duracionMin} (ver {@link #duracion}). */
+    public List<LocalTime> horariosDisponibles(Long barberoId, LocalDate fecha, int duracionMin) {
+        return horarioService.horariosDisponibles(barberoId, fecha, duracionMin, null);
+    }
+
+    /**
+     * Minutos que ocupa el servicio elegido con sus adicionales; sin servicio, un slot.
+     *
+     * @throws NoSuchElementException si el servicio o algún adicional no existe
+     */
+    public int duracion(Long tipoCorteId, List<Long> adicionalIds) {
+        if (tipoCorteId == null) return HorarioService.SLOT_MINUTES;
+        var servicio = tipoCorteRepository.findById(tipoCorteId)
+                .orElseThrow(() -> new NoSuchElementException("Servicio no encontrado"));
+        List<Long> ids = adicionalIds == null ? List.of() : adicionalIds.stream().distinct().toList();
+        var adicionales = tipoCorteRepository.findAllById(ids);
+        if (adicionales.size() != ids.size()) throw new NoSuchElementException("Servicio adicional no encontrado");
+        return HorarioService.duracion(servicio, adicionales);
+    }
+
     /* ===================== Crear turno ===================== */
 
     @Transactional
@@ -56,21 +74,22 @@ public class TurnoService {
             throw new IllegalArgumentException("Fecha u hora inválidas (se esperan formatos YYYY-MM-DD y HH:mm)");
         }
 
-        validarFranjaAtencion(barbero.getId(), fecha, hora);
+        int duracion = HorarioService.duracion(tipoCorte, List.of());
+        validarFranjaAtencion(barbero.getId(), fecha, hora, duracion);
 
         // 🔒 CRITICAL FIX: Use pessimistic locking to prevent race conditions
-        // This query acquires a database-level write lock on conflicting bookings
-        // preventing concurrent requests from double-booking the same slot
-        Optional<Turno> conflicto = turnoRepository.findConflictingTurnoWithLock(
-                barbero.getId(), fecha, hora);
+        // This query acquires a database-level write lock on the day's bookings
+        // preventing concurrent requests from double-booking overlapping intervals
+        List<Turno> ocupados = turnoRepository.findOcupadosDelDiaWithLock(barbero.getId(), fecha);
 
-        if (conflicto.isPresent()) {
+        if (!IntervalosDia.deTurnos(ocupados).libre(hora, duracion)) {
             throw new IllegalArgumentException("El horario ya está reservado");
         }
 
-        // Compatibilidad con tabla antigua (legacy bloqueo_turno table)
-        boolean bloqueado = bloqueoTurnoRepository.findByBarbero_IdAndFecha(barbero.getId(), fecha)
-                .stream().anyMatch(b -> b.getHora().equals(hora));
+        boolean bloqueado = !IntervalosDia.builder()
+                .bloqueos(bloqueoService.rangosBloqueados(barbero.getId(), fecha))
+                .build()
+                .libre(hora, duracion);
         if (bloqueado) throw new IllegalArgumentException("El horario está bloqueado");
 
         Turno t = new Turno();
@@ -79,6 +98,7 @@ public class TurnoService {
         t.setTipoCorte(tipoCorte);
         t.setFecha(fecha);
         t.setHora(hora);
+        t.setDuracionMin(duracion);
         t.setEstado("PENDIENTE_PAGO");
         t.setPagoConfirmado(Boolean.FALSE);
 
@@ -91,19 +111,15 @@ public class TurnoService {
 
     /* ===================== Helpers ===================== */
 
-    private void validarFranjaAtencion(Long barberoId, LocalDate fecha, LocalTime hora) {
-        final int dow = fecha.getDayOfWeek().getValue();
-        List<HorarioBarbero> franjas = horarioBarberoRepository
-                .findByBarbero_IdAndDiaSemana(barberoId, dow);
-        if (franjas == null || franjas.isEmpty()) {
+    private void validarFranjaAtencion(Long barberoId, LocalDate fecha, LocalTime hora, int duracion) {
+        // Horario compilado: respeta días excepcionales igual que la disponibilidad
+        HorarioCompilado horario = horarioService.horarioDe(barberoId);
+        if (!horario.trabaja(fecha)) {
             throw new IllegalArgumentException("El barbero no atiende ese día");
         }
-        boolean dentro = franjas.stream().anyMatch(hb -> {
-            LocalTime i = parseHora(hb.getInicio());
-            LocalTime f = parseHora(hb.getFin());
-            return i != null && f != null && !hora.isBefore(i) && !hora.isAfter(f);
-        });
-        if (!dentro) throw new IllegalArgumentException("Horario fuera del rango de atención");
+        if (!horario.cabe(fecha, hora.getHour() * 60 + hora.getMinute(), duracion)) {
+            throw new IllegalArgumentException("Horario fuera del rango de atención");
+        }
     }
 
     private LocalTime parseHora(String hhmm) {
@@ -6,13 +6,27 @@ import com.twilio.exception.ApiException;
 import com.twilio.rest.api.v2010.account.Message;
 import com.twilio.type.PhoneNumber;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.net.URI;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
+/**
+ * Envío de WhatsApp por Twilio.
+ *
+ * Los métodos sync siguen disponibles; los *Async despachan en un pool acotado
+ * (twilio.dispatch.threads / queueCapacity, con CallerRuns como backpressure) y todos
+ * los envíos respetan un token bucket por cuenta (twilio.rate.perSecond). Si
+ * twilio.statusCallbackUrl está configurado, Twilio informa entregas/fallos a
+ * POST /twilio/status.
+ */
 @Slf4j
 @Service
 public class TwilioService {
@@ -23,6 +37,11 @@ public class TwilioService {
     private final String confirmacionSid;
     private final String recordatorioSid;
     private final String menuBarberoSid;
+    private final String statusCallbackUrl;
+    private final double ratePerSecond;
+
+    private final ThreadPoolExecutor dispatchExecutor;
+    private final Map<String, TokenBucket> rateLimitPorCuenta = new ConcurrentHashMap<>();
 
     private volatile boolean sdkInitialized = false;
 
@@ -32,7 +51,11 @@ public class TwilioService {
             @Value("${twilio.whatsapp.from:${twilio.fromWhatsApp:}}") String fromNumber,
             @Value("${twilio.template.reserva:${twilio.content.confirmSid:}}") String confirmacionSid,
             @Value("${twilio.template.recordatorio:${twilio.content.reminderSid:}}") String recordatorioSid,
-            @Value("${twilio.template.autoreply:${twilio.content.barberMenuSid:}}") String menuBarberoSid
+            @Value("${twilio.template.autoreply:${twilio.content.barberMenuSid:}}") String menuBarberoSid,
+            @Value("${twilio.statusCallbackUrl:}") String statusCallbackUrl,
+            @Value("${twilio.rate.perSecond:10}") double ratePerSecond,
+            @Value("${twilio.dispatch.threads:8}") int dispatchThreads,
+            @Value("${twilio.dispatch.queueCapacity:500}") int queueCapacity
     ) {
         this.accountSid = nz(accountSid);
         this.authToken = nz(authToken);
@@ -40,6 +63,27 @@ public class TwilioService {
         this.confirmacionSid = nz(confirmacionSid);
         this.recordatorioSid = nz(recordatorioSid);
         this.menuBarberoSid = nz(menuBarberoSid);
+        this.statusCallbackUrl = nz(statusCallbackUrl);
+        this.ratePerSecond = ratePerSecond;
+
+        AtomicInteger n = new AtomicInteger();
+        this.dispatchExecutor = new ThreadPoolExecutor(
+                dispatchThreads, dispatchThreads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "twilio-dispatch-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        this.dispatchExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatchExecutor.shutdown();
     }
 
     private static String nz(String s) {
@@ -71,6 +115,23 @@ public class TwilioService {
         }
     }
 
+    /** Espera un token del bucket de la cuenta antes de llamar a la API. */
+    private void esperarRateLimit() {
+        TokenBucket bucket = rateLimitPorCuenta.computeIfAbsent(accountSid,
+                k -> new TokenBucket(Math.max(1, ratePerSecond), ratePerSecond));
+        try {
+            bucket.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Envío Twilio interrumpido", e);
+        }
+    }
+
+    /** Ejecuta un envío en el pool de despacho; el future se completa con el SID. */
+    private CompletableFuture<String> despachar(Supplier<String> envio) {
+        return CompletableFuture.supplyAsync(envio, dispatchExecutor);
+    }
+
     private static String asWhats(String number) {
         if (number == null || number.isBlank()) return "";
         String n = number.trim();
@@ -167,15 +228,19 @@ public class TwilioService {
 
         log.info("[Twilio] Template {} → {} | vars={}", contentSid, toWhats, contentVars);
 
+        esperarRateLimit();
         try {
-            return Message.creator(
+            var creator = Message.creator(
                             new PhoneNumber(toWhats),
                             new PhoneNumber(fromWhats),
                             "" // body vacío cuando se usa ContentSid
                     )
                     .setContentSid(contentSid)
-                    .setContentVariables(contentVars)
-                    .create();
+                    .setContentVariables(contentVars);
+            if (!statusCallbackUrl.isEmpty()) {
+                creator.setStatusCallback(URI.create(statusCallbackUrl));
+            }
+            return creator.create();
 
         } catch (ApiException apiEx) {
             log.error("[Twilio] API Error: code={} msg={} moreInfo={}",
@@ -237,6 +302,22 @@ public class TwilioService {
         return sendTplRecordatorio(to, vars);
     }
 
+    /**
+     * Igual que {@link #sendRecordatorio} pero sin bloquear: el future se completa con el SID.
+     */
+    public CompletableFuture<String> sendRecordatorioAsync(String to, String nombre, String fecha, String hora,
+                                                           String barbero, String sucursal, String telefono) {
+        return despachar(() -> sendRecordatorio(to, nombre, fecha, hora, barbero, sucursal, telefono));
+    }
+
+    /**
+     * Igual que {@link #sendConfirmacion} pero sin bloquear: el future se completa con el SID.
+     */
+    public CompletableFuture<String> sendConfirmacionAsync(String to, String nombre, String fecha, String hora,
+                                                           String barbero, String sucursal, String telefono) {
+        return despachar(() -> sendConfirmacion(to, nombre, fecha, hora, barbero, sucursal, telefono));
+    }
+
     /** Plantilla: menu_barbero (barbero)
      * Template espera: {"barbero":"NombreDelBarbero"}
      */
@@ -252,6 +333,7 @@ public class TwilioService {
         String to = asWhats(normalizeTo(toE164));
         String from = asWhats(fromNumber);
 
+        esperarRateLimit();
         try {
             Message msg = Message
                     .creator(new PhoneNumber(to), new PhoneNumber(from), body == null ? "" : body)
@@ -263,4 +345,13 @@ public class TwilioService {
             throw api;
         }
     }
-}
\ No newline at end of file
+
+    /** Respuestas del webhook: se despachan sin retener el request de Twilio. */
+    public CompletableFuture<String> sendWhatsAppAsync(String toE164, String body) {
+        return despachar(() -> sendWhatsApp(toE164, body));
+    }
+
+    public CompletableFuture<String> sendTplAutoReplyAsync(String to, Map<String, ?> vars) {
+        return despachar(() -> sendTplAutoReply(to, vars));
+    }
+}
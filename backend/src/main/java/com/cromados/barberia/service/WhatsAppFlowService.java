@@ -19,9 +19,10 @@ import java.util.concurrent.ConcurrentHashMap;
 @RequiredArgsConstructor
 public class WhatsAppFlowService {
 
-    private final BloqueoTurnoRepository bloqueoRepo;
+    private final BloqueoService bloqueoService;
     private final TurnoRepository turnoRepo;
-    private final HorarioBarberoRepository horarioRepo;
+    private final HorarioCompiladoService horarioCompiladoService;
+    private final JobLeaseService jobLeaseService;
 
     // Cache en memoria (se pierde al reiniciar)
     private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
@@ -119,14 +120,10 @@ public class WhatsAppFlowService {
                 return "❌ La fecha no puede ser pasada.\nIntenta de nuevo (DD/MM/YYYY):";
             }
 
-            // Validar si el barbero trabaja ese día
-            int diaSemana = fecha.getDayOfWeek().getValue(); // 1=Lun, 7=Dom
-            List<HorarioBarbero> horariosDelDia = horarioRepo.findByBarbero_IdAndDiaSemana(
-                    s.barbero.getId(),
-                    diaSemana
-            );
+            // Validar si el barbero trabaja ese día (horario semanal o día excepcional)
+            HorarioCompilado horario = horarioCompiladoService.obtener(s.barbero.getId());
 
-            if (horariosDelDia.isEmpty()) {
+            if (!horario.trabaja(fecha)) {
                 String dia = fecha.getDayOfWeek().getDisplayName(
                         java.time.format.TextStyle.FULL,
                         Locale.forLanguageTag("es-AR")
@@ -148,8 +145,8 @@ public class WhatsAppFlowService {
 
             // Mostrar horarios disponibles
             StringBuilder horarios = new StringBuilder();
-            for (HorarioBarbero h : horariosDelDia) {
-                horarios.append(String.format("  • %s a %s\n", h.getInicio(), h.getFin()));
+            for (String franja : horario.describir(fecha)) {
+                horarios.append("  • ").append(franja).append("\n");
             }
 
             return String.format("""
@@ -177,26 +174,12 @@ public class WhatsAppFlowService {
             LocalTime hora = LocalTime.parse(body.trim(), TIME_FMT);
 
             // Validar si la hora está dentro del horario laboral
-            int diaSemana = s.fechaTemp.getDayOfWeek().getValue();
-            List<HorarioBarbero> horariosDelDia = horarioRepo.findByBarbero_IdAndDiaSemana(
-                    s.barbero.getId(),
-                    diaSemana
-            );
-
-            boolean dentroDeHorario = horariosDelDia.stream().anyMatch(h -> {
-                try {
-                    LocalTime inicio = LocalTime.parse(h.getInicio(), TIME_FMT);
-                    LocalTime fin = LocalTime.parse(h.getFin(), TIME_FMT);
-                    return !hora.isBefore(inicio) && !hora.isAfter(fin);
-                } catch (Exception e) {
-                    return false;
-                }
-            });
+            HorarioCompilado horario = horarioCompiladoService.obtener(s.barbero.getId());
 
-            if (!dentroDeHorario) {
+            if (!horario.dentro(s.fechaTemp, hora)) {
                 StringBuilder horarios = new StringBuilder();
-                for (HorarioBarbero h : horariosDelDia) {
-                    horarios.append(String.format("  • %s a %s\n", h.getInicio(), h.getFin()));
+                for (String franja : horario.describir(s.fechaTemp)) {
+                    horarios.append("  • ").append(franja).append("\n");
                 }
                 return String.format("""
                     ❌ Esa hora está fuera de tu horario laboral.
@@ -243,8 +226,7 @@ public class WhatsAppFlowService {
         }
 
         // SEGUNDO: Verificar si YA está bloqueado manualmente
-        var bloqueoExistente = bloqueoRepo.findByBarbero_IdAndFechaAndHora(b.getId(), fecha, hora);
-        if (bloqueoExistente.isPresent()) {
+        if (bloqueoService.estaBloqueado(b.getId(), fecha, hora)) {
             return String.format("""
                 ⚠️ *Ya está bloqueado*
                 
@@ -255,13 +237,7 @@ public class WhatsAppFlowService {
         }
 
         // TODO OK: Crear bloqueo
-        BloqueoTurno bloqueo = BloqueoTurno.builder()
-                .barbero(b)
-                .fecha(fecha)
-                .hora(hora)
-                .build();
-
-        bloqueoRepo.save(bloqueo);
+        bloqueoService.bloquearSlot(b, fecha, hora, "Bloqueo manual");
 
         return String.format("""
             ✅ *Turno bloqueado*
@@ -280,9 +256,7 @@ public class WhatsAppFlowService {
         LocalTime hora = s.horaTemp;
 
         // Verificar si existe un bloqueo MANUAL
-        var bloqueo = bloqueoRepo.findByBarbero_IdAndFechaAndHora(b.getId(), fecha, hora);
-
-        if (bloqueo.isEmpty()) {
+        if (!bloqueoService.estaBloqueado(b.getId(), fecha, hora)) {
             // Verificar si en realidad hay un turno pagado (no bloqueado manualmente)
             boolean tieneTurnoPagado = turnoRepo.findByBarbero_IdAndFecha(b.getId(), fecha).stream()
                     .anyMatch(t -> t.getHora().equals(hora) && Boolean.TRUE.equals(t.getPagoConfirmado()));
@@ -309,8 +283,8 @@ public class WhatsAppFlowService {
                 """, fecha.format(DATE_FMT), hora.format(TIME_FMT));
         }
 
-        // Eliminar bloqueo manual
-        bloqueoRepo.delete(bloqueo.get());
+        // Liberar el slot (si era parte de un bloqueo más largo, el resto queda bloqueado)
+        bloqueoService.desbloquearSlot(b.getId(), fecha, hora);
 
         return String.format("""
             ✅ *Turno desbloqueado*
@@ -373,14 +347,12 @@ public class WhatsAppFlowService {
     private StringBuilder generarFechasSugeridas(Barbero barbero) {
         StringBuilder sb = new StringBuilder("🗓️ *Próximos días laborales:*\n");
         LocalDate hoy = LocalDate.now();
+        HorarioCompilado horario = horarioCompiladoService.obtener(barbero.getId());
         int count = 0;
 
         for (int i = 0; i < 30 && count < 7; i++) {
             LocalDate fecha = hoy.plusDays(i);
-            int diaSemana = fecha.getDayOfWeek().getValue();
-
-            var horarios = horarioRepo.findByBarbero_IdAndDiaSemana(barbero.getId(), diaSemana);
-            if (!horarios.isEmpty()) {
+            if (horario.trabaja(fecha)) {
                 String dia = fecha.getDayOfWeek().getDisplayName(
                         java.time.format.TextStyle.SHORT,
                         Locale.forLanguageTag("es-AR")
@@ -399,20 +371,13 @@ public class WhatsAppFlowService {
     private StringBuilder listarBloqueos(Barbero barbero) {
         LocalDate hoy = LocalDate.now();
 
-        List<BloqueoTurno> bloqueos = new ArrayList<>();
-        for (int i = 0; i <= 30; i++) {
-            LocalDate fecha = hoy.plusDays(i);
-            bloqueos.addAll(bloqueoRepo.findByBarbero_IdAndFecha(barbero.getId(), fecha));
-        }
+        List<BloqueoTurno> bloqueos = bloqueoService.bloqueosEntre(barbero.getId(), hoy, hoy.plusDays(30));
 
         if (bloqueos.isEmpty()) {
             return new StringBuilder();
         }
 
-        // Ordenar por fecha/hora
-        bloqueos.sort(Comparator.comparing(BloqueoTurno::getFecha)
-                .thenComparing(BloqueoTurno::getHora));
-
+        // Ya vienen ordenados por fecha/inicio
         StringBuilder sb = new StringBuilder("🚫 *Bloqueos activos:*\n");
         int count = 0;
         for (BloqueoTurno b : bloqueos) {
@@ -421,11 +386,22 @@ public class WhatsAppFlowService {
                     java.time.format.TextStyle.SHORT,
                     Locale.forLanguageTag("es-AR")
             );
-            sb.append(String.format("  • %s (%s) %s\n",
-                    b.getFecha().format(DATE_FMT),
-                    dia,
-                    b.getHora().format(TIME_FMT)
-            ));
+            if (b.getFecha().equals(b.getFechaHasta())) {
+                sb.append(String.format("  • %s (%s) %s a %s\n",
+                        b.getFecha().format(DATE_FMT),
+                        dia,
+                        b.getInicio().format(TIME_FMT),
+                        b.getFin().format(TIME_FMT)
+                ));
+            } else {
+                sb.append(String.format("  • %s (%s) %s → %s %s\n",
+                        b.getFecha().format(DATE_FMT),
+                        dia,
+                        b.getInicio().format(TIME_FMT),
+                        b.getFechaHasta().format(DATE_FMT),
+                        b.getFin().format(TIME_FMT)
+                ));
+            }
             count++;
         }
         sb.append("\n");
@@ -433,12 +409,15 @@ public class WhatsAppFlowService {
     }
 
     /**
-     * Limpiar sesiones inactivas cada hora
+     * Limpiar sesiones inactivas cada hora.
+     * Las sesiones viven en memoria de cada instancia, así que corre en todas (sin lease).
      */
     @Scheduled(fixedRate = 3600000)
     public void cleanupOldSessions() {
-        Instant cutoff = Instant.now().minusSeconds(1800); // 30 min
-        sessions.entrySet().removeIf(e -> e.getValue().ultimaActividad.isBefore(cutoff));
-        log.debug("[WhatsApp] {} sesiones activas", sessions.size());
+        jobLeaseService.medir("whatsapp-sesiones", () -> {
+            Instant cutoff = Instant.now().minusSeconds(1800); // 30 min
+            sessions.entrySet().removeIf(e -> e.getValue().ultimaActividad.isBefore(cutoff));
+            log.debug("[WhatsApp] {} sesiones activas", sessions.size());
+        });
     }
 }
\ No newline at end of file
@@ -5,17 +5,30 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Servicio para envío de mensajes WhatsApp mediante Meta Cloud API.
  * Reemplaza TwilioService con integración directa a Meta.
  *
+ * Los envíos son asíncronos sobre un HttpClient con conexiones reutilizadas (ver AppConfig),
+ * con timeout por request y un tope de envíos en vuelo (whatsapp.meta.http.maxConcurrent):
+ * lo que excede el tope queda encolado sin bloquear al llamador, hasta
+ * whatsapp.meta.http.maxPendientes; con la cola llena el envío falla enseguida.
+ * whatsapp.meta.baseUrl permite apuntar a un servidor stub local en pruebas.
+ *
  * Documentación: https://developers.facebook.com/docs/whatsapp/cloud-api/guides/send-messages
  */
 @Slf4j
@@ -30,9 +43,21 @@ public class WhatsAppMetaService {
     private final String sucursal1Phone;
     private final String sucursal2Phone;
 
-    private final RestTemplate restTemplate;
+    private final String baseUrl;
+    private final Duration requestTimeout;
+
+    private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
 
+    // Límite de envíos en vuelo: los que no consiguen permiso esperan en la cola (acotada)
+    private final Semaphore enVuelo;
+    private final Queue<Runnable> pendientes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger enCola = new AtomicInteger();
+    private final int maxPendientes;
+
+    /** Mensaje de plantilla armado, para enviar con {@link #sendTemplateAsync}. */
+    public record EnvioTemplate(String to, String templateName, List<String> parameters) {}
+
     private volatile boolean configured = false;
 
     public WhatsAppMetaService(
@@ -43,7 +68,11 @@ public class WhatsAppMetaService {
             @Value("${whatsapp.meta.template.recordatorio:recordatorio_turno}") String recordatorioTemplate,
             @Value("${whatsapp.meta.sucursal1.phone:}") String sucursal1Phone,
             @Value("${whatsapp.meta.sucursal2.phone:}") String sucursal2Phone,
-            RestTemplate restTemplate,
+            @Value("${whatsapp.meta.baseUrl:https://graph.facebook.com}") String baseUrl,
+            @Value("${whatsapp.meta.http.requestTimeoutMs:10000}") long requestTimeoutMs,
+            @Value("${whatsapp.meta.http.maxConcurrent:8}") int maxConcurrent,
+            @Value("${whatsapp.meta.http.maxPendientes:500}") int maxPendientes,
+            HttpClient metaHttpClient,
             ObjectMapper objectMapper
     ) {
         this.accessToken = nz(accessToken);
@@ -53,7 +82,11 @@ public class WhatsAppMetaService {
         this.recordatorioTemplate = nz(recordatorioTemplate);
         this.sucursal1Phone = nz(sucursal1Phone);
         this.sucursal2Phone = nz(sucursal2Phone);
-        this.restTemplate = restTemplate;
+        this.baseUrl = nz(baseUrl).replaceAll("/+$", "");
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.enVuelo = new Semaphore(Math.max(1, maxConcurrent));
+        this.maxPendientes = maxPendientes;
+        this.httpClient = metaHttpClient;
         this.objectMapper = objectMapper;
     }
 
@@ -96,7 +129,7 @@ public class WhatsAppMetaService {
     }
 
     /**
-     * Envía una plantilla de WhatsApp mediante Meta Cloud API.
+     * Envía una plantilla de WhatsApp mediante Meta Cloud API y espera la respuesta.
      *
      * @param to Número de teléfono destino en formato E.164 (+5493547509878)
      * @param templateName Nombre de la plantilla aprobada en Meta
@@ -104,6 +137,20 @@ public class WhatsAppMetaService {
      * @return Message ID si fue exitoso
      */
     private String sendTemplate(String to, String templateName, List<String> parameters) {
+        try {
+            return sendTemplateAsync(to, templateName, parameters).join();
+        } catch (CompletionException e) {
+            Throwable causa = e.getCause() != null ? e.getCause() : e;
+            if (causa instanceof RuntimeException re) throw re;
+            throw new RuntimeException("Error enviando mensaje WhatsApp", causa);
+        }
+    }
+
+    /**
+     * Envía una plantilla sin bloquear. El future se completa con el Message ID, o
+     * excepcionalmente si Meta responde error, se vence el timeout o falla la conexión.
+     */
+    public CompletableFuture<String> sendTemplateAsync(String to, String templateName, List<String> parameters) {
         ensureReady();
 
         String toPhone = normalizePhone(to);
@@ -111,53 +158,110 @@ public class WhatsAppMetaService {
             throw new IllegalArgumentException("Número de teléfono destino vacío.");
         }
 
-        // Construir URL de la API
-        String url = String.format("https://graph.facebook.com/%s/%s/messages",
-                apiVersion, phoneNumberId);
-
-        // Construir headers
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(accessToken);
-
-        // Construir body del mensaje
+        String url = String.format("%s/%s/%s/messages", baseUrl, apiVersion, phoneNumberId);
         Map<String, Object> body = buildTemplateMessage(toPhone, templateName, parameters);
 
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(body, headers);
-
+        HttpRequest request;
         try {
-            log.info("[WhatsApp Meta] Enviando template '{}' a {} con {} parámetros",
-                    templateName, toPhone, parameters.size());
-            log.debug("[WhatsApp Meta] Body: {}", objectMapper.writeValueAsString(body));
-
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.POST,
-                    request,
-                    Map.class
-            );
-
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                Map<String, Object> responseBody = response.getBody();
-                List<Map<String, Object>> messages = (List<Map<String, Object>>) responseBody.get("messages");
-
-                if (messages != null && !messages.isEmpty()) {
-                    String messageId = (String) messages.get(0).get("id");
-                    log.info("[WhatsApp Meta] Mensaje enviado exitosamente. ID: {}", messageId);
-                    return messageId;
-                }
+            String json = objectMapper.writeValueAsString(body);
+            log.debug("[WhatsApp Meta] Body: {}", json);
+            request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .header("Authorization", "Bearer " + accessToken)
+                    .POST(HttpRequest.BodyPublishers.ofString(json))
+                    .build();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new RuntimeException("Error armando mensaje WhatsApp", e));
+        }
+
+        log.info("[WhatsApp Meta] Enviando template '{}' a {} con {} parámetros",
+                templateName, toPhone, parameters == null ? 0 : parameters.size());
+
+        CompletableFuture<String> resultado = new CompletableFuture<>();
+        Runnable envio = () -> {
+            try {
+                httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                        .thenApply(this::extraerMessageId)
+                        .whenComplete((messageId, error) -> {
+                            liberar();
+                            if (error != null) {
+                                Throwable causa = error instanceof CompletionException && error.getCause() != null
+                                        ? error.getCause() : error;
+                                log.error("[WhatsApp Meta] Error enviando a {}: {}", toPhone, causa.getMessage());
+                                resultado.completeExceptionally(causa instanceof RuntimeException
+                                        ? causa
+                                        : new RuntimeException("Error enviando mensaje WhatsApp: " + causa.getMessage(), causa));
+                            } else {
+                                log.info("[WhatsApp Meta] Mensaje enviado exitosamente. ID: {}", messageId);
+                                resultado.complete(messageId);
+                            }
+                        });
+            } catch (RuntimeException e) {
+                // sendAsync falló antes de devolver el future: devolver el permiso igual
+                liberar();
+                log.error("[WhatsApp Meta] Error enviando a {}: {}", toPhone, e.getMessage());
+                resultado.completeExceptionally(e);
             }
+        };
+        if (!ejecutarLimitado(envio)) {
+            log.warn("[WhatsApp Meta] ⚠️ Cola de envíos llena ({}); no se envía a {}", maxPendientes, toPhone);
+            return CompletableFuture.failedFuture(new IllegalStateException("Cola de envíos WhatsApp llena"));
+        }
+        return resultado;
+    }
 
-            log.error("[WhatsApp Meta] Respuesta inesperada: {}", response.getBody());
-            throw new RuntimeException("Respuesta inesperada de Meta API");
+    /** @return false si no hay permiso y la cola está llena (el envío no se hace) */
+    private boolean ejecutarLimitado(Runnable envio) {
+        if (enVuelo.tryAcquire()) {
+            envio.run();
+            return true;
+        }
+        if (enCola.incrementAndGet() > maxPendientes) {
+            enCola.decrementAndGet();
+            return false;
+        }
+        pendientes.add(envio);
+        // Si justo se liberó un permiso entre el tryAcquire y el add, drenar ahora
+        drenar();
+        return true;
+    }
 
-        } catch (HttpClientErrorException e) {
-            log.error("[WhatsApp Meta] Error HTTP {}: {}", e.getStatusCode(), e.getResponseBodyAsString());
-            throw new RuntimeException("Error enviando mensaje WhatsApp: " + e.getMessage(), e);
+    private void liberar() {
+        enVuelo.release();
+        drenar();
+    }
+
+    private void drenar() {
+        while (!pendientes.isEmpty() && enVuelo.tryAcquire()) {
+            Runnable siguiente = pendientes.poll();
+            if (siguiente == null) {
+                enVuelo.release();
+                return;
+            }
+            enCola.decrementAndGet();
+            siguiente.run();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private String extraerMessageId(HttpResponse<String> response) {
+        if (response.statusCode() / 100 != 2) {
+            log.error("[WhatsApp Meta] Error HTTP {}: {}", response.statusCode(), response.body());
+            throw new RuntimeException("Error enviando mensaje WhatsApp: HTTP " + response.statusCode());
+        }
+        try {
+            Map<String, Object> responseBody = objectMapper.readValue(response.body(), Map.class);
+            List<Map<String, Object>> messages = (List<Map<String, Object>>) responseBody.get("messages");
+            if (messages != null && !messages.isEmpty()) {
+                return (String) messages.get(0).get("id");
+            }
         } catch (Exception e) {
-            log.error("[WhatsApp Meta] Error inesperado: {}", e.getMessage(), e);
-            throw new RuntimeException("Error enviando mensaje WhatsApp", e);
+            log.error("[WhatsApp Meta] Respuesta ilegible: {}", response.body());
+            throw new RuntimeException("Respuesta inesperada de Meta API", e);
         }
+        log.error("[WhatsApp Meta] Respuesta inesperada: {}", response.body());
+        throw new RuntimeException("Respuesta inesperada de Meta API");
     }
 
     /**
@@ -281,6 +385,15 @@ public class WhatsAppMetaService {
         return sendTemplate(to, recordatorioTemplate, params);
     }
 
+    /**
+     * Arma el envío de recordatorio para usar con {@link #sendTemplateAsync}.
+     */
+    public EnvioTemplate recordatorio(String to, String nombre, String fecha, String hora,
+                                      String barbero, String sucursal) {
+        return new EnvioTemplate(to, recordatorioTemplate,
+                Arrays.asList(nombre, fecha, hora, barbero, sucursal, sucursal1Phone, sucursal2Phone));
+    }
+
     /**
      * Método para testing/debugging - envía mensaje a número de prueba.
      */
@@ -8,19 +8,24 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Scheduler que envía recordatorios de WhatsApp 6 horas antes de cada turno confirmado.
- * Se ejecuta cada hora para verificar si hay turnos próximos.
+ * Envío de recordatorios de WhatsApp 6 horas antes de cada turno confirmado.
+ * Los temporizadores de TemporizadorService disparan un barrido a la hora de cada uno
+ * (barrerProgramados); el cron horario recupera los que se hayan perdido.
  */
 @Slf4j
 @Service
@@ -29,6 +34,10 @@ public class WhatsAppRecordatorioScheduler {
     private final TurnoRepository turnoRepository;
     private final WhatsAppMetaService whatsAppMetaService;
     private final TwilioService twilioService;
+    private final JobLeaseService jobLeaseService;
+
+    private final AtomicBoolean barridoPedido = new AtomicBoolean();
+    private final ReentrantLock barriendo = new ReentrantLock();
 
     @Value("${whatsapp.meta.sucursal1.phone:}")
     private String sucursal1Phone;
@@ -43,89 +52,121 @@ public class WhatsAppRecordatorioScheduler {
     public WhatsAppRecordatorioScheduler(
             TurnoRepository turnoRepository,
             WhatsAppMetaService whatsAppMetaService,
-            TwilioService twilioService
+            TwilioService twilioService,
+            JobLeaseService jobLeaseService
     ) {
         this.turnoRepository = turnoRepository;
         this.whatsAppMetaService = whatsAppMetaService;
         this.twilioService = twilioService;
+        this.jobLeaseService = jobLeaseService;
     }
 
     /**
-     * Tarea programada que se ejecuta cada hora (a los 5 minutos de cada hora).
-     * Busca turnos confirmados que ocurrirán en aproximadamente 6 horas
-     * y les envía un recordatorio por WhatsApp.
+     * Red de seguridad que se ejecuta cada hora (a los 5 minutos de cada hora).
+     * Cada recordatorio se dispara en su momento exacto desde TemporizadorService;
+     * esta pasada sólo toma de la cola (recordatorioDueAt) los que ya vencieron en la
+     * última hora y siguen pendientes (ej. temporizador perdido por un reinicio o por
+     * un UPDATE masivo), los despacha en paralelo y los marca enviados con un único UPDATE.
+     * Corre en una sola instancia: comparte el lease JOB_RECORDATORIOS con los temporizadores,
+     * así un recordatorio no sale dos veces.
      *
      * Cron: "0 5 * * * *" = A los 5 minutos de cada hora
      */
     @Scheduled(cron = "0 5 * * * *")
-    @Transactional
     public void enviarRecordatorios() {
+        jobLeaseService.ejecutarCron(JobLeaseService.JOB_RECORDATORIOS, this::enviarVencidos);
+    }
+
+    private void enviarVencidos() {
         log.info("[Scheduler] Iniciando envío de recordatorios...");
 
         try {
             // Usar la hora de Argentina
             LocalDateTime ahora = ZonedDateTime.now(ZONA_ARGENTINA).toLocalDateTime();
-            LocalDateTime en6Horas = ahora.plusHours(6);
-
-            // Buscar turnos en ventana de 6-7 horas (para cubrir la hora completa)
-            LocalDateTime en7Horas = ahora.plusHours(7);
-
-            log.info("[Scheduler] Buscando turnos entre {} y {} (hora Argentina)", en6Horas, en7Horas);
-
-            // Buscar turnos confirmados en el rango de fechas
-            List<Turno> turnosCandidatos = turnoRepository.findByFechaBetween(
-                    en6Horas.toLocalDate(),
-                    en7Horas.toLocalDate()
-            );
+            LocalDateTime desde = ahora.minusHours(1);
 
-            log.info("[Scheduler] Encontrados {} turnos en el rango de fechas", turnosCandidatos.size());
+            List<Turno> pendientes = turnoRepository.findRecordatoriosPendientes(desde, ahora);
+            log.info("[Scheduler] {} recordatorios pendientes con vencimiento entre {} y {} (hora Argentina)",
+                    pendientes.size(), desde, ahora);
 
-            int enviados = 0;
-            int saltados = 0;
-            int errores = 0;
+            despacharYMarcar(pendientes);
 
-            for (Turno turno : turnosCandidatos) {
-                // Verificar si el turno está confirmado
-                if (!esturnoConfirmado(turno)) {
-                    continue;
-                }
+        } catch (Exception e) {
+            log.error("[Scheduler] Error ejecutando scheduler de recordatorios: {}", e.getMessage(), e);
+        }
+    }
 
-                // Verificar si ya se envió el recordatorio
-                if (Boolean.TRUE.equals(turno.getRecordatorioEnviado())) {
-                    saltados++;
-                    continue;
+    /**
+     * Barre los recordatorios vencidos cuando vence un temporizador de TemporizadorService.
+     *
+     * Los turnos van en grilla de 30 minutos, así que los recordatorios vencen en ráfagas a
+     * las :00 y las :30. En lugar de un lease por turno (el resto esperaba reintentos de a uno),
+     * los pedidos se juntan: uno solo barre la cola con un lease y despacha todo en paralelo;
+     * los que llegan mientras tanto sólo dejan anotado que hay que volver a barrer, y el que
+     * está barriendo lo hace al terminar. La cola se vuelve a leer de la DB: lo ya enviado,
+     * movido o cancelado no sale.
+     *
+     * @return false si el lease lo tiene otra corrida (el llamador reintenta más tarde)
+     */
+    public boolean barrerProgramados() {
+        barridoPedido.set(true);
+        while (barridoPedido.get()) {
+            if (!barriendo.tryLock()) return true; // el que está barriendo ve el pedido y repite
+            try {
+                if (!barridoPedido.getAndSet(false)) return true;
+                if (!jobLeaseService.ejecutar(JobLeaseService.JOB_RECORDATORIOS, this::enviarVencidos)) {
+                    return false;
                 }
+            } finally {
+                barriendo.unlock();
+            }
+        }
+        return true;
+    }
 
-                // Calcular fecha/hora exacta del turno
-                LocalDateTime fechaHoraTurno = LocalDateTime.of(turno.getFecha(), turno.getHora());
+    /**
+     * Despacha los recordatorios en paralelo (pool acotado + rate limit de TwilioService)
+     * y marca los exitosos en un solo UPDATE. Los fallidos quedan pendientes.
+     *
+     * @return cantidad de recordatorios enviados
+     */
+    int despacharYMarcar(List<Turno> turnos) {
+        if (turnos.isEmpty()) return 0;
 
-                // Verificar si el turno está en la ventana de 6-7 horas
-                if (fechaHoraTurno.isAfter(en6Horas) && fechaHoraTurno.isBefore(en7Horas)) {
-                    try {
-                        enviarRecordatorio(turno);
-
-                        // Marcar como enviado
-                        turno.setRecordatorioEnviado(true);
-                        turnoRepository.save(turno);
-
-                        enviados++;
-                        log.info("[Scheduler] Recordatorio enviado - Turno #{} - Cliente: {} - Fecha: {} {}",
-                                turno.getId(), turno.getClienteNombre(),
-                                turno.getFecha(), turno.getHora());
-                    } catch (Exception e) {
-                        errores++;
-                        log.error("[Scheduler] Error enviando recordatorio para turno #{}: {}",
-                                turno.getId(), e.getMessage(), e);
-                    }
-                }
+        Map<Turno, CompletableFuture<String>> envios = new LinkedHashMap<>();
+        for (Turno turno : turnos) {
+            envios.put(turno, enviarRecordatorioAsync(turno));
+        }
+        CompletableFuture.allOf(envios.values().toArray(CompletableFuture[]::new))
+                .exceptionally(e -> null)
+                .join();
+
+        List<Long> ids = new ArrayList<>();
+        List<String> sids = new ArrayList<>();
+        int errores = 0;
+        for (Map.Entry<Turno, CompletableFuture<String>> e : envios.entrySet()) {
+            Turno turno = e.getKey();
+            try {
+                String sid = e.getValue().join();
+                ids.add(turno.getId());
+                sids.add(sid);
+                log.info("[Scheduler] Recordatorio enviado - Turno #{} - Cliente: {} - Fecha: {} {}",
+                        turno.getId(), turno.getClienteNombre(), turno.getFecha(), turno.getHora());
+            } catch (Exception ex) {
+                errores++;
+                Throwable causa = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                log.error("[Scheduler] Error enviando recordatorio para turno #{}: {}",
+                        turno.getId(), causa.getMessage(), causa);
             }
+        }
 
-            log.info("[Scheduler] Resumen: {} enviados, {} saltados (ya enviados), {} errores",
-                    enviados, saltados, errores);
-
-        } catch (Exception e) {
-            log.error("[Scheduler] Error ejecutando scheduler de recordatorios: {}", e.getMessage(), e);
+        // Marcar como enviados (y guardar SIDs para el status callback) en un solo UPDATE
+        if (!ids.isEmpty()) {
+            turnoRepository.marcarRecordatoriosEnviados(ids.toArray(Long[]::new), sids.toArray(String[]::new));
         }
+
+        log.info("[Scheduler] Resumen: {} enviados, {} errores", ids.size(), errores);
+        return ids.size();
     }
 
     /**
@@ -138,46 +179,55 @@ public class WhatsAppRecordatorioScheduler {
     }
 
     /**
-     * Envía el recordatorio de WhatsApp para un turno.
-     * Usa Twilio para enviar el recordatorio con el teléfono de la sucursal correspondiente.
+     * Envía el recordatorio de WhatsApp para un turno sin bloquear.
+     * Usa Twilio con el teléfono de la sucursal correspondiente y Meta como fallback.
+     * El future se completa con el SID de Twilio (null si salió por Meta).
      */
-    private void enviarRecordatorio(Turno turno) {
+    private CompletableFuture<String> enviarRecordatorioAsync(Turno turno) {
         String fechaFormateada = turno.getFecha().format(FECHA_FORMATTER);
         String horaFormateada = turno.getHora().format(HORA_FORMATTER);
 
         // Determinar teléfono de la sucursal (basado en ID: 1 o 2)
         String telefonoSucursal = turno.getSucursal().getId() == 1 ? sucursal1Phone : sucursal2Phone;
+        String barbero = turno.getBarbero().getNombre();
+        String sucursal = turno.getSucursal().getNombre();
 
-        try {
-            // Enviar con Twilio
-            twilioService.sendRecordatorio(
-                    turno.getClienteTelefono(),
-                    turno.getClienteNombre(),
-                    fechaFormateada,
-                    horaFormateada,
-                    turno.getBarbero().getNombre(),
-                    turno.getSucursal().getNombre(),
-                    telefonoSucursal
-            );
-            log.info("[Recordatorio][Twilio] Enviado a {} - Turno #{}", turno.getClienteNombre(), turno.getId());
-        } catch (Exception e) {
-            log.error("[Recordatorio][Twilio] Error: {}", e.getMessage(), e);
-            // Intentar con Meta como fallback (opcional)
-            try {
-                whatsAppMetaService.sendRecordatorio(
+        return twilioService.sendRecordatorioAsync(
                         turno.getClienteTelefono(),
                         turno.getClienteNombre(),
                         fechaFormateada,
                         horaFormateada,
-                        turno.getBarbero().getNombre(),
-                        turno.getSucursal().getNombre()
-                );
-                log.info("[Recordatorio][Meta] Enviado como fallback - Turno #{}", turno.getId());
-            } catch (Exception e2) {
-                log.error("[Recordatorio][Meta] Error en fallback: {}", e2.getMessage());
-                throw e; // Re-lanzar el error original
-            }
-        }
+                        barbero,
+                        sucursal,
+                        telefonoSucursal
+                )
+                .thenApply(sid -> {
+                    log.info("[Recordatorio][Twilio] Enviado a {} - Turno #{} SID={}",
+                            turno.getClienteNombre(), turno.getId(), sid);
+                    return sid;
+                })
+                .exceptionallyCompose(e -> {
+                    Throwable causa = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    log.error("[Recordatorio][Twilio] Error: {}", causa.getMessage(), causa);
+                    // Intentar con Meta como fallback (opcional)
+                    try {
+                        var envioMeta = whatsAppMetaService.recordatorio(turno.getClienteTelefono(),
+                                turno.getClienteNombre(), fechaFormateada, horaFormateada, barbero, sucursal);
+                        return whatsAppMetaService.sendTemplateAsync(
+                                        envioMeta.to(), envioMeta.templateName(), envioMeta.parameters())
+                                .handle((metaId, e2) -> {
+                                    if (e2 != null) {
+                                        log.error("[Recordatorio][Meta] Error en fallback: {}", e2.getMessage());
+                                        throw new CompletionException(causa); // Re-lanzar el error original
+                                    }
+                                    log.info("[Recordatorio][Meta] Enviado como fallback - Turno #{}", turno.getId());
+                                    return null;
+                                });
+                    } catch (Exception e2) {
+                        log.error("[Recordatorio][Meta] Error en fallback: {}", e2.getMessage());
+                        return CompletableFuture.failedFuture(causa);
+                    }
+                });
     }
 
     /**
@@ -193,9 +243,13 @@ public class WhatsAppRecordatorioScheduler {
         }
 
         log.info("[Scheduler Manual] Enviando recordatorio para turno #{}", turnoId);
-        enviarRecordatorio(turno);
+        String sid;
+        try {
+            sid = enviarRecordatorioAsync(turno).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
 
-        turno.setRecordatorioEnviado(true);
-        turnoRepository.save(turno);
+        turnoRepository.marcarRecordatoriosEnviados(new Long[]{turno.getId()}, new String[]{sid});
     }
 }
@@ -13,12 +13,12 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 /**
  * THE REAPER - Zombie Booking Cleanup Service
  * Prevents abandoned carts from blocking booking slots forever.
+ * Each booking expires on its own timer (TemporizadorService); the cron is a safety net.
  */
 @Slf4j
 @Service
@@ -27,20 +27,45 @@ public class ZombieBookingReaperScheduler {
 
     private final TurnoRepository turnoRepository;
     private final PagoRepository pagoRepository;
+    private final JobLeaseService jobLeaseService;
 
-    private static final int MAX_PENDING_MINUTES = 15;
+    private enum Resultado { CANCELLED, KEPT }
 
-    @Scheduled(cron = "0 0/5 * * * *")
+    /**
+     * Expira una reserva puntual cuando vence su temporizador (TemporizadorService).
+     * Vuelve a leer el turno: si ya se pagó, se canceló o se extendió, no hace nada.
+     *
+     * @return true si el turno se canceló
+     */
+    @Transactional
+    public boolean expirarTurno(Long turnoId) {
+        Turno turno = turnoRepository.findById(turnoId).orElse(null);
+        if (turno == null || !"PENDIENTE_PAGO".equals(turno.getEstado())) {
+            return false;
+        }
+        if (turno.getExpiraAt() != null && turno.getExpiraAt().isAfter(Instant.now())) {
+            return false;
+        }
+        return procesar(turno) == Resultado.CANCELLED;
+    }
+
+    /**
+     * Red de seguridad: los temporizadores expiran cada reserva a su hora, esta pasada
+     * sólo levanta las que se hayan perdido (ej. reinicio justo al vencer). Usa el índice
+     * parcial de expira_at, así que sólo lee las reservas ya vencidas.
+     * Corre en una sola instancia (lease JOB_REAPER).
+     */
+    @Scheduled(cron = "0 0/15 * * * *")
     @Transactional
     public void reapZombieBookings() {
+        jobLeaseService.ejecutarCron(JobLeaseService.JOB_REAPER, this::barrerVencidas);
+    }
+
+    private void barrerVencidas() {
         log.info("[REAPER] Starting zombie booking cleanup...");
 
         try {
-            Instant threshold = Instant.now().minus(MAX_PENDING_MINUTES, ChronoUnit.MINUTES);
-            LocalDate today = LocalDate.now();
-
-            // Find all PENDIENTE_PAGO bookings with old pending payments
-            List<Turno> candidates = turnoRepository.findByEstadoAndFechaGreaterThanEqual("PENDIENTE_PAGO", today);
+            List<Turno> candidates = turnoRepository.findByEstadoAndExpiraAtBefore("PENDIENTE_PAGO", Instant.now());
 
             int cancelled = 0;
             int kept = 0;
@@ -48,38 +73,11 @@ public class ZombieBookingReaperScheduler {
 
             for (Turno turno : candidates) {
                 try {
-                    // Find associated payment
-                    Pago pago = pagoRepository.findByTurnoId(turno.getId()).orElse(null);
-
-                    if (pago == null) {
-                        // No payment record - this shouldn't happen, but cancel to be safe
-                        log.warn("[REAPER] Turno #{} has PENDIENTE_PAGO but no Pago record. Cancelling.", turno.getId());
-                        cancelTurno(turno, "No payment record found");
+                    if (procesar(turno) == Resultado.CANCELLED) {
                         cancelled++;
-                        continue;
-                    }
-
-                    // Check if payment is old and still pending
-                    if (pago.getCreadoEn() != null && pago.getCreadoEn().isBefore(threshold)) {
-                        String status = pago.getStatus();
-                        if ("pending".equalsIgnoreCase(status) || "in_process".equalsIgnoreCase(status)) {
-                            // Zombie detected! Cancel it.
-                            log.warn("[REAPER] Zombie detected - Turno #{} - Payment {} - Created {} - Status {}",
-                                    turno.getId(), pago.getId(), pago.getCreadoEn(), status);
-                            cancelTurno(turno, "Payment timeout - " + status);
-                            cancelled++;
-                        } else {
-                            // Payment has a different status (approved, rejected, etc.)
-                            // This shouldn't happen (should be handled by webhook), but don't cancel
-                            log.warn("[REAPER] Turno #{} has PENDIENTE_PAGO but payment status is '{}'. Manual review needed.",
-                                    turno.getId(), status);
-                            kept++;
-                        }
                     } else {
-                        // Payment is recent, keep it
                         kept++;
                     }
-
                 } catch (Exception e) {
                     errors++;
                     log.error("[REAPER] Error processing turno #{}: {}", turno.getId(), e.getMessage(), e);
@@ -100,6 +98,33 @@ public class ZombieBookingReaperScheduler {
         }
     }
 
+    /** Decide sobre una reserva PENDIENTE_PAGO ya vencida según el estado de su pago. */
+    private Resultado procesar(Turno turno) {
+        Pago pago = pagoRepository.findByTurnoId(turno.getId()).orElse(null);
+
+        if (pago == null) {
+            // No payment record - the customer never reached checkout
+            log.warn("[REAPER] Turno #{} has PENDIENTE_PAGO but no Pago record. Cancelling.", turno.getId());
+            cancelTurno(turno, "No payment record found");
+            return Resultado.CANCELLED;
+        }
+
+        String status = pago.getStatus();
+        if ("pending".equalsIgnoreCase(status) || "in_process".equalsIgnoreCase(status)) {
+            // Zombie detected! Cancel it.
+            log.warn("[REAPER] Zombie detected - Turno #{} - Payment {} - Expired {} - Status {}",
+                    turno.getId(), pago.getId(), turno.getExpiraAt(), status);
+            cancelTurno(turno, "Payment timeout - " + status);
+            return Resultado.CANCELLED;
+        }
+
+        // Payment has a different status (approved, rejected, etc.)
+        // This shouldn't happen (should be handled by webhook), but don't cancel
+        log.warn("[REAPER] Turno #{} has PENDIENTE_PAGO but payment status is '{}'. Manual review needed.",
+                turno.getId(), status);
+        return Resultado.KEPT;
+    }
+
     private void cancelTurno(Turno turno, String reason) {
         turno.setEstado("CANCELADO");
         turnoRepository.save(turno);
@@ -116,24 +141,13 @@ public class ZombieBookingReaperScheduler {
     public int reapNow() {
         log.warn("[REAPER] MANUAL TRIGGER - Running emergency cleanup");
         reapZombieBookings();
-        return (int) turnoRepository.findByEstadoAndFechaGreaterThanEqual("PENDIENTE_PAGO", LocalDate.now()).size();
+        return turnoRepository.findByEstadoAndFechaGreaterThanEqual("PENDIENTE_PAGO", LocalDate.now()).size();
     }
 
     public ZombieStats getStats() {
-        LocalDate today = LocalDate.now();
-        List<Turno> pending = turnoRepository.findByEstadoAndFechaGreaterThanEqual("PENDIENTE_PAGO", today);
-
-        Instant threshold = Instant.now().minus(MAX_PENDING_MINUTES, ChronoUnit.MINUTES);
-        long zombies = pending.stream()
-                .filter(t -> {
-                    Pago pago = pagoRepository.findByTurnoId(t.getId()).orElse(null);
-                    return pago != null &&
-                           pago.getCreadoEn() != null &&
-                           pago.getCreadoEn().isBefore(threshold);
-                })
-                .count();
-
-        return new ZombieStats(pending.size(), (int) zombies);
+        int pending = turnoRepository.findByEstadoAndFechaGreaterThanEqual("PENDIENTE_PAGO", LocalDate.now()).size();
+        int zombies = turnoRepository.findByEstadoAndExpiraAtBefore("PENDIENTE_PAGO", Instant.now()).size();
+        return new ZombieStats(pending, zombies);
     }
 
     public record ZombieStats(int totalPending, int zombies) {}
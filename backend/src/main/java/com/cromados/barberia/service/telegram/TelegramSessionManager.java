@@ -2,6 +2,7 @@ package com.cromados.barberia.service.telegram;
 
 import com.cromados.barberia.model.Barbero;
 import com.cromados.barberia.repository.BarberoRepository;
+import com.cromados.barberia.service.JobLeaseService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -21,6 +22,7 @@ import java.util.concurrent.ConcurrentHashMap;
 public class TelegramSessionManager {
 
     private final BarberoRepository barberoRepo;
+    private final JobLeaseService jobLeaseService;
 
     // Estado de conversación por chatId
     private final Map<Long, SessionState> sessions = new ConcurrentHashMap<>();
@@ -71,27 +73,29 @@ public class TelegramSessionManager {
 
     /**
      * Limpia sesiones expiradas (más de 30 minutos sin actividad).
-     * Se ejecuta cada hora.
+     * Se ejecuta cada hora en cada instancia (las sesiones son locales, no toma lease).
      */
     @Scheduled(fixedRate = 3600000) // 1 hora
     public void cleanExpiredSessions() {
-        Instant now = Instant.now();
-        int removed = 0;
-
-        var it = sessions.entrySet().iterator();
-        while (it.hasNext()) {
-            var entry = it.next();
-            SessionState state = entry.getValue();
-
-            if (Duration.between(state.getLastActivity(), now).compareTo(SESSION_TIMEOUT) > 0) {
-                it.remove();
-                removed++;
+        jobLeaseService.medir("telegram-sesiones", () -> {
+            Instant now = Instant.now();
+            int removed = 0;
+
+            var it = sessions.entrySet().iterator();
+            while (it.hasNext()) {
+                var entry = it.next();
+                SessionState state = entry.getValue();
+
+                if (Duration.between(state.getLastActivity(), now).compareTo(SESSION_TIMEOUT) > 0) {
+                    it.remove();
+                    removed++;
+                }
             }
-        }
 
-        if (removed > 0) {
-            log.info("[Telegram] Limpiadas {} sesiones expiradas", removed);
-        }
+            if (removed > 0) {
+                log.info("[Telegram] Limpiadas {} sesiones expiradas", removed);
+            }
+        });
     }
 
     /**
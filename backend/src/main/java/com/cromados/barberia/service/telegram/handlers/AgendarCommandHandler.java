@@ -2,6 +2,8 @@ package com.cromados.barberia.service.telegram.handlers;
 
 import com.cromados.barberia.model.*;
 import com.cromados.barberia.repository.*;
+import com.cromados.barberia.service.HorarioCompilado;
+import com.cromados.barberia.service.DirectorioClientesService;
 import com.cromados.barberia.service.HorarioService;
 import com.cromados.barberia.service.telegram.SessionState;
 import com.cromados.barberia.service.telegram.TelegramMessageBuilder;
@@ -58,7 +60,7 @@ public class AgendarCommandHandler extends BaseCommandHandler {
     private static final String STEP_CLIENT_AGE = "WAITING_CLIENT_AGE";
     private static final String STEP_CONFIRM = "CONFIRM_BLOCK";
 
-    private final DiaExcepcionalBarberoRepository diaExcepcionalRepo;
+    private final DirectorioClientesService directorioClientes;
 
     public AgendarCommandHandler(
             TurnoRepository turnoRepo,
@@ -69,10 +71,10 @@ public class AgendarCommandHandler extends BaseCommandHandler {
             TelegramMessageBuilder messageBuilder,
             TelegramLongPollingBot bot,
             HorarioService horarioService,
-            DiaExcepcionalBarberoRepository diaExcepcionalRepo
+            DirectorioClientesService directorioClientes
     ) {
         super(turnoRepo, barberoRepo, tipoCorteRepo, sucursalRepo, horarioRepo, messageBuilder, bot, horarioService);
-        this.diaExcepcionalRepo = diaExcepcionalRepo;
+        this.directorioClientes = directorioClientes;
     }
 
     @Override
@@ -256,23 +258,10 @@ public class AgendarCommandHandler extends BaseCommandHandler {
 
         Barbero barbero = getBarbero(state);
 
-        // Obtener días de la semana habilitados del barbero (horarios regulares)
-        List<Integer> diasHabilitadosRegulares = horarioRepo.findByBarbero_Id(barbero.getId())
-                .stream()
-                .map(HorarioBarbero::getDiaSemana)
-                .distinct()
-                .toList();
-
-        // Obtener fechas con días excepcionales en el rango del mes
-        List<LocalDate> fechasExcepcionales = diaExcepcionalRepo
-                .findByBarbero_IdAndFechaGreaterThanEqualOrderByFechaAsc(barbero.getId(), inicio)
-                .stream()
-                .map(DiaExcepcionalBarbero::getFecha)
-                .filter(fecha -> !fecha.isAfter(fin))
-                .distinct()
-                .toList();
+        // Horario compilado del barbero: días de la semana y días excepcionales, sin consultas
+        HorarioCompilado horario = horarioService.horarioDe(barbero.getId());
 
-        if (diasHabilitadosRegulares.isEmpty() && fechasExcepcionales.isEmpty()) {
+        if (!horario.tieneHorarios(inicio)) {
             state.reset();
             return "❌ No tenés horarios configurados. Configurá tus horarios en el panel web.";
         }
@@ -284,12 +273,8 @@ public class AgendarCommandHandler extends BaseCommandHandler {
                 continue; // Saltar días pasados
             }
 
-            // Verificar si el día de la semana está habilitado para el barbero O si es un día excepcional
-            int diaSemana = fecha.getDayOfWeek().getValue();
-            boolean esRegular = diasHabilitadosRegulares.contains(diaSemana);
-            boolean esExcepcional = fechasExcepcionales.contains(fecha);
-
-            if (!esRegular && !esExcepcional) {
+            // Verificar si el barbero trabaja ese día (horario semanal o día excepcional)
+            if (!horario.trabaja(fecha)) {
                 continue; // Saltar días no habilitados
             }
 
@@ -375,11 +360,7 @@ public class AgendarCommandHandler extends BaseCommandHandler {
         Barbero barbero = getBarbero(state);
 
         // Verificar si hay horarios regulares O días excepcionales para esta fecha
-        int diaSemana = fecha.getDayOfWeek().getValue();
-        List<HorarioBarbero> horariosRegulares = horarioRepo.findByBarbero_IdAndDiaSemana(barbero.getId(), diaSemana);
-        List<DiaExcepcionalBarbero> horariosExcepcionales = diaExcepcionalRepo.findByBarbero_IdAndFecha(barbero.getId(), fecha);
-
-        if (horariosRegulares.isEmpty() && horariosExcepcionales.isEmpty()) {
+        if (!horarioService.horarioDe(barbero.getId()).trabaja(fecha)) {
             String dia = fecha.getDayOfWeek().getDisplayName(
                     java.time.format.TextStyle.FULL,
                     new Locale("es", "AR")
@@ -733,7 +714,7 @@ public class AgendarCommandHandler extends BaseCommandHandler {
         state.setTempClienteNombre(text.trim());
 
         // Buscar números de teléfono asociados a este nombre
-        List<Object[]> clientesEncontrados = turnoRepo.findClientesByNombre(text.trim());
+        List<Object[]> clientesEncontrados = directorioClientes.buscarPorNombre(text.trim());
 
         if (clientesEncontrados.isEmpty()) {
             // No hay números asociados, solicitar teléfono normalmente
@@ -904,13 +885,17 @@ public class AgendarCommandHandler extends BaseCommandHandler {
         try {
             Barbero barbero = getBarbero(state);
 
-            // Verificar si hay turno CONFIRMADO/PAGADO/BLOQUEADO
-            boolean ocupado = turnoRepo.findByBarbero_IdAndFecha(barbero.getId(), state.getTempFecha())
-                    .stream()
-                    .filter(t -> t.getHora().equals(state.getTempHora()))
-                    .anyMatch(t -> Boolean.TRUE.equals(t.getPagoConfirmado())
-                            || "CONFIRMADO".equals(t.getEstado())
-                            || "BLOQUEADO".equals(t.getEstado()));
+            TipoCorte servicio = tipoCorteRepo.findById(state.getTempServicioId())
+                    .orElseThrow(() -> new IllegalStateException("Servicio no encontrado"));
+            List<TipoCorte> adicionales = state.getTempAdicionalesIds() == null
+                    ? List.of()
+                    : tipoCorteRepo.findAllById(state.getTempAdicionalesIds());
+            int duracion = HorarioService.duracion(servicio, adicionales);
+
+            // Verificar si el servicio completo pisa un turno CONFIRMADO/PAGADO/BLOQUEADO
+            boolean ocupado = HorarioService.pisaTurnoOcupado(
+                    turnoRepo.findByBarbero_IdAndFecha(barbero.getId(), state.getTempFecha()),
+                    state.getTempHora(), duracion);
 
             if (ocupado) {
                 state.reset();
@@ -921,19 +906,17 @@ public class AgendarCommandHandler extends BaseCommandHandler {
                     📅 %s
                     ⏰ %s
 
-                    El horario está ocupado.
+                    El horario está ocupado para un servicio de %d minutos.
                     """,
                         state.getTempFecha().format(DATE_FMT),
-                        state.getTempHora().format(TIME_FMT));
+                        state.getTempHora().format(TIME_FMT),
+                        duracion);
             }
 
             // Recuperar TODAS las entidades frescas desde la BD
             Barbero barberoFresco = barberoRepo.findById(barbero.getId())
                     .orElseThrow(() -> new IllegalStateException("Barbero no encontrado"));
 
-            TipoCorte servicio = tipoCorteRepo.findById(state.getTempServicioId())
-                    .orElseThrow(() -> new IllegalStateException("Servicio no encontrado"));
-
             Sucursal sucursal = barberoFresco.getSucursal();
             if (sucursal == null) {
                 throw new IllegalStateException("El barbero no tiene sucursal asignada");
@@ -946,6 +929,7 @@ public class AgendarCommandHandler extends BaseCommandHandler {
             turno.setTipoCorte(servicio);
             turno.setFecha(state.getTempFecha());
             turno.setHora(state.getTempHora()); // Puede ser 00:00 para FH
+            turno.setDuracionMin(duracion);
             turno.setEstado("BLOQUEADO");
             turno.setPagoConfirmado(false);
             turno.setClienteNombre(state.getTempClienteNombre());
@@ -4,6 +4,7 @@ import com.cromados.barberia.model.Barbero;
 import com.cromados.barberia.model.BloqueoTurno;
 import com.cromados.barberia.model.Turno;
 import com.cromados.barberia.repository.*;
+import com.cromados.barberia.service.BloqueoService;
 import com.cromados.barberia.service.HorarioService;
 import com.cromados.barberia.service.telegram.SessionState;
 import com.cromados.barberia.service.telegram.TelegramMessageBuilder;
@@ -14,6 +15,7 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMa
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
@@ -44,6 +46,7 @@ public class DesbloquearCommandHandler extends BaseCommandHandler {
     private static final String STEP_CUSTOM_DATE = "WAITING_CUSTOM_DATE_DESBLOQUEAR";
 
     private final BloqueoTurnoRepository bloqueoRepo;
+    private final BloqueoService bloqueoService;
 
     public DesbloquearCommandHandler(
             TurnoRepository turnoRepo,
@@ -54,10 +57,12 @@ public class DesbloquearCommandHandler extends BaseCommandHandler {
             TelegramMessageBuilder messageBuilder,
             TelegramLongPollingBot bot,
             HorarioService horarioService,
-            BloqueoTurnoRepository bloqueoRepo
+            BloqueoTurnoRepository bloqueoRepo,
+            BloqueoService bloqueoService
     ) {
         super(turnoRepo, barberoRepo, tipoCorteRepo, sucursalRepo, horarioRepo, messageBuilder, bot, horarioService);
         this.bloqueoRepo = bloqueoRepo;
+        this.bloqueoService = bloqueoService;
     }
 
     @Override
@@ -230,12 +235,8 @@ public class DesbloquearCommandHandler extends BaseCommandHandler {
                 )
                 .toList();
 
-        // 2. Buscar bloqueos de descanso (solo futuros o de hoy)
-        List<BloqueoTurno> bloqueosDescanso = bloqueoRepo.findByBarbero_IdAndFechaBetween(
-                barbero.getId(), inicio, fin
-        ).stream()
-                .filter(b -> !b.getFecha().isBefore(hoy))
-                .toList();
+        // 2. Buscar bloqueos de descanso que tocan el mes (solo días futuros o de hoy)
+        List<BloqueoTurno> bloqueosDescanso = bloqueoService.bloqueosEntre(barbero.getId(), inicio, fin);
 
         // Agrupar por día
         Map<LocalDate, Integer> bloqueosPorDia = new HashMap<>();
@@ -244,8 +245,15 @@ public class DesbloquearCommandHandler extends BaseCommandHandler {
             bloqueosPorDia.merge(t.getFecha(), 1, Integer::sum);
         }
 
+        // Un bloqueo de varios días cuenta en cada día que cubre dentro del mes
         for (BloqueoTurno b : bloqueosDescanso) {
-            bloqueosPorDia.merge(b.getFecha(), 1, Integer::sum);
+            LocalDate desde = b.getFecha().isBefore(inicio) ? inicio : b.getFecha();
+            LocalDate hasta = b.getFechaHasta().isAfter(fin) ? fin : b.getFechaHasta();
+            for (LocalDate d = desde; !d.isAfter(hasta); d = d.plusDays(1)) {
+                if (!d.isBefore(hoy)) {
+                    bloqueosPorDia.merge(d, 1, Integer::sum);
+                }
+            }
         }
 
         // Si no hay ningún bloqueo
@@ -314,9 +322,7 @@ public class DesbloquearCommandHandler extends BaseCommandHandler {
                 .toList();
 
         // 2. Buscar bloqueos de descanso
-        List<BloqueoTurno> bloqueosDescanso = bloqueoRepo.findByBarbero_IdAndFechaBetween(
-                barbero.getId(), fecha, fecha
-        );
+        List<BloqueoTurno> bloqueosDescanso = bloqueoService.bloqueosEntre(barbero.getId(), fecha, fecha);
 
         if (turnosBloqueados.isEmpty() && bloqueosDescanso.isEmpty()) {
             state.reset();
@@ -350,10 +356,15 @@ public class DesbloquearCommandHandler extends BaseCommandHandler {
 
         // Agregar descansos
         for (BloqueoTurno b : bloqueosDescanso) {
-            String texto = String.format("😴 %s - Descanso",
-                    b.getHora().format(TIME_FMT)
+            int[] rango = BloqueoService.rangoEnFecha(b, fecha);
+            LocalTime desde = LocalTime.of(rango[0] / 60, rango[0] % 60);
+            LocalTime hasta = LocalTime.of(rango[1] / 60, rango[1] % 60);
+            String texto = String.format("😴 %s a %s - %s",
+                    desde.format(TIME_FMT),
+                    hasta.format(TIME_FMT),
+                    b.getMotivo() != null ? b.getMotivo() : "Descanso"
             );
-            items.add(new BloqueoItem(b.getFecha(), b.getHora(), texto, "UNBLOCK_D_" + b.getId()));
+            items.add(new BloqueoItem(fecha, desde, texto, "UNBLOCK_D_" + b.getId()));
         }
 
         // Ordenar por hora
@@ -501,21 +512,28 @@ public class DesbloquearCommandHandler extends BaseCommandHandler {
                 return "❌ Este bloqueo no es tuyo.";
             }
 
-            // Eliminar el bloqueo
-            bloqueoRepo.delete(bloqueo);
+            // Liberar sólo la porción del día seleccionado: un bloqueo de varios días
+            // (vacaciones) se recorta o se parte, el resto sigue vigente
+            LocalDate fecha = state.getTempFecha() != null ? state.getTempFecha() : bloqueo.getFecha();
+            int[] rango = BloqueoService.rangoEnFecha(bloqueo, fecha);
+            LocalTime desde = LocalTime.of(rango[0] / 60, rango[0] % 60);
+            LocalTime hasta = LocalTime.of(rango[1] / 60, rango[1] % 60);
+            bloqueoService.desbloquear(barbero.getId(),
+                    LocalDateTime.of(fecha, desde), LocalDateTime.of(fecha, hasta));
 
             // Notificar al admin
             notificarAdmin(String.format("""
                     😴 Descanso desbloqueado por %s
 
                     📅 Fecha: %s
-                    ⏰ Hora: %s
+                    ⏰ Horario: %s a %s
 
                     El horario vuelve a estar disponible en la web.
                     """,
                     barbero.getNombre(),
-                    bloqueo.getFecha().format(DATE_FMT),
-                    bloqueo.getHora().format(TIME_FMT)
+                    fecha.format(DATE_FMT),
+                    desde.format(TIME_FMT),
+                    hasta.format(TIME_FMT)
             ));
 
             // IMPORTANTE: Resetear estado para permitir usar otros comandos
@@ -524,12 +542,13 @@ public class DesbloquearCommandHandler extends BaseCommandHandler {
             return String.format("""
                 ✅ Descanso desbloqueado exitosamente
 
-                📅 %s a las %s
+                📅 %s de %s a %s
 
                 Este horario vuelve a estar disponible en la web.
                 """,
-                    bloqueo.getFecha().format(DATE_FMT),
-                    bloqueo.getHora().format(TIME_FMT)
+                    fecha.format(DATE_FMT),
+                    desde.format(TIME_FMT),
+                    hasta.format(TIME_FMT)
             );
 
         } catch (NumberFormatException e) {
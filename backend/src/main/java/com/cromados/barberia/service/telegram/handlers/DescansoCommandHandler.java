@@ -1,10 +1,9 @@
 package com.cromados.barberia.service.telegram.handlers;
 
 import com.cromados.barberia.model.Barbero;
-import com.cromados.barberia.model.BloqueoTurno;
-import com.cromados.barberia.model.DiaExcepcionalBarbero;
-import com.cromados.barberia.model.HorarioBarbero;
 import com.cromados.barberia.repository.*;
+import com.cromados.barberia.service.BloqueoService;
+import com.cromados.barberia.service.HorarioCompilado;
 import com.cromados.barberia.service.HorarioService;
 import com.cromados.barberia.service.telegram.SessionState;
 import com.cromados.barberia.service.telegram.TelegramMessageBuilder;
@@ -26,15 +25,15 @@ import java.util.Locale;
 /**
  * Handler para el comando /descanso.
  *
- * Permite bloquear múltiples horarios para descansos (almuerzo, pausas, etc.)
- * creando registros en la tabla bloqueo_turno.
+ * Permite bloquear un rango horario para descansos (almuerzo, pausas, etc.)
+ * creando un único intervalo en la tabla bloqueo_turno.
  *
  * Flujo:
  * 1. Seleccionar fecha
  * 2. Seleccionar hora de inicio (botones)
  * 3. Seleccionar hora de fin (botones)
  * 4. Confirmar bloqueo
- * 5. Crear BloqueoTurno para cada slot en el rango
+ * 5. Crear un BloqueoTurno [desde, hasta] para el rango
  */
 @Slf4j
 @Component
@@ -47,8 +46,7 @@ public class DescansoCommandHandler extends BaseCommandHandler {
     private static final String STEP_TIME_TO = "WAITING_TIME_TO_REST";
     private static final String STEP_CONFIRM = "CONFIRM_REST";
 
-    private final BloqueoTurnoRepository bloqueoRepo;
-    private final DiaExcepcionalBarberoRepository diaExcepcionalRepo;
+    private final BloqueoService bloqueoService;
 
     public DescansoCommandHandler(
             TurnoRepository turnoRepo,
@@ -59,12 +57,10 @@ public class DescansoCommandHandler extends BaseCommandHandler {
             TelegramMessageBuilder messageBuilder,
             TelegramLongPollingBot bot,
             HorarioService horarioService,
-            BloqueoTurnoRepository bloqueoRepo,
-            DiaExcepcionalBarberoRepository diaExcepcionalRepo
+            BloqueoService bloqueoService
     ) {
         super(turnoRepo, barberoRepo, tipoCorteRepo, sucursalRepo, horarioRepo, messageBuilder, bot, horarioService);
-        this.bloqueoRepo = bloqueoRepo;
-        this.diaExcepcionalRepo = diaExcepcionalRepo;
+        this.bloqueoService = bloqueoService;
     }
 
     @Override
@@ -188,23 +184,10 @@ public class DescansoCommandHandler extends BaseCommandHandler {
 
         Barbero barbero = getBarbero(state);
 
-        // Obtener días de la semana habilitados del barbero (horarios regulares)
-        List<Integer> diasHabilitadosRegulares = horarioRepo.findByBarbero_Id(barbero.getId())
-                .stream()
-                .map(HorarioBarbero::getDiaSemana)
-                .distinct()
-                .toList();
-
-        // Obtener fechas con días excepcionales en el rango del mes
-        List<LocalDate> fechasExcepcionales = diaExcepcionalRepo
-                .findByBarbero_IdAndFechaGreaterThanEqualOrderByFechaAsc(barbero.getId(), inicio)
-                .stream()
-                .map(DiaExcepcionalBarbero::getFecha)
-                .filter(fecha -> !fecha.isAfter(fin))
-                .distinct()
-                .toList();
-
-        if (diasHabilitadosRegulares.isEmpty() && fechasExcepcionales.isEmpty()) {
+        // Horario compilado del barbero: días de la semana y días excepcionales, sin consultas
+        HorarioCompilado horario = horarioService.horarioDe(barbero.getId());
+
+        if (!horario.tieneHorarios(inicio)) {
             state.reset();
             return "❌ No tenés horarios configurados. Configurá tus horarios en el panel web.";
         }
@@ -217,12 +200,8 @@ public class DescansoCommandHandler extends BaseCommandHandler {
                 continue; // Saltar días pasados
             }
 
-            // Verificar si el día de la semana está habilitado para el barbero O si es un día excepcional
-            int diaSemana = fecha.getDayOfWeek().getValue();
-            boolean esRegular = diasHabilitadosRegulares.contains(diaSemana);
-            boolean esExcepcional = fechasExcepcionales.contains(fecha);
-
-            if (!esRegular && !esExcepcional) {
+            // Verificar si el barbero trabaja ese día (horario semanal o día excepcional)
+            if (!horario.trabaja(fecha)) {
                 continue; // Saltar días no habilitados
             }
 
@@ -297,11 +276,7 @@ public class DescansoCommandHandler extends BaseCommandHandler {
         Barbero barbero = getBarbero(state);
 
         // Verificar si hay horarios regulares O días excepcionales para esta fecha
-        int diaSemana = fecha.getDayOfWeek().getValue();
-        List<HorarioBarbero> horariosRegulares = horarioRepo.findByBarbero_IdAndDiaSemana(barbero.getId(), diaSemana);
-        List<DiaExcepcionalBarbero> horariosExcepcionales = diaExcepcionalRepo.findByBarbero_IdAndFecha(barbero.getId(), fecha);
-
-        if (horariosRegulares.isEmpty() && horariosExcepcionales.isEmpty()) {
+        if (!horarioService.horarioDe(barbero.getId()).trabaja(fecha)) {
             String dia = fecha.getDayOfWeek().getDisplayName(
                     java.time.format.TextStyle.FULL,
                     new Locale("es", "AR")
@@ -488,19 +463,13 @@ public class DescansoCommandHandler extends BaseCommandHandler {
         try {
             Barbero barbero = getBarbero(state);
 
-            // Crear BloqueoTurno para cada slot en el rango
-            List<BloqueoTurno> bloqueos = new ArrayList<>();
-            for (LocalTime hora : state.getHorariosDisponibles()) {
-                if (!hora.isBefore(state.getTempHoraDesde()) && !hora.isAfter(state.getTempHoraHasta())) {
-                    BloqueoTurno bloqueo = new BloqueoTurno();
-                    bloqueo.setBarbero(barbero);
-                    bloqueo.setFecha(state.getTempFecha());
-                    bloqueo.setHora(hora);
-                    bloqueos.add(bloqueo);
-                }
-            }
+            // Un solo intervalo cubre todo el rango; los slots sólo se cuentan para el mensaje
+            long slotsBloqueados = state.getHorariosDisponibles().stream()
+                    .filter(h -> !h.isBefore(state.getTempHoraDesde()) && !h.isAfter(state.getTempHoraHasta()))
+                    .count();
 
-            bloqueoRepo.saveAll(bloqueos);
+            bloqueoService.bloquearSlots(barbero, state.getTempFecha(),
+                    state.getTempHoraDesde(), state.getTempHoraHasta(), "Descanso");
 
             // Notificar al admin
             notificarAdmin(String.format("""
@@ -517,7 +486,7 @@ public class DescansoCommandHandler extends BaseCommandHandler {
                     state.getTempFecha().format(DATE_FMT),
                     state.getTempHoraDesde().format(TIME_FMT),
                     state.getTempHoraHasta().format(TIME_FMT),
-                    bloqueos.size()
+                    slotsBloqueados
             ));
 
             String resultado = String.format("""
@@ -534,7 +503,7 @@ public class DescansoCommandHandler extends BaseCommandHandler {
                     state.getTempFecha().format(DATE_FMT),
                     state.getTempHoraDesde().format(TIME_FMT),
                     state.getTempHoraHasta().format(TIME_FMT),
-                    bloqueos.size()
+                    slotsBloqueados
             );
 
             state.reset();
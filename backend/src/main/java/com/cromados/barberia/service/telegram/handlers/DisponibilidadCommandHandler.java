@@ -1,9 +1,8 @@
 package com.cromados.barberia.service.telegram.handlers;
 
 import com.cromados.barberia.model.Barbero;
-import com.cromados.barberia.model.DiaExcepcionalBarbero;
-import com.cromados.barberia.model.HorarioBarbero;
 import com.cromados.barberia.repository.*;
+import com.cromados.barberia.service.HorarioCompilado;
 import com.cromados.barberia.service.HorarioService;
 import com.cromados.barberia.service.telegram.SessionState;
 import com.cromados.barberia.service.telegram.TelegramMessageBuilder;
@@ -36,8 +35,6 @@ public class DisponibilidadCommandHandler extends BaseCommandHandler {
 
     private static final String STEP_MONTH = "WAITING_MONTH_DISP";
 
-    private final DiaExcepcionalBarberoRepository diaExcepcionalRepo;
-
     public DisponibilidadCommandHandler(
             TurnoRepository turnoRepo,
             BarberoRepository barberoRepo,
@@ -46,11 +43,9 @@ public class DisponibilidadCommandHandler extends BaseCommandHandler {
             HorarioBarberoRepository horarioRepo,
             TelegramMessageBuilder messageBuilder,
             TelegramLongPollingBot bot,
-            HorarioService horarioService,
-            DiaExcepcionalBarberoRepository diaExcepcionalRepo
+            HorarioService horarioService
     ) {
         super(turnoRepo, barberoRepo, tipoCorteRepo, sucursalRepo, horarioRepo, messageBuilder, bot, horarioService);
-        this.diaExcepcionalRepo = diaExcepcionalRepo;
     }
 
     @Override
@@ -163,21 +158,8 @@ public class DisponibilidadCommandHandler extends BaseCommandHandler {
         StringBuilder sb = new StringBuilder(String.format("📅 Disponibilidad - %s\n\n",
                 mes.format(DateTimeFormatter.ofPattern("MMMM yyyy", new Locale("es", "AR")))));
 
-        // Obtener días de la semana con horarios regulares
-        List<Integer> diasRegulares = horarioRepo.findByBarbero_Id(barbero.getId())
-                .stream()
-                .map(HorarioBarbero::getDiaSemana)
-                .distinct()
-                .toList();
-
-        // Obtener fechas excepcionales en el rango del mes
-        List<LocalDate> fechasExcepcionales = diaExcepcionalRepo
-                .findByBarbero_IdAndFechaGreaterThanEqualOrderByFechaAsc(barbero.getId(), inicio)
-                .stream()
-                .map(DiaExcepcionalBarbero::getFecha)
-                .filter(fecha -> !fecha.isAfter(fin))
-                .distinct()
-                .toList();
+        // Horario compilado del barbero: días de la semana y días excepcionales, sin consultas
+        HorarioCompilado horario = horarioService.horarioDe(barbero.getId());
 
         LocalDate fecha = inicio;
         int diasConHorarios = 0;
@@ -190,11 +172,7 @@ public class DisponibilidadCommandHandler extends BaseCommandHandler {
             }
 
             // Verificar si la fecha tiene horarios (regulares o excepcionales)
-            int diaSemana = fecha.getDayOfWeek().getValue();
-            boolean tieneHorariosRegulares = diasRegulares.contains(diaSemana);
-            boolean tieneHorariosExcepcionales = fechasExcepcionales.contains(fecha);
-
-            if (tieneHorariosRegulares || tieneHorariosExcepcionales) {
+            if (horario.trabaja(fecha)) {
                 // ✅ USAR HorarioService como única fuente de verdad
                 List<LocalTime> disponibles = horarioService.horariosDisponibles(barbero.getId(), fecha);
 
@@ -2,6 +2,7 @@ package com.cromados.barberia.service.telegram.handlers;
 
 import com.cromados.barberia.model.*;
 import com.cromados.barberia.repository.*;
+import com.cromados.barberia.service.DirectorioClientesService;
 import com.cromados.barberia.service.HorarioService;
 import com.cromados.barberia.service.telegram.SessionState;
 import com.cromados.barberia.service.telegram.TelegramMessageBuilder;
@@ -53,6 +54,8 @@ public class FijosCommandHandler extends BaseCommandHandler {
     private static final String STEP_MEDIO_PAGO = "WAITING_MEDIO_PAGO_FIJOS";
     private static final String STEP_CONFIRM = "CONFIRM_FIJOS";
 
+    private final DirectorioClientesService directorioClientes;
+
     public FijosCommandHandler(
             TurnoRepository turnoRepo,
             BarberoRepository barberoRepo,
@@ -61,9 +64,11 @@ public class FijosCommandHandler extends BaseCommandHandler {
             HorarioBarberoRepository horarioRepo,
             TelegramMessageBuilder messageBuilder,
             TelegramLongPollingBot bot,
-            HorarioService horarioService
+            HorarioService horarioService,
+            DirectorioClientesService directorioClientes
     ) {
         super(turnoRepo, barberoRepo, tipoCorteRepo, sucursalRepo, horarioRepo, messageBuilder, bot, horarioService);
+        this.directorioClientes = directorioClientes;
     }
 
     @Override
@@ -216,7 +221,7 @@ public class FijosCommandHandler extends BaseCommandHandler {
             LocalDate fecha = fechaActual.plusDays(i);
 
             // Verificar si esta fecha tiene horarios disponibles
-            List<LocalTime> horarios = horarioService.horariosDisponibles(barbero.getId(), fecha);
+            List<LocalTime> horarios = horarioService.horariosDisponibles(barbero.getId(), fecha, duracionServicio(state), null);
 
             if (!horarios.isEmpty()) {
                 fechasDisponibles.add(fecha);
@@ -285,7 +290,7 @@ public class FijosCommandHandler extends BaseCommandHandler {
             Barbero barbero = getBarbero(state);
 
             // Obtener horarios disponibles para esta fecha específica
-            List<LocalTime> horariosDisponibles = horarioService.horariosDisponibles(barbero.getId(), fechaSeleccionada);
+            List<LocalTime> horariosDisponibles = horarioService.horariosDisponibles(barbero.getId(), fechaSeleccionada, duracionServicio(state), null);
 
             if (horariosDisponibles.isEmpty()) {
                 state.reset();
@@ -505,11 +510,7 @@ public class FijosCommandHandler extends BaseCommandHandler {
         // Verificar conflictos sin hacer queries adicionales
         for (LocalDate fecha : fechas) {
             List<Turno> turnosDia = turnosPorFecha.getOrDefault(fecha, List.of());
-            boolean ocupado = turnosDia.stream()
-                    .filter(t -> t.getHora().equals(state.getTempHora()))
-                    .anyMatch(t -> Boolean.TRUE.equals(t.getPagoConfirmado())
-                            || "CONFIRMADO".equals(t.getEstado())
-                            || "BLOQUEADO".equals(t.getEstado()));
+            boolean ocupado = HorarioService.pisaTurnoOcupado(turnosDia, state.getTempHora(), duracionServicio(state));
 
             if (ocupado) {
                 conflictos.add(fecha);
@@ -540,7 +541,7 @@ public class FijosCommandHandler extends BaseCommandHandler {
             }
 
             Barbero barbero = getBarbero(state);
-            List<LocalTime> horariosDisponibles = horarioService.horariosDisponibles(barbero.getId(), fechaInicial);
+            List<LocalTime> horariosDisponibles = horarioService.horariosDisponibles(barbero.getId(), fechaInicial, duracionServicio(state), null);
 
             if (horariosDisponibles.isEmpty()) {
                 state.reset();
@@ -668,7 +669,7 @@ public class FijosCommandHandler extends BaseCommandHandler {
         state.setTempClienteNombre(text.trim());
 
         // Buscar números de teléfono asociados a este nombre
-        List<Object[]> clientesEncontrados = turnoRepo.findClientesByNombre(text.trim());
+        List<Object[]> clientesEncontrados = directorioClientes.buscarPorNombre(text.trim());
 
         if (clientesEncontrados.isEmpty()) {
             // No hay números asociados, solicitar teléfono normalmente
@@ -850,11 +851,7 @@ public class FijosCommandHandler extends BaseCommandHandler {
         int disponibles = 0;
         for (LocalDate fecha : state.getTempFechasFijos()) {
             List<Turno> turnosDia = turnosPorFecha.getOrDefault(fecha, List.of());
-            boolean ocupado = turnosDia.stream()
-                    .filter(t -> t.getHora().equals(state.getTempHora()))
-                    .anyMatch(t -> Boolean.TRUE.equals(t.getPagoConfirmado())
-                            || "CONFIRMADO".equals(t.getEstado())
-                            || "BLOQUEADO".equals(t.getEstado()));
+            boolean ocupado = HorarioService.pisaTurnoOcupado(turnosDia, state.getTempHora(), duracionServicio(state));
 
             String marca = ocupado ? "❌" : "✅";
             if (!ocupado) disponibles++;
@@ -908,7 +905,7 @@ public class FijosCommandHandler extends BaseCommandHandler {
             }
 
             BigDecimal precio = BigDecimal.valueOf(servicio.getPrecio());
-            List<Turno> creados = new ArrayList<>();
+            List<Turno> nuevos = new ArrayList<>();
             int saltados = 0;
 
             // ✅ OPTIMIZACIÓN: Una sola consulta para todas las fechas
@@ -923,11 +920,7 @@ public class FijosCommandHandler extends BaseCommandHandler {
             for (LocalDate fecha : state.getTempFechasFijos()) {
                 // Verificar si está ocupado
                 List<Turno> turnosDia = turnosPorFecha.getOrDefault(fecha, List.of());
-                boolean ocupado = turnosDia.stream()
-                        .filter(t -> t.getHora().equals(state.getTempHora()))
-                        .anyMatch(t -> Boolean.TRUE.equals(t.getPagoConfirmado())
-                                || "CONFIRMADO".equals(t.getEstado())
-                                || "BLOQUEADO".equals(t.getEstado()));
+                boolean ocupado = HorarioService.pisaTurnoOcupado(turnosDia, state.getTempHora(), duracionServicio(state));
 
                 if (ocupado) {
                     saltados++;
@@ -941,6 +934,7 @@ public class FijosCommandHandler extends BaseCommandHandler {
                 turno.setTipoCorte(servicio);
                 turno.setFecha(fecha);
                 turno.setHora(state.getTempHora());
+                turno.setDuracionMin(HorarioService.duracion(servicio, List.of()));
                 turno.setEstado("BLOQUEADO");
                 turno.setPagoConfirmado(false);
                 turno.setClienteNombre(state.getTempClienteNombre());
@@ -956,9 +950,12 @@ public class FijosCommandHandler extends BaseCommandHandler {
                     turno.setMontoEfectivo(BigDecimal.ZERO);
                 }
 
-                creados.add(turnoRepo.save(turno));
+                nuevos.add(turno);
             }
 
+            // ✅ Un solo saveAll: los INSERT salen en batch (ids por secuencia)
+            List<Turno> creados = turnoRepo.saveAll(nuevos);
+
             if (creados.isEmpty()) {
                 state.reset();
                 return "❌ No se pudo crear ningún turno. Todos los horarios están ocupados.";
@@ -1132,4 +1129,9 @@ public class FijosCommandHandler extends BaseCommandHandler {
                 Ejemplo: +5491123456789 o 1123456789
                 """;
     }
+
+    /** Minutos del servicio elegido: los horarios y conflictos se miden con esta duración. */
+    private int duracionServicio(SessionState state) {
+        return HorarioService.duracion(state.getTempServicio(), List.of());
+    }
 }
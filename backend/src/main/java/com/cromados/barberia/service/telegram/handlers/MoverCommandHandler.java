@@ -1,10 +1,9 @@
 package com.cromados.barberia.service.telegram.handlers;
 
 import com.cromados.barberia.model.Barbero;
-import com.cromados.barberia.model.DiaExcepcionalBarbero;
-import com.cromados.barberia.model.HorarioBarbero;
 import com.cromados.barberia.model.Turno;
 import com.cromados.barberia.repository.*;
+import com.cromados.barberia.service.HorarioCompilado;
 import com.cromados.barberia.service.telegram.SessionState;
 import com.cromados.barberia.service.telegram.TelegramMessageBuilder;
 import lombok.extern.slf4j.Slf4j;
@@ -47,8 +46,6 @@ public class MoverCommandHandler extends BaseCommandHandler {
     private static final String STEP_NEW_TIME = "WAITING_NEW_TIME_MOVER";
     private static final String STEP_CONFIRM = "WAITING_CONFIRM_MOVER";
 
-    private final DiaExcepcionalBarberoRepository diaExcepcionalRepo;
-
     public MoverCommandHandler(
             TurnoRepository turnoRepo,
             BarberoRepository barberoRepo,
@@ -57,11 +54,9 @@ public class MoverCommandHandler extends BaseCommandHandler {
             HorarioBarberoRepository horarioRepo,
             TelegramMessageBuilder messageBuilder,
             TelegramLongPollingBot bot,
-            com.cromados.barberia.service.HorarioService horarioService,
-            DiaExcepcionalBarberoRepository diaExcepcionalRepo
+            com.cromados.barberia.service.HorarioService horarioService
     ) {
         super(turnoRepo, barberoRepo, tipoCorteRepo, sucursalRepo, horarioRepo, messageBuilder, bot, horarioService);
-        this.diaExcepcionalRepo = diaExcepcionalRepo;
     }
 
     @Override
@@ -258,23 +253,10 @@ public class MoverCommandHandler extends BaseCommandHandler {
 
         Barbero barbero = getBarbero(state);
 
-        // Obtener días de la semana habilitados del barbero (horarios regulares)
-        List<Integer> diasHabilitadosRegulares = horarioRepo.findByBarbero_Id(barbero.getId())
-                .stream()
-                .map(com.cromados.barberia.model.HorarioBarbero::getDiaSemana)
-                .distinct()
-                .toList();
-
-        // Obtener fechas con días excepcionales en el rango del mes
-        List<LocalDate> fechasExcepcionales = diaExcepcionalRepo
-                .findByBarbero_IdAndFechaGreaterThanEqualOrderByFechaAsc(barbero.getId(), inicio)
-                .stream()
-                .map(DiaExcepcionalBarbero::getFecha)
-                .filter(fecha -> !fecha.isAfter(fin))
-                .distinct()
-                .toList();
+        // Horario compilado del barbero: días de la semana y días excepcionales, sin consultas
+        HorarioCompilado horario = horarioService.horarioDe(barbero.getId());
 
-        if (diasHabilitadosRegulares.isEmpty() && fechasExcepcionales.isEmpty()) {
+        if (!horario.tieneHorarios(inicio)) {
             state.reset();
             return "❌ No tenés horarios configurados. Configurá tus horarios en el panel web.";
         }
@@ -287,12 +269,8 @@ public class MoverCommandHandler extends BaseCommandHandler {
                 continue; // Saltar días pasados
             }
 
-            // Verificar si el día de la semana está habilitado para el barbero O si es un día excepcional
-            int diaSemana = fecha.getDayOfWeek().getValue();
-            boolean esRegular = diasHabilitadosRegulares.contains(diaSemana);
-            boolean esExcepcional = fechasExcepcionales.contains(fecha);
-
-            if (!esRegular && !esExcepcional) {
+            // Verificar si el barbero trabaja ese día (horario semanal o día excepcional)
+            if (!horario.trabaja(fecha)) {
                 continue; // Saltar días no habilitados
             }
 
@@ -367,40 +345,27 @@ public class MoverCommandHandler extends BaseCommandHandler {
 
     /**
      * Muestra horarios disponibles para la nueva fecha.
-     * ✅ USA TurnoService.horariosDisponibles() como única fuente de verdad.
+     * ✅ USA HorarioService.horariosDisponibles() como única fuente de verdad, con la duración
+     * del turno y sin contarlo a él como ocupado (su propio horario sigue siendo válido).
      */
     private String showAvailableTimes(Long chatId, SessionState state, LocalDate fecha) {
         Barbero barbero = getBarbero(state);
 
+        Turno turnoAMover = turnoRepo.findById(state.getTempTurnoIdToMove()).orElse(null);
+        if (turnoAMover == null) {
+            state.reset();
+            return "❌ Error: turno no encontrado";
+        }
+
         // ✅ USAR ÚNICA FUENTE DE VERDAD: HorarioService.horariosDisponibles()
-        List<LocalTime> disponibles = horarioService.horariosDisponibles(barbero.getId(), fecha);
+        List<LocalTime> disponibles = horarioService.horariosDisponibles(
+                barbero.getId(), fecha, turnoAMover.duracionEfectiva(), turnoAMover.getId());
 
         if (disponibles.isEmpty()) {
             state.reset();
             return "❌ No hay horarios disponibles para el " + fecha.format(DATE_FMT) + ". Usá /mover para intentar con otra fecha.";
         }
 
-        // ✅ EXCLUIR el turno que estamos moviendo (ya que su slot debería estar disponible)
-        List<Turno> turnosExistentes = turnoRepo.findByBarbero_IdAndFecha(barbero.getId(), fecha);
-        List<LocalTime> ocupadosPorOtros = turnosExistentes.stream()
-                .filter(t -> Boolean.TRUE.equals(t.getPagoConfirmado()) || "BLOQUEADO".equals(t.getEstado()))
-                .filter(t -> !t.getId().equals(state.getTempTurnoIdToMove()))
-                .map(Turno::getHora)
-                .toList();
-
-        // Agregar de vuelta el slot del turno que estamos moviendo si no está en disponibles
-        LocalTime horaTurnoAMover = turnoRepo.findById(state.getTempTurnoIdToMove())
-                .map(Turno::getHora)
-                .orElse(null);
-
-        if (horaTurnoAMover != null && !horaTurnoAMover.equals(LocalTime.of(0, 0))) {
-            if (!disponibles.contains(horaTurnoAMover) && !ocupadosPorOtros.contains(horaTurnoAMover)) {
-                disponibles = new ArrayList<>(disponibles);
-                disponibles.add(horaTurnoAMover);
-                disponibles.sort(LocalTime::compareTo);
-            }
-        }
-
         state.setHorariosDisponibles(disponibles);
 
         List<List<InlineKeyboardButton>> rows = new ArrayList<>();
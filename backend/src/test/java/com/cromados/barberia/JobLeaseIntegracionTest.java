@@ -0,0 +1,175 @@
+package com.cromados.barberia;
+
+import com.cromados.barberia.repository.JobLeaseRepository;
+import com.cromados.barberia.service.JobLeaseService;
+import com.cromados.barberia.service.TelegramBotService;
+import com.cromados.barberia.service.TwilioService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.telegram.telegrambots.meta.TelegramBotsApi;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Leases de jobs entre instancias contra un PostgreSQL real: cada {@link JobLeaseService}
+ * creado acá es una "instancia" con su propio owner, todas sobre la misma tabla job_lease.
+ *
+ * Corre sólo si TEST_DATABASE_URL apunta a una base descartable (ver PagoWebhookIntegracionTest).
+ */
+@SpringBootTest(properties = {
+        "mp.gateway=stub",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.frontend.baseUrl=",
+        "app.backend.baseUrl=",
+        "app.upload.dir=${java.io.tmpdir}/cromados-test-uploads",
+        "telegram.bot.token=test",
+        "twilio.accountSid=",
+        "twilio.authToken=",
+        "whatsapp.meta.accessToken=test",
+        "whatsapp.webhook.verify.token=test",
+        "admin.passwordHash=$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3K7Z9d/x6k0Zs1rO9u7zY9W"
+})
+@ActiveProfiles("local")
+@EnabledIfEnvironmentVariable(named = "TEST_DATABASE_URL", matches = ".+")
+class JobLeaseIntegracionTest {
+
+    @DynamicPropertySource
+    static void propiedades(DynamicPropertyRegistry registry) throws Exception {
+        registry.add("spring.datasource.url", () -> System.getenv("TEST_DATABASE_URL"));
+        registry.add("spring.datasource.username",
+                () -> Optional.ofNullable(System.getenv("TEST_DATABASE_USERNAME")).orElse("postgres"));
+        registry.add("spring.datasource.password",
+                () -> Optional.ofNullable(System.getenv("TEST_DATABASE_PASSWORD")).orElse(""));
+
+        KeyPairGenerator generador = KeyPairGenerator.getInstance("RSA");
+        generador.initialize(2048);
+        KeyPair par = generador.generateKeyPair();
+        Base64.Encoder b64 = Base64.getEncoder();
+        registry.add("security.jwt.publicKeyPem", () -> b64.encodeToString(par.getPublic().getEncoded()));
+        registry.add("security.jwt.privateKeyPem", () -> b64.encodeToString(par.getPrivate().getEncoded()));
+    }
+
+    @MockBean TelegramBotsApi telegramBotsApi;
+    @MockBean TelegramBotService telegramBot;
+    @MockBean TwilioService twilioService;
+
+    @Autowired JobLeaseRepository leaseRepo;
+
+    private final String job = "test-" + UUID.randomUUID();
+    private final List<JobLeaseService> instancias = new ArrayList<>();
+
+    private JobLeaseService instancia(long ttlSegundos, long minimoSegundos) {
+        JobLeaseService s = new JobLeaseService(leaseRepo, ttlSegundos, minimoSegundos);
+        instancias.add(s);
+        return s;
+    }
+
+    @AfterEach
+    void apagar() {
+        instancias.forEach(JobLeaseService::shutdown);
+    }
+
+    @Test
+    void dosInstanciasNoCorrenElMismoJobALaVez() throws Exception {
+        JobLeaseService a = instancia(120, 0);
+        JobLeaseService b = instancia(120, 0);
+        CountDownLatch adentro = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        AtomicInteger corridasB = new AtomicInteger();
+
+        CompletableFuture<Boolean> corridaA = CompletableFuture.supplyAsync(() -> a.ejecutar(job, () -> {
+            adentro.countDown();
+            try {
+                soltar.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(adentro.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(b.ejecutar(job, corridasB::incrementAndGet)).isFalse();
+        assertThat(corridasB).hasValue(0);
+
+        soltar.countDown();
+        assertThat(corridaA.get(10, TimeUnit.SECONDS)).isTrue();
+
+        // Liberado (sin retención mínima): la otra instancia lo toma enseguida
+        assertThat(b.ejecutar(job, corridasB::incrementAndGet)).isTrue();
+        assertThat(corridasB).hasValue(1);
+    }
+
+    @Test
+    void unLeaseVencidoLoTomaOtraInstancia() throws Exception {
+        // Una instancia tomó el lease y murió sin liberarlo
+        assertThat(leaseRepo.adquirir(job, "instancia-caida", 1)).isEqualTo(1);
+        JobLeaseService b = instancia(120, 0);
+
+        assertThat(b.ejecutar(job, () -> {})).isFalse();
+
+        Thread.sleep(1500);
+        assertThat(b.ejecutar(job, () -> {})).isTrue();
+        assertThat(leaseRepo.findById(job)).get()
+                .extracting(l -> l.getOwner()).isEqualTo(b.getOwner());
+    }
+
+    @Test
+    void elHeartbeatRetieneElLeaseMasAlláDelTtl() throws Exception {
+        JobLeaseService a = instancia(3, 0);   // heartbeat cada 1 s
+        JobLeaseService b = instancia(3, 0);
+        CountDownLatch adentro = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> corridaA = CompletableFuture.supplyAsync(() -> a.ejecutar(job, () -> {
+            adentro.countDown();
+            try {
+                soltar.await(15, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(adentro.await(10, TimeUnit.SECONDS)).isTrue();
+
+        Thread.sleep(4500);   // más que el ttl: sin heartbeat ya habría vencido
+        assertThat(b.ejecutar(job, () -> {})).isFalse();
+
+        soltar.countDown();
+        assertThat(corridaA.get(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(a.estadisticas().get(job)).containsEntry("perdidos", 0L);
+    }
+
+    @Test
+    void liberarDentroDeLaRetencionMinimaSigueBloqueandoElCron() throws Exception {
+        JobLeaseService a = instancia(120, 2);
+        JobLeaseService b = instancia(120, 2);
+
+        assertThat(a.ejecutarCron(job, () -> {})).isTrue();
+
+        // El mismo cron disparado por el reloj de otra instancia un instante después
+        assertThat(b.ejecutarCron(job, () -> {})).isFalse();
+        // La dueña sí puede volver a tomarlo (ej. un temporizador local), sin acortar la retención
+        assertThat(a.ejecutar(job, () -> {})).isTrue();
+        assertThat(b.ejecutarCron(job, () -> {})).isFalse();
+
+        Thread.sleep(2500);
+        assertThat(b.ejecutarCron(job, () -> {})).isTrue();
+    }
+}
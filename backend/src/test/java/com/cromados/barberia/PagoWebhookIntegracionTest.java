@@ -0,0 +1,266 @@
+package com.cromados.barberia;
+
+import com.cromados.barberia.dto.CheckoutRequest;
+import com.cromados.barberia.model.Barbero;
+import com.cromados.barberia.model.HorarioBarbero;
+import com.cromados.barberia.model.Sucursal;
+import com.cromados.barberia.model.TipoCorte;
+import com.cromados.barberia.model.Turno;
+import com.cromados.barberia.repository.BarberoRepository;
+import com.cromados.barberia.repository.CheckoutSesionRepository;
+import com.cromados.barberia.repository.HorarioBarberoRepository;
+import com.cromados.barberia.repository.PagoRepository;
+import com.cromados.barberia.repository.SucursalRepository;
+import com.cromados.barberia.repository.TipoCorteRepository;
+import com.cromados.barberia.repository.TurnoRepository;
+import com.cromados.barberia.service.MercadoPagoPaymentCache;
+import com.cromados.barberia.service.PagoService;
+import com.cromados.barberia.service.StubPaymentGateway;
+import com.cromados.barberia.service.TelegramBotService;
+import com.cromados.barberia.service.TwilioService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.telegram.telegrambots.meta.TelegramBotsApi;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checkout → pago simulado → webhook → turnos, contra un PostgreSQL real (advisory locks,
+ * índices únicos y upserts nativos no se pueden simular en memoria).
+ *
+ * Corre sólo si TEST_DATABASE_URL apunta a una base descartable (el esquema se crea y se
+ * borra con ddl-auto=create-drop); usuario y contraseña en TEST_DATABASE_USERNAME y
+ * TEST_DATABASE_PASSWORD. Telegram y Twilio quedan reemplazados por mocks.
+ */
+@SpringBootTest(properties = {
+        "mp.gateway=stub",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.frontend.baseUrl=",
+        "app.backend.baseUrl=",
+        "app.upload.dir=${java.io.tmpdir}/cromados-test-uploads",
+        "telegram.bot.token=test",
+        "twilio.accountSid=",
+        "twilio.authToken=",
+        "whatsapp.meta.accessToken=test",
+        "whatsapp.webhook.verify.token=test",
+        "admin.passwordHash=$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3K7Z9d/x6k0Zs1rO9u7zY9W"
+})
+@ActiveProfiles("local")
+@EnabledIfEnvironmentVariable(named = "TEST_DATABASE_URL", matches = ".+")
+class PagoWebhookIntegracionTest {
+
+    @DynamicPropertySource
+    static void propiedades(DynamicPropertyRegistry registry) throws Exception {
+        registry.add("spring.datasource.url", () -> System.getenv("TEST_DATABASE_URL"));
+        registry.add("spring.datasource.username",
+                () -> Optional.ofNullable(System.getenv("TEST_DATABASE_USERNAME")).orElse("postgres"));
+        registry.add("spring.datasource.password",
+                () -> Optional.ofNullable(System.getenv("TEST_DATABASE_PASSWORD")).orElse(""));
+
+        KeyPairGenerator generador = KeyPairGenerator.getInstance("RSA");
+        generador.initialize(2048);
+        KeyPair par = generador.generateKeyPair();
+        Base64.Encoder b64 = Base64.getEncoder();
+        registry.add("security.jwt.publicKeyPem", () -> b64.encodeToString(par.getPublic().getEncoded()));
+        registry.add("security.jwt.privateKeyPem", () -> b64.encodeToString(par.getPrivate().getEncoded()));
+    }
+
+    @MockBean TelegramBotsApi telegramBotsApi;
+    @MockBean TelegramBotService telegramBot;
+    @MockBean TwilioService twilioService;
+
+    @Autowired PagoService pagoService;
+    @Autowired MercadoPagoPaymentCache paymentCache;
+    @Autowired StubPaymentGateway gateway;
+    @Autowired SucursalRepository sucursalRepo;
+    @Autowired BarberoRepository barberoRepo;
+    @Autowired TipoCorteRepository tipoCorteRepo;
+    @Autowired HorarioBarberoRepository horarioRepo;
+    @Autowired TurnoRepository turnoRepo;
+    @Autowired PagoRepository pagoRepo;
+    @Autowired CheckoutSesionRepository checkoutRepo;
+
+    private Sucursal sucursal;
+    private Barbero barbero;
+    private TipoCorte servicio;
+    private final LocalDate fecha = LocalDate.now().plusDays(3);
+
+    @BeforeEach
+    void datos() {
+        when(twilioService.sendConfirmacionAsync(any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture("SM-test"));
+
+        // Un barbero nuevo por test: cada uno tiene su agenda vacía
+        sucursal = sucursalRepo.save(Sucursal.builder().nombre("Centro").direccion("Calle 1").build());
+        barbero = barberoRepo.save(Barbero.builder().nombre("Barbero " + System.nanoTime()).sucursal(sucursal).build());
+        servicio = tipoCorteRepo.save(TipoCorte.builder()
+                .nombre("Corte").precio(10000).duracionMin(60).sesiones(1).adicional(false).activo(true).build());
+        for (int dia = 1; dia <= 7; dia++) {
+            horarioRepo.save(HorarioBarbero.builder().barbero(barbero).diaSemana(dia).inicio("09:00").fin("20:00").build());
+        }
+    }
+
+    @Test
+    void pagoAprobadoCreaElTurnoYElDuplicadoSeIgnora() throws Exception {
+        long paymentId = pagar(checkout("10:00"));
+
+        pagoService.procesarWebhook(notificacion(paymentId));
+
+        List<Turno> turnos = turnoRepo.findByBarbero_IdAndFecha(barbero.getId(), fecha);
+        assertThat(turnos).hasSize(1);
+        Turno turno = turnos.get(0);
+        assertThat(turno.getEstado()).isEqualTo("CONFIRMADO");
+        assertThat(turno.getPagoConfirmado()).isTrue();
+        assertThat(turno.getDuracionMin()).isEqualTo(60);
+        assertThat(turno.getWhatsappSid()).isEqualTo("SM-test");   // registrado tras el commit
+        assertThat(pagoRepo.existsByMpPaymentId(String.valueOf(paymentId))).isTrue();
+        assertThat(checkoutRepo.findMpPaymentIdsIn(List.of(String.valueOf(paymentId)))).hasSize(1);
+
+        // MP reintenta la notificación: ni turno, ni Pago, ni avisos nuevos
+        pagoService.procesarWebhook(notificacion(paymentId));
+
+        assertThat(turnoRepo.findByBarbero_IdAndFecha(barbero.getId(), fecha)).hasSize(1);
+        assertThat(pagoRepo.findMpPaymentIdsIn(List.of(String.valueOf(paymentId)))).hasSize(1);
+        verify(telegramBot, times(1)).notificarNuevoTurno(any());
+    }
+
+    @Test
+    void duplicadosConcurrentesCreanUnSoloTurno() throws Exception {
+        long paymentId = pagar(checkout("15:00"));
+
+        enParalelo(paymentId, paymentId, paymentId, paymentId);
+
+        assertThat(turnoRepo.findByBarbero_IdAndFecha(barbero.getId(), fecha)).hasSize(1);
+        assertThat(pagoRepo.findMpPaymentIdsIn(List.of(String.valueOf(paymentId)))).hasSize(1);
+        verify(telegramBot, times(1)).notificarNuevoTurno(any());
+    }
+
+    @Test
+    void pagosDistintosAlMismoHorarioConfirmanUnoSolo() throws Exception {
+        // Dos clientes pagan el mismo horario antes de que se confirme ninguno
+        long primero = pagar(checkout("17:00"));
+        long segundo = pagar(checkout("17:00"));
+
+        enParalelo(primero, segundo, primero, segundo);
+
+        List<Turno> turnos = turnoRepo.findByBarbero_IdAndFecha(barbero.getId(), fecha);
+        assertThat(turnos).hasSize(1);
+        assertThat(pagoRepo.findMpPaymentIdsIn(List.of(String.valueOf(primero), String.valueOf(segundo))))
+                .hasSize(1);
+        assertThat(checkoutRepo.findMpPaymentIdsIn(List.of(String.valueOf(primero), String.valueOf(segundo))))
+                .hasSize(2);   // el que llegó segundo queda procesado sin turno
+        verify(telegramBot, times(1)).notificarNuevoTurno(any());
+    }
+
+    @Test
+    void reintentoDeUnCheckoutSinLugarNoCreaTurnoDespues() throws Exception {
+        String preferencia = checkout("18:00");
+        // Otro cliente confirma el mismo horario antes de que se acredite este pago
+        pagoService.procesarWebhook(notificacion(pagar(checkout("18:00"))));
+        long paymentId = pagar(preferencia);
+        pagoService.procesarWebhook(notificacion(paymentId));   // sin lugar: checkout procesado, sin Pago
+        assertThat(pagoRepo.existsByMpPaymentId(String.valueOf(paymentId))).isFalse();
+
+        // Se libera el horario y MP reintenta en otra instancia (o tras un reinicio: LRU vacío)
+        Turno ocupante = turnoRepo.findByBarbero_IdAndFecha(barbero.getId(), fecha).get(0);
+        ocupante.setEstado("CANCELADO");
+        ocupante.setPagoConfirmado(false);
+        turnoRepo.save(ocupante);
+        ((Set<?>) ReflectionTestUtils.getField(paymentCache, "procesados")).clear();
+
+        pagoService.procesarWebhook(notificacion(paymentId));
+
+        assertThat(turnoRepo.findByBarbero_IdAndFecha(barbero.getId(), fecha))
+                .extracting(Turno::getEstado).containsExactly("CANCELADO");
+        verify(telegramBot, times(1)).notificarNuevoTurno(any());
+    }
+
+    @Test
+    void pagoRechazadoNoCreaTurno() throws Exception {
+        String preferencia = checkout("12:00");
+        long paymentId = gateway.pagar(preferencia, "rejected");
+
+        pagoService.procesarWebhook(notificacion(paymentId));
+
+        assertThat(turnoRepo.findByBarbero_IdAndFecha(barbero.getId(), fecha)).isEmpty();
+        assertThat(pagoRepo.existsByMpPaymentId(String.valueOf(paymentId))).isFalse();
+    }
+
+    /* ===================== Helpers ===================== */
+
+    /** Crea el checkout como el front (sesión única) y devuelve el id de la preferencia. */
+    private String checkout(String hora) throws Exception {
+        CheckoutRequest req = new CheckoutRequest();
+        req.setSucursalId(sucursal.getId());
+        req.setBarberoId(barbero.getId());
+        req.setTipoCorteId(servicio.getId());
+        req.setFecha(fecha.toString());
+        req.setHora(hora);
+        req.setClienteNombre("Cliente Test");
+        req.setClienteTelefono("+5493511234567");
+        req.setClienteEdad(30);
+
+        Map<String, Object> pref = pagoService.crearPreferencia(req);
+        return (String) pref.get("id");
+    }
+
+    private long pagar(String preferencia) {
+        return gateway.pagar(preferencia, "approved");
+    }
+
+    /** Procesa las notificaciones a la vez, una por hilo; falla si alguna tira excepción. */
+    private void enParalelo(long... paymentIds) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(paymentIds.length);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<Void>> resultados = new ArrayList<>();
+        for (long paymentId : paymentIds) {
+            Callable<Void> tarea = () -> {
+                largada.await();
+                pagoService.procesarWebhook(notificacion(paymentId));
+                return null;
+            };
+            resultados.add(pool.submit(tarea));
+        }
+        largada.countDown();
+        try {
+            for (Future<Void> r : resultados) {
+                r.get(30, TimeUnit.SECONDS); // ninguna notificación falla (antes: 500 por uk_pagos_mp_payment_id)
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Map<String, String> notificacion(long paymentId) {
+        return Map.of("type", "payment", "data.id", String.valueOf(paymentId));
+    }
+}
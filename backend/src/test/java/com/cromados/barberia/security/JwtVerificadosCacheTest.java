@@ -0,0 +1,119 @@
+package com.cromados.barberia.security;
+
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtVerificadosCacheTest {
+
+    private static KeyPair par;
+    private static JwtService jwt;
+
+    @BeforeAll
+    static void claves() throws Exception {
+        KeyPairGenerator generador = KeyPairGenerator.getInstance("RSA");
+        generador.initialize(2048);
+        par = generador.generateKeyPair();
+        Base64.Encoder b64 = Base64.getEncoder();
+        jwt = new JwtService("cromados", "cromados-admin", 60, 15, "RS256", "k1",
+                b64.encodeToString(par.getPublic().getEncoded()),
+                b64.encodeToString(par.getPrivate().getEncoded()), "", "", "");
+    }
+
+    /** Access token como los de JwtService pero con vencimiento corto (exp va en segundos: se trunca). */
+    private static String tokenQueVence(String sujeto, Duration vida) {
+        Instant ahora = Instant.now();
+        return Jwts.builder()
+                .header().keyId("k1").and()
+                .issuer("cromados")
+                .audience().add("cromados-admin").and()
+                .subject(sujeto)
+                .issuedAt(Date.from(ahora))
+                .notBefore(Date.from(ahora.minusSeconds(5)))
+                .expiration(Date.from(ahora.plus(vida)))
+                .claim("roles", List.of("ADMIN"))
+                .signWith(par.getPrivate(), Jwts.SIG.RS256)
+                .compact();
+    }
+
+    @Test
+    void unTokenVerificadoSeSirveDeLaCacheHastaSuExp() throws Exception {
+        JwtVerificadosCache cache = new JwtVerificadosCache(jwt, 100);
+        String token = tokenQueVence("admin", Duration.ofSeconds(2));
+
+        Authentication primera = cache.autenticar(token);
+        assertThat(primera).isNotNull();
+        assertThat(primera.getName()).isEqualTo("admin");
+        assertThat(primera.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_ADMIN");
+        assertThat(cache.autenticar(token)).isSameAs(primera);
+        assertThat(cache.estadisticas()).containsEntry("aciertos", 1L).containsEntry("fallos", 1L);
+
+        Thread.sleep(2100);
+
+        // Vencido: se descarta la entrada y la verificación completa lo rechaza
+        assertThat(cache.autenticar(token)).isNull();
+        assertThat(cache.estadisticas())
+                .containsEntry("entradas", 0)
+                .containsEntry("invalidos", 1L);
+    }
+
+    @Test
+    void conLaCacheLlenaSeVerificaPeroNoSeGuarda() {
+        JwtVerificadosCache cache = new JwtVerificadosCache(jwt, 2);
+        // Sin jti, dos tokens del mismo segundo son idénticos: un sujeto distinto por token
+        cache.autenticar(jwt.createAccess("admin-1", List.of("ADMIN")));
+        cache.autenticar(jwt.createAccess("admin-2", List.of("ADMIN")));
+        String tercero = jwt.createAccess("admin-3", List.of("ADMIN"));
+
+        assertThat(cache.autenticar(tercero)).isNotNull();
+        assertThat(cache.autenticar(tercero)).isNotNull();
+
+        // Ninguna entrada estaba vencida: el tercero se verificó las dos veces
+        assertThat(cache.estadisticas())
+                .containsEntry("entradas", 2)
+                .containsEntry("sinLugar", 2L)
+                .containsEntry("fallos", 4L)
+                .containsEntry("aciertos", 0L);
+    }
+
+    @Test
+    void alLlenarseSePurganLasEntradasVencidas() throws Exception {
+        JwtVerificadosCache cache = new JwtVerificadosCache(jwt, 2);
+        cache.autenticar(tokenQueVence("admin-1", Duration.ofSeconds(2)));
+        cache.autenticar(tokenQueVence("admin-2", Duration.ofSeconds(2)));
+        assertThat(cache.estadisticas()).containsEntry("entradas", 2);
+
+        Thread.sleep(2100);
+        String nuevo = jwt.createAccess("admin-3", List.of("ADMIN"));
+        Authentication auth = cache.autenticar(nuevo);
+
+        assertThat(cache.estadisticas())
+                .containsEntry("entradas", 1)
+                .containsEntry("sinLugar", 0L);
+        assertThat(cache.autenticar(nuevo)).isSameAs(auth);
+    }
+
+    @Test
+    void unTokenAdulteradoNoSeGuarda() {
+        JwtVerificadosCache cache = new JwtVerificadosCache(jwt, 100);
+        String token = jwt.createAccess("admin", List.of("ADMIN"));
+        String adulterado = token.substring(0, token.length() - 4) + "AAAA";
+
+        assertThat(cache.autenticar(adulterado)).isNull();
+        assertThat(cache.autenticar(adulterado)).isNull();
+        assertThat(cache.estadisticas())
+                .containsEntry("entradas", 0)
+                .containsEntry("invalidos", 2L);
+    }
+}
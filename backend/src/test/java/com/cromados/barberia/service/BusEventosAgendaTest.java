@@ -0,0 +1,133 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.model.EventoAgenda;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BusEventosAgendaTest {
+
+    private final BusEventosAgenda bus = new BusEventosAgenda(16);
+
+    @AfterEach
+    void apagar() {
+        bus.shutdown();
+    }
+
+    /** El barberoId hace de número de secuencia del evento. */
+    private static EventoAgenda evento(long n) {
+        return new EventoAgenda.HorarioCambiado(n, null, Instant.now());
+    }
+
+    private static long numero(EventoAgenda e) {
+        return ((EventoAgenda.HorarioCambiado) e).barberoId();
+    }
+
+    private static void esperarHasta(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condicion.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("timeout esperando al suscriptor").isLessThan(limite);
+            Thread.sleep(5);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> suscriptor(String nombre) {
+        return (Map<String, Object>) ((Map<String, Object>) bus.estadisticas().get("suscriptores")).get(nombre);
+    }
+
+    @Test
+    void cadaSuscriptorRecibeTodoEnOrdenDandoVariasVueltas() throws Exception {
+        List<Long> rapido = new CopyOnWriteArrayList<>();
+        List<Long> lento = new CopyOnWriteArrayList<>();
+        bus.suscribir("rapido", e -> rapido.add(numero(e)));
+        bus.suscribir("lento", e -> {
+            lento.add(numero(e));
+            if (numero(e) % 8 == 0) LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1)); // se atrasa
+        });
+
+        // 10 vueltas del buffer; si se llena, el productor reintenta el mismo evento
+        for (long n = 0; n < 160; n++) {
+            while (!bus.publicar(evento(n))) {
+                Thread.sleep(1);
+            }
+        }
+
+        List<Long> esperado = LongStream.range(0, 160).boxed().toList();
+        esperarHasta(() -> rapido.size() == 160 && lento.size() == 160);
+        assertThat(rapido).containsExactlyElementsOf(esperado);
+        assertThat(lento).containsExactlyElementsOf(esperado);
+        assertThat(bus.estadisticas()).containsEntry("publicados", 160L);
+    }
+
+    @Test
+    void conUnSuscriptorUnaVueltaAtrasSeDescartaSinBloquear() throws Exception {
+        CountDownLatch trabado = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        List<Long> recibidos = new CopyOnWriteArrayList<>();
+        bus.suscribir("trabado", e -> {
+            trabado.countDown();
+            try {
+                soltar.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            recibidos.add(numero(e));
+        });
+        AtomicInteger observados = new AtomicInteger();
+        bus.observar(e -> observados.incrementAndGet());
+
+        assertThat(bus.publicar(evento(0))).isTrue();
+        assertThat(trabado.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // El 0 sigue en proceso: entran 16 (una vuelta completa) y el resto se descarta
+        int aceptados = 1;
+        for (long n = 1; n < 40; n++) {
+            if (bus.publicar(evento(n))) aceptados++;
+        }
+        assertThat(aceptados).isEqualTo(16);
+        assertThat(bus.estadisticas()).containsEntry("descartados", 24L);
+        assertThat(observados).hasValue(40);   // los observadores ven también lo descartado
+
+        soltar.countDown();
+        esperarHasta(() -> recibidos.size() == 16);
+        assertThat(recibidos).containsExactlyElementsOf(LongStream.range(0, 16).boxed().toList());
+
+        // Al ponerse al día vuelve a haber lugar
+        assertThat(bus.publicar(evento(99))).isTrue();
+        esperarHasta(() -> recibidos.size() == 17);
+        assertThat(recibidos.get(16)).isEqualTo(99L);
+    }
+
+    @Test
+    void unHandlerQueFallaNoCortaElOrden() throws Exception {
+        List<Long> recibidos = new CopyOnWriteArrayList<>();
+        bus.suscribir("fragil", e -> {
+            if (numero(e) == 3) throw new IllegalStateException("falla de prueba");
+            recibidos.add(numero(e));
+        });
+
+        for (long n = 0; n < 6; n++) {
+            assertThat(bus.publicar(evento(n))).isTrue();
+        }
+
+        esperarHasta(() -> suscriptor("fragil").get("procesados").equals(6L));
+        assertThat(recibidos).containsExactly(0L, 1L, 2L, 4L, 5L);
+        assertThat(suscriptor("fragil"))
+                .containsEntry("procesados", 6L)
+                .containsEntry("errores", 1L)
+                .containsEntry("atraso", 0L);
+    }
+}
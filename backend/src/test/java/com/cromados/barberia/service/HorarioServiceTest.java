@@ -0,0 +1,115 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.model.Turno;
+import com.cromados.barberia.repository.TurnoRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HorarioServiceTest {
+
+    private static final LocalDate FECHA = LocalDate.now().plusDays(7); // nunca "hoy": no recorta por hora actual
+
+    private final HorarioCompiladoService horarioCompiladoService = mock(HorarioCompiladoService.class);
+    private final BloqueoService bloqueoService = mock(BloqueoService.class);
+    private final HorarioService horarioService = new HorarioService(
+            horarioCompiladoService, mock(TurnoRepository.class), bloqueoService);
+
+    /** Horario con las mismas franjas todos los días de la semana. */
+    private static HorarioCompilado todosLosDias(int... franjas) {
+        int[][] semana = new int[8][];
+        Arrays.fill(semana, franjas);
+        return new HorarioCompilado(semana, new TreeMap<>());
+    }
+
+    private static Turno turno(int hh, int mm, int duracion, String estado, boolean pagado) {
+        return Turno.builder()
+                .hora(LocalTime.of(hh, mm))
+                .duracionMin(duracion)
+                .estado(estado)
+                .pagoConfirmado(pagado)
+                .build();
+    }
+
+    @Test
+    void pisaTurnoOcupadoSigueElCriterioDeDisponibilidad() {
+        LocalTime diez = LocalTime.of(10, 0);
+
+        assertThat(HorarioService.pisaTurnoOcupado(List.of(turno(10, 0, 30, "CONFIRMADO", false)), diez, 30)).isTrue();
+        assertThat(HorarioService.pisaTurnoOcupado(List.of(turno(10, 0, 30, "BLOQUEADO", false)), diez, 30)).isTrue();
+        assertThat(HorarioService.pisaTurnoOcupado(List.of(turno(10, 0, 30, "PENDIENTE_PAGO", true)), diez, 30)).isTrue();
+        // Reserva sin pagar y cancelados no ocupan
+        assertThat(HorarioService.pisaTurnoOcupado(List.of(turno(10, 0, 30, "PENDIENTE_PAGO", false)), diez, 30)).isFalse();
+        assertThat(HorarioService.pisaTurnoOcupado(List.of(turno(10, 0, 30, "CANCELADO", false)), diez, 30)).isFalse();
+    }
+
+    @Test
+    void pisaTurnoOcupadoConServiciosDeVariosSlots() {
+        List<Turno> dia = List.of(turno(10, 0, 90, "CONFIRMADO", true));
+
+        assertThat(HorarioService.pisaTurnoOcupado(dia, LocalTime.of(11, 0), 30)).isTrue();
+        assertThat(HorarioService.pisaTurnoOcupado(dia, LocalTime.of(9, 0), 60)).isFalse();
+        assertThat(HorarioService.pisaTurnoOcupado(dia, LocalTime.of(9, 30), 60)).isTrue();
+        assertThat(HorarioService.pisaTurnoOcupado(dia, LocalTime.of(11, 30), 60)).isFalse();
+    }
+
+    @Test
+    void pisaOcupacionSumaLosBloqueosDelDia() {
+        when(bloqueoService.rangosBloqueados(1L, FECHA)).thenReturn(List.of(new int[]{12 * 60, 12 * 60 + 59}));
+        List<Turno> dia = List.of(turno(10, 0, 30, "CONFIRMADO", false));
+
+        assertThat(horarioService.pisaOcupacion(1L, FECHA, dia, LocalTime.of(10, 0), 30)).isTrue();
+        assertThat(horarioService.pisaOcupacion(1L, FECHA, dia, LocalTime.of(11, 30), 60)).isTrue();  // pisa el bloqueo
+        assertThat(horarioService.pisaOcupacion(1L, FECHA, dia, LocalTime.of(11, 0), 60)).isFalse();
+        assertThat(horarioService.pisaOcupacion(1L, FECHA, dia, LocalTime.of(13, 0), 30)).isFalse();
+        // Sin bloqueos sólo cuentan los turnos
+        assertThat(horarioService.pisaOcupacion(2L, FECHA, dia, LocalTime.of(12, 0), 30)).isFalse();
+    }
+
+    @Test
+    void admiteSoloInicioHastaElUltimoHorarioDeLaFranja() {
+        // 09:00 a 12:00 y 15:00 a 20:00: se atiende hasta las 12:30 y las 20:30
+        when(horarioCompiladoService.obtener(1L)).thenReturn(todosLosDias(9 * 60, 12 * 60, 15 * 60, 20 * 60));
+
+        assertThat(horarioService.admite(1L, FECHA, LocalTime.of(20, 0), 30, null)).isTrue();
+        assertThat(horarioService.admite(1L, FECHA, LocalTime.of(20, 0), 31, null)).isFalse();
+        assertThat(horarioService.admite(1L, FECHA, LocalTime.of(19, 50), 40, null)).isTrue();
+        // Fuera de grilla después del último horario: termina antes de las 20:30 pero no se ofrece
+        assertThat(horarioService.admite(1L, FECHA, LocalTime.of(20, 15), 10, null)).isFalse();
+        assertThat(horarioService.admite(1L, FECHA, LocalTime.of(12, 15), 10, null)).isFalse();
+        assertThat(horarioService.admite(1L, FECHA, LocalTime.of(13, 0), 30, null)).isFalse();
+        assertThat(horarioService.admite(1L, FECHA, LocalTime.of(8, 50), 10, null)).isFalse();
+        assertThat(horarioService.admite(1L, FECHA, LocalTime.of(15, 0), 30, null)).isTrue();
+    }
+
+    @Test
+    void calcularLibresRespetaDuracionTurnosYBloqueos() {
+        int[] franjas = {9 * 60, 11 * 60 + 30};   // 09:00 a 11:30: se atiende hasta las 12:00
+        IntervalosDia ocupacion = IntervalosDia.builder()
+                .turno(LocalTime.of(10, 0), 45)
+                .build();
+
+        assertThat(horarioService.calcularLibres(FECHA, franjas, ocupacion, 30)).containsExactly(
+                LocalTime.of(9, 0), LocalTime.of(9, 30),
+                LocalTime.of(10, 45),                       // justo al terminar el turno de 45 min
+                LocalTime.of(11, 0), LocalTime.of(11, 30));
+
+        assertThat(horarioService.calcularLibres(FECHA, franjas, ocupacion, 60)).containsExactly(
+                LocalTime.of(9, 0), LocalTime.of(10, 45), LocalTime.of(11, 0));
+
+        IntervalosDia conBloqueo = IntervalosDia.builder()
+                .turno(LocalTime.of(10, 0), 45)
+                .bloqueos(List.<int[]>of(new int[]{11 * 60, 11 * 60 + 29}))
+                .build();
+        assertThat(horarioService.calcularLibres(FECHA, franjas, conBloqueo, 30)).containsExactly(
+                LocalTime.of(9, 0), LocalTime.of(9, 30), LocalTime.of(11, 30));
+    }
+}
@@ -0,0 +1,98 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.model.TipoCorte;
+import com.cromados.barberia.model.Turno;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntervalosDiaTest {
+
+    @Test
+    void sinOcupacionTodoLibre() {
+        assertThat(IntervalosDia.VACIO.libre(LocalTime.of(10, 0), 60)).isTrue();
+        assertThat(IntervalosDia.builder().build()).isSameAs(IntervalosDia.VACIO);
+    }
+
+    @Test
+    void turnoOcupaSuDuracionCompleta() {
+        IntervalosDia d = IntervalosDia.builder().turno(LocalTime.of(10, 0), 90).build();
+
+        assertThat(d.libre(LocalTime.of(10, 0), 30)).isFalse();
+        assertThat(d.libre(LocalTime.of(11, 0), 30)).isFalse();   // segundo slot del mismo turno
+        assertThat(d.libre(LocalTime.of(11, 30), 30)).isTrue();   // fin exclusivo
+        assertThat(d.libre(LocalTime.of(9, 30), 30)).isTrue();    // termina justo cuando empieza
+        assertThat(d.libre(LocalTime.of(9, 30), 31)).isFalse();
+    }
+
+    @Test
+    void servicioLargoNoEntraAntesDeUnTurno() {
+        IntervalosDia d = IntervalosDia.builder().turno(LocalTime.of(10, 0), 30).build();
+
+        assertThat(d.libre(LocalTime.of(9, 0), 60)).isTrue();
+        assertThat(d.libre(LocalTime.of(9, 30), 60)).isFalse();
+    }
+
+    @Test
+    void intervalosQueSeTocanOSePisanSeFusionan() {
+        IntervalosDia d = IntervalosDia.builder()
+                .agregar(600, 630)
+                .agregar(630, 660)   // se toca con el anterior
+                .agregar(650, 700)   // se pisa
+                .agregar(800, 830)
+                .build();
+
+        assertThat(d.cantidad()).isEqualTo(2);
+        assertThat(d.fin(0)).isEqualTo(700);
+        assertThat(d.libre(700, 100)).isTrue();
+        assertThat(d.libre(700, 101)).isFalse();
+    }
+
+    @Test
+    void ordenDeCargaNoImporta() {
+        IntervalosDia d = IntervalosDia.builder()
+                .agregar(900, 930)
+                .agregar(600, 630)
+                .agregar(700, 730)
+                .build();
+
+        assertThat(d.cantidad()).isEqualTo(3);
+        assertThat(d.libre(630, 70)).isTrue();
+        assertThat(d.libre(630, 71)).isFalse();
+        assertThat(d.libre(840, 60)).isTrue();
+    }
+
+    @Test
+    void bloqueosSonInclusive() {
+        IntervalosDia d = IntervalosDia.builder().bloqueos(List.of(new int[]{600, 629})).build();
+
+        assertThat(d.libre(570, 30)).isTrue();
+        assertThat(d.libre(629, 1)).isFalse();
+        assertThat(d.libre(630, 30)).isTrue();
+    }
+
+    @Test
+    void intervalosVaciosSeIgnoran() {
+        IntervalosDia d = IntervalosDia.builder().agregar(600, 600).turno(LocalTime.of(12, 0), 0).build();
+
+        assertThat(d.cantidad()).isZero();
+    }
+
+    @Test
+    void deTurnosUsaLaDuracionEfectiva() {
+        TipoCorte servicio = TipoCorte.builder().duracionMin(45).build();
+        Turno conDuracion = Turno.builder().hora(LocalTime.of(10, 0)).duracionMin(60).build();
+        Turno viejo = Turno.builder().hora(LocalTime.of(12, 0)).tipoCorte(servicio).build();   // sin duracion_min
+        Turno sinHora = Turno.builder().duracionMin(60).build();
+
+        IntervalosDia d = IntervalosDia.deTurnos(List.of(conDuracion, viejo, sinHora));
+
+        assertThat(d.libre(LocalTime.of(10, 30), 30)).isFalse();
+        assertThat(d.libre(LocalTime.of(11, 0), 60)).isTrue();
+        assertThat(d.libre(LocalTime.of(12, 30), 30)).isFalse();
+        assertThat(d.libre(LocalTime.of(12, 45), 30)).isTrue();
+    }
+}
@@ -0,0 +1,50 @@
+package com.cromados.barberia.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginThrottleServiceTest {
+
+    @Test
+    void usuariosDesconocidosCompartenUnBucket() {
+        LoginThrottleService t = new LoginThrottleService(1000, 1000, 5, 5, 10, "admin");
+
+        int permitidos = 0;
+        for (int i = 0; i < 100; i++) {
+            if (t.permitir("1.1.1.1", "usuario-" + i)) permitidos++;
+        }
+
+        assertThat(permitidos).isEqualTo(5);
+        assertThat(t.estadisticas()).containsEntry("claves", 2); // la IP y el bucket compartido
+        // El admin no queda bloqueado por los nombres inventados
+        assertThat(t.permitir("1.1.1.1", " Admin ")).isTrue();
+    }
+
+    @Test
+    void conElMapaLlenoUnaClaveNuevaSeRechazaSinCrecer() {
+        LoginThrottleService t = new LoginThrottleService(10, 10, 5, 5, 2, "admin");
+        assertThat(t.permitir("1.1.1.1", "admin")).isTrue();
+
+        // Las claves existentes siguen activas: la purga no libera nada
+        assertThat(t.permitir("2.2.2.2", "admin")).isFalse();
+        assertThat(t.estadisticas())
+                .containsEntry("claves", 2)
+                .containsEntry("rechazadosSinLugar", 1L);
+
+        assertThat(t.permitir("1.1.1.1", "admin")).isTrue();
+    }
+
+    @Test
+    void conElMapaLlenoSePurganLosBucketsInactivos() throws InterruptedException {
+        // Recarga de 10000 por segundo: un bucket queda lleno (purgable) en 1 ms
+        LoginThrottleService t = new LoginThrottleService(10, 600_000, 5, 300_000, 2, "admin");
+        assertThat(t.permitir("1.1.1.1", "admin")).isTrue();
+        Thread.sleep(20);
+
+        assertThat(t.permitir("2.2.2.2", "admin")).isTrue();
+        assertThat(t.estadisticas())
+                .containsEntry("claves", 2)
+                .containsEntry("rechazadosSinLugar", 0L);
+    }
+}
@@ -0,0 +1,100 @@
+package com.cromados.barberia.service;
+
+import com.mercadopago.resources.payment.Payment;
+import com.mercadopago.serialization.Serializer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MercadoPagoPaymentCacheTest {
+
+    private final PaymentGateway gateway = mock(PaymentGateway.class);
+
+    private static Payment pago(long id, String status) throws Exception {
+        return Serializer.deserializeFromJson(Payment.class,
+                "{\"id\":" + id + ",\"status\":\"" + status + "\"}");
+    }
+
+    @Test
+    void consultasConcurrentesDelMismoPagoHacenUnaSolaLlamada() throws Exception {
+        MercadoPagoPaymentCache cache = new MercadoPagoPaymentCache(gateway, 30_000);
+        CountDownLatch enLaApi = new CountDownLatch(1);
+        CountDownLatch responder = new CountDownLatch(1);
+        Payment aprobado = pago(1, "approved");
+        when(gateway.obtenerPago(1)).thenAnswer(inv -> {
+            enLaApi.countDown();
+            responder.await(5, TimeUnit.SECONDS);   // MP tarda: el resto llega mientras tanto
+            return aprobado;
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Payment>> consultas = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                consultas.add(pool.submit(() -> cache.obtener(1)));
+            }
+            assertThat(enLaApi.await(5, TimeUnit.SECONDS)).isTrue();
+            Thread.sleep(200);   // que el resto se sume a la consulta en curso
+            responder.countDown();
+
+            for (Future<Payment> f : consultas) {
+                assertThat(f.get(5, TimeUnit.SECONDS)).isSameAs(aprobado);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(gateway, times(1)).obtenerPago(1);
+
+        // Estado final: los reintentos de la notificación salen de la cache
+        assertThat(cache.obtener(1)).isSameAs(aprobado);
+        verify(gateway, times(1)).obtenerPago(1);
+    }
+
+    @Test
+    void unEstadoIntermedioNoSeCachea() throws Exception {
+        MercadoPagoPaymentCache cache = new MercadoPagoPaymentCache(gateway, 30_000);
+        when(gateway.obtenerPago(2)).thenReturn(pago(2, "in_process"), pago(2, "approved"));
+
+        assertThat(cache.obtener(2).getStatus()).isEqualTo("in_process");
+        // La notificación siguiente es justamente el cambio de estado
+        assertThat(cache.obtener(2).getStatus()).isEqualTo("approved");
+        verify(gateway, times(2)).obtenerPago(2);
+    }
+
+    @Test
+    void unErrorNoSeCachea() throws Exception {
+        MercadoPagoPaymentCache cache = new MercadoPagoPaymentCache(gateway, 30_000);
+        when(gateway.obtenerPago(3))
+                .thenThrow(new IllegalStateException("MP no responde"))
+                .thenReturn(pago(3, "approved"));
+
+        assertThatThrownBy(() -> cache.obtener(3)).hasMessage("MP no responde");
+        assertThat(cache.obtener(3).getStatus()).isEqualTo("approved");
+        verify(gateway, times(2)).obtenerPago(3);
+    }
+
+    @Test
+    void unEstadoFinalVenceAlCumplirseElTtl() throws Exception {
+        MercadoPagoPaymentCache cache = new MercadoPagoPaymentCache(gateway, 50);
+        when(gateway.obtenerPago(4)).thenReturn(pago(4, "approved"), pago(4, "refunded"));
+
+        assertThat(cache.obtener(4).getStatus()).isEqualTo("approved");
+        Thread.sleep(100);
+
+        assertThat(cache.obtener(4).getStatus()).isEqualTo("refunded");
+        verify(gateway, times(2)).obtenerPago(4);
+    }
+}
@@ -0,0 +1,141 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.model.RefreshRevocado;
+import com.cromados.barberia.repository.RefreshRevocadoRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RefreshTokenServiceTest {
+
+    private static final Instant EXPIRA = Instant.now().plus(Duration.ofDays(15));
+
+    private final RefreshRevocadoRepository repo = mock(RefreshRevocadoRepository.class);
+
+    private RefreshTokenService servicio(long graciaSegundos) {
+        when(repo.revocar(anyString(), any())).thenReturn(1);
+        return new RefreshTokenService(repo, mock(JobLeaseService.class), graciaSegundos, 15);
+    }
+
+    @Test
+    void primerUsoRotaElToken() {
+        RefreshTokenService s = servicio(10);
+
+        assertThat(s.consumir("jti-1", "fam-1", EXPIRA)).isEqualTo(RefreshTokenService.Resultado.OK);
+        verify(repo).revocar("jti-1", EXPIRA);
+        assertThat(s.consumir("jti-2", "fam-1", EXPIRA)).isEqualTo(RefreshTokenService.Resultado.OK);
+    }
+
+    @Test
+    void reusoDentroDeLaGraciaNoRevocaLaSesion() {
+        RefreshTokenService s = servicio(10);
+        s.consumir("jti-1", "fam-1", EXPIRA);
+
+        // Otra pestaña presentó el mismo refresh a la vez
+        assertThat(s.consumir("jti-1", "fam-1", EXPIRA)).isEqualTo(RefreshTokenService.Resultado.ROTADO);
+        verify(repo, never()).revocar(eq("fam:fam-1"), any());
+        assertThat(s.consumir("jti-2", "fam-1", EXPIRA)).isEqualTo(RefreshTokenService.Resultado.OK);
+    }
+
+    @Test
+    void reusoFueraDeLaGraciaRevocaLaFamilia() throws InterruptedException {
+        RefreshTokenService s = servicio(0);
+        s.consumir("jti-1", "fam-1", EXPIRA);
+        assertThat(s.consumir("jti-2", "fam-1", EXPIRA)).isEqualTo(RefreshTokenService.Resultado.OK);
+        Thread.sleep(5);
+
+        assertThat(s.consumir("jti-1", "fam-1", EXPIRA)).isEqualTo(RefreshTokenService.Resultado.REVOCADO);
+        verify(repo).revocar(eq("fam:fam-1"), any());
+
+        // El refresh vigente de la misma sesión tampoco sirve más; otras familias sí
+        assertThat(s.consumir("jti-3", "fam-1", EXPIRA)).isEqualTo(RefreshTokenService.Resultado.REVOCADO);
+        verify(repo, never()).revocar(eq("jti-3"), any());
+        assertThat(s.consumir("jti-9", "fam-2", EXPIRA)).isEqualTo(RefreshTokenService.Resultado.OK);
+    }
+
+    @Test
+    void reusoDeUnTokenRotadoPorOtraInstancia() {
+        RefreshTokenService s = servicio(10);
+        when(repo.revocar("jti-1", EXPIRA)).thenReturn(0);   // ya estaba en la tabla
+        when(repo.findById("jti-1")).thenReturn(Optional.of(
+                new RefreshRevocado("jti-1", EXPIRA, Instant.now().minus(Duration.ofMinutes(5)))));
+
+        assertThat(s.consumir("jti-1", "fam-1", EXPIRA)).isEqualTo(RefreshTokenService.Resultado.REVOCADO);
+        verify(repo).revocar(eq("fam:fam-1"), any());
+    }
+
+    @Test
+    void familiaRevocadaEnOtraInstanciaAntesDeSincronizar() {
+        RefreshTokenService s = servicio(10);
+        when(repo.findById("fam:fam-1")).thenReturn(Optional.of(
+                new RefreshRevocado("fam:fam-1", EXPIRA, Instant.now())));
+
+        assertThat(s.consumir("jti-1", "fam-1", EXPIRA)).isEqualTo(RefreshTokenService.Resultado.REVOCADO);
+        // Queda en memoria: el siguiente refresh de la sesión ni toca la DB
+        assertThat(s.consumir("jti-2", "fam-1", EXPIRA)).isEqualTo(RefreshTokenService.Resultado.REVOCADO);
+        verify(repo, never()).revocar(eq("jti-2"), any());
+        verify(repo, times(1)).findById("fam:fam-1");
+    }
+
+    @Test
+    void logoutRevocaTodaLaSesion() {
+        RefreshTokenService s = servicio(10);
+
+        s.revocarSesion("jti-1", "fam-1", EXPIRA);
+
+        verify(repo).revocar("jti-1", EXPIRA);
+        verify(repo).revocar(eq("fam:fam-1"), any());
+        assertThat(s.consumir("jti-1", "fam-1", EXPIRA)).isEqualTo(RefreshTokenService.Resultado.REVOCADO);
+        assertThat(s.consumir("jti-2", "fam-1", EXPIRA)).isEqualTo(RefreshTokenService.Resultado.REVOCADO);
+    }
+
+    @Test
+    void familiaYaRevocadaNoSeVuelveAEscribir() {
+        RefreshTokenService s = servicio(10);
+
+        s.revocarSesion("jti-1", "fam-1", EXPIRA);
+        s.revocarSesion("jti-2", "fam-1", EXPIRA);
+
+        verify(repo, times(1)).revocar(eq("fam:fam-1"), any());
+    }
+
+    @Test
+    void sincronizarTraeRevocacionesDeOtrasInstancias() {
+        RefreshTokenService s = servicio(10);
+        when(repo.findRevocadasDesde(any(), any())).thenReturn(List.of(
+                new RefreshRevocado("fam:fam-1", EXPIRA, Instant.now())));
+
+        s.sincronizar();
+
+        assertThat(s.consumir("jti-1", "fam-1", EXPIRA)).isEqualTo(RefreshTokenService.Resultado.REVOCADO);
+        verify(repo, never()).revocar(eq("jti-1"), any());
+    }
+
+    @Test
+    void sinJtiSeRechaza() {
+        RefreshTokenService s = servicio(10);
+
+        assertThat(s.consumir(null, "fam-1", EXPIRA)).isEqualTo(RefreshTokenService.Resultado.REVOCADO);
+    }
+
+    @Test
+    void tokensSinFamiliaRotanIgual() {
+        RefreshTokenService s = servicio(10);
+
+        assertThat(s.consumir("jti-viejo", null, EXPIRA)).isEqualTo(RefreshTokenService.Resultado.OK);
+        assertThat(s.consumir("jti-viejo", null, EXPIRA)).isEqualTo(RefreshTokenService.Resultado.ROTADO);
+    }
+}
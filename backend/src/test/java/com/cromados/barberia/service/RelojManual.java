@@ -0,0 +1,36 @@
+package com.cromados.barberia.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/** Reloj que sólo avanza cuando el test lo pide. */
+class RelojManual extends Clock {
+
+    private volatile Instant ahora;
+
+    RelojManual(Instant inicio) {
+        this.ahora = inicio;
+    }
+
+    void avanzar(Duration d) {
+        ahora = ahora.plus(d);
+    }
+
+    @Override
+    public Instant instant() {
+        return ahora;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,21 @@
+package com.cromados.barberia.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StubPaymentGatewayTest {
+
+    @Test
+    void noArrancaConCredencialesReales() {
+        assertThatThrownBy(() -> new StubPaymentGateway("http://localhost:8080", 0, "APP_USR-123"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("MP_ACCESS_TOKEN");
+    }
+
+    @Test
+    void sinCredencialesArranca() {
+        assertThat(new StubPaymentGateway("http://localhost:8080/", 0, "").simulado()).isTrue();
+    }
+}
@@ -0,0 +1,140 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.repository.TurnoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TemporizadorServiceTest {
+
+    private static final ZoneId ZONA_ARGENTINA = ZoneId.of("America/Argentina/Buenos_Aires");
+    private static final Instant INICIO = Instant.parse("2026-03-10T12:00:00Z");
+
+    private final RelojManual reloj = new RelojManual(INICIO);
+    private final TurnoRepository turnoRepo = mock(TurnoRepository.class);
+    private final ZombieBookingReaperScheduler reaper = mock(ZombieBookingReaperScheduler.class);
+    private final WhatsAppRecordatorioScheduler recordatorios = mock(WhatsAppRecordatorioScheduler.class);
+    private final JobLeaseService leases = mock(JobLeaseService.class);
+    private final TimingWheel wheel = new TimingWheel(1000, 64, 4, Runnable::run, null, reloj);
+    private final TemporizadorService temporizador =
+            new TemporizadorService(turnoRepo, reaper, recordatorios, leases, reloj, null, wheel);
+
+    @BeforeEach
+    void leaseLibre() {
+        when(leases.ejecutar(any(), any())).thenAnswer(inv -> {
+            ((Runnable) inv.getArgument(1)).run();
+            return true;
+        });
+        when(recordatorios.barrerProgramados()).thenReturn(true);
+    }
+
+    private void avanzar(Duration d) {
+        reloj.avanzar(d);
+        wheel.ponerAlDia();
+    }
+
+    private static LocalDateTime horaArgentina(Instant instante) {
+        return LocalDateTime.ofInstant(instante, ZONA_ARGENTINA);
+    }
+
+    @Test
+    void alReconstruirLoVencidoSeDisparaEnseguida() {
+        when(turnoRepo.findExpiracionesProgramables()).thenReturn(List.of(
+                new Object[]{1L, INICIO.minusSeconds(120)},      // venció con la app caída
+                new Object[]{2L, INICIO.plusSeconds(600)}));
+        when(turnoRepo.findRecordatoriosProgramables(any())).thenReturn(List.<Object[]>of(
+                new Object[]{3L, horaArgentina(INICIO.minusSeconds(1800))}));
+
+        temporizador.reconstruir();
+
+        verify(reaper).expirarTurno(1L);
+        verify(reaper, never()).expirarTurno(2L);
+        verify(recordatorios, times(1)).barrerProgramados();
+        assertThat(temporizador.pendientes()).isEqualTo(1);
+
+        avanzar(Duration.ofMinutes(10));
+        verify(reaper).expirarTurno(2L);
+        assertThat(temporizador.pendientes()).isZero();
+    }
+
+    @Test
+    void recordatorioFueraDeLaGraciaNoSeProgramaAlReconstruir() {
+        when(turnoRepo.findRecordatoriosProgramables(any())).thenReturn(List.<Object[]>of(
+                new Object[]{3L, horaArgentina(INICIO.minus(Duration.ofHours(3)))}));
+
+        temporizador.reconstruir();
+
+        verify(recordatorios, never()).barrerProgramados();
+        assertThat(temporizador.pendientes()).isZero();
+    }
+
+    @Test
+    void sincronizarReprogramaYCancelaPorTurno() {
+        temporizador.sincronizar(7L, "PENDIENTE_PAGO", INICIO.plusSeconds(60), null);
+        temporizador.sincronizar(7L, "PENDIENTE_PAGO", INICIO.plusSeconds(300), null); // extendida
+
+        avanzar(Duration.ofSeconds(120));
+        verify(reaper, never()).expirarTurno(anyLong());
+
+        avanzar(Duration.ofSeconds(180));
+        verify(reaper, times(1)).expirarTurno(7L);
+
+        // Pagado antes de vencer: se cancela la expiración y queda sólo el recordatorio
+        temporizador.sincronizar(8L, "PENDIENTE_PAGO", INICIO.plusSeconds(600), null);
+        temporizador.sincronizar(8L, "CONFIRMADO", null, horaArgentina(INICIO.plusSeconds(3600)));
+        avanzar(Duration.ofMinutes(30));
+        verify(reaper, never()).expirarTurno(8L);
+        verify(recordatorios, never()).barrerProgramados();
+
+        avanzar(Duration.ofMinutes(30));
+        verify(recordatorios, times(1)).barrerProgramados();
+    }
+
+    @Test
+    void leaseOcupadoReintentaLaExpiracion() {
+        doReturn(false).doAnswer(inv -> {
+            ((Runnable) inv.getArgument(1)).run();
+            return true;
+        }).when(leases).ejecutar(eq(JobLeaseService.JOB_REAPER), any());
+
+        temporizador.sincronizar(9L, "PENDIENTE_PAGO", INICIO.plusSeconds(10), null);
+        avanzar(Duration.ofSeconds(10));
+        verify(reaper, never()).expirarTurno(9L);
+
+        avanzar(Duration.ofSeconds(30));
+        verify(reaper, times(1)).expirarTurno(9L);
+    }
+
+    @Test
+    void barridoSinLeaseSeReintentaUnaSolaVez() {
+        when(recordatorios.barrerProgramados()).thenReturn(false, true);
+        LocalDateTime vence = horaArgentina(INICIO.plusSeconds(60));
+        for (long id = 1; id <= 5; id++) {
+            temporizador.sincronizar(id, "CONFIRMADO", null, vence); // ráfaga a la misma hora
+        }
+
+        avanzar(Duration.ofSeconds(60));
+        verify(recordatorios, times(5)).barrerProgramados();
+        assertThat(temporizador.pendientes()).isEqualTo(1); // la clave única de reintento
+
+        avanzar(Duration.ofSeconds(30));
+        verify(recordatorios, times(6)).barrerProgramados();
+        assertThat(temporizador.pendientes()).isZero();
+    }
+}
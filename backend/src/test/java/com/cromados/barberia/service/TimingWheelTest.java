@@ -0,0 +1,94 @@
+package com.cromados.barberia.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTest {
+
+    private static final Instant INICIO = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final RelojManual reloj = new RelojManual(INICIO);
+    // 4 slots x 3 niveles con tick de 1 s: el nivel 0 cubre 4 s, el 1 16 s y el 2 64 s
+    private final TimingWheel wheel = new TimingWheel(1000, 4, 3, Runnable::run, null, reloj);
+
+    /** Segundo (desde INICIO) en que corrió cada clave. */
+    private final Map<String, Long> disparos = new LinkedHashMap<>();
+
+    private void programar(String clave, long segundos) {
+        wheel.programar(clave, INICIO.plusSeconds(segundos), () ->
+                disparos.put(clave, Duration.between(INICIO, reloj.instant()).getSeconds()));
+    }
+
+    private void avanzarDeAUnSegundo(long segundos) {
+        for (long i = 0; i < segundos; i++) {
+            reloj.avanzar(Duration.ofSeconds(1));
+            wheel.ponerAlDia();
+        }
+    }
+
+    @Test
+    void cadaNivelBajaYVenceEnSuTick() {
+        programar("nivel0", 3);
+        programar("nivel1", 10);
+        programar("nivel2", 40);
+        programar("masAllaDelUltimoNivel", 100);
+        programar("otraVueltaDelUltimoNivel", 200);
+
+        avanzarDeAUnSegundo(250);
+
+        assertThat(disparos).containsExactly(
+                Map.entry("nivel0", 3L),
+                Map.entry("nivel1", 10L),
+                Map.entry("nivel2", 40L),
+                Map.entry("masAllaDelUltimoNivel", 100L),
+                Map.entry("otraVueltaDelUltimoNivel", 200L));
+        assertThat(wheel.pendientes()).isZero();
+    }
+
+    @Test
+    void unRelojAtrasadoSePoneAlDiaEnOrden() {
+        programar("c", 40);
+        programar("a", 3);
+        programar("b", 10);
+
+        reloj.avanzar(Duration.ofSeconds(60)); // el hilo se durmió un minuto
+        wheel.ponerAlDia();
+
+        assertThat(disparos.keySet()).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void cancelarYReprogramarPorClave() {
+        programar("movido", 5);
+        programar("cancelado", 5);
+        programar("movido", 20);          // reemplaza al de 5 s
+        assertThat(wheel.cancelar("cancelado")).isTrue();
+        assertThat(wheel.estaProgramado("cancelado")).isFalse();
+        assertThat(wheel.pendientes()).isEqualTo(1);
+
+        avanzarDeAUnSegundo(10);
+        assertThat(disparos).isEmpty();   // el bucket viejo se vacía sin correr nada
+
+        avanzarDeAUnSegundo(20);
+        assertThat(disparos).containsExactly(Map.entry("movido", 20L));
+    }
+
+    @Test
+    void loVencidoCorreAlProgramarlo() {
+        List<String> corridas = new ArrayList<>();
+
+        wheel.programar("pasado", INICIO.minusSeconds(30), () -> corridas.add("pasado"));
+        wheel.programar("ahora", INICIO, () -> corridas.add("ahora"));
+
+        assertThat(corridas).containsExactly("pasado", "ahora");
+        assertThat(wheel.pendientes()).isZero();
+    }
+}
@@ -0,0 +1,60 @@
+package com.cromados.barberia.service;
+
+import com.cromados.barberia.repository.TurnoRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WhatsAppRecordatorioSchedulerTest {
+
+    private final TurnoRepository turnoRepo = mock(TurnoRepository.class);
+    private final JobLeaseService leases = mock(JobLeaseService.class);
+    private final WhatsAppRecordatorioScheduler scheduler = new WhatsAppRecordatorioScheduler(
+            turnoRepo, mock(WhatsAppMetaService.class), mock(TwilioService.class), leases);
+
+    @Test
+    void rafagaDeTemporizadoresHaceUnSoloBarridoPorVuelta() throws Exception {
+        CountDownLatch adentro = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        when(leases.ejecutar(eq(JobLeaseService.JOB_RECORDATORIOS), any())).thenAnswer(inv -> {
+            if (adentro.getCount() > 0) {
+                adentro.countDown();
+                soltar.await(5, TimeUnit.SECONDS); // primer barrido todavía despachando
+            }
+            ((Runnable) inv.getArgument(1)).run();
+            return true;
+        });
+
+        CompletableFuture<Boolean> primero = CompletableFuture.supplyAsync(scheduler::barrerProgramados);
+        assertThat(adentro.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // El resto de la ráfaga vence mientras tanto: sólo anota el pedido
+        for (int i = 0; i < 20; i++) {
+            assertThat(scheduler.barrerProgramados()).isTrue();
+        }
+        soltar.countDown();
+
+        assertThat(primero.get(5, TimeUnit.SECONDS)).isTrue();
+        // Un barrido por la ráfaga inicial y uno más por lo que venció durante él
+        verify(leases, times(2)).ejecutar(eq(JobLeaseService.JOB_RECORDATORIOS), any());
+        verify(turnoRepo, times(2)).findRecordatoriosPendientes(any(), any());
+    }
+
+    @Test
+    void sinLeaseAvisaParaReintentar() {
+        when(leases.ejecutar(eq(JobLeaseService.JOB_RECORDATORIOS), any())).thenReturn(false);
+
+        assertThat(scheduler.barrerProgramados()).isFalse();
+        verify(leases, times(1)).ejecutar(eq(JobLeaseService.JOB_RECORDATORIOS), any());
+    }
+}